@@ -16,7 +16,9 @@
  */
 package com.helger.peppol.apsupport;
 
+import java.net.URI;
 import java.time.Duration;
+import java.util.function.Predicate;
 
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
@@ -24,11 +26,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.helger.annotation.Nonempty;
+import com.helger.annotation.Nonnegative;
 import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.state.EChange;
+import com.helger.base.state.ESuccess;
 import com.helger.base.trait.IGenericImplTrait;
-import com.helger.collection.commons.CommonsHashMap;
-import com.helger.collection.commons.ICommonsMap;
-import com.helger.datetime.expiration.ExpiringObject;
+import com.helger.peppol.apsupport.cache.IBinaryCacheStore;
+import com.helger.peppol.apsupport.cache.ISecondLevelCache;
 import com.helger.peppol.servicedomain.EPeppolNetwork;
 import com.helger.peppol.smp.ESMPTransportProfile;
 import com.helger.peppolid.IDocumentTypeIdentifier;
@@ -57,11 +61,10 @@ public abstract class AbstractDocTypeSupportCache <IMPLTYPE extends AbstractDocT
   private static final Logger LOGGER = LoggerFactory.getLogger (AbstractDocTypeSupportCache.class);
 
   private final EPeppolNetwork m_ePeppolNetwork;
-  private Duration m_aMaxCacheDuration = DEFAULT_MAX_CACHE_DURATION;
-  private final ICommonsMap <String, ExpiringObject <EndpointType>> m_aMap = new CommonsHashMap <> ();
   private final IDocumentTypeIdentifier m_aDocTypeID;
   private final IProcessIdentifier m_aProcessID;
   private final String m_sDocTypeName;
+  private final TieredParticipantCache <ResolvedSMPEndpoint> m_aCache;
 
   /**
    * Constructor
@@ -91,6 +94,12 @@ public abstract class AbstractDocTypeSupportCache <IMPLTYPE extends AbstractDocT
     m_aDocTypeID = aDocTypeID;
     m_aProcessID = aProcessID;
     m_sDocTypeName = sDocTypeName;
+    // The network is part of the name, so that caches for different networks don't clash in JMX
+    // and in shared second level cache regions
+    m_aCache = new TieredParticipantCache <> (sDocTypeName + "SupportCache-" + ePeppolNetwork.getID (),
+                                              ResolvedSMPEndpointCacheCodec.INSTANCE,
+                                              this::_querySmpEndpoint,
+                                              DEFAULT_MAX_CACHE_DURATION);
   }
 
   /**
@@ -108,7 +117,7 @@ public abstract class AbstractDocTypeSupportCache <IMPLTYPE extends AbstractDocT
   @NonNull
   public final Duration getMaxCacheDuration ()
   {
-    return m_aMaxCacheDuration;
+    return m_aCache.getExpiration ();
   }
 
   /**
@@ -122,30 +131,193 @@ public abstract class AbstractDocTypeSupportCache <IMPLTYPE extends AbstractDocT
   public final IMPLTYPE setMaxCacheDuration (@NonNull final Duration aMaxCacheDuration)
   {
     ValueEnforcer.notNull (aMaxCacheDuration, "MaxCacheDuration");
-    m_aMaxCacheDuration = aMaxCacheDuration;
+    m_aCache.setExpiration (aMaxCacheDuration);
     return thisAsT ();
   }
 
+  /**
+   * @return The maximum random deviation of the cache duration in percent. Between 0 and 100.
+   * @since 2.2.2
+   */
+  @Nonnegative
+  public final int getCacheDurationJitterPercentage ()
+  {
+    return m_aCache.getExpirationJitterPercentage ();
+  }
+
+  /**
+   * Set the maximum random deviation of the cache duration in percent. This avoids that many
+   * entries loaded at the same time also expire at the same time. Defaults to 10.
+   *
+   * @param nCacheDurationJitterPercentage
+   *        The jitter in percent. Must be between 0 and 100. 0 disables the jitter.
+   * @return this for chaining
+   * @since 2.2.2
+   */
+  @NonNull
+  public final IMPLTYPE setCacheDurationJitterPercentage (@Nonnegative final int nCacheDurationJitterPercentage)
+  {
+    m_aCache.setExpirationJitterPercentage (nCacheDurationJitterPercentage);
+    return thisAsT ();
+  }
+
+  /**
+   * @return The policy to adapt the cache duration per participant. May be <code>null</code>.
+   * @since 2.2.2
+   */
   @Nullable
-  protected EndpointType resolveSmpEndpoint (@NonNull final IParticipantIdentifier aPID)
+  public final AdaptiveExpirationPolicy getAdaptiveExpirationPolicy ()
   {
-    ValueEnforcer.notNull (aPID, "PID");
-    final String sKey = aPID.getURIEncoded ();
+    return m_aCache.getAdaptiveExpirationPolicy ();
+  }
 
-    // Check in cache
-    final ExpiringObject <EndpointType> aItem = m_aMap.get (sKey);
-    if (aItem != null)
-    {
-      if (aItem.isExpiredNow ())
-        m_aMap.remove (sKey);
-      else
-      {
-        final EndpointType ret = aItem.getObject ();
-        if (LOGGER.isDebugEnabled ())
-          LOGGER.debug (m_sDocTypeName + " support for '" + sKey + "' is taken from cache: " + (ret != null));
-        return ret;
-      }
-    }
+  /**
+   * Set the policy to adapt the cache duration per participant. If set, the cache duration of
+   * participants whose endpoint did not change on refresh is increased, and it is decreased for
+   * participants whose endpoint changed. Participants evicted from the on-heap tier are only
+   * considered if a second tier or a second level cache is configured, as these keep expired
+   * entries for another cache duration. By default, {@link #getMaxCacheDuration()} is used for all participants.
+   *
+   * @param aAdaptiveExpirationPolicy
+   *        The policy to use. May be <code>null</code> to use a fixed cache duration.
+   * @return this for chaining
+   * @since 2.2.2
+   */
+  @NonNull
+  public final IMPLTYPE setAdaptiveExpirationPolicy (@Nullable final AdaptiveExpirationPolicy aAdaptiveExpirationPolicy)
+  {
+    m_aCache.setAdaptiveExpirationPolicy (aAdaptiveExpirationPolicy);
+    return thisAsT ();
+  }
+
+  /**
+   * @return The maximum number of entries kept on the Java heap. 0 means unlimited.
+   * @since 2.2.2
+   */
+  @Nonnegative
+  public final int getMaxHotTierSize ()
+  {
+    return m_aCache.getMaxHotSize ();
+  }
+
+  /**
+   * Set the maximum number of entries kept on the Java heap. If more entries are present, the least
+   * recently used ones are dropped. This is usually only useful in combination with a second tier
+   * (see {@link #setSecondTier(IBinaryCacheStore)}). By default the number is unlimited.
+   *
+   * @param nMaxHotTierSize
+   *        The maximum number of entries to keep on the heap. 0 means unlimited.
+   * @return this for chaining
+   * @since 2.2.2
+   */
+  @NonNull
+  public final IMPLTYPE setMaxHotTierSize (@Nonnegative final int nMaxHotTierSize)
+  {
+    m_aCache.setMaxHotSize (nMaxHotTierSize);
+    return thisAsT ();
+  }
+
+  /**
+   * @return The second cache tier that stores serialized endpoints outside of the Java heap. May be
+   *         <code>null</code>.
+   * @since 2.2.2
+   */
+  @Nullable
+  public final IBinaryCacheStore getSecondTier ()
+  {
+    return m_aCache.getSecondTier ();
+  }
+
+  /**
+   * Set the second cache tier to be used. It is queried if an entry is not contained in the on-heap
+   * hot tier and it is filled with every endpoint resolved from an SMP.
+   *
+   * @param aSecondTier
+   *        The second tier to use, e.g. an
+   *        {@link com.helger.peppol.apsupport.cache.OffHeapBinaryCacheStore}. May be
+   *        <code>null</code> to use only the on-heap cache.
+   * @return this for chaining
+   * @since 2.2.2
+   */
+  @NonNull
+  public final IMPLTYPE setSecondTier (@Nullable final IBinaryCacheStore aSecondTier)
+  {
+    m_aCache.setSecondTier (aSecondTier);
+    return thisAsT ();
+  }
+
+  /**
+   * @return The second level cache shared between all nodes of a cluster. May be
+   *         <code>null</code>.
+   * @since 2.2.2
+   */
+  @Nullable
+  public final ISecondLevelCache getSecondLevelCache ()
+  {
+    return m_aCache.getSecondLevelCache ();
+  }
+
+  /**
+   * Set the second level cache to be used. It is queried after all local tiers and before the SMP,
+   * and it is filled with every endpoint resolved from an SMP.
+   *
+   * @param aSecondLevelCache
+   *        The second level cache to use, e.g. a
+   *        {@link com.helger.peppol.apsupport.cache.FileSecondLevelCache}. May be
+   *        <code>null</code> to use only the local tiers.
+   * @return this for chaining
+   * @since 2.2.2
+   */
+  @NonNull
+  public final IMPLTYPE setSecondLevelCache (@Nullable final ISecondLevelCache aSecondLevelCache)
+  {
+    m_aCache.setSecondLevelCache (aSecondLevelCache);
+    return thisAsT ();
+  }
+
+  /**
+   * @return The statistics of this cache. Never <code>null</code>.
+   * @since 2.2.2
+   */
+  @NonNull
+  public final IParticipantCacheMXBean getStatistics ()
+  {
+    return m_aCache.getStatistics ();
+  }
+
+  /**
+   * Register the statistics of this cache as an MBean at the platform MBean server. The object
+   * name is <code>com.helger.peppol.apsupport:type=ParticipantCache,name="<i>cache name</i>"</code>,
+   * where the cache name contains the document type name and the Peppol Network ID (e.g.
+   * <code>MLRSupportCache-test</code>).
+   *
+   * @return {@link ESuccess#FAILURE} if registration failed, e.g. because another cache with the
+   *         same name is already registered.
+   * @since 2.2.2
+   */
+  @NonNull
+  public final ESuccess registerMBean ()
+  {
+    return m_aCache.registerMBean ();
+  }
+
+  /**
+   * Unregister the statistics of this cache from the platform MBean server.
+   *
+   * @return {@link EChange#CHANGED} if the MBean was registered before.
+   * @since 2.2.2
+   */
+  @NonNull
+  public final EChange unregisterMBean ()
+  {
+    return m_aCache.unregisterMBean ();
+  }
+
+  @Nullable
+  private ResolvedSMPEndpoint _querySmpEndpoint (@NonNull final IParticipantIdentifier aPID,
+                                                 @NonNull final TieredParticipantCache.ILoadListener aListener)
+  {
+    final String sKey = aPID.getURIEncoded ();
 
     // Query from SMP
     EndpointType aEndpoint = null;
@@ -155,6 +327,7 @@ public abstract class AbstractDocTypeSupportCache <IMPLTYPE extends AbstractDocT
       final SMPClientReadOnly aSMPClient = new SMPClientReadOnly (PeppolNaptrURLProvider.INSTANCE,
                                                                   aPID,
                                                                   m_ePeppolNetwork.getSMLInfo ());
+      aListener.onOrigin (URI.create (aSMPClient.getSMPHostURI ()).getHost ());
       aEndpoint = aSMPClient.getEndpoint (aPID,
                                           m_aDocTypeID,
                                           m_aProcessID,
@@ -165,11 +338,111 @@ public abstract class AbstractDocTypeSupportCache <IMPLTYPE extends AbstractDocT
     {
       // Fall through - not supported
       LOGGER.error ("Error performing SMP query for " + m_sDocTypeName, ex);
+      aListener.onError (ex);
     }
+    // Parse only once per load
+    return aEndpoint == null ? null : new ResolvedSMPEndpoint (aEndpoint);
+  }
+
+  @Nullable
+  protected EndpointType resolveSmpEndpoint (@NonNull final IParticipantIdentifier aPID)
+  {
+    final ResolvedSMPEndpoint aResolved = getResolvedSmpEndpoint (aPID);
+    return aResolved == null ? null : aResolved.getEndpoint ();
+  }
+
+  /**
+   * Get the endpoint of the provided participant including the parsed certificate, URL and
+   * validity, from the cache or from the SMP.
+   *
+   * @param aPID
+   *        The participant ID to query. May not be <code>null</code>.
+   * @return <code>null</code> if no such endpoint is registered.
+   * @since 2.2.2
+   */
+  @Nullable
+  protected ResolvedSMPEndpoint getResolvedSmpEndpoint (@NonNull final IParticipantIdentifier aPID)
+  {
+    ValueEnforcer.notNull (aPID, "PID");
+
+    // Check in cache and remember in cache
+    return m_aCache.get (aPID);
+  }
+
+  /**
+   * Remove the cached endpoint of a single participant from all cache tiers, so that it is
+   * queried again from the SMP on the next access.
+   *
+   * @param aPID
+   *        The participant to remove. May not be <code>null</code>.
+   * @return {@link EChange#CHANGED} if an entry was removed.
+   * @since 2.2.2
+   */
+  @NonNull
+  public EChange removeFromCache (@NonNull final IParticipantIdentifier aPID)
+  {
+    return m_aCache.remove (aPID);
+  }
+
+  /**
+   * Remove the cached endpoints of all participants matching the provided filter from all
+   * cache tiers.
+   *
+   * @param aFilter
+   *        The participant filter. May not be <code>null</code>.
+   * @return {@link EChange#CHANGED} if at least one entry was removed.
+   * @since 2.2.2
+   */
+  @NonNull
+  public EChange removeFromCacheIf (@NonNull final Predicate <? super IParticipantIdentifier> aFilter)
+  {
+    return m_aCache.removeIf (aFilter);
+  }
 
-    // Remember in cache
-    m_aMap.put (sKey, ExpiringObject.ofDuration (aEndpoint, m_aMaxCacheDuration));
+  /**
+   * Remove the cached endpoints of all participants using the provided identifier scheme from
+   * all cache tiers.
+   *
+   * @param sScheme
+   *        The participant identifier scheme, e.g. <code>iso6523-actorid-upis</code>. May neither
+   *        be <code>null</code> nor empty.
+   * @return {@link EChange#CHANGED} if at least one entry was removed.
+   * @since 2.2.2
+   */
+  @NonNull
+  public EChange removeFromCacheByScheme (@NonNull @Nonempty final String sScheme)
+  {
+    ValueEnforcer.notEmpty (sScheme, "Scheme");
+    return m_aCache.removeIf (x -> x.hasScheme (sScheme));
+  }
+
+  /**
+   * Remove the cached endpoints of all participants that were resolved from the provided SMP
+   * host from all cache tiers. Only entries that were queried by this instance are considered,
+   * entries taken from a shared tier are not.
+   *
+   * @param sSMPHostName
+   *        The host name of the SMP, e.g. <code>smp.example.org</code>. Case insensitive. May
+   *        neither be <code>null</code> nor empty.
+   * @return {@link EChange#CHANGED} if at least one entry was removed.
+   * @since 2.2.2
+   */
+  @NonNull
+  public EChange removeFromCacheBySMPHost (@NonNull @Nonempty final String sSMPHostName)
+  {
+    return m_aCache.removeByOrigin (sSMPHostName);
+  }
 
-    return aEndpoint;
+  /**
+   * Remove all cached endpoints from all cache tiers.
+   *
+   * @return {@link EChange#CHANGED} if something was contained in the cache,
+   *         {@link EChange#UNCHANGED} otherwise.
+   * @since 2.2.2
+   */
+  @NonNull
+  public EChange clearCache ()
+  {
+    return m_aCache.clear ();
   }
 }
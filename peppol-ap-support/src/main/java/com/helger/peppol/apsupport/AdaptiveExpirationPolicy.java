@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2025-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.apsupport;
+
+import java.time.Duration;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.tostring.ToStringGenerator;
+
+/**
+ * Policy to adapt the cache duration per participant. Every time an entry is refreshed, the new
+ * value is compared with the previous value. If the value did not change, the cache duration of
+ * that participant is doubled, up to the maximum. If it changed, the cache duration is halved, down
+ * to the minimum. The first cache duration of each participant is the regular cache duration.
+ *
+ * @author Philip Helger
+ * @since 2.2.2
+ */
+@Immutable
+public final class AdaptiveExpirationPolicy
+{
+  private final Duration m_aMinExpiration;
+  private final Duration m_aMaxExpiration;
+
+  /**
+   * Constructor
+   *
+   * @param aMinExpiration
+   *        The minimum cache duration for values that change. May not be <code>null</code> and
+   *        must be positive.
+   * @param aMaxExpiration
+   *        The maximum cache duration for values that don't change. May not be <code>null</code>
+   *        and must be &ge; the minimum.
+   */
+  public AdaptiveExpirationPolicy (@NonNull final Duration aMinExpiration, @NonNull final Duration aMaxExpiration)
+  {
+    ValueEnforcer.notNull (aMinExpiration, "MinExpiration");
+    ValueEnforcer.isTrue (!aMinExpiration.isNegative () && !aMinExpiration.isZero (), "MinExpiration must be positive");
+    ValueEnforcer.notNull (aMaxExpiration, "MaxExpiration");
+    ValueEnforcer.isTrue (aMaxExpiration.compareTo (aMinExpiration) >= 0, "MaxExpiration must be >= MinExpiration");
+    m_aMinExpiration = aMinExpiration;
+    m_aMaxExpiration = aMaxExpiration;
+  }
+
+  /**
+   * @return The minimum cache duration as provided in the constructor. Never <code>null</code>.
+   */
+  @NonNull
+  public Duration getMinExpiration ()
+  {
+    return m_aMinExpiration;
+  }
+
+  /**
+   * @return The maximum cache duration as provided in the constructor. Never <code>null</code>.
+   */
+  @NonNull
+  public Duration getMaxExpiration ()
+  {
+    return m_aMaxExpiration;
+  }
+
+  /**
+   * Get the cache duration to use after a refresh.
+   *
+   * @param nPreviousMillis
+   *        The cache duration used for the previous value in milliseconds.
+   * @param bChanged
+   *        <code>true</code> if the refreshed value differs from the previous value.
+   * @return The new cache duration in milliseconds. Always between minimum and maximum.
+   */
+  public long getNextExpirationMillis (final long nPreviousMillis, final boolean bChanged)
+  {
+    final long nMin = m_aMinExpiration.toMillis ();
+    final long nMax = m_aMaxExpiration.toMillis ();
+    if (bChanged)
+      return Math.max (Math.min (nPreviousMillis / 2, nMax), nMin);
+    // Avoid overflow
+    final long nDoubled = nPreviousMillis > Long.MAX_VALUE / 2 ? Long.MAX_VALUE : nPreviousMillis * 2;
+    return Math.max (Math.min (nDoubled, nMax), nMin);
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (null).append ("MinExpiration", m_aMinExpiration)
+                                       .append ("MaxExpiration", m_aMaxExpiration)
+                                       .getToString ();
+  }
+}
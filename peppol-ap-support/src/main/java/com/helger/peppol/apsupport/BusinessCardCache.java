@@ -16,8 +16,10 @@
  */
 package com.helger.peppol.apsupport;
 
+import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.function.Predicate;
 
 import org.apache.hc.client5.http.classic.methods.HttpGet;
 import org.jspecify.annotations.NonNull;
@@ -25,12 +27,17 @@ import org.jspecify.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.helger.annotation.Nonempty;
+import com.helger.annotation.Nonnegative;
+import com.helger.base.enforce.ValueEnforcer;
 import com.helger.base.state.EChange;
+import com.helger.base.state.ESuccess;
 import com.helger.base.tostring.ToStringGenerator;
-import com.helger.cache.impl.MappedKeyProviderCache;
 import com.helger.httpclient.HttpClientManager;
 import com.helger.httpclient.HttpClientSettings;
 import com.helger.httpclient.response.ResponseHandlerByteArray;
+import com.helger.peppol.apsupport.cache.IBinaryCacheStore;
+import com.helger.peppol.apsupport.cache.ISecondLevelCache;
 import com.helger.peppol.businesscard.generic.PDBusinessCard;
 import com.helger.peppol.businesscard.helper.PDBusinessCardHelper;
 import com.helger.peppol.sml.ISMLInfo;
@@ -46,16 +53,24 @@ import com.helger.smpclient.url.SMPDNSResolutionException;
  */
 public class BusinessCardCache
 {
+  /** The default duration for which entries are cached */
+  public static final Duration DEFAULT_CACHE_DURATION = Duration.ofHours (1);
+  /** The default number of entries kept on the Java heap */
+  public static final int DEFAULT_MAX_HOT_TIER_SIZE = 1_000;
+
   private static final Logger LOGGER = LoggerFactory.getLogger (BusinessCardCache.class);
 
   @NonNull
   private static PDBusinessCard _fetchBC (@NonNull final ISMLInfo aSMLInfo,
                                           @NonNull final HttpClientSettings aHCS,
-                                          @NonNull final IParticipantIdentifier aPI)
+                                          @NonNull final IParticipantIdentifier aPI,
+                                          @NonNull final TieredParticipantCache.ILoadListener aListener)
   {
     try
     {
-      String sBCURL = PeppolNaptrURLProvider.INSTANCE.getSMPURIOfParticipant (aPI, aSMLInfo).toString ();
+      final URI aSMPURI = PeppolNaptrURLProvider.INSTANCE.getSMPURIOfParticipant (aPI, aSMLInfo);
+      aListener.onOrigin (aSMPURI.getHost ());
+      String sBCURL = aSMPURI.toString ();
       if (!sBCURL.endsWith ("/"))
         sBCURL += '/';
       sBCURL += "businesscard/" + aPI.getURIPercentEncoded ();
@@ -88,10 +103,10 @@ public class BusinessCardCache
     }
   }
 
-  private final MappedKeyProviderCache <IParticipantIdentifier, String, PDBusinessCard> m_aCache;
+  private final TieredParticipantCache <PDBusinessCard> m_aCache;
 
   /**
-   * Constructor. Caches the entries for 1 hour with a maximum of 1000 entries
+   * Constructor. Caches the entries for 1 hour with a maximum of 1000 entries on the heap.
    *
    * @param aSMLInfo
    *        SML to use. To differentiate between test and production.
@@ -101,21 +116,221 @@ public class BusinessCardCache
    */
   public BusinessCardCache (@NonNull final ISMLInfo aSMLInfo, @NonNull final HttpClientSettings aHCS)
   {
-    m_aCache = MappedKeyProviderCache.<IParticipantIdentifier, String, PDBusinessCard> builder ()
-                                     .name ("PeppolBusinessCardCache")
-                                     .maxSize (1_000)
-                                     .allowNullValues (true)
-                                     .expireAfterWrite (Duration.ofHours (1))
-                                     .evictionInterval (Duration.ofMinutes (1))
-                                     .keyMapper (IParticipantIdentifier::getURIEncoded)
-                                     .valueProvider (pi -> _fetchBC (aSMLInfo, aHCS, pi))
-                                     .build ();
+    m_aCache = new TieredParticipantCache <> ("PeppolBusinessCardCache-" + aSMLInfo.getID (),
+                                              BusinessCardCacheCodec.INSTANCE,
+                                              (pi, oc) -> _fetchBC (aSMLInfo, aHCS, pi, oc),
+                                              DEFAULT_CACHE_DURATION);
+    m_aCache.setMaxHotSize (DEFAULT_MAX_HOT_TIER_SIZE);
+  }
+
+  /**
+   * @return The duration for which Business Cards are cached. Never <code>null</code>.
+   * @since 2.2.2
+   */
+  @NonNull
+  public final Duration getCacheDuration ()
+  {
+    return m_aCache.getExpiration ();
+  }
+
+  /**
+   * Set the duration for which Business Cards are cached. Defaults to
+   * {@link #DEFAULT_CACHE_DURATION}.
+   *
+   * @param aCacheDuration
+   *        The cache duration to use. May not be <code>null</code>.
+   * @return this for chaining
+   * @since 2.2.2
+   */
+  @NonNull
+  public final BusinessCardCache setCacheDuration (@NonNull final Duration aCacheDuration)
+  {
+    ValueEnforcer.notNull (aCacheDuration, "CacheDuration");
+    m_aCache.setExpiration (aCacheDuration);
+    return this;
+  }
+
+  /**
+   * @return The maximum random deviation of the cache duration in percent. Between 0 and 100.
+   * @since 2.2.2
+   */
+  @Nonnegative
+  public final int getCacheDurationJitterPercentage ()
+  {
+    return m_aCache.getExpirationJitterPercentage ();
+  }
+
+  /**
+   * Set the maximum random deviation of the cache duration in percent. This avoids that many
+   * entries loaded at the same time also expire at the same time. Defaults to 10.
+   *
+   * @param nCacheDurationJitterPercentage
+   *        The jitter in percent. Must be between 0 and 100. 0 disables the jitter.
+   * @return this for chaining
+   * @since 2.2.2
+   */
+  @NonNull
+  public final BusinessCardCache setCacheDurationJitterPercentage (@Nonnegative final int nCacheDurationJitterPercentage)
+  {
+    m_aCache.setExpirationJitterPercentage (nCacheDurationJitterPercentage);
+    return this;
+  }
+
+  /**
+   * @return The policy to adapt the cache duration per participant. May be <code>null</code>.
+   * @since 2.2.2
+   */
+  @Nullable
+  public final AdaptiveExpirationPolicy getAdaptiveExpirationPolicy ()
+  {
+    return m_aCache.getAdaptiveExpirationPolicy ();
+  }
+
+  /**
+   * Set the policy to adapt the cache duration per participant. If set, the cache duration of
+   * participants whose Business Card did not change on refresh is increased, and it is decreased for
+   * participants whose Business Card changed. Participants evicted from the on-heap tier are only
+   * considered if a second tier or a second level cache is configured, as these keep expired
+   * entries for another cache duration. By default, {@link #getCacheDuration()} is used for all participants.
+   *
+   * @param aAdaptiveExpirationPolicy
+   *        The policy to use. May be <code>null</code> to use a fixed cache duration.
+   * @return this for chaining
+   * @since 2.2.2
+   */
+  @NonNull
+  public final BusinessCardCache setAdaptiveExpirationPolicy (@Nullable final AdaptiveExpirationPolicy aAdaptiveExpirationPolicy)
+  {
+    m_aCache.setAdaptiveExpirationPolicy (aAdaptiveExpirationPolicy);
+    return this;
+  }
+
+  /**
+   * @return The maximum number of Business Cards kept on the Java heap. 0 means unlimited.
+   * @since 2.2.2
+   */
+  @Nonnegative
+  public final int getMaxHotTierSize ()
+  {
+    return m_aCache.getMaxHotSize ();
+  }
+
+  /**
+   * Set the maximum number of Business Cards kept on the Java heap. If more entries are present,
+   * the least recently used ones are dropped. Defaults to {@link #DEFAULT_MAX_HOT_TIER_SIZE}.
+   *
+   * @param nMaxHotTierSize
+   *        The maximum number of entries to keep on the heap. 0 means unlimited.
+   * @return this for chaining
+   * @since 2.2.2
+   */
+  @NonNull
+  public final BusinessCardCache setMaxHotTierSize (@Nonnegative final int nMaxHotTierSize)
+  {
+    m_aCache.setMaxHotSize (nMaxHotTierSize);
+    return this;
+  }
+
+  /**
+   * @return The second cache tier that stores serialized Business Cards outside of the Java heap.
+   *         May be <code>null</code>.
+   * @since 2.2.2
+   */
+  @Nullable
+  public final IBinaryCacheStore getSecondTier ()
+  {
+    return m_aCache.getSecondTier ();
+  }
+
+  /**
+   * Set the second cache tier to be used. It is queried if an entry is not contained in the on-heap
+   * hot tier and it is filled with every Business Card fetched from an SMP.
+   *
+   * @param aSecondTier
+   *        The second tier to use, e.g. an
+   *        {@link com.helger.peppol.apsupport.cache.OffHeapBinaryCacheStore}. May be
+   *        <code>null</code> to use only the on-heap cache.
+   * @return this for chaining
+   * @since 2.2.2
+   */
+  @NonNull
+  public final BusinessCardCache setSecondTier (@Nullable final IBinaryCacheStore aSecondTier)
+  {
+    m_aCache.setSecondTier (aSecondTier);
+    return this;
+  }
+
+  /**
+   * @return The second level cache shared between all nodes of a cluster. May be
+   *         <code>null</code>.
+   * @since 2.2.2
+   */
+  @Nullable
+  public final ISecondLevelCache getSecondLevelCache ()
+  {
+    return m_aCache.getSecondLevelCache ();
+  }
+
+  /**
+   * Set the second level cache to be used. It is queried after all local tiers and before the SMP,
+   * and it is filled with every Business Card fetched from an SMP. Clearing this cache also clears the
+   * region of this cache in the second level cache.
+   *
+   * @param aSecondLevelCache
+   *        The second level cache to use, e.g. a
+   *        {@link com.helger.peppol.apsupport.cache.FileSecondLevelCache}. May be
+   *        <code>null</code> to use only the local tiers.
+   * @return this for chaining
+   * @since 2.2.2
+   */
+  @NonNull
+  public final BusinessCardCache setSecondLevelCache (@Nullable final ISecondLevelCache aSecondLevelCache)
+  {
+    m_aCache.setSecondLevelCache (aSecondLevelCache);
+    return this;
+  }
+
+  /**
+   * @return The statistics of this cache. Never <code>null</code>.
+   * @since 2.2.2
+   */
+  @NonNull
+  public final IParticipantCacheMXBean getStatistics ()
+  {
+    return m_aCache.getStatistics ();
+  }
+
+  /**
+   * Register the statistics of this cache as an MBean at the platform MBean server. The object
+   * name is <code>com.helger.peppol.apsupport:type=ParticipantCache,name="<i>cache name</i>"</code>,
+   * where the cache name contains the SML ID (e.g. <code>PeppolBusinessCardCache-digitprod</code>).
+   *
+   * @return {@link ESuccess#FAILURE} if registration failed, e.g. because another cache with the
+   *         same name is already registered.
+   * @since 2.2.2
+   */
+  @NonNull
+  public final ESuccess registerMBean ()
+  {
+    return m_aCache.registerMBean ();
+  }
+
+  /**
+   * Unregister the statistics of this cache from the platform MBean server.
+   *
+   * @return {@link EChange#CHANGED} if the MBean was registered before.
+   * @since 2.2.2
+   */
+  @NonNull
+  public final EChange unregisterMBean ()
+  {
+    return m_aCache.unregisterMBean ();
   }
 
   @Nullable
   private PDBusinessCard _getActive (@NonNull final IParticipantIdentifier aParticipantID)
   {
-    return m_aCache.getFromCache (aParticipantID);
+    return m_aCache.get (aParticipantID);
   }
 
   /**
@@ -148,6 +363,70 @@ public class BusinessCardCache
     return aBC.businessEntities ().getFirstOrNull ().getCountryCode ();
   }
 
+  /**
+   * Remove the cached Business Card of a single participant from all cache tiers, so that it is
+   * queried again from the SMP on the next access.
+   *
+   * @param aPID
+   *        The participant to remove. May not be <code>null</code>.
+   * @return {@link EChange#CHANGED} if an entry was removed.
+   * @since 2.2.2
+   */
+  @NonNull
+  public EChange removeFromCache (@NonNull final IParticipantIdentifier aPID)
+  {
+    return m_aCache.remove (aPID);
+  }
+
+  /**
+   * Remove the cached Business Cards of all participants matching the provided filter from all
+   * cache tiers.
+   *
+   * @param aFilter
+   *        The participant filter. May not be <code>null</code>.
+   * @return {@link EChange#CHANGED} if at least one entry was removed.
+   * @since 2.2.2
+   */
+  @NonNull
+  public EChange removeFromCacheIf (@NonNull final Predicate <? super IParticipantIdentifier> aFilter)
+  {
+    return m_aCache.removeIf (aFilter);
+  }
+
+  /**
+   * Remove the cached Business Cards of all participants using the provided identifier scheme from
+   * all cache tiers.
+   *
+   * @param sScheme
+   *        The participant identifier scheme, e.g. <code>iso6523-actorid-upis</code>. May neither
+   *        be <code>null</code> nor empty.
+   * @return {@link EChange#CHANGED} if at least one entry was removed.
+   * @since 2.2.2
+   */
+  @NonNull
+  public EChange removeFromCacheByScheme (@NonNull @Nonempty final String sScheme)
+  {
+    ValueEnforcer.notEmpty (sScheme, "Scheme");
+    return m_aCache.removeIf (x -> x.hasScheme (sScheme));
+  }
+
+  /**
+   * Remove the cached Business Cards of all participants that were resolved from the provided SMP
+   * host from all cache tiers. Only entries that were queried by this instance are considered,
+   * entries taken from a shared tier are not.
+   *
+   * @param sSMPHostName
+   *        The host name of the SMP, e.g. <code>smp.example.org</code>. Case insensitive. May
+   *        neither be <code>null</code> nor empty.
+   * @return {@link EChange#CHANGED} if at least one entry was removed.
+   * @since 2.2.2
+   */
+  @NonNull
+  public EChange removeFromCacheBySMPHost (@NonNull @Nonempty final String sSMPHostName)
+  {
+    return m_aCache.removeByOrigin (sSMPHostName);
+  }
+
   /**
    * Clear the cache
    *
@@ -157,7 +436,7 @@ public class BusinessCardCache
   @NonNull
   public EChange clearCache ()
   {
-    return m_aCache.clearCache ();
+    return m_aCache.clear ();
   }
 
   @Override
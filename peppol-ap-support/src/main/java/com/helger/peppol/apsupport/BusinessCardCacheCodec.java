@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2025-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.apsupport;
+
+import java.nio.charset.StandardCharsets;
+
+import javax.xml.namespace.QName;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.peppol.businesscard.generic.PDBusinessCard;
+import com.helger.peppol.businesscard.helper.PDBusinessCardHelper;
+import com.helger.peppol.businesscard.v3.PD3BusinessCardType;
+
+import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.JAXBException;
+
+/**
+ * Internal {@link ICacheValueCodec} for {@link PDBusinessCard} objects. The Business Card is
+ * stored in the v3 XML format.
+ *
+ * @author Philip Helger
+ * @since 2.2.2
+ */
+@Immutable
+final class BusinessCardCacheCodec implements ICacheValueCodec <PDBusinessCard>
+{
+  static final BusinessCardCacheCodec INSTANCE = new BusinessCardCacheCodec ();
+
+  private static final QName ELEMENT_NAME = new QName ("http://www.peppol.eu/schema/pd/businesscard/20180621/",
+                                                       "BusinessCard");
+
+  // Indirection level to create the JAXB context only when needed
+  private static final class ContextHolder
+  {
+    static final JAXBContext CONTEXT;
+    static
+    {
+      try
+      {
+        CONTEXT = JAXBContext.newInstance (PD3BusinessCardType.class);
+      }
+      catch (final JAXBException ex)
+      {
+        throw new IllegalStateException ("Failed to create JAXB context for PD3BusinessCardType", ex);
+      }
+    }
+  }
+
+  private BusinessCardCacheCodec ()
+  {}
+
+  @NonNull
+  public byte [] encode (@NonNull final PDBusinessCard aValue)
+  {
+    return CacheValueCodecHelper.marshalCompressed (ContextHolder.CONTEXT,
+                                                    ELEMENT_NAME,
+                                                    PD3BusinessCardType.class,
+                                                    aValue.getAsJAXBObject ());
+  }
+
+  @NonNull
+  public PDBusinessCard decode (@NonNull final byte [] aData)
+  {
+    final PDBusinessCard ret = PDBusinessCardHelper.parseBusinessCard (CacheValueCodecHelper.inflate (aData),
+                                                                      StandardCharsets.UTF_8);
+    if (ret == null)
+      throw new IllegalStateException ("Failed to parse cached Business Card");
+    return ret;
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2025-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.apsupport;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.xml.namespace.QName;
+import javax.xml.transform.stream.StreamSource;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.concurrent.Immutable;
+
+import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.JAXBElement;
+import jakarta.xml.bind.JAXBException;
+
+/**
+ * Internal helper for {@link ICacheValueCodec} implementations that store JAXB objects as deflate
+ * compressed XML.
+ *
+ * @author Philip Helger
+ * @since 2.2.2
+ */
+@Immutable
+final class CacheValueCodecHelper
+{
+  private CacheValueCodecHelper ()
+  {}
+
+  @NonNull
+  static <T> byte [] marshalCompressed (@NonNull final JAXBContext aJAXBContext,
+                                        @NonNull final QName aElementName,
+                                        @NonNull final Class <T> aClass,
+                                        @NonNull final T aValue)
+  {
+    final ByteArrayOutputStream aBAOS = new ByteArrayOutputStream ();
+    try (final DeflaterOutputStream aDOS = new DeflaterOutputStream (aBAOS))
+    {
+      aJAXBContext.createMarshaller ().marshal (new JAXBElement <> (aElementName, aClass, aValue), aDOS);
+    }
+    catch (final JAXBException | IOException ex)
+    {
+      throw new IllegalStateException ("Failed to serialize " + aClass.getSimpleName (), ex);
+    }
+    return aBAOS.toByteArray ();
+  }
+
+  @NonNull
+  static <T> T unmarshalCompressed (@NonNull final JAXBContext aJAXBContext,
+                                    @NonNull final Class <T> aClass,
+                                    @NonNull final byte [] aData)
+  {
+    try (final InputStream aIS = new InflaterInputStream (new ByteArrayInputStream (aData)))
+    {
+      return aJAXBContext.createUnmarshaller ().unmarshal (new StreamSource (aIS), aClass).getValue ();
+    }
+    catch (final JAXBException | IOException ex)
+    {
+      throw new IllegalStateException ("Failed to deserialize " + aClass.getSimpleName (), ex);
+    }
+  }
+
+  @NonNull
+  static byte [] inflate (@NonNull final byte [] aData)
+  {
+    try (final InputStream aIS = new InflaterInputStream (new ByteArrayInputStream (aData)))
+    {
+      return aIS.readAllBytes ();
+    }
+    catch (final IOException ex)
+    {
+      throw new IllegalStateException ("Failed to inflate cached data", ex);
+    }
+  }
+}
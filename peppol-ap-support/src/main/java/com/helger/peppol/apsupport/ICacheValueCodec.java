@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2025-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.apsupport;
+
+import org.jspecify.annotations.NonNull;
+
+/**
+ * Internal interface to convert cached values from and to a compact binary representation, so that
+ * they can be stored in a {@link com.helger.peppol.apsupport.cache.IBinaryCacheStore}.
+ *
+ * @author Philip Helger
+ * @param <VALUETYPE>
+ *        The value type to convert
+ * @since 2.2.2
+ */
+interface ICacheValueCodec <VALUETYPE>
+{
+  /**
+   * Convert the provided value to bytes.
+   *
+   * @param aValue
+   *        The value to convert. May not be <code>null</code>.
+   * @return The binary representation. Neither <code>null</code> nor empty.
+   * @throws IllegalStateException
+   *         If the value cannot be converted
+   */
+  @NonNull
+  byte [] encode (@NonNull VALUETYPE aValue);
+
+  /**
+   * Convert the provided bytes back to a value.
+   *
+   * @param aData
+   *        The binary representation as created by {@link #encode(Object)}. Neither
+   *        <code>null</code> nor empty.
+   * @return The value. Never <code>null</code>.
+   * @throws IllegalStateException
+   *         If the bytes cannot be converted
+   */
+  @NonNull
+  VALUETYPE decode (@NonNull byte [] aData);
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2025-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.apsupport;
+
+import javax.management.MXBean;
+
+/**
+ * JMX interface with the statistics of an SMP based participant cache like
+ * {@link MLRSupportCache}, {@link MLSSupportCache} or {@link BusinessCardCache}.
+ *
+ * @author Philip Helger
+ * @since 2.2.2
+ */
+@MXBean
+public interface IParticipantCacheMXBean
+{
+  /**
+   * @return The name of the cache.
+   */
+  String getName ();
+
+  /**
+   * @return The number of entries currently kept on the Java heap.
+   */
+  int getHotSize ();
+
+  /**
+   * @return The number of lookups answered by the on-heap tier.
+   */
+  long getHotHitCount ();
+
+  /**
+   * @return The number of lookups answered by the second tier.
+   */
+  long getSecondTierHitCount ();
+
+  /**
+   * @return The number of lookups answered by the second level cache.
+   */
+  long getSecondLevelCacheHitCount ();
+
+  /**
+   * @return The number of lookups answered by any cache tier.
+   */
+  long getHitCount ();
+
+  /**
+   * @return The number of lookups that required a load from the SMP.
+   */
+  long getMissCount ();
+
+  /**
+   * @return The ratio of hits to all lookups, between 0 and 1. 0 if no lookup happened yet.
+   */
+  double getHitRatio ();
+
+  /**
+   * @return The number of loads from the SMP that are currently in progress.
+   */
+  int getInFlightLoadCount ();
+
+  /**
+   * @return The number of loads from the SMP that failed.
+   */
+  long getLoadErrorCount ();
+
+  /**
+   * @return The number of entries of the second tier or the second level cache that could not be
+   *         read or written.
+   */
+  long getTierErrorCount ();
+
+  /**
+   * @return The median load duration in milliseconds. Approximated.
+   */
+  double getLoadLatencyP50Millis ();
+
+  /**
+   * @return The 90th percentile of the load duration in milliseconds. Approximated.
+   */
+  double getLoadLatencyP90Millis ();
+
+  /**
+   * @return The 99th percentile of the load duration in milliseconds. Approximated.
+   */
+  double getLoadLatencyP99Millis ();
+
+  /**
+   * @return The maximum load duration in milliseconds.
+   */
+  double getLoadLatencyMaxMillis ();
+
+  /**
+   * Reset all counters. The cache content is not modified.
+   */
+  void resetStatistics ();
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2025-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.apsupport;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.ThreadSafe;
+
+/**
+ * A lock-free histogram of durations with exponentially growing buckets. Each bucket covers twice
+ * the range of the previous bucket, starting at 1 microsecond, so percentiles are approximated with
+ * a maximum error of factor 2.
+ *
+ * @author Philip Helger
+ * @since 2.2.2
+ */
+@ThreadSafe
+final class LatencyHistogram
+{
+  private static final int BUCKET_COUNT = 40;
+
+  // Bucket i contains durations between 2^(i-1) and 2^i microseconds
+  private final AtomicLongArray m_aBuckets = new AtomicLongArray (BUCKET_COUNT);
+  private final LongAccumulator m_aMaxNanos = new LongAccumulator (Math::max, 0);
+
+  private static int _getBucket (final long nMicros)
+  {
+    if (nMicros <= 0)
+      return 0;
+    return Math.min (64 - Long.numberOfLeadingZeros (nMicros), BUCKET_COUNT - 1);
+  }
+
+  void record (@Nonnegative final long nDurationNanos)
+  {
+    m_aBuckets.incrementAndGet (_getBucket (nDurationNanos / 1_000));
+    m_aMaxNanos.accumulate (nDurationNanos);
+  }
+
+  /**
+   * @param dPercentile
+   *        The percentile between 0 and 1, e.g. 0.99.
+   * @return The upper bound of the bucket containing the percentile in milliseconds. 0 if nothing
+   *         was recorded.
+   */
+  double getPercentileMillis (final double dPercentile)
+  {
+    long nTotal = 0;
+    final long [] aCounts = new long [BUCKET_COUNT];
+    for (int i = 0; i < BUCKET_COUNT; ++i)
+    {
+      aCounts[i] = m_aBuckets.get (i);
+      nTotal += aCounts[i];
+    }
+    if (nTotal == 0)
+      return 0;
+
+    final long nRank = (long) Math.ceil (dPercentile * nTotal);
+    long nSum = 0;
+    for (int i = 0; i < BUCKET_COUNT; ++i)
+    {
+      nSum += aCounts[i];
+      if (nSum >= nRank)
+        return Math.min ((1L << i) / 1_000d, getMaxMillis ());
+    }
+    return getMaxMillis ();
+  }
+
+  double getMaxMillis ()
+  {
+    return m_aMaxNanos.get () / 1_000_000d;
+  }
+
+  void reset ()
+  {
+    for (int i = 0; i < BUCKET_COUNT; ++i)
+      m_aBuckets.set (i, 0);
+    m_aMaxNanos.reset ();
+  }
+}
@@ -61,4 +61,19 @@ public final class MLRSupportCache extends AbstractDocTypeSupportCache <MLRSuppo
   {
     return resolveSmpEndpoint (aC1ID);
   }
+
+  /**
+   * Get the MLR SMP Endpoint registered for the provided participant ID, including the already
+   * parsed certificate, URL and validity period.
+   *
+   * @param aC1ID
+   *        The participant ID of C1 of the original business document to be queried.
+   * @return <code>null</code> if no such endpoint is registered.
+   * @since 2.2.2
+   */
+  @Nullable
+  public ResolvedSMPEndpoint getResolvedMLREndpoint (@NonNull final IParticipantIdentifier aC1ID)
+  {
+    return getResolvedSmpEndpoint (aC1ID);
+  }
 }
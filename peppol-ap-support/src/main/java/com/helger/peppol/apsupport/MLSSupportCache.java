@@ -61,4 +61,19 @@ public final class MLSSupportCache extends AbstractDocTypeSupportCache <MLSSuppo
   {
     return resolveSmpEndpoint (aC2ID);
   }
+
+  /**
+   * Get the MLS SMP Endpoint registered for the provided participant ID, including the already
+   * parsed certificate, URL and validity period.
+   *
+   * @param aC2ID
+   *        The participant ID of C2 of the original business document to be queried.
+   * @return <code>null</code> if no such endpoint is registered.
+   * @since 2.2.2
+   */
+  @Nullable
+  public ResolvedSMPEndpoint getResolvedMLSEndpoint (@NonNull final IParticipantIdentifier aC2ID)
+  {
+    return getResolvedSmpEndpoint (aC2ID);
+  }
 }
@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2025-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.apsupport;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.Nonempty;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.tostring.ToStringGenerator;
+
+/**
+ * The statistics of a {@link TieredParticipantCache}.
+ *
+ * @author Philip Helger
+ * @since 2.2.2
+ */
+@ThreadSafe
+final class ParticipantCacheStatistics implements IParticipantCacheMXBean
+{
+  private final String m_sName;
+  private final IntSupplier m_aHotSizeSupplier;
+  private final LongAdder m_aHotHits = new LongAdder ();
+  private final LongAdder m_aSecondTierHits = new LongAdder ();
+  private final LongAdder m_aSecondLevelCacheHits = new LongAdder ();
+  private final LongAdder m_aMisses = new LongAdder ();
+  private final LongAdder m_aLoadErrors = new LongAdder ();
+  private final LongAdder m_aTierErrors = new LongAdder ();
+  private final AtomicInteger m_aInFlightLoads = new AtomicInteger ();
+  private final LatencyHistogram m_aLoadLatency = new LatencyHistogram ();
+
+  ParticipantCacheStatistics (@NonNull @Nonempty final String sName, @NonNull final IntSupplier aHotSizeSupplier)
+  {
+    ValueEnforcer.notEmpty (sName, "Name");
+    ValueEnforcer.notNull (aHotSizeSupplier, "HotSizeSupplier");
+    m_sName = sName;
+    m_aHotSizeSupplier = aHotSizeSupplier;
+  }
+
+  void onHotHit ()
+  {
+    m_aHotHits.increment ();
+  }
+
+  void onSecondTierHit ()
+  {
+    m_aSecondTierHits.increment ();
+  }
+
+  void onSecondLevelCacheHit ()
+  {
+    m_aSecondLevelCacheHits.increment ();
+  }
+
+  void onTierError ()
+  {
+    m_aTierErrors.increment ();
+  }
+
+  void onLoadStart ()
+  {
+    m_aMisses.increment ();
+    m_aInFlightLoads.incrementAndGet ();
+  }
+
+  void onLoadEnd (final long nDurationNanos, final boolean bError)
+  {
+    m_aInFlightLoads.decrementAndGet ();
+    m_aLoadLatency.record (nDurationNanos);
+    if (bError)
+      m_aLoadErrors.increment ();
+  }
+
+  public String getName ()
+  {
+    return m_sName;
+  }
+
+  public int getHotSize ()
+  {
+    return m_aHotSizeSupplier.getAsInt ();
+  }
+
+  public long getHotHitCount ()
+  {
+    return m_aHotHits.sum ();
+  }
+
+  public long getSecondTierHitCount ()
+  {
+    return m_aSecondTierHits.sum ();
+  }
+
+  public long getSecondLevelCacheHitCount ()
+  {
+    return m_aSecondLevelCacheHits.sum ();
+  }
+
+  public long getHitCount ()
+  {
+    return getHotHitCount () + getSecondTierHitCount () + getSecondLevelCacheHitCount ();
+  }
+
+  public long getMissCount ()
+  {
+    return m_aMisses.sum ();
+  }
+
+  public double getHitRatio ()
+  {
+    final long nHits = getHitCount ();
+    final long nTotal = nHits + getMissCount ();
+    return nTotal == 0 ? 0 : (double) nHits / nTotal;
+  }
+
+  public int getInFlightLoadCount ()
+  {
+    return m_aInFlightLoads.get ();
+  }
+
+  public long getLoadErrorCount ()
+  {
+    return m_aLoadErrors.sum ();
+  }
+
+  public long getTierErrorCount ()
+  {
+    return m_aTierErrors.sum ();
+  }
+
+  public double getLoadLatencyP50Millis ()
+  {
+    return m_aLoadLatency.getPercentileMillis (0.5);
+  }
+
+  public double getLoadLatencyP90Millis ()
+  {
+    return m_aLoadLatency.getPercentileMillis (0.9);
+  }
+
+  public double getLoadLatencyP99Millis ()
+  {
+    return m_aLoadLatency.getPercentileMillis (0.99);
+  }
+
+  public double getLoadLatencyMaxMillis ()
+  {
+    return m_aLoadLatency.getMaxMillis ();
+  }
+
+  public void resetStatistics ()
+  {
+    m_aHotHits.reset ();
+    m_aSecondTierHits.reset ();
+    m_aSecondLevelCacheHits.reset ();
+    m_aMisses.reset ();
+    m_aLoadErrors.reset ();
+    m_aTierErrors.reset ();
+    m_aLoadLatency.reset ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (null).append ("Name", m_sName)
+                                       .append ("HotHits", getHotHitCount ())
+                                       .append ("SecondTierHits", getSecondTierHitCount ())
+                                       .append ("SecondLevelCacheHits", getSecondLevelCacheHitCount ())
+                                       .append ("Misses", getMissCount ())
+                                       .append ("LoadErrors", getLoadErrorCount ())
+                                       .append ("TierErrors", getTierErrorCount ())
+                                       .getToString ();
+  }
+}
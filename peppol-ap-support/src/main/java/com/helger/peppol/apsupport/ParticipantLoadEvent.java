@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2025-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.apsupport;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder event that is emitted for every load of an SMP based participant cache. The
+ * duration of the event is the duration of the load.
+ *
+ * @author Philip Helger
+ * @since 2.2.2
+ */
+@Name ("com.helger.peppol.apsupport.ParticipantLoad")
+@Label ("Peppol Participant Cache Load")
+@Description ("A cache miss that required a lookup in the SMP")
+@Category ({ "Peppol", "AP Support" })
+@StackTrace (false)
+final class ParticipantLoadEvent extends jdk.jfr.Event
+{
+  @Label ("Cache Name")
+  String cacheName;
+
+  @Label ("Participant Scheme")
+  String participantScheme;
+
+  @Label ("SMP Host")
+  String smpHost;
+
+  @Label ("Found")
+  @Description ("Whether the SMP returned a value")
+  boolean found;
+
+  @Label ("Error")
+  @Description ("Whether the load failed")
+  boolean error;
+}
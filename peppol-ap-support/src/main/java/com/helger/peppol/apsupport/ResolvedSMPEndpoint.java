@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2025-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.apsupport;
+
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.time.Instant;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.hashcode.HashCodeGenerator;
+import com.helger.base.tostring.ToStringGenerator;
+import com.helger.smpclient.peppol.SMPClientReadOnly;
+import com.helger.xsds.peppol.smp1.EndpointType;
+
+/**
+ * An SMP {@link EndpointType} together with the values parsed from it. The parsing happens only
+ * once when the object is created, so that the send path does not need to decode the certificate
+ * for every message.
+ *
+ * @author Philip Helger
+ * @since 2.2.2
+ */
+@Immutable
+public final class ResolvedSMPEndpoint
+{
+  private static final Logger LOGGER = LoggerFactory.getLogger (ResolvedSMPEndpoint.class);
+
+  private final EndpointType m_aEndpoint;
+  private final String m_sEndpointURL;
+  private final X509Certificate m_aCertificate;
+  private final Instant m_aServiceActivation;
+  private final Instant m_aServiceExpiration;
+
+  /**
+   * Constructor
+   *
+   * @param aEndpoint
+   *        The endpoint to resolve. May not be <code>null</code>. Must not be modified afterwards.
+   */
+  public ResolvedSMPEndpoint (@NonNull final EndpointType aEndpoint)
+  {
+    ValueEnforcer.notNull (aEndpoint, "Endpoint");
+    m_aEndpoint = aEndpoint;
+    m_sEndpointURL = SMPClientReadOnly.getEndpointAddress (aEndpoint);
+
+    X509Certificate aCertificate = null;
+    try
+    {
+      aCertificate = SMPClientReadOnly.getEndpointCertificate (aEndpoint);
+    }
+    catch (final CertificateException ex)
+    {
+      LOGGER.warn ("Failed to parse the certificate of SMP endpoint '" + m_sEndpointURL + "'", ex);
+    }
+    m_aCertificate = aCertificate;
+    m_aServiceActivation = aEndpoint.getServiceActivationDate () == null ? null
+                                                                         : aEndpoint.getServiceActivationDate ()
+                                                                                    .toInstant ();
+    m_aServiceExpiration = aEndpoint.getServiceExpirationDate () == null ? null
+                                                                         : aEndpoint.getServiceExpirationDate ()
+                                                                                    .toInstant ();
+  }
+
+  /**
+   * @return The original endpoint as returned by the SMP. Never <code>null</code>. Must not be
+   *         modified.
+   */
+  @NonNull
+  public EndpointType getEndpoint ()
+  {
+    return m_aEndpoint;
+  }
+
+  /**
+   * @return The URL of the endpoint. May be <code>null</code> if the SMP did not provide one.
+   */
+  @Nullable
+  public String getEndpointURL ()
+  {
+    return m_sEndpointURL;
+  }
+
+  /**
+   * @return The parsed certificate of the endpoint. May be <code>null</code> if the SMP did not
+   *         provide a certificate or if it could not be parsed.
+   */
+  @Nullable
+  public X509Certificate getCertificate ()
+  {
+    return m_aCertificate;
+  }
+
+  /**
+   * @return The point in time from which on the endpoint is active. May be <code>null</code> if
+   *         not limited.
+   */
+  @Nullable
+  public Instant getServiceActivation ()
+  {
+    return m_aServiceActivation;
+  }
+
+  /**
+   * @return The point in time from which on the endpoint is no longer active. May be
+   *         <code>null</code> if not limited.
+   */
+  @Nullable
+  public Instant getServiceExpiration ()
+  {
+    return m_aServiceExpiration;
+  }
+
+  /**
+   * Check if the endpoint is active at the provided point in time, based on the service activation
+   * and expiration date.
+   *
+   * @param aPointInTime
+   *        The point in time to check. May not be <code>null</code>.
+   * @return <code>true</code> if the endpoint is active.
+   */
+  public boolean isActiveAt (@NonNull final Instant aPointInTime)
+  {
+    ValueEnforcer.notNull (aPointInTime, "PointInTime");
+    if (m_aServiceActivation != null && aPointInTime.isBefore (m_aServiceActivation))
+      return false;
+    if (m_aServiceExpiration != null && !aPointInTime.isBefore (m_aServiceExpiration))
+      return false;
+    return true;
+  }
+
+  @Override
+  public boolean equals (final Object o)
+  {
+    if (o == this)
+      return true;
+    if (o == null || !o.getClass ().equals (getClass ()))
+      return false;
+
+    // All other fields are derived from the endpoint
+    final ResolvedSMPEndpoint rhs = (ResolvedSMPEndpoint) o;
+    return m_aEndpoint.equals (rhs.m_aEndpoint);
+  }
+
+  @Override
+  public int hashCode ()
+  {
+    return new HashCodeGenerator (this).append (m_aEndpoint).getHashCode ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("EndpointURL", m_sEndpointURL)
+                                       .append ("Certificate",
+                                                m_aCertificate == null ? null
+                                                                       : m_aCertificate.getSubjectX500Principal ()
+                                                                                       .getName ())
+                                       .append ("ServiceActivation", m_aServiceActivation)
+                                       .append ("ServiceExpiration", m_aServiceExpiration)
+                                       .getToString ();
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2025-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.apsupport;
+
+import javax.xml.namespace.QName;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.xsds.peppol.smp1.EndpointType;
+
+import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.JAXBException;
+
+/**
+ * Internal {@link ICacheValueCodec} for {@link ResolvedSMPEndpoint} objects. Only the contained
+ * {@link EndpointType} is serialized, the other fields are parsed again when decoding.
+ *
+ * @author Philip Helger
+ * @since 2.2.2
+ */
+@Immutable
+final class ResolvedSMPEndpointCacheCodec implements ICacheValueCodec <ResolvedSMPEndpoint>
+{
+  static final ResolvedSMPEndpointCacheCodec INSTANCE = new ResolvedSMPEndpointCacheCodec ();
+
+  private static final QName ELEMENT_NAME = new QName ("http://busdox.org/serviceMetadata/publishing/1.0/",
+                                                       "Endpoint");
+
+  // Indirection level to create the JAXB context only when needed
+  private static final class ContextHolder
+  {
+    static final JAXBContext CONTEXT;
+    static
+    {
+      try
+      {
+        CONTEXT = JAXBContext.newInstance (EndpointType.class);
+      }
+      catch (final JAXBException ex)
+      {
+        throw new IllegalStateException ("Failed to create JAXB context for EndpointType", ex);
+      }
+    }
+  }
+
+  private ResolvedSMPEndpointCacheCodec ()
+  {}
+
+  @NonNull
+  public byte [] encode (@NonNull final ResolvedSMPEndpoint aValue)
+  {
+    return CacheValueCodecHelper.marshalCompressed (ContextHolder.CONTEXT,
+                                                    ELEMENT_NAME,
+                                                    EndpointType.class,
+                                                    aValue.getEndpoint ());
+  }
+
+  @NonNull
+  public ResolvedSMPEndpoint decode (@NonNull final byte [] aData)
+  {
+    return new ResolvedSMPEndpoint (CacheValueCodecHelper.unmarshalCompressed (ContextHolder.CONTEXT,
+                                                                               EndpointType.class,
+                                                                               aData));
+  }
+}
@@ -0,0 +1,992 @@
+/*
+ * Copyright (C) 2025-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.apsupport;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.annotation.Nonempty;
+import com.helger.annotation.concurrent.GuardedBy;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.state.EChange;
+import com.helger.base.state.ESuccess;
+import com.helger.base.tostring.ToStringGenerator;
+import com.helger.peppol.apsupport.cache.BinaryCacheEntry;
+import com.helger.peppol.apsupport.cache.IBinaryCacheStore;
+import com.helger.peppol.apsupport.cache.ISecondLevelCache;
+import com.helger.peppolid.IParticipantIdentifier;
+import com.helger.peppolid.factory.SimpleIdentifierFactory;
+
+/**
+ * Internal cache for values per participant identifier. It consists of a size-limited on-heap hot
+ * tier and an optional {@link IBinaryCacheStore} as the second tier that can hold a much larger
+ * number of entries in serialized form. Optionally an {@link ISecondLevelCache} shared between all
+ * nodes of a cluster can be used as the last tier before invoking the loader. The cache name is used
+ * as the region of the second level cache and as the key prefix in the second tier, so that multiple
+ * caches can share the same stores.<br>
+ * To avoid that many entries loaded at the same time also expire at the same time, a random jitter
+ * is applied to the expiration of every loaded entry. Optionally an
+ * {@link AdaptiveExpirationPolicy} can be used to adapt the expiration per participant. The
+ * expiration duration is stored together with the serialized entries, and expired entries are kept in
+ * the second tier and the second level cache for another period, so that the adaptive expiration also
+ * works for participants that are no longer in the hot tier.<br>
+ * The loader can report the origin (the SMP host) of each loaded value, so that all entries of a
+ * single origin can be invalidated. The origins are only known for values loaded by this instance.<br>
+ * Concurrent misses for the same participant are resolved only once. Values resolved while an
+ * invalidation happens are returned to the caller, but not stored in any tier.<br>
+ * Statistics are collected in a {@link IParticipantCacheMXBean} that can be registered at the
+ * platform MBean server, and every load emits a {@link ParticipantLoadEvent} for the Java Flight
+ * Recorder.
+ *
+ * @author Philip Helger
+ * @param <VALUETYPE>
+ *        The cached value type. <code>null</code> values are cached as well.
+ * @since 2.2.2
+ */
+@ThreadSafe
+final class TieredParticipantCache <VALUETYPE>
+{
+  /** Value for {@link #setMaxHotSize(int)} to not limit the number of on-heap entries */
+  static final int UNLIMITED = 0;
+  /** The default jitter of the expiration in percent */
+  static final int DEFAULT_EXPIRATION_JITTER_PERCENTAGE = 10;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger (TieredParticipantCache.class);
+  private static final byte [] NO_DATA = new byte [0];
+  // Format of the serialized entries in the second tier and the second level cache: version byte,
+  // expiration millis, duration millis, payload
+  private static final byte TIER_FORMAT_VERSION = 1;
+  private static final int TIER_HEADER_SIZE = 1 + Long.BYTES + Long.BYTES;
+
+  /** The JMX domain used for {@link #registerMBean()} */
+  static final String JMX_DOMAIN = "com.helger.peppol.apsupport";
+
+  /**
+   * Listener for the loader to report additional information.
+   */
+  interface ILoadListener
+  {
+    /**
+     * Report the origin of the loaded value.
+     *
+     * @param sOrigin
+     *        The SMP host the value is loaded from. May be <code>null</code>.
+     */
+    void onOrigin (@Nullable String sOrigin);
+
+    /**
+     * Report an error that was handled by the loader itself.
+     *
+     * @param ex
+     *        The exception. Never <code>null</code>.
+     */
+    void onError (@NonNull Exception ex);
+  }
+
+  /**
+   * Loader that is invoked on a cache miss.
+   *
+   * @param <VALUETYPE>
+   *        The value type
+   */
+  @FunctionalInterface
+  interface ILoader <VALUETYPE>
+  {
+    /**
+     * Load the value of a participant.
+     *
+     * @param aPID
+     *        The participant to load. Never <code>null</code>.
+     * @param aListener
+     *        The listener to report the SMP host and handled errors to. Never <code>null</code>.
+     * @return The loaded value. May be <code>null</code>.
+     */
+    @Nullable
+    VALUETYPE load (@NonNull IParticipantIdentifier aPID, @NonNull ILoadListener aListener);
+  }
+
+  private static final class Entry <VALUETYPE>
+  {
+    private final VALUETYPE m_aValue;
+    private final long m_nExpirationMillis;
+    // The expiration duration without jitter, used by the adaptive expiration
+    private final long m_nDurationMillis;
+
+    Entry (@Nullable final VALUETYPE aValue, final long nExpirationMillis, final long nDurationMillis)
+    {
+      m_aValue = aValue;
+      m_nExpirationMillis = nExpirationMillis;
+      m_nDurationMillis = nDurationMillis;
+    }
+  }
+
+  private final String m_sName;
+  // Prefix of all keys of this cache in the second tier
+  private final String m_sSecondTierKeyPrefix;
+  private final ICacheValueCodec <VALUETYPE> m_aCodec;
+  private final ILoader <VALUETYPE> m_aLoader;
+  private final Lock m_aLock = new ReentrantLock ();
+  @GuardedBy ("m_aLock")
+  private final Map <String, Entry <VALUETYPE>> m_aHotMap;
+  // Cache key to lower case origin
+  private final Map <String, String> m_aOrigins = new ConcurrentHashMap <> ();
+  // Cache key to the currently running resolution
+  private final Map <String, CompletableFuture <VALUETYPE>> m_aInFlight = new ConcurrentHashMap <> ();
+  // Incremented on every invalidation, so that concurrently resolved values are not stored
+  private final AtomicLong m_aGeneration = new AtomicLong ();
+  private final ParticipantCacheStatistics m_aStats;
+  private ObjectName m_aRegisteredMBeanName;
+  private volatile Duration m_aExpiration;
+  private volatile int m_nMaxHotSize = UNLIMITED;
+  private volatile int m_nExpirationJitterPercentage = DEFAULT_EXPIRATION_JITTER_PERCENTAGE;
+  private volatile AdaptiveExpirationPolicy m_aAdaptiveExpirationPolicy;
+  private volatile IBinaryCacheStore m_aSecondTier;
+  private volatile ISecondLevelCache m_aSecondLevelCache;
+
+  /**
+   * Constructor
+   *
+   * @param sName
+   *        Cache name. Used for logging, as the key prefix in the second tier and as the region of
+   *        the second level cache. Must be unique per cache. May neither be <code>null</code> nor
+   *        empty.
+   * @param aCodec
+   *        The codec to convert values from and to bytes for the second tier. May not be
+   *        <code>null</code>.
+   * @param aLoader
+   *        The loader that is invoked on a cache miss. It may return <code>null</code>. May not be
+   *        <code>null</code>.
+   * @param aExpiration
+   *        The duration after which loaded values expire. May not be <code>null</code>.
+   */
+  TieredParticipantCache (@NonNull @Nonempty final String sName,
+                          @NonNull final ICacheValueCodec <VALUETYPE> aCodec,
+                          @NonNull final ILoader <VALUETYPE> aLoader,
+                          @NonNull final Duration aExpiration)
+  {
+    ValueEnforcer.notEmpty (sName, "Name");
+    ValueEnforcer.notNull (aCodec, "Codec");
+    ValueEnforcer.notNull (aLoader, "Loader");
+    ValueEnforcer.notNull (aExpiration, "Expiration");
+
+    m_sName = sName;
+    m_sSecondTierKeyPrefix = sName + ':';
+    m_aCodec = aCodec;
+    m_aLoader = aLoader;
+    m_aExpiration = aExpiration;
+    m_aStats = new ParticipantCacheStatistics (sName, this::getHotSize);
+    // Access ordered for LRU semantics
+    m_aHotMap = new LinkedHashMap <> (16, 0.75f, true)
+    {
+      @Override
+      protected boolean removeEldestEntry (final Map.Entry <String, Entry <VALUETYPE>> aEldest)
+      {
+        final int nMaxHotSize = m_nMaxHotSize;
+        if (nMaxHotSize == UNLIMITED || size () <= nMaxHotSize)
+          return false;
+        // Without other tiers, the entry is gone completely
+        if (m_aSecondTier == null && m_aSecondLevelCache == null)
+          m_aOrigins.remove (aEldest.getKey ());
+        return true;
+      }
+    };
+  }
+
+  @NonNull
+  Duration getExpiration ()
+  {
+    return m_aExpiration;
+  }
+
+  void setExpiration (@NonNull final Duration aExpiration)
+  {
+    ValueEnforcer.notNull (aExpiration, "Expiration");
+    m_aExpiration = aExpiration;
+  }
+
+  int getExpirationJitterPercentage ()
+  {
+    return m_nExpirationJitterPercentage;
+  }
+
+  void setExpirationJitterPercentage (final int nExpirationJitterPercentage)
+  {
+    ValueEnforcer.isBetweenInclusive (nExpirationJitterPercentage, "ExpirationJitterPercentage", 0, 100);
+    m_nExpirationJitterPercentage = nExpirationJitterPercentage;
+  }
+
+  @Nullable
+  AdaptiveExpirationPolicy getAdaptiveExpirationPolicy ()
+  {
+    return m_aAdaptiveExpirationPolicy;
+  }
+
+  void setAdaptiveExpirationPolicy (@Nullable final AdaptiveExpirationPolicy aAdaptiveExpirationPolicy)
+  {
+    m_aAdaptiveExpirationPolicy = aAdaptiveExpirationPolicy;
+  }
+
+  int getMaxHotSize ()
+  {
+    return m_nMaxHotSize;
+  }
+
+  void setMaxHotSize (final int nMaxHotSize)
+  {
+    ValueEnforcer.isGE0 (nMaxHotSize, "MaxHotSize");
+    m_nMaxHotSize = nMaxHotSize;
+  }
+
+  @Nullable
+  IBinaryCacheStore getSecondTier ()
+  {
+    return m_aSecondTier;
+  }
+
+  void setSecondTier (@Nullable final IBinaryCacheStore aSecondTier)
+  {
+    m_aSecondTier = aSecondTier;
+  }
+
+  @Nullable
+  ISecondLevelCache getSecondLevelCache ()
+  {
+    return m_aSecondLevelCache;
+  }
+
+  void setSecondLevelCache (@Nullable final ISecondLevelCache aSecondLevelCache)
+  {
+    m_aSecondLevelCache = aSecondLevelCache;
+  }
+
+  @NonNull
+  IParticipantCacheMXBean getStatistics ()
+  {
+    return m_aStats;
+  }
+
+  /**
+   * Register the statistics of this cache at the platform MBean server, using the object name
+   * <code>com.helger.peppol.apsupport:type=ParticipantCache,name=<i>cacheName</i></code>.
+   *
+   * @return {@link ESuccess#FAILURE} if registration failed, e.g. because another cache with the
+   *         same name is already registered.
+   */
+  @NonNull
+  synchronized ESuccess registerMBean ()
+  {
+    if (m_aRegisteredMBeanName != null)
+      return ESuccess.SUCCESS;
+
+    try
+    {
+      final ObjectName aName = new ObjectName (JMX_DOMAIN +
+                                               ":type=ParticipantCache,name=" +
+                                               ObjectName.quote (m_sName));
+      final MBeanServer aServer = ManagementFactory.getPlatformMBeanServer ();
+      aServer.registerMBean (new StandardMBean (m_aStats, IParticipantCacheMXBean.class, true), aName);
+      m_aRegisteredMBeanName = aName;
+      return ESuccess.SUCCESS;
+    }
+    catch (final JMException ex)
+    {
+      LOGGER.warn (m_sName + " failed to register MBean", ex);
+      return ESuccess.FAILURE;
+    }
+  }
+
+  /**
+   * Unregister the statistics of this cache from the platform MBean server.
+   *
+   * @return {@link EChange#CHANGED} if the MBean was registered.
+   */
+  @NonNull
+  synchronized EChange unregisterMBean ()
+  {
+    if (m_aRegisteredMBeanName == null)
+      return EChange.UNCHANGED;
+
+    try
+    {
+      ManagementFactory.getPlatformMBeanServer ().unregisterMBean (m_aRegisteredMBeanName);
+    }
+    catch (final JMException ex)
+    {
+      LOGGER.warn (m_sName + " failed to unregister MBean", ex);
+    }
+    m_aRegisteredMBeanName = null;
+    return EChange.CHANGED;
+  }
+
+  int getHotSize ()
+  {
+    m_aLock.lock ();
+    try
+    {
+      return m_aHotMap.size ();
+    }
+    finally
+    {
+      m_aLock.unlock ();
+    }
+  }
+
+  @NonNull
+  private String _getSecondTierKey (@NonNull final String sKey)
+  {
+    return m_sSecondTierKeyPrefix + sKey;
+  }
+
+  /**
+   * Serialize an entry for the second tier and the second level cache. The expiration and the
+   * duration are stored in front of the value, so that the adaptive expiration works across tiers.
+   *
+   * @param aValue
+   *        The value to serialize. May be <code>null</code>.
+   * @param nExpirationMillis
+   *        The absolute expiration time of the value.
+   * @param nDurationMillis
+   *        The expiration duration without jitter.
+   * @return The serialized entry. Never <code>null</code>.
+   */
+  @NonNull
+  private byte [] _encode (@Nullable final VALUETYPE aValue, final long nExpirationMillis, final long nDurationMillis)
+  {
+    final byte [] aPayload = aValue == null ? NO_DATA : m_aCodec.encode (aValue);
+    return ByteBuffer.allocate (TIER_HEADER_SIZE + aPayload.length)
+                     .put (TIER_FORMAT_VERSION)
+                     .putLong (nExpirationMillis)
+                     .putLong (nDurationMillis)
+                     .put (aPayload)
+                     .array ();
+  }
+
+  @NonNull
+  private Entry <VALUETYPE> _decode (@NonNull final BinaryCacheEntry aBinaryEntry)
+  {
+    final byte [] aData = aBinaryEntry.getData ();
+    if (aData.length < TIER_HEADER_SIZE || aData[0] != TIER_FORMAT_VERSION)
+      throw new IllegalStateException ("Unsupported cache entry format");
+
+    final ByteBuffer aBB = ByteBuffer.wrap (aData);
+    aBB.get ();
+    final long nExpirationMillis = aBB.getLong ();
+    final long nDurationMillis = aBB.getLong ();
+    final VALUETYPE aValue = aData.length == TIER_HEADER_SIZE ? null
+                                                              : m_aCodec.decode (Arrays.copyOfRange (aData,
+                                                                                                     TIER_HEADER_SIZE,
+                                                                                                     aData.length));
+    return new Entry <> (aValue, nExpirationMillis, nDurationMillis);
+  }
+
+  private void _removeFromSecondLevelCache (@NonNull final ISecondLevelCache aSecondLevelCache,
+                                            @NonNull final String sKey)
+  {
+    try
+    {
+      aSecondLevelCache.remove (m_sName, sKey);
+    }
+    catch (final RuntimeException ex)
+    {
+      LOGGER.warn (m_sName + " entry for '" + sKey + "' could not be removed from second level cache", ex);
+    }
+  }
+
+  /**
+   * Get the expiration duration of a freshly loaded value.
+   *
+   * @param aPrevious
+   *        The expired entry of the same participant. May be <code>null</code>.
+   * @param aValue
+   *        The freshly loaded value. May be <code>null</code>.
+   * @return The expiration duration in milliseconds without jitter.
+   */
+  private long _getDurationMillis (@Nullable final Entry <VALUETYPE> aPrevious, @Nullable final VALUETYPE aValue)
+  {
+    final AdaptiveExpirationPolicy aPolicy = m_aAdaptiveExpirationPolicy;
+    if (aPolicy == null || aPrevious == null)
+      return m_aExpiration.toMillis ();
+    return aPolicy.getNextExpirationMillis (aPrevious.m_nDurationMillis,
+                                           !Objects.equals (aPrevious.m_aValue, aValue));
+  }
+
+  private long _applyJitter (final long nDurationMillis)
+  {
+    final int nJitterPercentage = m_nExpirationJitterPercentage;
+    if (nJitterPercentage == 0 || nDurationMillis <= 0)
+      return nDurationMillis;
+    // Random value between -Jitter% and +Jitter%
+    final long nMaxJitter = nDurationMillis / 100 * nJitterPercentage;
+    if (nMaxJitter <= 0)
+      return nDurationMillis;
+    return nDurationMillis + ThreadLocalRandom.current ().nextLong (-nMaxJitter, nMaxJitter + 1);
+  }
+
+  @Nullable
+  private Entry <VALUETYPE> _getValidHot (@NonNull final String sKey)
+  {
+    m_aLock.lock ();
+    try
+    {
+      final Entry <VALUETYPE> aEntry = m_aHotMap.get (sKey);
+      return aEntry != null && System.currentTimeMillis () < aEntry.m_nExpirationMillis ? aEntry : null;
+    }
+    finally
+    {
+      m_aLock.unlock ();
+    }
+  }
+
+  /**
+   * Put an entry into the hot tier, unless an invalidation happened since the resolution started.
+   *
+   * @param sKey
+   *        Cache key. May not be <code>null</code>.
+   * @param aEntry
+   *        The entry to put. May not be <code>null</code>.
+   * @param nGeneration
+   *        The invalidation generation at the start of the resolution.
+   * @return <code>true</code> if the entry was stored, <code>false</code> if not.
+   */
+  private boolean _putHot (@NonNull final String sKey, @NonNull final Entry <VALUETYPE> aEntry, final long nGeneration)
+  {
+    m_aLock.lock ();
+    try
+    {
+      // Checked under the lock, because the invalidation clears the hot tier under the lock after
+      // incrementing the generation
+      if (m_aGeneration.get () != nGeneration)
+        return false;
+      m_aHotMap.put (sKey, aEntry);
+      return true;
+    }
+    finally
+    {
+      m_aLock.unlock ();
+    }
+  }
+
+  private void _putSecondTier (@NonNull final IBinaryCacheStore aSecondTier,
+                               @NonNull final String sSecondTierKey,
+                               @NonNull final BinaryCacheEntry aBinaryEntry,
+                               final long nGeneration)
+  {
+    aSecondTier.put (sSecondTierKey, aBinaryEntry);
+    // An invalidation may have happened in between - don't keep a potentially stale value
+    if (m_aGeneration.get () != nGeneration)
+      aSecondTier.remove (sSecondTierKey);
+  }
+
+  @Nullable
+  private VALUETYPE _load (@NonNull final IParticipantIdentifier aPID, @NonNull final String sKey)
+  {
+    final ParticipantLoadEvent aEvent = new ParticipantLoadEvent ();
+    final String [] aOrigin = new String [1];
+    final boolean [] aError = new boolean [1];
+    final ILoadListener aListener = new ILoadListener ()
+    {
+      public void onOrigin (@Nullable final String sOrigin)
+      {
+        if (sOrigin != null)
+        {
+          aOrigin[0] = sOrigin.toLowerCase (Locale.ROOT);
+          m_aOrigins.put (sKey, aOrigin[0]);
+        }
+      }
+
+      public void onError (@NonNull final Exception ex)
+      {
+        aError[0] = true;
+      }
+    };
+
+    m_aStats.onLoadStart ();
+    aEvent.begin ();
+    final long nStartNanos = System.nanoTime ();
+    VALUETYPE ret = null;
+    try
+    {
+      ret = m_aLoader.load (aPID, aListener);
+      return ret;
+    }
+    catch (final RuntimeException ex)
+    {
+      aError[0] = true;
+      throw ex;
+    }
+    finally
+    {
+      m_aStats.onLoadEnd (System.nanoTime () - nStartNanos, aError[0]);
+      aEvent.end ();
+      if (aEvent.shouldCommit ())
+      {
+        aEvent.cacheName = m_sName;
+        aEvent.participantScheme = aPID.getScheme ();
+        aEvent.smpHost = aOrigin[0];
+        aEvent.found = ret != null;
+        aEvent.error = aError[0];
+        aEvent.commit ();
+      }
+    }
+  }
+
+  /**
+   * Get the cached value of the provided participant, loading it if necessary.
+   *
+   * @param aPID
+   *        The participant ID to query. May not be <code>null</code>.
+   * @return The cached or loaded value. May be <code>null</code>.
+   */
+  @Nullable
+  VALUETYPE get (@NonNull final IParticipantIdentifier aPID)
+  {
+    ValueEnforcer.notNull (aPID, "PID");
+    final String sKey = aPID.getURIEncoded ();
+
+    // Check in hot tier
+    Entry <VALUETYPE> aPrevious = null;
+    m_aLock.lock ();
+    try
+    {
+      final Entry <VALUETYPE> aEntry = m_aHotMap.get (sKey);
+      if (aEntry != null)
+      {
+        if (System.currentTimeMillis () >= aEntry.m_nExpirationMillis)
+        {
+          m_aHotMap.remove (sKey);
+          // Remember for adaptive expiration
+          aPrevious = aEntry;
+        }
+        else
+        {
+          m_aStats.onHotHit ();
+          if (LOGGER.isDebugEnabled ())
+            LOGGER.debug (m_sName + " entry for '" + sKey + "' is taken from cache: " + (aEntry.m_aValue != null));
+          return aEntry.m_aValue;
+        }
+      }
+    }
+    finally
+    {
+      m_aLock.unlock ();
+    }
+
+    // Resolve each participant only once at a time
+    final CompletableFuture <VALUETYPE> aFuture = new CompletableFuture <> ();
+    final CompletableFuture <VALUETYPE> aRunningFuture = m_aInFlight.putIfAbsent (sKey, aFuture);
+    if (aRunningFuture != null)
+    {
+      if (LOGGER.isDebugEnabled ())
+        LOGGER.debug (m_sName + " entry for '" + sKey + "' is already being resolved - waiting");
+      try
+      {
+        return aRunningFuture.join ();
+      }
+      catch (final CompletionException ex)
+      {
+        if (ex.getCause () instanceof RuntimeException)
+          throw (RuntimeException) ex.getCause ();
+        throw ex;
+      }
+    }
+
+    try
+    {
+      final VALUETYPE ret = _resolve (aPID, sKey, aPrevious);
+      aFuture.complete (ret);
+      return ret;
+    }
+    catch (final RuntimeException | Error ex)
+    {
+      aFuture.completeExceptionally (ex);
+      throw ex;
+    }
+    finally
+    {
+      m_aInFlight.remove (sKey, aFuture);
+    }
+  }
+
+  /**
+   * Resolve a value that is not contained in the hot tier, from the other tiers or the loader.
+   *
+   * @param aPID
+   *        The participant ID to query. May not be <code>null</code>.
+   * @param sKey
+   *        The cache key of the participant. May not be <code>null</code>.
+   * @param aPrevious
+   *        The expired hot tier entry of the participant. May be <code>null</code>.
+   * @return The resolved value. May be <code>null</code>.
+   */
+  @Nullable
+  private VALUETYPE _resolve (@NonNull final IParticipantIdentifier aPID,
+                              @NonNull final String sKey,
+                              @Nullable final Entry <VALUETYPE> aPrevious)
+  {
+    final long nGeneration = m_aGeneration.get ();
+
+    // Another thread may have finished resolving in the meantime
+    final Entry <VALUETYPE> aHotEntry = _getValidHot (sKey);
+    if (aHotEntry != null)
+    {
+      m_aStats.onHotHit ();
+      return aHotEntry.m_aValue;
+    }
+
+    // Entries of other tiers that are expired but kept for the adaptive expiration
+    Entry <VALUETYPE> aPreviousEntry = aPrevious;
+
+    // Check in second tier
+    final IBinaryCacheStore aSecondTier = m_aSecondTier;
+    final String sSecondTierKey = _getSecondTierKey (sKey);
+    if (aSecondTier != null)
+    {
+      final BinaryCacheEntry aBinaryEntry = aSecondTier.get (sSecondTierKey);
+      if (aBinaryEntry != null)
+        try
+        {
+          final Entry <VALUETYPE> aEntry = _decode (aBinaryEntry);
+          if (System.currentTimeMillis () < aEntry.m_nExpirationMillis)
+          {
+            // Keep the original expiration time
+            _putHot (sKey, aEntry, nGeneration);
+            m_aStats.onSecondTierHit ();
+            if (LOGGER.isDebugEnabled ())
+              LOGGER.debug (m_sName +
+                            " entry for '" +
+                            sKey +
+                            "' is taken from second tier: " +
+                            (aEntry.m_aValue != null));
+            return aEntry.m_aValue;
+          }
+          if (aPreviousEntry == null)
+            aPreviousEntry = aEntry;
+        }
+        catch (final RuntimeException ex)
+        {
+          m_aStats.onTierError ();
+          LOGGER.warn (m_sName + " entry for '" + sKey + "' could not be read from second tier - reloading", ex);
+          aSecondTier.remove (sSecondTierKey);
+        }
+    }
+
+    // Check in second level cache
+    final ISecondLevelCache aSecondLevelCache = m_aSecondLevelCache;
+    if (aSecondLevelCache != null)
+    {
+      BinaryCacheEntry aBinaryEntry = null;
+      try
+      {
+        aBinaryEntry = aSecondLevelCache.get (m_sName, sKey);
+        if (aBinaryEntry != null)
+        {
+          final Entry <VALUETYPE> aEntry = _decode (aBinaryEntry);
+          if (System.currentTimeMillis () < aEntry.m_nExpirationMillis)
+          {
+            // Keep the original expiration time, so that all nodes expire at the same time
+            if (_putHot (sKey, aEntry, nGeneration) && aSecondTier != null)
+              _putSecondTier (aSecondTier, sSecondTierKey, aBinaryEntry, nGeneration);
+            m_aStats.onSecondLevelCacheHit ();
+            if (LOGGER.isDebugEnabled ())
+              LOGGER.debug (m_sName +
+                            " entry for '" +
+                            sKey +
+                            "' is taken from second level cache: " +
+                            (aEntry.m_aValue != null));
+            return aEntry.m_aValue;
+          }
+          if (aPreviousEntry == null)
+            aPreviousEntry = aEntry;
+        }
+      }
+      catch (final RuntimeException ex)
+      {
+        m_aStats.onTierError ();
+        LOGGER.warn (m_sName + " entry for '" + sKey + "' could not be read from second level cache - reloading", ex);
+        if (aBinaryEntry != null)
+          _removeFromSecondLevelCache (aSecondLevelCache, sKey);
+      }
+    }
+
+    // Load and remember
+    final VALUETYPE aValue = _load (aPID, sKey);
+    final long nNowMillis = System.currentTimeMillis ();
+    final long nDurationMillis = _getDurationMillis (aPreviousEntry, aValue);
+    final long nExpirationMillis = nNowMillis + _applyJitter (nDurationMillis);
+    if (!_putHot (sKey, new Entry <> (aValue, nExpirationMillis, nDurationMillis), nGeneration))
+    {
+      if (LOGGER.isDebugEnabled ())
+        LOGGER.debug (m_sName + " entry for '" + sKey + "' was invalidated while loading - not caching it");
+      return aValue;
+    }
+
+    if (aSecondTier != null || aSecondLevelCache != null)
+    {
+      byte [] aData = null;
+      try
+      {
+        aData = _encode (aValue, nExpirationMillis, nDurationMillis);
+      }
+      catch (final RuntimeException ex)
+      {
+        m_aStats.onTierError ();
+        LOGGER.warn (m_sName + " entry for '" + sKey + "' could not be serialized", ex);
+      }
+
+      if (aData != null)
+      {
+        // With an adaptive expiration, expired entries are kept for another period, so that the
+        // next load can compare against them even if they are no longer in the hot tier
+        final long nTierExpirationMillis = m_aAdaptiveExpirationPolicy != null ? nExpirationMillis + nDurationMillis
+                                                                                : nExpirationMillis;
+        if (aSecondTier != null)
+          _putSecondTier (aSecondTier,
+                          sSecondTierKey,
+                          new BinaryCacheEntry (aData, nTierExpirationMillis),
+                          nGeneration);
+        if (aSecondLevelCache != null)
+          try
+          {
+            // The load time is used as the version
+            aSecondLevelCache.put (m_sName, sKey, new BinaryCacheEntry (aData, nNowMillis, nTierExpirationMillis));
+            if (m_aGeneration.get () != nGeneration)
+              _removeFromSecondLevelCache (aSecondLevelCache, sKey);
+          }
+          catch (final RuntimeException ex)
+          {
+            m_aStats.onTierError ();
+            LOGGER.warn (m_sName + " entry for '" + sKey + "' could not be stored in second level cache", ex);
+          }
+      }
+    }
+
+    return aValue;
+  }
+
+  /**
+   * Remove the provided keys from all tiers.
+   *
+   * @param aKeyFilter
+   *        The filter for the cache keys to remove. May not be <code>null</code>.
+   * @param aSingleKey
+   *        If only a single key should be removed, this key. May be <code>null</code>.
+   * @return {@link EChange#CHANGED} if at least one entry was removed.
+   */
+  @NonNull
+  private EChange _remove (@NonNull final Predicate <String> aKeyFilter, @Nullable final String aSingleKey)
+  {
+    // Must happen before removing, so that concurrent resolutions don't store their value
+    m_aGeneration.incrementAndGet ();
+
+    // Let new requests start a new resolution
+    if (aSingleKey != null)
+      m_aInFlight.remove (aSingleKey);
+    else
+      m_aInFlight.keySet ().removeIf (aKeyFilter);
+
+    EChange ret = EChange.UNCHANGED;
+    m_aLock.lock ();
+    try
+    {
+      if (aSingleKey != null)
+        ret = EChange.valueOf (m_aHotMap.remove (aSingleKey) != null);
+      else
+      {
+        final Iterator <String> it = m_aHotMap.keySet ().iterator ();
+        while (it.hasNext ())
+          if (aKeyFilter.test (it.next ()))
+          {
+            it.remove ();
+            ret = EChange.CHANGED;
+          }
+      }
+    }
+    finally
+    {
+      m_aLock.unlock ();
+    }
+
+    final IBinaryCacheStore aSecondTier = m_aSecondTier;
+    if (aSecondTier != null)
+    {
+      // Only consider the keys of this cache
+      final int nPrefixLen = m_sSecondTierKeyPrefix.length ();
+      ret = ret.or (aSingleKey != null ? aSecondTier.remove (_getSecondTierKey (aSingleKey))
+                                       : aSecondTier.removeIf (x -> x.startsWith (m_sSecondTierKeyPrefix) &&
+                                                                    aKeyFilter.test (x.substring (nPrefixLen))));
+    }
+
+    final ISecondLevelCache aSecondLevelCache = m_aSecondLevelCache;
+    if (aSecondLevelCache != null)
+      try
+      {
+        ret = ret.or (aSingleKey != null ? aSecondLevelCache.remove (m_sName, aSingleKey)
+                                         : aSecondLevelCache.removeIf (m_sName, aKeyFilter));
+      }
+      catch (final RuntimeException ex)
+      {
+        LOGGER.warn (m_sName + " could not remove entries from second level cache", ex);
+      }
+
+    if (aSingleKey != null)
+      m_aOrigins.remove (aSingleKey);
+    else
+      m_aOrigins.keySet ().removeIf (aKeyFilter);
+    return ret;
+  }
+
+  /**
+   * Remove the entry of a single participant from all tiers.
+   *
+   * @param aPID
+   *        The participant to remove. May not be <code>null</code>.
+   * @return {@link EChange#CHANGED} if an entry was removed.
+   */
+  @NonNull
+  EChange remove (@NonNull final IParticipantIdentifier aPID)
+  {
+    ValueEnforcer.notNull (aPID, "PID");
+    final String sKey = aPID.getURIEncoded ();
+    return _remove (sKey::equals, sKey);
+  }
+
+  /**
+   * Remove the entries of all participants matching the provided filter from all tiers.
+   *
+   * @param aFilter
+   *        The participant filter. May not be <code>null</code>.
+   * @return {@link EChange#CHANGED} if at least one entry was removed.
+   */
+  @NonNull
+  EChange removeIf (@NonNull final Predicate <? super IParticipantIdentifier> aFilter)
+  {
+    ValueEnforcer.notNull (aFilter, "Filter");
+    return _remove (sKey -> {
+      final IParticipantIdentifier aPID = SimpleIdentifierFactory.INSTANCE.parseParticipantIdentifier (sKey);
+      return aPID != null && aFilter.test (aPID);
+    }, null);
+  }
+
+  /**
+   * Remove the entries of all participants loaded from the provided origin from all tiers. Only
+   * values loaded by this instance are considered.
+   *
+   * @param sOrigin
+   *        The origin (SMP host name) to remove. Case insensitive. May neither be
+   *        <code>null</code> nor empty.
+   * @return {@link EChange#CHANGED} if at least one entry was removed.
+   */
+  @NonNull
+  EChange removeByOrigin (@NonNull @Nonempty final String sOrigin)
+  {
+    ValueEnforcer.notEmpty (sOrigin, "Origin");
+    final String sLCOrigin = sOrigin.toLowerCase (Locale.ROOT);
+
+    EChange ret = EChange.UNCHANGED;
+    for (final Map.Entry <String, String> aEntry : m_aOrigins.entrySet ())
+      if (aEntry.getValue ().equals (sLCOrigin))
+      {
+        final String sKey = aEntry.getKey ();
+        ret = ret.or (_remove (sKey::equals, sKey));
+      }
+    return ret;
+  }
+
+  /**
+   * Remove all entries of this cache from all tiers. This includes the region of this cache in the
+   * second level cache, so all nodes sharing it are affected. Entries of other caches sharing the
+   * same second tier are not touched.
+   *
+   * @return {@link EChange#CHANGED} if something was contained in the cache.
+   */
+  @NonNull
+  EChange clear ()
+  {
+    m_aGeneration.incrementAndGet ();
+    m_aInFlight.clear ();
+
+    EChange ret;
+    m_aLock.lock ();
+    try
+    {
+      ret = EChange.valueOf (!m_aHotMap.isEmpty ());
+      m_aHotMap.clear ();
+      m_aOrigins.clear ();
+    }
+    finally
+    {
+      m_aLock.unlock ();
+    }
+
+    final IBinaryCacheStore aSecondTier = m_aSecondTier;
+    if (aSecondTier != null)
+      ret = ret.or (aSecondTier.removeIf (x -> x.startsWith (m_sSecondTierKeyPrefix)));
+
+    final ISecondLevelCache aSecondLevelCache = m_aSecondLevelCache;
+    if (aSecondLevelCache != null)
+      try
+      {
+        ret = ret.or (aSecondLevelCache.clear (m_sName));
+      }
+      catch (final RuntimeException ex)
+      {
+        LOGGER.warn (m_sName + " could not clear second level cache", ex);
+      }
+    return ret;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (null).append ("Name", m_sName)
+                                       .append ("Expiration", m_aExpiration)
+                                       .append ("ExpirationJitterPercentage", m_nExpirationJitterPercentage)
+                                       .append ("AdaptiveExpirationPolicy", m_aAdaptiveExpirationPolicy)
+                                       .append ("MaxHotSize", m_nMaxHotSize)
+                                       .append ("HotSize", getHotSize ())
+                                       .append ("SecondTier", m_aSecondTier)
+                                       .append ("SecondLevelCache", m_aSecondLevelCache)
+                                       .append ("Statistics", m_aStats)
+                                       .getToString ();
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2025-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.apsupport.cache;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.tostring.ToStringGenerator;
+
+/**
+ * A single serialized entry of an {@link IBinaryCacheStore} or an {@link ISecondLevelCache}. An
+ * empty payload is used to remember that the looked up value does not exist (negative caching).
+ *
+ * @author Philip Helger
+ * @since 2.2.2
+ */
+@Immutable
+public final class BinaryCacheEntry
+{
+  /** The version of entries that are not versioned */
+  public static final long VERSION_NONE = 0;
+
+  private final byte [] m_aData;
+  private final long m_nVersion;
+  private final long m_nExpirationMillis;
+
+  /**
+   * Constructor for an entry without version.
+   *
+   * @param aData
+   *        The serialized payload. May not be <code>null</code> but may be empty. The array is not
+   *        copied.
+   * @param nExpirationMillis
+   *        The absolute expiration time in milliseconds since the epoch.
+   */
+  public BinaryCacheEntry (@NonNull final byte [] aData, final long nExpirationMillis)
+  {
+    this (aData, VERSION_NONE, nExpirationMillis);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param aData
+   *        The serialized payload. May not be <code>null</code> but may be empty. The array is not
+   *        copied.
+   * @param nVersion
+   *        The version of the entry. Higher values indicate newer entries. Must be &ge; 0.
+   * @param nExpirationMillis
+   *        The absolute expiration time in milliseconds since the epoch.
+   */
+  public BinaryCacheEntry (@NonNull final byte [] aData, final long nVersion, final long nExpirationMillis)
+  {
+    ValueEnforcer.notNull (aData, "Data");
+    ValueEnforcer.isGE0 (nVersion, "Version");
+    m_aData = aData;
+    m_nVersion = nVersion;
+    m_nExpirationMillis = nExpirationMillis;
+  }
+
+  /**
+   * @return The serialized payload. Never <code>null</code> but maybe empty. The internal array
+   *         is returned and must not be modified.
+   */
+  @NonNull
+  public byte [] getData ()
+  {
+    return m_aData;
+  }
+
+  /**
+   * @return <code>true</code> if the payload is empty, meaning that the cached value is
+   *         <code>null</code>.
+   */
+  public boolean isEmpty ()
+  {
+    return m_aData.length == 0;
+  }
+
+  /**
+   * @return The version of the entry. {@link #VERSION_NONE} if the entry is not versioned. Higher
+   *         values indicate newer entries.
+   */
+  public long getVersion ()
+  {
+    return m_nVersion;
+  }
+
+  /**
+   * Check if this entry is newer than the provided entry.
+   *
+   * @param aOther
+   *        The entry to compare to. May not be <code>null</code>.
+   * @return <code>true</code> if the version of this entry is greater than the version of the
+   *         other entry.
+   */
+  public boolean isNewerThan (@NonNull final BinaryCacheEntry aOther)
+  {
+    return m_nVersion > aOther.m_nVersion;
+  }
+
+  /**
+   * @return The absolute expiration time in milliseconds since the epoch.
+   */
+  public long getExpirationMillis ()
+  {
+    return m_nExpirationMillis;
+  }
+
+  /**
+   * Check if this entry is expired at the provided point in time.
+   *
+   * @param nNowMillis
+   *        The current time in milliseconds since the epoch.
+   * @return <code>true</code> if the entry is expired.
+   */
+  public boolean isExpired (final long nNowMillis)
+  {
+    return nNowMillis >= m_nExpirationMillis;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (null).append ("DataLength", m_aData.length)
+                                       .append ("Version", m_nVersion)
+                                       .append ("ExpirationMillis", m_nExpirationMillis)
+                                       .getToString ();
+  }
+}
@@ -0,0 +1,304 @@
+/*
+ * Copyright (C) 2025-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.apsupport.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.annotation.Nonempty;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.state.EChange;
+import com.helger.base.tostring.ToStringGenerator;
+
+/**
+ * Reference implementation of {@link ISecondLevelCache} that stores each entry as a single file
+ * below a base directory. If the base directory is located on a file system that is shared by all
+ * nodes (e.g. NFS), it acts as a cluster wide cache.<br>
+ * Files are written to a temporary file first and atomically moved to the final location, so that
+ * readers never see partial entries. The version check of
+ * {@link #put(String, String, BinaryCacheEntry)} is performed on a best-effort basis, as the file
+ * system offers no compare-and-set operation.
+ *
+ * @author Philip Helger
+ * @since 2.2.2
+ */
+@ThreadSafe
+public class FileSecondLevelCache implements ISecondLevelCache
+{
+  private static final int MAGIC = 0x50434c32;
+  private static final int FORMAT_VERSION = 1;
+  private static final String FILE_EXT = ".bin";
+  private static final Logger LOGGER = LoggerFactory.getLogger (FileSecondLevelCache.class);
+
+  private final Path m_aBaseDir;
+
+  /**
+   * Constructor
+   *
+   * @param aBaseDir
+   *        The base directory for all regions. Is created if it does not exist. May not be
+   *        <code>null</code>.
+   */
+  public FileSecondLevelCache (@NonNull final Path aBaseDir)
+  {
+    ValueEnforcer.notNull (aBaseDir, "BaseDir");
+    m_aBaseDir = aBaseDir;
+  }
+
+  /**
+   * @return The base directory as provided in the constructor. Never <code>null</code>.
+   */
+  @NonNull
+  public final Path getBaseDir ()
+  {
+    return m_aBaseDir;
+  }
+
+  @NonNull
+  private Path _getRegionDir (@NonNull @Nonempty final String sRegion)
+  {
+    ValueEnforcer.notEmpty (sRegion, "Region");
+    // Make sure the region is a valid directory name
+    return m_aBaseDir.resolve (sRegion.replaceAll ("[^A-Za-z0-9_\\-]", "_"));
+  }
+
+  @NonNull
+  private Path _getFile (@NonNull @Nonempty final String sRegion, @NonNull @Nonempty final String sKey)
+  {
+    ValueEnforcer.notEmpty (sKey, "Key");
+    try
+    {
+      final byte [] aDigest = MessageDigest.getInstance ("SHA-256").digest (sKey.getBytes (StandardCharsets.UTF_8));
+      final String sHash = HexFormat.of ().formatHex (aDigest);
+      // Use the first two characters as a sub directory to avoid huge directories
+      return _getRegionDir (sRegion).resolve (sHash.substring (0, 2)).resolve (sHash + FILE_EXT);
+    }
+    catch (final NoSuchAlgorithmException ex)
+    {
+      throw new IllegalStateException ("SHA-256 is not supported", ex);
+    }
+  }
+
+  @Nullable
+  private static BinaryCacheEntry _readFile (@NonNull final Path aFile, @NonNull final String sKey) throws IOException
+  {
+    try (final DataInputStream aDIS = new DataInputStream (new BufferedInputStream (Files.newInputStream (aFile))))
+    {
+      if (aDIS.readInt () != MAGIC || aDIS.readInt () != FORMAT_VERSION)
+      {
+        LOGGER.warn ("Ignoring second level cache file '" + aFile + "' with unknown format");
+        return null;
+      }
+      final long nVersion = aDIS.readLong ();
+      final long nExpirationMillis = aDIS.readLong ();
+      if (!sKey.equals (aDIS.readUTF ()))
+      {
+        // Hash collision
+        return null;
+      }
+      final int nDataLength = aDIS.readInt ();
+      // Don't trust the length of a corrupt or truncated file
+      if (nDataLength < 0 || nDataLength > Files.size (aFile))
+      {
+        LOGGER.warn ("Ignoring second level cache file '" + aFile + "' with invalid data length " + nDataLength);
+        return null;
+      }
+      final byte [] aData = new byte [nDataLength];
+      aDIS.readFully (aData);
+      return new BinaryCacheEntry (aData, nVersion, nExpirationMillis);
+    }
+    catch (final NoSuchFileException ex)
+    {
+      return null;
+    }
+  }
+
+  @Nullable
+  public BinaryCacheEntry get (@NonNull @Nonempty final String sRegion, @NonNull @Nonempty final String sKey)
+  {
+    final Path aFile = _getFile (sRegion, sKey);
+    try
+    {
+      final BinaryCacheEntry ret = _readFile (aFile, sKey);
+      if (ret != null && ret.isExpired (System.currentTimeMillis ()))
+      {
+        // Clean up
+        Files.deleteIfExists (aFile);
+        return null;
+      }
+      return ret;
+    }
+    catch (final IOException ex)
+    {
+      LOGGER.warn ("Failed to read second level cache file '" + aFile + "'", ex);
+      return null;
+    }
+  }
+
+  @NonNull
+  public EChange put (@NonNull @Nonempty final String sRegion,
+                      @NonNull @Nonempty final String sKey,
+                      @NonNull final BinaryCacheEntry aEntry)
+  {
+    ValueEnforcer.notNull (aEntry, "Entry");
+
+    final Path aFile = _getFile (sRegion, sKey);
+    try
+    {
+      final BinaryCacheEntry aExisting = _readFile (aFile, sKey);
+      if (aExisting != null && !aExisting.isExpired (System.currentTimeMillis ()) && !aEntry.isNewerThan (aExisting))
+      {
+        // Keep the newer entry
+        return EChange.UNCHANGED;
+      }
+
+      final Path aDir = aFile.getParent ();
+      Files.createDirectories (aDir);
+      final Path aTempFile = Files.createTempFile (aDir, aFile.getFileName ().toString (), ".tmp");
+      try
+      {
+        try (final DataOutputStream aDOS = new DataOutputStream (new BufferedOutputStream (Files.newOutputStream (aTempFile))))
+        {
+          aDOS.writeInt (MAGIC);
+          aDOS.writeInt (FORMAT_VERSION);
+          aDOS.writeLong (aEntry.getVersion ());
+          aDOS.writeLong (aEntry.getExpirationMillis ());
+          aDOS.writeUTF (sKey);
+          aDOS.writeInt (aEntry.getData ().length);
+          aDOS.write (aEntry.getData ());
+        }
+        Files.move (aTempFile, aFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      }
+      finally
+      {
+        Files.deleteIfExists (aTempFile);
+      }
+      return EChange.CHANGED;
+    }
+    catch (final IOException ex)
+    {
+      LOGGER.warn ("Failed to write second level cache file '" + aFile + "'", ex);
+      return EChange.UNCHANGED;
+    }
+  }
+
+  @NonNull
+  public EChange remove (@NonNull @Nonempty final String sRegion, @NonNull @Nonempty final String sKey)
+  {
+    final Path aFile = _getFile (sRegion, sKey);
+    try
+    {
+      return EChange.valueOf (Files.deleteIfExists (aFile));
+    }
+    catch (final IOException ex)
+    {
+      LOGGER.warn ("Failed to delete second level cache file '" + aFile + "'", ex);
+      return EChange.UNCHANGED;
+    }
+  }
+
+  @Nullable
+  private static String _readKey (@NonNull final Path aFile) throws IOException
+  {
+    try (final DataInputStream aDIS = new DataInputStream (new BufferedInputStream (Files.newInputStream (aFile))))
+    {
+      if (aDIS.readInt () != MAGIC || aDIS.readInt () != FORMAT_VERSION)
+        return null;
+      // Skip version and expiration
+      aDIS.readLong ();
+      aDIS.readLong ();
+      return aDIS.readUTF ();
+    }
+    catch (final NoSuchFileException ex)
+    {
+      return null;
+    }
+  }
+
+  @NonNull
+  public EChange removeIf (@NonNull @Nonempty final String sRegion, @NonNull final Predicate <? super String> aKeyFilter)
+  {
+    ValueEnforcer.notNull (aKeyFilter, "KeyFilter");
+
+    final Path aDir = _getRegionDir (sRegion);
+    if (!Files.isDirectory (aDir))
+      return EChange.UNCHANGED;
+
+    EChange ret = EChange.UNCHANGED;
+    try (final Stream <Path> aStream = Files.walk (aDir))
+    {
+      for (final Path aFile : (Iterable <Path>) aStream.filter (x -> Files.isRegularFile (x) &&
+                                                                     x.getFileName ().toString ().endsWith (FILE_EXT))::iterator)
+      {
+        final String sKey = _readKey (aFile);
+        if (sKey != null && aKeyFilter.test (sKey) && Files.deleteIfExists (aFile))
+          ret = EChange.CHANGED;
+      }
+    }
+    catch (final IOException ex)
+    {
+      LOGGER.warn ("Failed to remove entries from second level cache region '" + sRegion + "'", ex);
+    }
+    return ret;
+  }
+
+  @NonNull
+  public EChange clear (@NonNull @Nonempty final String sRegion)
+  {
+    final Path aDir = _getRegionDir (sRegion);
+    if (!Files.isDirectory (aDir))
+      return EChange.UNCHANGED;
+
+    EChange ret = EChange.UNCHANGED;
+    try (final Stream <Path> aStream = Files.walk (aDir))
+    {
+      for (final Path aFile : (Iterable <Path>) aStream.filter (Files::isRegularFile)::iterator)
+        if (Files.deleteIfExists (aFile))
+          ret = EChange.CHANGED;
+    }
+    catch (final IOException ex)
+    {
+      LOGGER.warn ("Failed to clear second level cache region '" + sRegion + "'", ex);
+    }
+    return ret;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("BaseDir", m_aBaseDir).getToString ();
+  }
+}
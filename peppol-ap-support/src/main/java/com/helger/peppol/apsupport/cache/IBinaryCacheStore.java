@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2025-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.apsupport.cache;
+
+import java.util.function.Predicate;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.Nonempty;
+import com.helger.base.state.EChange;
+import com.helger.base.state.ESuccess;
+
+/**
+ * Base interface for a second cache tier that stores serialized entries outside of the regular
+ * Java heap objects. The version of {@link BinaryCacheEntry} objects does not need to be retained.
+ * All implementations must be thread-safe.
+ *
+ * @author Philip Helger
+ * @since 2.2.2
+ */
+public interface IBinaryCacheStore
+{
+  /**
+   * Get the entry stored for the provided key.
+   *
+   * @param sKey
+   *        The cache key. May neither be <code>null</code> nor empty.
+   * @return <code>null</code> if no such entry is present or if it is already expired.
+   */
+  @Nullable
+  BinaryCacheEntry get (@NonNull @Nonempty String sKey);
+
+  /**
+   * Store an entry for the provided key, replacing any previous entry of the same key. If the store
+   * is full, other entries are evicted.
+   *
+   * @param sKey
+   *        The cache key. May neither be <code>null</code> nor empty.
+   * @param aEntry
+   *        The entry to store. May not be <code>null</code>.
+   * @return {@link ESuccess#FAILURE} if the entry could not be stored, e.g. because it is too large.
+   */
+  @NonNull
+  ESuccess put (@NonNull @Nonempty String sKey, @NonNull BinaryCacheEntry aEntry);
+
+  /**
+   * Remove the entry with the provided key.
+   *
+   * @param sKey
+   *        The cache key. May neither be <code>null</code> nor empty.
+   * @return {@link EChange#CHANGED} if an entry was removed.
+   */
+  @NonNull
+  EChange remove (@NonNull @Nonempty String sKey);
+
+  /**
+   * Remove all entries with a key matching the provided filter.
+   *
+   * @param aKeyFilter
+   *        The filter to apply on the keys. May not be <code>null</code>.
+   * @return {@link EChange#CHANGED} if at least one entry was removed.
+   */
+  @NonNull
+  EChange removeIf (@NonNull Predicate <? super String> aKeyFilter);
+
+  /**
+   * Remove all entries.
+   *
+   * @return {@link EChange#CHANGED} if at least one entry was removed.
+   */
+  @NonNull
+  EChange clear ();
+}
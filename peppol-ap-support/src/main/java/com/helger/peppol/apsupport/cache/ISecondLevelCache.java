@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2025-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.apsupport.cache;
+
+import java.util.function.Predicate;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.Nonempty;
+import com.helger.base.state.EChange;
+
+/**
+ * Service provider interface for a second level cache that is shared between all nodes of a
+ * cluster. Each cache uses its own region, so that a single instance can be used for multiple
+ * caches.<br>
+ * The contract with the caches is:
+ * <ul>
+ * <li>Read-through: if an entry is not present in the local tiers, the second level cache is
+ * queried before the SMP.</li>
+ * <li>Write-through: every entry loaded from an SMP is stored in the second level cache.</li>
+ * <li>Versioned entries: {@link #put(String, String, BinaryCacheEntry)} must not replace an entry
+ * that has a higher version than the new entry.</li>
+ * <li>TTL propagation: the absolute expiration time of an entry is retained, so that all nodes
+ * expire the same entry at the same time. Expired entries must never be returned.</li>
+ * </ul>
+ * All implementations must be thread-safe. Exceptions thrown by implementations are logged and
+ * otherwise treated as a cache miss.
+ *
+ * @author Philip Helger
+ * @since 2.2.2
+ */
+public interface ISecondLevelCache
+{
+  /**
+   * Get the entry stored for the provided key.
+   *
+   * @param sRegion
+   *        The cache region. May neither be <code>null</code> nor empty.
+   * @param sKey
+   *        The cache key. May neither be <code>null</code> nor empty.
+   * @return <code>null</code> if no such entry is present or if it is already expired.
+   */
+  @Nullable
+  BinaryCacheEntry get (@NonNull @Nonempty String sRegion, @NonNull @Nonempty String sKey);
+
+  /**
+   * Store an entry unless a newer version of the same key is already present.
+   *
+   * @param sRegion
+   *        The cache region. May neither be <code>null</code> nor empty.
+   * @param sKey
+   *        The cache key. May neither be <code>null</code> nor empty.
+   * @param aEntry
+   *        The entry to store. May not be <code>null</code>.
+   * @return {@link EChange#CHANGED} if the entry was stored, {@link EChange#UNCHANGED} if a newer
+   *         version is present.
+   */
+  @NonNull
+  EChange put (@NonNull @Nonempty String sRegion, @NonNull @Nonempty String sKey, @NonNull BinaryCacheEntry aEntry);
+
+  /**
+   * Remove the entry with the provided key.
+   *
+   * @param sRegion
+   *        The cache region. May neither be <code>null</code> nor empty.
+   * @param sKey
+   *        The cache key. May neither be <code>null</code> nor empty.
+   * @return {@link EChange#CHANGED} if an entry was removed.
+   */
+  @NonNull
+  EChange remove (@NonNull @Nonempty String sRegion, @NonNull @Nonempty String sKey);
+
+  /**
+   * Remove all entries of a region with a key matching the provided filter.
+   *
+   * @param sRegion
+   *        The cache region. May neither be <code>null</code> nor empty.
+   * @param aKeyFilter
+   *        The filter to apply on the keys. May not be <code>null</code>.
+   * @return {@link EChange#CHANGED} if at least one entry was removed.
+   */
+  @NonNull
+  EChange removeIf (@NonNull @Nonempty String sRegion, @NonNull Predicate <? super String> aKeyFilter);
+
+  /**
+   * Remove all entries of a region.
+   *
+   * @param sRegion
+   *        The cache region. May neither be <code>null</code> nor empty.
+   * @return {@link EChange#CHANGED} if at least one entry was removed.
+   */
+  @NonNull
+  EChange clear (@NonNull @Nonempty String sRegion);
+}
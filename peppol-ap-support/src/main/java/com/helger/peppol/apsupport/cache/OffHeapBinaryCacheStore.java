@@ -0,0 +1,563 @@
+/*
+ * Copyright (C) 2025-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.apsupport.cache;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.annotation.Nonempty;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.state.EChange;
+import com.helger.base.state.ESuccess;
+import com.helger.base.tostring.ToStringGenerator;
+
+/**
+ * An {@link IBinaryCacheStore} that keeps all entries in direct or memory mapped
+ * {@link ByteBuffer}s, so that they are not subject to garbage collection.<br>
+ * The memory is organized as a set-associative hash table: each key is mapped to a set of
+ * {@value #WAYS} fixed size slots. If all slots of a set are occupied, the expired or least
+ * recently used slot of that set is overwritten. Entries that do not fit into a single slot are
+ * not stored.
+ *
+ * @author Philip Helger
+ * @since 2.2.2
+ */
+@ThreadSafe
+public class OffHeapBinaryCacheStore implements IBinaryCacheStore, AutoCloseable
+{
+  /** The default size of a single slot in bytes, including the slot header and the key */
+  public static final int DEFAULT_SLOT_SIZE = 2 * 1024;
+  /** The number of slots per set */
+  public static final int WAYS = 8;
+  /** The number of bytes of the slot header */
+  public static final int SLOT_HEADER_SIZE = 32;
+
+  // Slot header layout
+  private static final int OFS_KEY_LEN = 0;
+  private static final int OFS_DATA_LEN = 4;
+  private static final int OFS_EXPIRATION = 8;
+  private static final int OFS_LAST_ACCESS = 16;
+  private static final int OFS_KEY_HASH = 24;
+
+  private static final int MIN_SLOT_SIZE = SLOT_HEADER_SIZE + 64;
+  private static final int MAX_SEGMENT_BYTES = 1 << 30;
+  private static final int MAX_LOCK_STRIPES = 256;
+  private static final Logger LOGGER = LoggerFactory.getLogger (OffHeapBinaryCacheStore.class);
+
+  /**
+   * Factory for the memory segments backing the store.
+   */
+  @FunctionalInterface
+  protected interface ISegmentFactory
+  {
+    /**
+     * Create a new memory segment.
+     *
+     * @param nOffset
+     *        The offset of the segment in bytes, relative to the start of the slot area.
+     * @param nSize
+     *        The size of the segment in bytes.
+     * @return The created segment. Never <code>null</code>.
+     * @throws IOException
+     *         In case the segment cannot be created
+     */
+    @NonNull
+    ByteBuffer createSegment (long nOffset, int nSize) throws IOException;
+  }
+
+  private final int m_nSlotSize;
+  private final int m_nSetCount;
+  private final int m_nSetsPerSegment;
+  private final ByteBuffer [] m_aSegments;
+  private final ReentrantLock [] m_aLocks;
+
+  /**
+   * Constructor
+   *
+   * @param nSlotSize
+   *        The size of a single slot in bytes. Must be at least 96.
+   * @param nSetCount
+   *        The number of sets to use. Must be &gt; 0.
+   * @param aSegmentFactory
+   *        The factory for the memory segments. May not be <code>null</code>.
+   * @throws IOException
+   *         If a memory segment cannot be created
+   */
+  protected OffHeapBinaryCacheStore (final int nSlotSize,
+                                     final int nSetCount,
+                                     @NonNull final ISegmentFactory aSegmentFactory) throws IOException
+  {
+    ValueEnforcer.isTrue (nSlotSize >= MIN_SLOT_SIZE, () -> "SlotSize must be at least " + MIN_SLOT_SIZE);
+    ValueEnforcer.isTrue ((long) nSlotSize * WAYS <= MAX_SEGMENT_BYTES, "SlotSize is too large");
+    ValueEnforcer.isGT0 (nSetCount, "SetCount");
+    ValueEnforcer.notNull (aSegmentFactory, "SegmentFactory");
+
+    final int nSetBytes = nSlotSize * WAYS;
+    final int nSetsPerSegment = Math.min (nSetCount, MAX_SEGMENT_BYTES / nSetBytes);
+    final int nSegmentCount = (nSetCount + nSetsPerSegment - 1) / nSetsPerSegment;
+
+    m_nSlotSize = nSlotSize;
+    m_nSetCount = nSetCount;
+    m_nSetsPerSegment = nSetsPerSegment;
+    m_aSegments = new ByteBuffer [nSegmentCount];
+    for (int i = 0; i < nSegmentCount; ++i)
+    {
+      final int nSets = Math.min (nSetsPerSegment, nSetCount - i * nSetsPerSegment);
+      m_aSegments[i] = aSegmentFactory.createSegment ((long) i * nSetsPerSegment * nSetBytes, nSets * nSetBytes);
+    }
+    m_aLocks = new ReentrantLock [Math.min (nSetCount, MAX_LOCK_STRIPES)];
+    for (int i = 0; i < m_aLocks.length; ++i)
+      m_aLocks[i] = new ReentrantLock ();
+  }
+
+  /**
+   * Get the number of sets required for the provided capacity.
+   *
+   * @param nCapacityBytes
+   *        The total capacity in bytes. Must be &gt; 0.
+   * @param nSlotSize
+   *        The size of a single slot in bytes. Must be &gt; 0.
+   * @return The number of sets. Always &gt; 0.
+   */
+  protected static int getSetCount (final long nCapacityBytes, final int nSlotSize)
+  {
+    ValueEnforcer.isGT0 (nCapacityBytes, "CapacityBytes");
+    ValueEnforcer.isGT0 (nSlotSize, "SlotSize");
+    final long nSets = nCapacityBytes / ((long) nSlotSize * WAYS);
+    ValueEnforcer.isTrue (nSets <= Integer.MAX_VALUE, "CapacityBytes is too large");
+    return (int) Math.max (1, nSets);
+  }
+
+  /**
+   * @return The size of a single slot in bytes. This is the upper limit for key and data length
+   *         plus {@link #SLOT_HEADER_SIZE}.
+   */
+  public final int getSlotSize ()
+  {
+    return m_nSlotSize;
+  }
+
+  /**
+   * @return The total number of slots. This is the maximum number of entries that can be stored.
+   */
+  public final long getSlotCount ()
+  {
+    return (long) m_nSetCount * WAYS;
+  }
+
+  /**
+   * @return The number of stripes used for locking. Always &gt; 0.
+   */
+  protected final int getLockStripeCount ()
+  {
+    return m_aLocks.length;
+  }
+
+  /**
+   * Get the locking stripe of the provided set.
+   *
+   * @param nSet
+   *        The set index.
+   * @return The stripe index in the range 0 to {@link #getLockStripeCount()}.
+   */
+  protected final int getLockStripe (final int nSet)
+  {
+    return nSet % m_aLocks.length;
+  }
+
+  /**
+   * Acquire the exclusive lock for the provided set. Overriding methods must call this method.
+   *
+   * @param nSet
+   *        The set index to lock.
+   */
+  protected void lockSet (final int nSet)
+  {
+    m_aLocks[getLockStripe (nSet)].lock ();
+  }
+
+  /**
+   * Release the exclusive lock for the provided set. Overriding methods must call this method.
+   *
+   * @param nSet
+   *        The set index to unlock.
+   */
+  protected void unlockSet (final int nSet)
+  {
+    m_aLocks[getLockStripe (nSet)].unlock ();
+  }
+
+  private int _getSet (final int nKeyHash)
+  {
+    return (nKeyHash & 0x7fffffff) % m_nSetCount;
+  }
+
+  @NonNull
+  private ByteBuffer _getSegment (final int nSet)
+  {
+    return m_aSegments[nSet / m_nSetsPerSegment];
+  }
+
+  private int _getSlotOffset (final int nSet, final int nWay)
+  {
+    return ((nSet % m_nSetsPerSegment) * WAYS + nWay) * m_nSlotSize;
+  }
+
+  private static boolean _isKeyMatching (@NonNull final ByteBuffer aSegment,
+                                         final int nSlotOfs,
+                                         final int nKeyHash,
+                                         @NonNull final byte [] aKey)
+  {
+    if (aSegment.getInt (nSlotOfs + OFS_KEY_LEN) != aKey.length ||
+        aSegment.getInt (nSlotOfs + OFS_KEY_HASH) != nKeyHash)
+      return false;
+
+    final int nKeyOfs = nSlotOfs + SLOT_HEADER_SIZE;
+    for (int i = 0; i < aKey.length; ++i)
+      if (aSegment.get (nKeyOfs + i) != aKey[i])
+        return false;
+    return true;
+  }
+
+  private int _findWay (@NonNull final ByteBuffer aSegment,
+                        final int nSet,
+                        final int nKeyHash,
+                        @NonNull final byte [] aKey)
+  {
+    for (int nWay = 0; nWay < WAYS; ++nWay)
+      if (_isKeyMatching (aSegment, _getSlotOffset (nSet, nWay), nKeyHash, aKey))
+        return nWay;
+    return -1;
+  }
+
+  private int _findVictimWay (@NonNull final ByteBuffer aSegment, final int nSet, final long nNowMillis)
+  {
+    int nLRUWay = 0;
+    long nLRUAccess = Long.MAX_VALUE;
+    for (int nWay = 0; nWay < WAYS; ++nWay)
+    {
+      final int nSlotOfs = _getSlotOffset (nSet, nWay);
+      // Empty or expired slots are used first
+      if (aSegment.getInt (nSlotOfs + OFS_KEY_LEN) == 0 || aSegment.getLong (nSlotOfs + OFS_EXPIRATION) <= nNowMillis)
+        return nWay;
+
+      final long nAccess = aSegment.getLong (nSlotOfs + OFS_LAST_ACCESS);
+      if (nAccess < nLRUAccess)
+      {
+        nLRUAccess = nAccess;
+        nLRUWay = nWay;
+      }
+    }
+    return nLRUWay;
+  }
+
+  @Nullable
+  public BinaryCacheEntry get (@NonNull @Nonempty final String sKey)
+  {
+    ValueEnforcer.notEmpty (sKey, "Key");
+
+    final byte [] aKey = sKey.getBytes (StandardCharsets.UTF_8);
+    final int nKeyHash = sKey.hashCode ();
+    final int nSet = _getSet (nKeyHash);
+    final ByteBuffer aSegment = _getSegment (nSet);
+
+    lockSet (nSet);
+    try
+    {
+      final int nWay = _findWay (aSegment, nSet, nKeyHash, aKey);
+      if (nWay < 0)
+        return null;
+
+      final int nSlotOfs = _getSlotOffset (nSet, nWay);
+      final long nNowMillis = System.currentTimeMillis ();
+      final long nExpirationMillis = aSegment.getLong (nSlotOfs + OFS_EXPIRATION);
+      if (nNowMillis >= nExpirationMillis)
+      {
+        // Free the slot
+        aSegment.putInt (nSlotOfs + OFS_KEY_LEN, 0);
+        return null;
+      }
+
+      final int nDataLen = aSegment.getInt (nSlotOfs + OFS_DATA_LEN);
+      if (nDataLen < 0 || SLOT_HEADER_SIZE + aKey.length + nDataLen > m_nSlotSize)
+      {
+        // Inconsistent slot (e.g. caused by another process) - free it
+        aSegment.putInt (nSlotOfs + OFS_KEY_LEN, 0);
+        return null;
+      }
+
+      aSegment.putLong (nSlotOfs + OFS_LAST_ACCESS, nNowMillis);
+      final byte [] aData = new byte [nDataLen];
+      aSegment.get (nSlotOfs + SLOT_HEADER_SIZE + aKey.length, aData, 0, aData.length);
+      return new BinaryCacheEntry (aData, nExpirationMillis);
+    }
+    finally
+    {
+      unlockSet (nSet);
+    }
+  }
+
+  @NonNull
+  public ESuccess put (@NonNull @Nonempty final String sKey, @NonNull final BinaryCacheEntry aEntry)
+  {
+    ValueEnforcer.notEmpty (sKey, "Key");
+    ValueEnforcer.notNull (aEntry, "Entry");
+
+    final byte [] aKey = sKey.getBytes (StandardCharsets.UTF_8);
+    final byte [] aData = aEntry.getData ();
+    final int nKeyHash = sKey.hashCode ();
+    final int nSet = _getSet (nKeyHash);
+    final ByteBuffer aSegment = _getSegment (nSet);
+    final boolean bFits = SLOT_HEADER_SIZE + aKey.length + aData.length <= m_nSlotSize;
+
+    lockSet (nSet);
+    try
+    {
+      int nWay = _findWay (aSegment, nSet, nKeyHash, aKey);
+      if (!bFits)
+      {
+        // Make sure no outdated value stays behind
+        if (nWay >= 0)
+          aSegment.putInt (_getSlotOffset (nSet, nWay) + OFS_KEY_LEN, 0);
+        if (LOGGER.isDebugEnabled ())
+          LOGGER.debug ("Entry for '" + sKey + "' with " + aData.length + " bytes does not fit into a single slot");
+        return ESuccess.FAILURE;
+      }
+
+      final long nNowMillis = System.currentTimeMillis ();
+      if (nWay < 0)
+        nWay = _findVictimWay (aSegment, nSet, nNowMillis);
+
+      final int nSlotOfs = _getSlotOffset (nSet, nWay);
+      aSegment.putInt (nSlotOfs + OFS_DATA_LEN, aData.length);
+      aSegment.putLong (nSlotOfs + OFS_EXPIRATION, aEntry.getExpirationMillis ());
+      aSegment.putLong (nSlotOfs + OFS_LAST_ACCESS, nNowMillis);
+      aSegment.putInt (nSlotOfs + OFS_KEY_HASH, nKeyHash);
+      aSegment.put (nSlotOfs + SLOT_HEADER_SIZE, aKey, 0, aKey.length);
+      aSegment.put (nSlotOfs + SLOT_HEADER_SIZE + aKey.length, aData, 0, aData.length);
+      // Write the key length last, as it marks the slot as used
+      aSegment.putInt (nSlotOfs + OFS_KEY_LEN, aKey.length);
+      return ESuccess.SUCCESS;
+    }
+    finally
+    {
+      unlockSet (nSet);
+    }
+  }
+
+  @NonNull
+  public EChange remove (@NonNull @Nonempty final String sKey)
+  {
+    ValueEnforcer.notEmpty (sKey, "Key");
+
+    final byte [] aKey = sKey.getBytes (StandardCharsets.UTF_8);
+    final int nKeyHash = sKey.hashCode ();
+    final int nSet = _getSet (nKeyHash);
+    final ByteBuffer aSegment = _getSegment (nSet);
+
+    lockSet (nSet);
+    try
+    {
+      final int nWay = _findWay (aSegment, nSet, nKeyHash, aKey);
+      if (nWay < 0)
+        return EChange.UNCHANGED;
+      aSegment.putInt (_getSlotOffset (nSet, nWay) + OFS_KEY_LEN, 0);
+      return EChange.CHANGED;
+    }
+    finally
+    {
+      unlockSet (nSet);
+    }
+  }
+
+  @NonNull
+  public EChange clear ()
+  {
+    EChange ret = EChange.UNCHANGED;
+    for (int nSet = 0; nSet < m_nSetCount; ++nSet)
+    {
+      final ByteBuffer aSegment = _getSegment (nSet);
+      lockSet (nSet);
+      try
+      {
+        for (int nWay = 0; nWay < WAYS; ++nWay)
+        {
+          final int nSlotOfs = _getSlotOffset (nSet, nWay);
+          if (aSegment.getInt (nSlotOfs + OFS_KEY_LEN) != 0)
+          {
+            aSegment.putInt (nSlotOfs + OFS_KEY_LEN, 0);
+            ret = EChange.CHANGED;
+          }
+        }
+      }
+      finally
+      {
+        unlockSet (nSet);
+      }
+    }
+    return ret;
+  }
+
+  @NonNull
+  public EChange removeIf (@NonNull final Predicate <? super String> aKeyFilter)
+  {
+    ValueEnforcer.notNull (aKeyFilter, "KeyFilter");
+
+    EChange ret = EChange.UNCHANGED;
+    for (int nSet = 0; nSet < m_nSetCount; ++nSet)
+    {
+      final ByteBuffer aSegment = _getSegment (nSet);
+      lockSet (nSet);
+      try
+      {
+        for (int nWay = 0; nWay < WAYS; ++nWay)
+        {
+          final int nSlotOfs = _getSlotOffset (nSet, nWay);
+          final int nKeyLen = aSegment.getInt (nSlotOfs + OFS_KEY_LEN);
+          if (nKeyLen != 0)
+          {
+            boolean bRemove = true;
+            if (nKeyLen > 0 && SLOT_HEADER_SIZE + nKeyLen <= m_nSlotSize)
+            {
+              final byte [] aKey = new byte [nKeyLen];
+              aSegment.get (nSlotOfs + SLOT_HEADER_SIZE, aKey, 0, nKeyLen);
+              bRemove = aKeyFilter.test (new String (aKey, StandardCharsets.UTF_8));
+            }
+            // else inconsistent slot - free it as well
+            if (bRemove)
+            {
+              aSegment.putInt (nSlotOfs + OFS_KEY_LEN, 0);
+              ret = EChange.CHANGED;
+            }
+          }
+        }
+      }
+      finally
+      {
+        unlockSet (nSet);
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * Release all resources held by this store. The store must not be used afterwards.
+   *
+   * @throws IOException
+   *         In case of an error
+   */
+  public void close () throws IOException
+  {
+    // Direct buffers are released by the garbage collector
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("SlotSize", m_nSlotSize)
+                                       .append ("SetCount", m_nSetCount)
+                                       .append ("SegmentCount", m_aSegments.length)
+                                       .getToString ();
+  }
+
+  /**
+   * Create a new store that uses direct (native) memory.
+   *
+   * @param nCapacityBytes
+   *        The total amount of native memory to use in bytes. Must be &gt; 0.
+   * @param nSlotSize
+   *        The size of a single slot in bytes. See {@link #DEFAULT_SLOT_SIZE}.
+   * @return The new store. Never <code>null</code>.
+   */
+  @NonNull
+  public static OffHeapBinaryCacheStore createDirect (final long nCapacityBytes, final int nSlotSize)
+  {
+    try
+    {
+      return new OffHeapBinaryCacheStore (nSlotSize,
+                                          getSetCount (nCapacityBytes, nSlotSize),
+                                          (nOffset, nSize) -> ByteBuffer.allocateDirect (nSize));
+    }
+    catch (final IOException ex)
+    {
+      // Cannot happen for direct buffers
+      throw new IllegalStateException (ex);
+    }
+  }
+
+  /**
+   * Create a new store that uses a memory mapped file that is exclusively used by this store. Any
+   * previous content of the file is discarded. This allows for caches that are larger than the
+   * available physical memory, as the operating system pages unused parts out.
+   *
+   * @param aFile
+   *        The file to use. May not be <code>null</code>.
+   * @param nCapacityBytes
+   *        The total file size in bytes. Must be &gt; 0.
+   * @param nSlotSize
+   *        The size of a single slot in bytes. See {@link #DEFAULT_SLOT_SIZE}.
+   * @return The new store. Never <code>null</code>. Must be closed when no longer needed.
+   * @throws IOException
+   *         If the file cannot be created or mapped
+   */
+  @NonNull
+  public static OffHeapBinaryCacheStore createMemoryMapped (@NonNull final Path aFile,
+                                                            final long nCapacityBytes,
+                                                            final int nSlotSize) throws IOException
+  {
+    ValueEnforcer.notNull (aFile, "File");
+
+    final FileChannel aChannel = FileChannel.open (aFile,
+                                                   StandardOpenOption.CREATE,
+                                                   StandardOpenOption.READ,
+                                                   StandardOpenOption.WRITE);
+    try
+    {
+      // Discard all previous content
+      aChannel.truncate (0);
+      return new OffHeapBinaryCacheStore (nSlotSize,
+                                          getSetCount (nCapacityBytes, nSlotSize),
+                                          (nOffset, nSize) -> aChannel.map (FileChannel.MapMode.READ_WRITE,
+                                                                            nOffset,
+                                                                            nSize))
+      {
+        @Override
+        public void close () throws IOException
+        {
+          aChannel.close ();
+        }
+      };
+    }
+    catch (final IOException | RuntimeException ex)
+    {
+      aChannel.close ();
+      throw ex;
+    }
+  }
+}
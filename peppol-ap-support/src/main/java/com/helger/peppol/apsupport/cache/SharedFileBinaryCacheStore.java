@@ -0,0 +1,273 @@
+/*
+ * Copyright (C) 2025-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.apsupport.cache;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.jspecify.annotations.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.tostring.ToStringGenerator;
+
+/**
+ * An {@link OffHeapBinaryCacheStore} that is backed by a memory mapped file that can be shared by
+ * multiple JVMs on the same host. Entries stored by one process are visible to all other processes
+ * using the same file, so that an SMP lookup performed by one process benefits all of them.<br>
+ * The file starts with a header of {@value #HEADER_SIZE} bytes, containing the geometry of the
+ * slot area and one byte per lock stripe. Each lock stripe is protected across processes by an
+ * exclusive {@link FileLock} on its header byte, so that the locks of a crashed process are
+ * released by the operating system and never need to be taken over.<br>
+ * Each file must only be opened once per JVM and the resulting instance should be shared. Each
+ * cache should use its own file, unless the cache itself separates its keys (as the participant
+ * caches do by prefixing them with the cache name).
+ *
+ * @author Philip Helger
+ * @since 2.2.2
+ */
+@ThreadSafe
+public class SharedFileBinaryCacheStore extends OffHeapBinaryCacheStore
+{
+  /** The size of the file header in bytes */
+  public static final int HEADER_SIZE = 4096;
+
+  private static final int MAGIC = 0x50435346;
+  private static final int FORMAT_VERSION = 1;
+
+  // Header layout
+  private static final int OFS_MAGIC = 0;
+  private static final int OFS_VERSION = 4;
+  private static final int OFS_SLOT_SIZE = 8;
+  private static final int OFS_SET_COUNT = 12;
+  private static final int OFS_LOCKS = 64;
+
+  private static final int SPINS_BEFORE_YIELD = 100;
+  private static final int YIELDS_BEFORE_PARK = 100;
+  private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos (1);
+  private static final Logger LOGGER = LoggerFactory.getLogger (SharedFileBinaryCacheStore.class);
+
+  private final Path m_aFile;
+  private final FileChannel m_aChannel;
+  private final MappedByteBuffer m_aHeader;
+  // The file locks held by this process, guarded by the in-JVM stripe locks
+  private final FileLock [] m_aStripeLocks;
+
+  private SharedFileBinaryCacheStore (@NonNull final Path aFile,
+                                      @NonNull final FileChannel aChannel,
+                                      @NonNull final MappedByteBuffer aHeader,
+                                      final int nSlotSize,
+                                      final int nSetCount) throws IOException
+  {
+    super (nSlotSize,
+           nSetCount,
+           (nOffset, nSize) -> aChannel.map (FileChannel.MapMode.READ_WRITE, HEADER_SIZE + nOffset, nSize));
+    ValueEnforcer.isTrue (OFS_LOCKS + (long) getLockStripeCount () <= HEADER_SIZE, "Too many lock stripes");
+    m_aFile = aFile;
+    m_aChannel = aChannel;
+    m_aHeader = aHeader;
+    m_aStripeLocks = new FileLock [getLockStripeCount ()];
+  }
+
+  /**
+   * @return The shared file backing this store. Never <code>null</code>.
+   */
+  @NonNull
+  public final Path getFile ()
+  {
+    return m_aFile;
+  }
+
+  @NonNull
+  private FileLock _lockStripe (final int nStripe) throws IOException
+  {
+    final long nPosition = OFS_LOCKS + nStripe;
+    int nAttempts = 0;
+    while (true)
+    {
+      // An interrupt during a file lock operation would close the shared channel, so it is
+      // deferred until the lock is acquired
+      final boolean bInterrupted = Thread.interrupted ();
+      try
+      {
+        final FileLock aLock = m_aChannel.tryLock (nPosition, 1, false);
+        if (aLock != null)
+          return aLock;
+      }
+      finally
+      {
+        if (bInterrupted)
+          Thread.currentThread ().interrupt ();
+      }
+
+      // Held by another process
+      ++nAttempts;
+      if (nAttempts < SPINS_BEFORE_YIELD)
+        Thread.onSpinWait ();
+      else
+        if (nAttempts < SPINS_BEFORE_YIELD + YIELDS_BEFORE_PARK)
+          Thread.yield ();
+        else
+          LockSupport.parkNanos (MAX_PARK_NANOS);
+    }
+  }
+
+  @Override
+  protected void lockSet (final int nSet)
+  {
+    // Serialize within this JVM first
+    super.lockSet (nSet);
+
+    final int nStripe = getLockStripe (nSet);
+    try
+    {
+      m_aStripeLocks[nStripe] = _lockStripe (nStripe);
+    }
+    catch (final IOException | RuntimeException ex)
+    {
+      super.unlockSet (nSet);
+      if (ex instanceof IOException)
+        throw new UncheckedIOException ("Failed to lock stripe " + nStripe + " of shared cache file '" + m_aFile + "'",
+                                        (IOException) ex);
+      throw (RuntimeException) ex;
+    }
+  }
+
+  @Override
+  protected void unlockSet (final int nSet)
+  {
+    final int nStripe = getLockStripe (nSet);
+    try
+    {
+      final FileLock aLock = m_aStripeLocks[nStripe];
+      m_aStripeLocks[nStripe] = null;
+      if (aLock != null)
+        aLock.release ();
+    }
+    catch (final IOException ex)
+    {
+      // The lock is released anyway when the channel is closed
+      LOGGER.warn ("Failed to unlock stripe " + nStripe + " of shared cache file '" + m_aFile + "'", ex);
+    }
+    finally
+    {
+      super.unlockSet (nSet);
+    }
+  }
+
+  @Override
+  public void close () throws IOException
+  {
+    m_aChannel.close ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return ToStringGenerator.getDerived (super.toString ()).append ("File", m_aFile).getToString ();
+  }
+
+  /**
+   * Open or create a shared cache file. If the file already contains a valid header, the geometry
+   * stored in the file is used and the provided capacity and slot size are ignored, so that all
+   * processes use the same layout.
+   *
+   * @param aFile
+   *        The file to use. May not be <code>null</code>.
+   * @param nCapacityBytes
+   *        The total size of the slot area in bytes, if the file is created. Must be &gt; 0.
+   * @param nSlotSize
+   *        The size of a single slot in bytes, if the file is created. See
+   *        {@link #DEFAULT_SLOT_SIZE}.
+   * @return The new store. Never <code>null</code>. Must be closed when no longer needed.
+   * @throws IOException
+   *         If the file cannot be opened or mapped
+   * @throws IllegalStateException
+   *         If the file exists but has an incompatible format
+   */
+  @NonNull
+  public static SharedFileBinaryCacheStore open (@NonNull final Path aFile,
+                                                 final long nCapacityBytes,
+                                                 final int nSlotSize) throws IOException
+  {
+    ValueEnforcer.notNull (aFile, "File");
+    final int nRequestedSetCount = getSetCount (nCapacityBytes, nSlotSize);
+
+    final FileChannel aChannel = FileChannel.open (aFile,
+                                                   StandardOpenOption.CREATE,
+                                                   StandardOpenOption.READ,
+                                                   StandardOpenOption.WRITE);
+    try
+    {
+      final MappedByteBuffer aHeader;
+      final int nEffectiveSlotSize;
+      final int nEffectiveSetCount;
+
+      // Exclusive lock on the header while initializing
+      try (final FileLock aFileLock = aChannel.lock (0, HEADER_SIZE, false))
+      {
+        aHeader = aChannel.map (FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        if (aHeader.getInt (OFS_MAGIC) == MAGIC)
+        {
+          final int nVersion = aHeader.getInt (OFS_VERSION);
+          if (nVersion != FORMAT_VERSION)
+            throw new IllegalStateException ("Shared cache file '" +
+                                             aFile +
+                                             "' has unsupported format version " +
+                                             nVersion);
+          nEffectiveSlotSize = aHeader.getInt (OFS_SLOT_SIZE);
+          nEffectiveSetCount = aHeader.getInt (OFS_SET_COUNT);
+          if (nEffectiveSlotSize != nSlotSize || nEffectiveSetCount != nRequestedSetCount)
+            LOGGER.info ("Using existing geometry of shared cache file '" +
+                         aFile +
+                         "': slot size " +
+                         nEffectiveSlotSize +
+                         ", set count " +
+                         nEffectiveSetCount);
+        }
+        else
+        {
+          nEffectiveSlotSize = nSlotSize;
+          nEffectiveSetCount = nRequestedSetCount;
+          aHeader.putInt (OFS_VERSION, FORMAT_VERSION);
+          aHeader.putInt (OFS_SLOT_SIZE, nEffectiveSlotSize);
+          aHeader.putInt (OFS_SET_COUNT, nEffectiveSetCount);
+          // Write the magic last, as it marks the header as complete
+          aHeader.putInt (OFS_MAGIC, MAGIC);
+          aHeader.force ();
+          LOGGER.info ("Created shared cache file '" + aFile + "'");
+        }
+      }
+
+      return new SharedFileBinaryCacheStore (aFile, aChannel, aHeader, nEffectiveSlotSize, nEffectiveSetCount);
+    }
+    catch (final IOException | RuntimeException ex)
+    {
+      aChannel.close ();
+      throw ex;
+    }
+  }
+}
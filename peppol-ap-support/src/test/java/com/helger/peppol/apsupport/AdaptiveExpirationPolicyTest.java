@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2025-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.apsupport;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.Duration;
+
+import org.junit.Test;
+
+/**
+ * Test class for class {@link AdaptiveExpirationPolicy}.
+ *
+ * @author Philip Helger
+ */
+public final class AdaptiveExpirationPolicyTest
+{
+  @Test
+  public void testBasic ()
+  {
+    final AdaptiveExpirationPolicy aPolicy = new AdaptiveExpirationPolicy (Duration.ofMinutes (10),
+                                                                           Duration.ofHours (4));
+    final long nHour = Duration.ofHours (1).toMillis ();
+
+    // Unchanged values double up to the maximum
+    assertEquals (2 * nHour, aPolicy.getNextExpirationMillis (nHour, false));
+    assertEquals (4 * nHour, aPolicy.getNextExpirationMillis (2 * nHour, false));
+    assertEquals (4 * nHour, aPolicy.getNextExpirationMillis (4 * nHour, false));
+    assertEquals (4 * nHour, aPolicy.getNextExpirationMillis (Long.MAX_VALUE, false));
+
+    // Changed values halve down to the minimum
+    assertEquals (nHour / 2, aPolicy.getNextExpirationMillis (nHour, true));
+    assertEquals (Duration.ofMinutes (10).toMillis (),
+                  aPolicy.getNextExpirationMillis (Duration.ofMinutes (15).toMillis (), true));
+    assertEquals (Duration.ofMinutes (10).toMillis (), aPolicy.getNextExpirationMillis (0, true));
+  }
+}
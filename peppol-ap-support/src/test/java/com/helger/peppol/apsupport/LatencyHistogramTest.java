@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2025-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.apsupport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Test class for class {@link LatencyHistogram}.
+ *
+ * @author Philip Helger
+ */
+public final class LatencyHistogramTest
+{
+  @Test
+  public void testBasic ()
+  {
+    final LatencyHistogram aHistogram = new LatencyHistogram ();
+    assertEquals (0, aHistogram.getPercentileMillis (0.5), 0);
+    assertEquals (0, aHistogram.getMaxMillis (), 0);
+
+    // 90 fast loads of 1ms and 10 slow loads of 100ms
+    for (int i = 0; i < 90; ++i)
+      aHistogram.record (1_000_000);
+    for (int i = 0; i < 10; ++i)
+      aHistogram.record (100_000_000);
+
+    // Buckets are precise up to factor 2
+    final double dP50 = aHistogram.getPercentileMillis (0.5);
+    assertTrue (Double.toString (dP50), dP50 >= 1 && dP50 <= 2.1);
+    final double dP99 = aHistogram.getPercentileMillis (0.99);
+    assertTrue (Double.toString (dP99), dP99 >= 100 && dP99 <= 200);
+    assertEquals (100, aHistogram.getMaxMillis (), 0.001);
+
+    aHistogram.reset ();
+    assertEquals (0, aHistogram.getPercentileMillis (0.99), 0);
+  }
+}
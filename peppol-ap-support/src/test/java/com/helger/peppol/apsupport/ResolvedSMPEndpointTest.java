@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2025-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.apsupport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.time.Instant;
+
+import javax.xml.transform.stream.StreamSource;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.junit.Test;
+
+import com.helger.xsds.peppol.smp1.EndpointType;
+
+import jakarta.xml.bind.JAXBContext;
+
+/**
+ * Test class for class {@link ResolvedSMPEndpoint}.
+ *
+ * @author Philip Helger
+ */
+public final class ResolvedSMPEndpointTest
+{
+  // Self-signed EC certificate with the subject "CN=Test AP,O=Test,C=AT"
+  private static final String CERTIFICATE = "MIIBsjCCAVmgAwIBAgIUHiGmHOtpv/82krY69bFRvzfJTgowCgYIKoZIzj0EAwIw" +
+                                            "LjEQMA4GA1UEAwwHVGVzdCBBUDENMAsGA1UECgwEVGVzdDELMAkGA1UEBhMCQVQw" +
+                                            "IBcNMjYxMDE5MDA0MTU3WhgPMjEyNjA5MjUwMDQxNTdaMC4xEDAOBgNVBAMMB1Rl" +
+                                            "c3QgQVAxDTALBgNVBAoMBFRlc3QxCzAJBgNVBAYTAkFUMFkwEwYHKoZIzj0CAQYI" +
+                                            "KoZIzj0DAQcDQgAEfb4JLA+XTZlWIYq+/zjDhPXHqw22acHvmfHKQqYz8gguVDm9" +
+                                            "AS/43BaNA8sj3q9eM67xCILqZNiIjpPH6ZwTBqNTMFEwHQYDVR0OBBYEFFhtkZxV" +
+                                            "9U8aX3X05lMKWXDcTBbqMB8GA1UdIwQYMBaAFFhtkZxV9U8aX3X05lMKWXDcTBbq" +
+                                            "MA8GA1UdEwEB/wQFMAMBAf8wCgYIKoZIzj0EAwIDRwAwRAIgNh2t6gHBKt2+Qjj7" +
+                                            "VahSeuj2Ho1a1FpP7tAbPZ/BZjcCIHeSKofPFi7nBJyjuGUPKdWY/ruQXUpkYP5d" +
+                                            "vRn66Xr/";
+
+  @NonNull
+  private static EndpointType _createEndpoint (@Nullable final String sActivation,
+                                               @Nullable final String sExpiration) throws Exception
+  {
+    final String sXML = "<Endpoint xmlns='http://busdox.org/serviceMetadata/publishing/1.0/'" +
+                        " xmlns:wsa='http://www.w3.org/2005/08/addressing'" +
+                        " transportProfile='peppol-transport-as4-v2_0'>" +
+                        "<wsa:EndpointReference><wsa:Address>https://ap.example.org/as4</wsa:Address></wsa:EndpointReference>" +
+                        "<RequireBusinessLevelSignature>false</RequireBusinessLevelSignature>" +
+                        (sActivation == null ? "" : "<ServiceActivationDate>" + sActivation + "</ServiceActivationDate>") +
+                        (sExpiration == null ? "" : "<ServiceExpirationDate>" + sExpiration + "</ServiceExpirationDate>") +
+                        "<Certificate>" +
+                        CERTIFICATE +
+                        "</Certificate>" +
+                        "<ServiceDescription>Test</ServiceDescription>" +
+                        "<TechnicalContactUrl>mailto:test@example.org</TechnicalContactUrl>" +
+                        "</Endpoint>";
+    return JAXBContext.newInstance (EndpointType.class)
+                      .createUnmarshaller ()
+                      .unmarshal (new StreamSource (new StringReader (sXML)), EndpointType.class)
+                      .getValue ();
+  }
+
+  @Test
+  public void testBasic () throws Exception
+  {
+    final ResolvedSMPEndpoint aEP = new ResolvedSMPEndpoint (_createEndpoint ("2020-01-01T00:00:00Z",
+                                                                              "2030-01-01T00:00:00Z"));
+    assertEquals ("https://ap.example.org/as4", aEP.getEndpointURL ());
+
+    // The certificate is parsed once
+    assertNotNull (aEP.getCertificate ());
+    assertTrue (aEP.getCertificate ().getSubjectX500Principal ().getName ().contains ("CN=Test AP"));
+
+    assertEquals (Instant.parse ("2020-01-01T00:00:00Z"), aEP.getServiceActivation ());
+    assertEquals (Instant.parse ("2030-01-01T00:00:00Z"), aEP.getServiceExpiration ());
+    assertFalse (aEP.isActiveAt (Instant.parse ("2019-12-31T23:59:59Z")));
+    assertTrue (aEP.isActiveAt (Instant.parse ("2020-01-01T00:00:00Z")));
+    assertTrue (aEP.isActiveAt (Instant.parse ("2025-06-01T12:00:00Z")));
+    assertFalse (aEP.isActiveAt (Instant.parse ("2030-01-01T00:00:00Z")));
+  }
+
+  @Test
+  public void testNoServiceDates () throws Exception
+  {
+    final ResolvedSMPEndpoint aEP = new ResolvedSMPEndpoint (_createEndpoint (null, null));
+    assertNull (aEP.getServiceActivation ());
+    assertNull (aEP.getServiceExpiration ());
+    assertTrue (aEP.isActiveAt (Instant.EPOCH));
+    assertTrue (aEP.isActiveAt (Instant.parse ("2100-01-01T00:00:00Z")));
+  }
+
+  @Test
+  public void testCodec () throws Exception
+  {
+    final ResolvedSMPEndpoint aEP = new ResolvedSMPEndpoint (_createEndpoint ("2020-01-01T00:00:00Z", null));
+    final ResolvedSMPEndpoint aEP2 = ResolvedSMPEndpointCacheCodec.INSTANCE.decode (ResolvedSMPEndpointCacheCodec.INSTANCE.encode (aEP));
+    assertEquals (aEP, aEP2);
+    assertEquals (aEP.getEndpointURL (), aEP2.getEndpointURL ());
+    assertEquals (aEP.getCertificate (), aEP2.getCertificate ());
+    assertEquals (aEP.getServiceActivation (), aEP2.getServiceActivation ());
+    assertNull (aEP2.getServiceExpiration ());
+  }
+}
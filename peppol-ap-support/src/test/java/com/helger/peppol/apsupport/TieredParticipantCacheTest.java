@@ -0,0 +1,353 @@
+/*
+ * Copyright (C) 2025-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.apsupport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.junit.Test;
+
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+import com.helger.peppol.apsupport.cache.OffHeapBinaryCacheStore;
+import com.helger.peppolid.IParticipantIdentifier;
+import com.helger.peppolid.factory.PeppolIdentifierFactory;
+
+/**
+ * Test class for class {@link TieredParticipantCache}.
+ *
+ * @author Philip Helger
+ */
+public final class TieredParticipantCacheTest
+{
+  private static final IParticipantIdentifier PID_A = PeppolIdentifierFactory.INSTANCE.createParticipantIdentifierWithDefaultScheme ("9915:a");
+  private static final IParticipantIdentifier PID_B = PeppolIdentifierFactory.INSTANCE.createParticipantIdentifierWithDefaultScheme ("9915:b");
+  private static final IParticipantIdentifier PID_C = PeppolIdentifierFactory.INSTANCE.createParticipantIdentifierWithDefaultScheme ("9915:c");
+
+  private static final class StringCodec implements ICacheValueCodec <String>
+  {
+    @NonNull
+    public byte [] encode (@NonNull final String aValue)
+    {
+      return aValue.getBytes (StandardCharsets.UTF_8);
+    }
+
+    @NonNull
+    public String decode (@NonNull final byte [] aData)
+    {
+      return new String (aData, StandardCharsets.UTF_8);
+    }
+  }
+
+  /**
+   * Loader that returns the value registered for the participant value, or <code>null</code>.
+   */
+  private static final class StubLoader implements TieredParticipantCache.ILoader <String>
+  {
+    private final Map <String, String> m_aValues = new ConcurrentHashMap <> ();
+    private final AtomicInteger m_aLoadCount = new AtomicInteger ();
+    private volatile String m_sOrigin;
+    private volatile CountDownLatch m_aStarted;
+    private volatile CountDownLatch m_aRelease;
+
+    @Nullable
+    public String load (@NonNull final IParticipantIdentifier aPID,
+                        @NonNull final TieredParticipantCache.ILoadListener aListener)
+    {
+      m_aLoadCount.incrementAndGet ();
+      aListener.onOrigin (m_sOrigin);
+      final CountDownLatch aStarted = m_aStarted;
+      final CountDownLatch aRelease = m_aRelease;
+      if (aStarted != null && aRelease != null)
+      {
+        aStarted.countDown ();
+        try
+        {
+          assertTrue (aRelease.await (10, TimeUnit.SECONDS));
+        }
+        catch (final InterruptedException ex)
+        {
+          Thread.currentThread ().interrupt ();
+        }
+      }
+      return m_aValues.get (aPID.getValue ());
+    }
+
+    int getLoadCount ()
+    {
+      return m_aLoadCount.get ();
+    }
+  }
+
+  @NonNull
+  private static TieredParticipantCache <String> _createCache (@NonNull final String sName,
+                                                              @NonNull final StubLoader aLoader,
+                                                              @NonNull final Duration aExpiration)
+  {
+    final TieredParticipantCache <String> ret = new TieredParticipantCache <> (sName,
+                                                                               new StringCodec (),
+                                                                               aLoader,
+                                                                               aExpiration);
+    ret.setExpirationJitterPercentage (0);
+    return ret;
+  }
+
+  @Test
+  public void testHotTierEviction ()
+  {
+    final StubLoader aLoader = new StubLoader ();
+    aLoader.m_aValues.put ("9915:a", "A");
+    aLoader.m_aValues.put ("9915:b", "B");
+    aLoader.m_aValues.put ("9915:c", "C");
+    final TieredParticipantCache <String> aCache = _createCache ("Test", aLoader, Duration.ofMinutes (1));
+    aCache.setMaxHotSize (2);
+
+    assertEquals ("A", aCache.get (PID_A));
+    assertEquals ("B", aCache.get (PID_B));
+    assertEquals ("C", aCache.get (PID_C));
+    assertEquals (3, aLoader.getLoadCount ());
+    assertEquals (2, aCache.getHotSize ());
+
+    // The least recently used entry was evicted
+    assertEquals ("A", aCache.get (PID_A));
+    assertEquals (4, aLoader.getLoadCount ());
+    assertEquals ("C", aCache.get (PID_C));
+    assertEquals (4, aLoader.getLoadCount ());
+    assertEquals (1, aCache.getStatistics ().getHotHitCount ());
+
+    // null values are cached as well
+    final IParticipantIdentifier aUnknown = PeppolIdentifierFactory.INSTANCE.createParticipantIdentifierWithDefaultScheme ("9915:unknown");
+    assertNull (aCache.get (aUnknown));
+    assertNull (aCache.get (aUnknown));
+    assertEquals (5, aLoader.getLoadCount ());
+  }
+
+  @Test
+  public void testPromotionFromSecondTier () throws Exception
+  {
+    final StubLoader aLoader = new StubLoader ();
+    aLoader.m_aValues.put ("9915:a", "A");
+    try (final OffHeapBinaryCacheStore aStore = OffHeapBinaryCacheStore.createDirect (256 * 1024, 1024))
+    {
+      final TieredParticipantCache <String> aCache = _createCache ("Test", aLoader, Duration.ofMinutes (1));
+      aCache.setMaxHotSize (1);
+      aCache.setSecondTier (aStore);
+
+      assertEquals ("A", aCache.get (PID_A));
+      // Evicts A from the hot tier
+      assertNull (aCache.get (PID_B));
+      assertEquals (2, aLoader.getLoadCount ());
+
+      // Taken from the second tier, including the null value
+      assertEquals ("A", aCache.get (PID_A));
+      assertNull (aCache.get (PID_B));
+      assertEquals (2, aLoader.getLoadCount ());
+      assertEquals (2, aCache.getStatistics ().getSecondTierHitCount ());
+
+      // Promoted to the hot tier
+      assertNull (aCache.get (PID_B));
+      assertEquals (1, aCache.getStatistics ().getHotHitCount ());
+      assertEquals (2, aCache.getStatistics ().getSecondTierHitCount ());
+    }
+  }
+
+  @Test
+  public void testInvalidation ()
+  {
+    final StubLoader aLoader = new StubLoader ();
+    aLoader.m_aValues.put ("9915:a", "A");
+    aLoader.m_aValues.put ("9915:b", "B");
+    aLoader.m_sOrigin = "SMP.Example.org";
+    final TieredParticipantCache <String> aCache = _createCache ("Test", aLoader, Duration.ofMinutes (1));
+
+    aCache.get (PID_A);
+    aCache.get (PID_B);
+    assertEquals (2, aLoader.getLoadCount ());
+
+    // By participant
+    assertTrue (aCache.remove (PID_A).isChanged ());
+    assertFalse (aCache.remove (PID_A).isChanged ());
+    aCache.get (PID_A);
+    aCache.get (PID_B);
+    assertEquals (3, aLoader.getLoadCount ());
+
+    // By predicate
+    assertTrue (aCache.removeIf (x -> x.getValue ().equals ("9915:b")).isChanged ());
+    aCache.get (PID_A);
+    aCache.get (PID_B);
+    assertEquals (4, aLoader.getLoadCount ());
+
+    // By scheme
+    assertFalse (aCache.removeIf (x -> x.getScheme ().equals ("other-scheme")).isChanged ());
+    assertTrue (aCache.removeIf (x -> x.getScheme ().equals (PID_A.getScheme ())).isChanged ());
+    assertEquals (0, aCache.getHotSize ());
+    aCache.get (PID_A);
+    aCache.get (PID_B);
+    assertEquals (6, aLoader.getLoadCount ());
+
+    // By SMP host - case insensitive
+    assertFalse (aCache.removeByOrigin ("other.example.org").isChanged ());
+    assertTrue (aCache.removeByOrigin ("smp.example.ORG").isChanged ());
+    assertEquals (0, aCache.getHotSize ());
+    aCache.get (PID_A);
+    assertEquals (7, aLoader.getLoadCount ());
+
+    assertTrue (aCache.clear ().isChanged ());
+    assertFalse (aCache.clear ().isChanged ());
+  }
+
+  @Test
+  public void testSharedSecondTier () throws Exception
+  {
+    final StubLoader aLoader = new StubLoader ();
+    aLoader.m_aValues.put ("9915:a", "A");
+    try (final OffHeapBinaryCacheStore aStore = OffHeapBinaryCacheStore.createDirect (256 * 1024, 1024))
+    {
+      final TieredParticipantCache <String> aCache1 = _createCache ("Cache1", aLoader, Duration.ofMinutes (1));
+      aCache1.setSecondTier (aStore);
+      final TieredParticipantCache <String> aCache2 = _createCache ("Cache2", aLoader, Duration.ofMinutes (1));
+      aCache2.setSecondTier (aStore);
+
+      // Both caches load separately
+      assertEquals ("A", aCache1.get (PID_A));
+      assertEquals ("A", aCache2.get (PID_A));
+      assertEquals (2, aLoader.getLoadCount ());
+      assertNotNull (aStore.get ("Cache1:" + PID_A.getURIEncoded ()));
+      assertNotNull (aStore.get ("Cache2:" + PID_A.getURIEncoded ()));
+
+      // Clearing one cache doesn't affect the other one
+      assertTrue (aCache1.clear ().isChanged ());
+      assertNull (aStore.get ("Cache1:" + PID_A.getURIEncoded ()));
+      assertNotNull (aStore.get ("Cache2:" + PID_A.getURIEncoded ()));
+
+      // Same for the invalidation by predicate
+      aCache1.get (PID_A);
+      assertTrue (aCache2.removeIf (x -> true).isChanged ());
+      assertNotNull (aStore.get ("Cache1:" + PID_A.getURIEncoded ()));
+      assertNull (aStore.get ("Cache2:" + PID_A.getURIEncoded ()));
+    }
+  }
+
+  @Test
+  public void testConcurrentMissesLoadOnce () throws Exception
+  {
+    final StubLoader aLoader = new StubLoader ();
+    aLoader.m_aValues.put ("9915:a", "A");
+    aLoader.m_aStarted = new CountDownLatch (1);
+    aLoader.m_aRelease = new CountDownLatch (1);
+    final TieredParticipantCache <String> aCache = _createCache ("Test", aLoader, Duration.ofMinutes (1));
+
+    final ExecutorService aES = Executors.newFixedThreadPool (8);
+    try
+    {
+      final ICommonsList <Future <String>> aFutures = new CommonsArrayList <> ();
+      aFutures.add (aES.submit ( () -> aCache.get (PID_A)));
+      assertTrue (aLoader.m_aStarted.await (10, TimeUnit.SECONDS));
+      for (int i = 0; i < 7; ++i)
+        aFutures.add (aES.submit ( () -> aCache.get (PID_A)));
+      // Give the other threads the chance to join the running load
+      Thread.sleep (100);
+      aLoader.m_aRelease.countDown ();
+
+      for (final Future <String> aFuture : aFutures)
+        assertEquals ("A", aFuture.get (10, TimeUnit.SECONDS));
+      assertEquals (1, aLoader.getLoadCount ());
+    }
+    finally
+    {
+      aES.shutdownNow ();
+    }
+  }
+
+  @Test
+  public void testInvalidationDuringLoad () throws Exception
+  {
+    final StubLoader aLoader = new StubLoader ();
+    aLoader.m_aValues.put ("9915:a", "old");
+    aLoader.m_aStarted = new CountDownLatch (1);
+    aLoader.m_aRelease = new CountDownLatch (1);
+    final TieredParticipantCache <String> aCache = _createCache ("Test", aLoader, Duration.ofMinutes (1));
+
+    final ExecutorService aES = Executors.newSingleThreadExecutor ();
+    try
+    {
+      final Future <String> aFuture = aES.submit ( () -> aCache.get (PID_A));
+      assertTrue (aLoader.m_aStarted.await (10, TimeUnit.SECONDS));
+
+      // Invalidate while the load is running
+      aCache.remove (PID_A);
+      aLoader.m_aValues.put ("9915:a", "new");
+      aLoader.m_aStarted = null;
+      aLoader.m_aRelease.countDown ();
+
+      // The caller still gets the value, but it is not cached
+      assertEquals ("old", aFuture.get (10, TimeUnit.SECONDS));
+      assertEquals (0, aCache.getHotSize ());
+      assertEquals ("new", aCache.get (PID_A));
+      assertEquals (2, aLoader.getLoadCount ());
+    }
+    finally
+    {
+      aES.shutdownNow ();
+    }
+  }
+
+  @Test
+  public void testAdaptiveExpirationFromSecondTier () throws Exception
+  {
+    final StubLoader aLoader = new StubLoader ();
+    aLoader.m_aValues.put ("9915:a", "A");
+    try (final OffHeapBinaryCacheStore aStore = OffHeapBinaryCacheStore.createDirect (256 * 1024, 1024))
+    {
+      final TieredParticipantCache <String> aCache = _createCache ("Test", aLoader, Duration.ofMillis (300));
+      aCache.setAdaptiveExpirationPolicy (new AdaptiveExpirationPolicy (Duration.ofMillis (100),
+                                                                        Duration.ofSeconds (10)));
+      aCache.setMaxHotSize (1);
+      aCache.setSecondTier (aStore);
+
+      assertEquals ("A", aCache.get (PID_A));
+      // Evicts A from the hot tier
+      aCache.get (PID_B);
+      Thread.sleep (400);
+
+      // Expired - reloaded and compared with the entry kept in the second tier
+      assertEquals ("A", aCache.get (PID_A));
+      assertEquals (3, aLoader.getLoadCount ());
+
+      // Unchanged, so the cache duration was doubled to 600 milliseconds
+      Thread.sleep (400);
+      assertEquals ("A", aCache.get (PID_A));
+      assertEquals (3, aLoader.getLoadCount ());
+    }
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2025-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.apsupport.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+/**
+ * Test class for class {@link FileSecondLevelCache}.
+ *
+ * @author Philip Helger
+ */
+public final class FileSecondLevelCacheTest
+{
+  private static final String KEY = "iso6523-actorid-upis::9915:test";
+
+  @Test
+  public void testBasic ()
+  {
+    final FileSecondLevelCache aCache = new FileSecondLevelCache (new File ("generated/l2-cache-test").toPath ());
+    aCache.clear ("Region1");
+    aCache.clear ("Region2");
+
+    final long nFuture = System.currentTimeMillis () + 60_000;
+    final byte [] aData1 = "payload1".getBytes (StandardCharsets.UTF_8);
+    final byte [] aData2 = "payload2".getBytes (StandardCharsets.UTF_8);
+
+    assertNull (aCache.get ("Region1", KEY));
+    assertTrue (aCache.put ("Region1", KEY, new BinaryCacheEntry (aData1, 10, nFuture)).isChanged ());
+
+    BinaryCacheEntry aEntry = aCache.get ("Region1", KEY);
+    assertNotNull (aEntry);
+    assertArrayEquals (aData1, aEntry.getData ());
+    assertEquals (10, aEntry.getVersion ());
+    assertEquals (nFuture, aEntry.getExpirationMillis ());
+
+    // Regions are separated
+    assertNull (aCache.get ("Region2", KEY));
+
+    // Older or same versions don't replace newer ones
+    assertFalse (aCache.put ("Region1", KEY, new BinaryCacheEntry (aData2, 9, nFuture)).isChanged ());
+    assertFalse (aCache.put ("Region1", KEY, new BinaryCacheEntry (aData2, 10, nFuture)).isChanged ());
+    assertArrayEquals (aData1, aCache.get ("Region1", KEY).getData ());
+
+    assertTrue (aCache.put ("Region1", KEY, new BinaryCacheEntry (aData2, 11, nFuture)).isChanged ());
+    assertArrayEquals (aData2, aCache.get ("Region1", KEY).getData ());
+
+    // Expired entries are not returned
+    assertTrue (aCache.put ("Region2", KEY, new BinaryCacheEntry (aData1, 1, System.currentTimeMillis () - 1))
+                      .isChanged ());
+    assertNull (aCache.get ("Region2", KEY));
+
+    assertTrue (aCache.remove ("Region1", KEY).isChanged ());
+    assertFalse (aCache.remove ("Region1", KEY).isChanged ());
+
+    // Remove by filter
+    assertTrue (aCache.put ("Region1", KEY, new BinaryCacheEntry (aData1, 1, nFuture)).isChanged ());
+    assertTrue (aCache.put ("Region1", "other", new BinaryCacheEntry (aData1, 1, nFuture)).isChanged ());
+    assertTrue (aCache.removeIf ("Region1", KEY::equals).isChanged ());
+    assertNull (aCache.get ("Region1", KEY));
+    assertNotNull (aCache.get ("Region1", "other"));
+    assertFalse (aCache.removeIf ("Region1", KEY::equals).isChanged ());
+
+    assertTrue (aCache.put ("Region1", KEY, new BinaryCacheEntry (aData1, 1, nFuture)).isChanged ());
+    assertTrue (aCache.clear ("Region1").isChanged ());
+    assertNull (aCache.get ("Region1", KEY));
+  }
+
+  @Test
+  public void testInvalidDataLength () throws Exception
+  {
+    final Path aBaseDir = new File ("generated/l2-cache-test-invalid").toPath ();
+    final FileSecondLevelCache aCache = new FileSecondLevelCache (aBaseDir);
+    aCache.clear ("Region");
+
+    final long nFuture = System.currentTimeMillis () + 60_000;
+    final byte [] aData = "payload".getBytes (StandardCharsets.UTF_8);
+    assertTrue (aCache.put ("Region", KEY, new BinaryCacheEntry (aData, 1, nFuture)).isChanged ());
+
+    final List <Path> aFiles;
+    try (final Stream <Path> aStream = Files.walk (aBaseDir))
+    {
+      aFiles = aStream.filter (Files::isRegularFile).toList ();
+    }
+    assertEquals (1, aFiles.size ());
+
+    // Corrupt the data length that is stored in front of the payload
+    try (final RandomAccessFile aRAF = new RandomAccessFile (aFiles.get (0).toFile (), "rw"))
+    {
+      aRAF.seek (aRAF.length () - aData.length - 4);
+      aRAF.writeInt (Integer.MAX_VALUE);
+    }
+
+    // Treated as a cache miss and can be overwritten
+    assertNull (aCache.get ("Region", KEY));
+    assertTrue (aCache.put ("Region", KEY, new BinaryCacheEntry (aData, 1, nFuture)).isChanged ());
+    assertArrayEquals (aData, aCache.get ("Region", KEY).getData ());
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2025-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.apsupport.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+import org.jspecify.annotations.NonNull;
+import org.junit.Test;
+
+/**
+ * Test class for class {@link OffHeapBinaryCacheStore}.
+ *
+ * @author Philip Helger
+ */
+public final class OffHeapBinaryCacheStoreTest
+{
+  private static void _testStore (@NonNull final OffHeapBinaryCacheStore aStore)
+  {
+    final long nFuture = System.currentTimeMillis () + 60_000;
+    final byte [] aData = "payload".getBytes (StandardCharsets.UTF_8);
+
+    assertNull (aStore.get ("iso6523-actorid-upis::9915:test"));
+    assertTrue (aStore.put ("iso6523-actorid-upis::9915:test", new BinaryCacheEntry (aData, nFuture)).isSuccess ());
+    BinaryCacheEntry aEntry = aStore.get ("iso6523-actorid-upis::9915:test");
+    assertNotNull (aEntry);
+    assertArrayEquals (aData, aEntry.getData ());
+    assertEquals (nFuture, aEntry.getExpirationMillis ());
+
+    // Negative entry
+    assertTrue (aStore.put ("iso6523-actorid-upis::9915:none", new BinaryCacheEntry (new byte [0], nFuture))
+                      .isSuccess ());
+    aEntry = aStore.get ("iso6523-actorid-upis::9915:none");
+    assertNotNull (aEntry);
+    assertTrue (aEntry.isEmpty ());
+
+    // Expired entry
+    assertTrue (aStore.put ("iso6523-actorid-upis::9915:old", new BinaryCacheEntry (aData, 1)).isSuccess ());
+    assertNull (aStore.get ("iso6523-actorid-upis::9915:old"));
+
+    // Too large
+    assertTrue (aStore.put ("iso6523-actorid-upis::9915:large",
+                            new BinaryCacheEntry (new byte [aStore.getSlotSize ()], nFuture))
+                      .isFailure ());
+    assertNull (aStore.get ("iso6523-actorid-upis::9915:large"));
+
+    // Fill more than the capacity - eviction must happen
+    for (int i = 0; i < aStore.getSlotCount () * 2; ++i)
+      assertTrue (aStore.put ("key" + i, new BinaryCacheEntry (aData, nFuture)).isSuccess ());
+    int nFound = 0;
+    for (int i = 0; i < aStore.getSlotCount () * 2; ++i)
+      if (aStore.get ("key" + i) != null)
+        nFound++;
+    assertTrue (nFound > 0);
+    assertTrue (nFound <= aStore.getSlotCount ());
+
+    // Remove by filter
+    assertTrue (aStore.put ("iso6523-actorid-upis::9915:a", new BinaryCacheEntry (aData, nFuture)).isSuccess ());
+    assertTrue (aStore.put ("iso6523-actorid-upis::9915:b", new BinaryCacheEntry (aData, nFuture)).isSuccess ());
+    assertTrue (aStore.removeIf (x -> x.startsWith ("iso6523-actorid-upis::")).isChanged ());
+    assertNull (aStore.get ("iso6523-actorid-upis::9915:a"));
+    assertNull (aStore.get ("iso6523-actorid-upis::9915:b"));
+    assertTrue (aStore.removeIf (x -> x.startsWith ("iso6523-actorid-upis::")).isUnchanged ());
+
+    assertTrue (aStore.remove ("key" + (aStore.getSlotCount () * 2 - 1)).isChanged ());
+    assertTrue (aStore.clear ().isChanged ());
+    assertTrue (aStore.clear ().isUnchanged ());
+  }
+
+  @Test
+  public void testDirect () throws Exception
+  {
+    try (final OffHeapBinaryCacheStore aStore = OffHeapBinaryCacheStore.createDirect (64 * 1024, 256))
+    {
+      _testStore (aStore);
+    }
+  }
+
+  @Test
+  public void testMemoryMapped () throws Exception
+  {
+    final File aFile = new File ("generated/offheap-test.bin");
+    aFile.getParentFile ().mkdirs ();
+    try (final OffHeapBinaryCacheStore aStore = OffHeapBinaryCacheStore.createMemoryMapped (aFile.toPath (),
+                                                                                              64 * 1024,
+                                                                                              256))
+    {
+      _testStore (aStore);
+    }
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2025-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.apsupport.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ * Test class for class {@link SharedFileBinaryCacheStore}.
+ *
+ * @author Philip Helger
+ */
+public final class SharedFileBinaryCacheStoreTest
+{
+  @Test
+  public void testTwoInstances () throws Exception
+  {
+    final File aFile = new File ("generated/shared-cache-test.bin");
+    aFile.getParentFile ().mkdirs ();
+    aFile.delete ();
+
+    final long nFuture = System.currentTimeMillis () + 60_000;
+    final byte [] aData = "payload".getBytes (StandardCharsets.UTF_8);
+
+    try (final SharedFileBinaryCacheStore aStore1 = SharedFileBinaryCacheStore.open (aFile.toPath (), 64 * 1024, 256))
+    {
+      // Different geometry is ignored for existing files
+      try (final SharedFileBinaryCacheStore aStore2 = SharedFileBinaryCacheStore.open (aFile.toPath (),
+                                                                                        128 * 1024,
+                                                                                        512))
+      {
+        assertEquals (aStore1.getSlotSize (), aStore2.getSlotSize ());
+        assertEquals (aStore1.getSlotCount (), aStore2.getSlotCount ());
+
+        assertNull (aStore2.get ("iso6523-actorid-upis::9915:test"));
+        assertTrue (aStore1.put ("iso6523-actorid-upis::9915:test", new BinaryCacheEntry (aData, nFuture))
+                           .isSuccess ());
+
+        // Visible via the other instance
+        final BinaryCacheEntry aEntry = aStore2.get ("iso6523-actorid-upis::9915:test");
+        assertNotNull (aEntry);
+        assertArrayEquals (aData, aEntry.getData ());
+        assertEquals (nFuture, aEntry.getExpirationMillis ());
+
+        assertTrue (aStore2.remove ("iso6523-actorid-upis::9915:test").isChanged ());
+        assertNull (aStore1.get ("iso6523-actorid-upis::9915:test"));
+      }
+    }
+
+    // Content survives reopening
+    try (final SharedFileBinaryCacheStore aStore = SharedFileBinaryCacheStore.open (aFile.toPath (), 64 * 1024, 256))
+    {
+      assertTrue (aStore.put ("key", new BinaryCacheEntry (aData, nFuture)).isSuccess ());
+    }
+    try (final SharedFileBinaryCacheStore aStore = SharedFileBinaryCacheStore.open (aFile.toPath (), 64 * 1024, 256))
+    {
+      assertNotNull (aStore.get ("key"));
+    }
+  }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright (C) 2025-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.reportingsupport;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.Nonempty;
+import com.helger.base.id.IHasID;
+import com.helger.base.lang.EnumHelper;
+
+/**
+ * Contains the list of possible compressions for stored Peppol Reports. The ID is stored together
+ * with the payload, so that it can be decompressed transparently when reading.<br>
+ * Each ID must not be longer than 10 characters, due to database column length constraint.
+ *
+ * @author Philip Helger
+ * @since 2.2.2
+ */
+public enum EPeppolReportCompression implements IHasID <String>
+{
+  /**
+   * The payload is stored as is
+   */
+  NONE ("none", ""),
+  /**
+   * The payload is stored GZIP compressed
+   */
+  GZIP ("gzip", ".gz");
+
+  /** The maximum length a compression ID may used. This is required for DB column length */
+  public static final int MAX_LEN_ID = 10;
+
+  private static final int BUFFER_SIZE = 8192;
+
+  private final String m_sID;
+  private final String m_sFileExtension;
+
+  EPeppolReportCompression (@NonNull @Nonempty final String sID, @NonNull final String sFileExtension)
+  {
+    m_sID = sID;
+    m_sFileExtension = sFileExtension;
+  }
+
+  @NonNull
+  @Nonempty
+  public String getID ()
+  {
+    return m_sID;
+  }
+
+  /**
+   * @return The file extension to append to the names of compressed files, including the leading
+   *         dot. Never <code>null</code> but empty for {@link #NONE}.
+   */
+  @NonNull
+  public String getFileExtension ()
+  {
+    return m_sFileExtension;
+  }
+
+  /**
+   * @return <code>true</code> if this is an actual compression, <code>false</code> if it is
+   *         {@link #NONE}.
+   */
+  public boolean isCompressed ()
+  {
+    return this != NONE;
+  }
+
+  /**
+   * Wrap the provided stream, so that everything written to the result is compressed.
+   *
+   * @param aOS
+   *        The stream to write the compressed data to. May not be <code>null</code>.
+   * @return The stream to write the uncompressed data to. Never <code>null</code>. Closing it also
+   *         closes the provided stream.
+   * @throws IOException
+   *         In case of an error
+   */
+  @NonNull
+  public OutputStream getCompressingStream (@NonNull final OutputStream aOS) throws IOException
+  {
+    switch (this)
+    {
+      case GZIP:
+        return new GZIPOutputStream (aOS, BUFFER_SIZE);
+      default:
+        return aOS;
+    }
+  }
+
+  /**
+   * Wrap the provided stream, so that everything read from the result is decompressed.
+   *
+   * @param aIS
+   *        The stream to read the compressed data from. May not be <code>null</code>.
+   * @return The stream to read the uncompressed data from. Never <code>null</code>. Closing it also
+   *         closes the provided stream.
+   * @throws IOException
+   *         In case of an error
+   */
+  @NonNull
+  public InputStream getDecompressingStream (@NonNull final InputStream aIS) throws IOException
+  {
+    switch (this)
+    {
+      case GZIP:
+        return new GZIPInputStream (aIS, BUFFER_SIZE);
+      default:
+        return aIS;
+    }
+  }
+
+  /**
+   * Compress the provided bytes.
+   *
+   * @param aBytes
+   *        The bytes to compress. May not be <code>null</code>.
+   * @return The compressed bytes. Never <code>null</code>. For {@link #NONE} the parameter is
+   *         returned.
+   */
+  @NonNull
+  public byte [] compress (@NonNull final byte [] aBytes)
+  {
+    if (!isCompressed ())
+      return aBytes;
+
+    final ByteArrayOutputStream aBAOS = new ByteArrayOutputStream (aBytes.length / 4 + 64);
+    try (final OutputStream aOS = getCompressingStream (aBAOS))
+    {
+      aOS.write (aBytes);
+    }
+    catch (final IOException ex)
+    {
+      throw new UncheckedIOException ("Failed to " + m_sID + " compress " + aBytes.length + " bytes", ex);
+    }
+    return aBAOS.toByteArray ();
+  }
+
+  /**
+   * Decompress the provided bytes.
+   *
+   * @param aBytes
+   *        The bytes to decompress. May not be <code>null</code>.
+   * @return The decompressed bytes. Never <code>null</code>. For {@link #NONE} the parameter is
+   *         returned.
+   * @throws UncheckedIOException
+   *         If the data is corrupt
+   */
+  @NonNull
+  public byte [] decompress (@NonNull final byte [] aBytes)
+  {
+    if (!isCompressed ())
+      return aBytes;
+
+    try (final InputStream aIS = getDecompressingStream (new ByteArrayInputStream (aBytes)))
+    {
+      return aIS.readAllBytes ();
+    }
+    catch (final IOException ex)
+    {
+      throw new UncheckedIOException ("Failed to " + m_sID + " decompress " + aBytes.length + " bytes", ex);
+    }
+  }
+
+  /**
+   * Get the {@link EPeppolReportCompression} matching the provided ID.
+   *
+   * @param sID
+   *        The ID to search. May be <code>null</code>.
+   * @return <code>null</code> if no hit was found
+   */
+  @Nullable
+  public static EPeppolReportCompression getFromIDOrNull (@Nullable final String sID)
+  {
+    return EnumHelper.getFromIDOrNull (EPeppolReportCompression.class, sID);
+  }
+
+  /**
+   * Get the {@link EPeppolReportCompression} matching the provided ID.
+   *
+   * @param sID
+   *        The ID to search. May be <code>null</code>.
+   * @param eDefault
+   *        The default value to return if no hit was found. May be <code>null</code>.
+   * @return The provided default value if no hit was found. Payloads that were stored before
+   *         compression was available have no ID, so {@link #NONE} is usually the right default.
+   */
+  @Nullable
+  public static EPeppolReportCompression getFromIDOrDefault (@Nullable final String sID,
+                                                             @Nullable final EPeppolReportCompression eDefault)
+  {
+    return EnumHelper.getFromIDOrDefault (EPeppolReportCompression.class, sID, eDefault);
+  }
+}
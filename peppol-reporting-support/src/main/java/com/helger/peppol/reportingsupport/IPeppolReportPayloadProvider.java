@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2025-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.reportingsupport;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.base.enforce.ValueEnforcer;
+
+/**
+ * Provider for the UTF-8 encoded XML payload of a Peppol Report. It allows the storage backends to
+ * stream the payload instead of keeping it in memory as a String.
+ *
+ * @author Philip Helger
+ * @since 2.2.2
+ */
+@FunctionalInterface
+public interface IPeppolReportPayloadProvider
+{
+  /**
+   * Open a new stream on the payload. Each call must return a new stream that starts at the
+   * beginning of the payload. The caller is responsible for closing the stream.
+   *
+   * @return The UTF-8 encoded payload stream. May not be <code>null</code>.
+   * @throws IOException
+   *         If the stream cannot be opened.
+   */
+  @NonNull
+  InputStream openStream () throws IOException;
+
+  /**
+   * Create a payload provider for an existing byte array.
+   *
+   * @param aBytes
+   *        The UTF-8 encoded payload. May not be <code>null</code>. The array is not copied.
+   * @return Never <code>null</code>.
+   */
+  @NonNull
+  static IPeppolReportPayloadProvider ofBytes (@NonNull final byte [] aBytes)
+  {
+    ValueEnforcer.notNull (aBytes, "Bytes");
+    return () -> new ByteArrayInputStream (aBytes);
+  }
+
+  /**
+   * Create a payload provider for an existing file.
+   *
+   * @param aFile
+   *        The file with the UTF-8 encoded payload. May not be <code>null</code>.
+   * @return Never <code>null</code>.
+   */
+  @NonNull
+  static IPeppolReportPayloadProvider ofFile (@NonNull final Path aFile)
+  {
+    ValueEnforcer.notNull (aFile, "File");
+    return () -> Files.newInputStream (aFile);
+  }
+}
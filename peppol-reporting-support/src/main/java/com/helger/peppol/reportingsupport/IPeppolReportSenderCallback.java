@@ -16,6 +16,8 @@
  */
 package com.helger.peppol.reportingsupport;
 
+import java.nio.charset.StandardCharsets;
+
 import org.jspecify.annotations.NonNull;
 
 import com.helger.annotation.Nonempty;
@@ -45,4 +47,27 @@ public interface IPeppolReportSenderCallback
   String sendPeppolMessage (@NonNull IDocumentTypeIdentifier aDocTypeID,
                             @NonNull IProcessIdentifier aProcessID,
                             @NonNull @Nonempty String sMessagePayload);
+
+  /**
+   * Send a Peppol message via AS4, with the payload already encoded as UTF-8. Override this method
+   * if the sender works on bytes, to avoid converting the payload to a String and back. The default
+   * implementation decodes the payload and calls
+   * {@link #sendPeppolMessage(IDocumentTypeIdentifier, IProcessIdentifier, String)}.
+   *
+   * @param aDocTypeID
+   *        The document type identifier to be used. Never <code>null</code>.
+   * @param aProcessID
+   *        The process identifier to be used. Never <code>null</code>.
+   * @param aMessagePayload
+   *        The UTF-8 encoded message payload to be send. Neither <code>null</code> nor empty.
+   * @return The sending report. If an error occurred, it must be part of the sending report.
+   * @since 2.2.2
+   */
+  @NonNull
+  default String sendPeppolMessage (@NonNull final IDocumentTypeIdentifier aDocTypeID,
+                                    @NonNull final IProcessIdentifier aProcessID,
+                                    @NonNull @Nonempty final byte [] aMessagePayload)
+  {
+    return sendPeppolMessage (aDocTypeID, aProcessID, new String (aMessagePayload, StandardCharsets.UTF_8));
+  }
 }
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2025-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.reportingsupport;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.Nonempty;
+import com.helger.peppol.reportingsupport.domain.PeppolReportSendingReportFields;
+
+/**
+ * Extracts the structured fields from the content of a sending report, as returned by an
+ * {@link IPeppolReportSenderCallback}. As the syntax of the sending report depends on the sender
+ * implementation, the extraction must be provided by the caller.
+ *
+ * @author Philip Helger
+ * @since 2.2.2
+ */
+@FunctionalInterface
+public interface IPeppolReportSendingReportFieldExtractor
+{
+  /**
+   * Extract the structured fields from the sending report. This method must not throw an exception
+   * on unexpected content.
+   *
+   * @param sSendingReportContent
+   *        The sending report content. Neither <code>null</code> nor empty.
+   * @return The extracted fields. May be <code>null</code> if nothing could be extracted.
+   */
+  @Nullable
+  PeppolReportSendingReportFields extractFields (@NonNull @Nonempty String sSendingReportContent);
+}
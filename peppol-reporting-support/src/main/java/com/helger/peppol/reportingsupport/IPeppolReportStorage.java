@@ -16,11 +16,23 @@
  */
 package com.helger.peppol.reportingsupport;
 
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.stream.Stream;
+
 import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
 
+import com.helger.annotation.style.ReturnsMutableCopy;
 import com.helger.base.state.ESuccess;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
 import com.helger.peppol.reportingsupport.domain.PeppolReportData;
+import com.helger.peppol.reportingsupport.domain.PeppolReportQuery;
 import com.helger.peppol.reportingsupport.domain.PeppolReportSendingReportData;
+import com.helger.peppol.reportingsupport.domain.PeppolReportStoredData;
+import com.helger.peppol.reportingsupport.domain.PeppolReportStreamingData;
+import com.helger.peppol.reportingsupport.domain.PeppolReportSummary;
 
 /**
  * Interface for storing Peppol Reports and their sending reports
@@ -39,6 +51,23 @@ public interface IPeppolReportStorage
   @NonNull
   ESuccess storePeppolReport (@NonNull PeppolReportData aReportData);
 
+  /**
+   * Store a new Peppol Report in the persistent storage, reading the report XML from a stream. The
+   * default implementation reads the whole report into memory and calls
+   * {@link #storePeppolReport(PeppolReportData)}. Implementations should override this to avoid
+   * keeping the complete report in memory.
+   *
+   * @param aReportData
+   *        The streaming report data. May not be <code>null</code>.
+   * @return Never <code>null</code>.
+   * @since 2.2.2
+   */
+  @NonNull
+  default ESuccess storePeppolReportStreaming (@NonNull final PeppolReportStreamingData aReportData)
+  {
+    return storePeppolReport (aReportData.getAsReportData ());
+  }
+
   /**
    * Store a new Peppol Report Sending Report in the persistent storage.
    *
@@ -48,4 +77,144 @@ public interface IPeppolReportStorage
    */
   @NonNull
   ESuccess storePeppolReportingSendingReport (@NonNull PeppolReportSendingReportData aSendingReportData);
+
+  /**
+   * Store multiple Peppol Reports in the persistent storage. The default implementation stores one
+   * report after the other. Implementations should override this to store all reports in as few
+   * round trips as possible.
+   *
+   * @param aReportDatas
+   *        The report data to store. May not be <code>null</code> but may be empty.
+   * @return A list with one result per provided report, in the same order. Never
+   *         <code>null</code>.
+   * @since 2.2.2
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  default ICommonsList <ESuccess> storePeppolReports (@NonNull final Collection <? extends PeppolReportData> aReportDatas)
+  {
+    final ICommonsList <ESuccess> ret = new CommonsArrayList <> (aReportDatas.size ());
+    for (final PeppolReportData aReportData : aReportDatas)
+      ret.add (storePeppolReport (aReportData));
+    return ret;
+  }
+
+  /**
+   * Store multiple Peppol Report Sending Reports in the persistent storage. The default
+   * implementation stores one sending report after the other. Implementations should override this
+   * to store all sending reports in as few round trips as possible.
+   *
+   * @param aSendingReportDatas
+   *        The sending report data to store. May not be <code>null</code> but may be empty.
+   * @return A list with one result per provided sending report, in the same order. Never
+   *         <code>null</code>.
+   * @since 2.2.2
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  default ICommonsList <ESuccess> storePeppolReportingSendingReports (@NonNull final Collection <? extends PeppolReportSendingReportData> aSendingReportDatas)
+  {
+    final ICommonsList <ESuccess> ret = new CommonsArrayList <> (aSendingReportDatas.size ());
+    for (final PeppolReportSendingReportData aSendingReportData : aSendingReportDatas)
+      ret.add (storePeppolReportingSendingReport (aSendingReportData));
+    return ret;
+  }
+
+  /**
+   * Check if this storage can be queried via {@link #queryPeppolReports(PeppolReportQuery)} and
+   * {@link #queryPeppolReportingSendingReports(PeppolReportQuery)}. The default implementation
+   * returns <code>false</code>, because storages may be write-only. Implementations that override
+   * the query methods must override this method as well.
+   *
+   * @return <code>true</code> if querying is supported, <code>false</code> if not.
+   * @since 2.2.2
+   */
+  default boolean isQuerySupported ()
+  {
+    return false;
+  }
+
+  /**
+   * Query the stored Peppol Reports. The returned stream is lazy and loads the results page by page
+   * while it is consumed. It must be closed after usage (e.g. via try-with-resources), to release
+   * all backend resources. Errors while loading are thrown as unchecked exceptions from the stream
+   * operations.<br>
+   * Must only be called if {@link #isQuerySupported()} returns <code>true</code>. The default
+   * implementation throws an {@link UnsupportedOperationException}.
+   *
+   * @param aQuery
+   *        The query criteria. May not be <code>null</code>.
+   * @return The lazy stream of matching reports. Never <code>null</code>.
+   * @throws UnsupportedOperationException
+   *         If this storage cannot be queried.
+   * @see #isQuerySupported()
+   * @since 2.2.2
+   */
+  @NonNull
+  default Stream <PeppolReportStoredData> queryPeppolReports (@NonNull final PeppolReportQuery aQuery)
+  {
+    throw new UnsupportedOperationException (getClass ().getName () + " does not support querying Peppol Reports");
+  }
+
+  /**
+   * Query the stored Peppol Reporting Sending Reports. The returned stream is lazy and loads the
+   * results page by page while it is consumed. It must be closed after usage (e.g. via
+   * try-with-resources), to release all backend resources. If the query does not include the
+   * payload, the sending report content of all results is <code>null</code>. The validity criterion
+   * of the query is ignored.<br>
+   * Must only be called if {@link #isQuerySupported()} returns <code>true</code>. The default
+   * implementation throws an {@link UnsupportedOperationException}.
+   *
+   * @param aQuery
+   *        The query criteria. May not be <code>null</code>.
+   * @return The lazy stream of matching sending reports. Never <code>null</code>.
+   * @throws UnsupportedOperationException
+   *         If this storage cannot be queried.
+   * @see #isQuerySupported()
+   * @since 2.2.2
+   */
+  @NonNull
+  default Stream <PeppolReportSendingReportData> queryPeppolReportingSendingReports (@NonNull final PeppolReportQuery aQuery)
+  {
+    throw new UnsupportedOperationException (getClass ().getName () +
+                                             " does not support querying Peppol Reporting Sending Reports");
+  }
+
+  /**
+   * Get the summary of the latest report and sending state of a single report type and period.
+   * Backends maintain the summary while storing, so that this is a cheap lookup. The default
+   * implementation computes the summary by querying all reports and sending reports of the period
+   * without payload, if {@link #isQuerySupported()} returns <code>true</code>.
+   *
+   * @param eReportType
+   *        The report type. May not be <code>null</code>.
+   * @param aReportPeriod
+   *        The report period. May not be <code>null</code>.
+   * @return <code>null</code> if neither a report nor a sending report was stored for the provided
+   *         type and period, or if this storage cannot be queried.
+   * @since 2.2.2
+   */
+  @Nullable
+  default PeppolReportSummary getPeppolReportSummary (@NonNull final EPeppolReportType eReportType,
+                                                      @NonNull final YearMonth aReportPeriod)
+  {
+    if (!isQuerySupported ())
+      return null;
+
+    final PeppolReportQuery aQuery = new PeppolReportQuery ().setReportType (eReportType)
+                                                             .setReportPeriod (aReportPeriod)
+                                                             .setIncludePayload (false);
+    PeppolReportSummary ret = PeppolReportSummary.createEmpty (eReportType, aReportPeriod);
+    try (final Stream <PeppolReportStoredData> aStream = queryPeppolReports (aQuery))
+    {
+      for (final PeppolReportStoredData aReport : (Iterable <PeppolReportStoredData>) aStream::iterator)
+        ret = ret.getWithReport (aReport.getReportCreationDT (), aReport.isReportValid ());
+    }
+    try (final Stream <PeppolReportSendingReportData> aStream = queryPeppolReportingSendingReports (aQuery))
+    {
+      for (final PeppolReportSendingReportData aSendingReport : (Iterable <PeppolReportSendingReportData>) aStream::iterator)
+        ret = ret.getWithSendingReport (aSendingReport.getReportCreationDT ());
+    }
+    return ret.hasReport () || ret.isSent () ? ret : null;
+  }
 }
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2025-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.reportingsupport;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.w3c.dom.Document;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.diagnostics.error.list.ErrorList;
+import com.helger.jaxb.GenericJAXBMarshaller;
+
+/**
+ * A simple pool of JAXB marshallers of the same type. Marshallers are not thread-safe, because the
+ * error handler and the output settings are stored per instance, so each instance is used by at
+ * most one thread at a time. Idle instances are kept for reuse, up to a maximum number.
+ *
+ * @author Philip Helger
+ * @param <JAXBTYPE>
+ *        The JAXB type to be marshalled
+ * @since 2.2.2
+ */
+@ThreadSafe
+final class JAXBMarshallerPool <JAXBTYPE>
+{
+  private final Supplier <? extends GenericJAXBMarshaller <JAXBTYPE>> m_aFactory;
+  private final int m_nMaxIdle;
+  private final Queue <GenericJAXBMarshaller <JAXBTYPE>> m_aIdle = new ConcurrentLinkedQueue <> ();
+  private final AtomicInteger m_aIdleCount = new AtomicInteger ();
+
+  /**
+   * Constructor
+   *
+   * @param aFactory
+   *        The factory for new marshallers. May not be <code>null</code>.
+   * @param nMaxIdle
+   *        The maximum number of idle marshallers to keep. Must be &gt; 0.
+   */
+  JAXBMarshallerPool (@NonNull final Supplier <? extends GenericJAXBMarshaller <JAXBTYPE>> aFactory,
+                      @Nonnegative final int nMaxIdle)
+  {
+    ValueEnforcer.notNull (aFactory, "Factory");
+    ValueEnforcer.isGT0 (nMaxIdle, "MaxIdle");
+    m_aFactory = aFactory;
+    m_nMaxIdle = nMaxIdle;
+  }
+
+  @NonNull
+  private GenericJAXBMarshaller <JAXBTYPE> _borrow ()
+  {
+    final GenericJAXBMarshaller <JAXBTYPE> ret = m_aIdle.poll ();
+    if (ret == null)
+      return m_aFactory.get ();
+    m_aIdleCount.decrementAndGet ();
+    return ret;
+  }
+
+  private void _release (@NonNull final GenericJAXBMarshaller <JAXBTYPE> aMarshaller)
+  {
+    // Detach the error list of the last caller, so that it is neither filled nor kept alive by a
+    // pooled instance
+    aMarshaller.setValidationEventHandler (null);
+
+    if (m_aIdleCount.incrementAndGet () <= m_nMaxIdle)
+      m_aIdle.offer (aMarshaller);
+    else
+      m_aIdleCount.decrementAndGet ();
+  }
+
+  /**
+   * Serialize the provided object to a DOM document. This avoids the creation of a String if the
+   * result is processed further in memory.
+   *
+   * @param aObject
+   *        The object to serialize. May not be <code>null</code>.
+   * @param aErrorList
+   *        The error list to collect XSD errors and warnings into. May not be <code>null</code>.
+   * @return <code>null</code> if serialization failed.
+   * @since 2.2.2
+   */
+  @Nullable
+  Document getAsDocument (@NonNull final JAXBTYPE aObject, @NonNull final ErrorList aErrorList)
+  {
+    final GenericJAXBMarshaller <JAXBTYPE> aMarshaller = _borrow ();
+    try
+    {
+      return aMarshaller.setCollectErrors (aErrorList).getAsDocument (aObject);
+    }
+    finally
+    {
+      _release (aMarshaller);
+    }
+  }
+
+  /**
+   * Create the JAXB context and the XML Schema of the marshaller by serializing the provided
+   * object. All errors are ignored. Afterwards one idle marshaller is available.
+   *
+   * @param aDummyObject
+   *        The object to serialize. May not be <code>null</code>.
+   */
+  void warmUp (@NonNull final JAXBTYPE aDummyObject)
+  {
+    getAsDocument (aDummyObject, new ErrorList ());
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2025-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.reportingsupport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.Nonempty;
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.base.enforce.ValueEnforcer;
+
+/**
+ * Helper class to create the content hash of Peppol Reports and sending reports. The hash is used
+ * by the storage backends to detect duplicates, so that storing the same content more than once is
+ * idempotent.
+ *
+ * @author Philip Helger
+ * @since 2.2.2
+ */
+@Immutable
+public final class PeppolReportHashHelper
+{
+  /** The length of the hex encoded SHA-256 hash */
+  public static final int HASH_LENGTH = 64;
+
+  private PeppolReportHashHelper ()
+  {}
+
+  @NonNull
+  private static MessageDigest _createDigest ()
+  {
+    try
+    {
+      return MessageDigest.getInstance ("SHA-256");
+    }
+    catch (final NoSuchAlgorithmException ex)
+    {
+      throw new IllegalStateException ("SHA-256 is not supported", ex);
+    }
+  }
+
+  /**
+   * Get the content hash of the provided bytes.
+   *
+   * @param aBytes
+   *        The bytes to hash. May not be <code>null</code>.
+   * @return The lower case hex encoded SHA-256 hash with {@link #HASH_LENGTH} characters.
+   */
+  @NonNull
+  @Nonempty
+  public static String getHash (@NonNull final byte [] aBytes)
+  {
+    ValueEnforcer.notNull (aBytes, "Bytes");
+    return HexFormat.of ().formatHex (_createDigest ().digest (aBytes));
+  }
+
+  /**
+   * Get the content hash of the provided stream. The stream is read until the end but not closed.
+   *
+   * @param aIS
+   *        The stream to hash. May not be <code>null</code>.
+   * @return The lower case hex encoded SHA-256 hash with {@link #HASH_LENGTH} characters.
+   * @throws IOException
+   *         If reading fails
+   */
+  @NonNull
+  @Nonempty
+  public static String getHash (@NonNull final InputStream aIS) throws IOException
+  {
+    ValueEnforcer.notNull (aIS, "InputStream");
+    final MessageDigest aDigest = _createDigest ();
+    final byte [] aBuffer = new byte [8192];
+    int nRead;
+    while ((nRead = aIS.read (aBuffer)) >= 0)
+      aDigest.update (aBuffer, 0, nRead);
+    return HexFormat.of ().formatHex (aDigest.digest ());
+  }
+}
@@ -16,15 +16,27 @@
  */
 package com.helger.peppol.reportingsupport;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.time.YearMonth;
 import java.util.Locale;
 import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
 import java.util.function.Consumer;
 
+import javax.xml.transform.dom.DOMSource;
+
 import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
 
 import com.helger.annotation.Nonempty;
 import com.helger.base.enforce.ValueEnforcer;
@@ -42,14 +54,20 @@ import com.helger.peppol.reporting.jaxb.tsr.v101.TransactionStatisticsReportType
 import com.helger.peppol.reporting.tsr.TransactionStatisticsReportValidator;
 import com.helger.peppol.reportingsupport.domain.PeppolReportData;
 import com.helger.peppol.reportingsupport.domain.PeppolReportSendingReportData;
+import com.helger.peppol.reportingsupport.domain.PeppolReportSendingReportFields;
+import com.helger.peppol.reportingsupport.domain.PeppolReportStreamingData;
 import com.helger.peppolid.IDocumentTypeIdentifier;
 import com.helger.peppolid.IProcessIdentifier;
 import com.helger.peppolid.peppol.doctype.EPredefinedDocumentTypeIdentifier;
 import com.helger.peppolid.peppol.process.EPredefinedProcessIdentifier;
+import com.helger.schematron.ISchematronResource;
 import com.helger.schematron.svrl.SVRLFailedAssert;
 import com.helger.schematron.svrl.SVRLHelper;
 import com.helger.schematron.svrl.jaxb.SchematronOutputType;
-import com.helger.xml.transform.TransformSourceFactory;
+import com.helger.xml.serialize.write.EXMLSerializeIndent;
+import com.helger.xml.serialize.write.IXMLWriterSettings;
+import com.helger.xml.serialize.write.XMLWriter;
+import com.helger.xml.serialize.write.XMLWriterSettings;
 
 /**
  * The main Peppol Reporting support class. This class offers to validate and store all kind of
@@ -59,12 +77,35 @@ import com.helger.xml.transform.TransformSourceFactory;
  */
 public final class PeppolReportingSupport
 {
+  /**
+   * By default reports are created with indentation
+   *
+   * @since 2.2.2
+   */
+  public static final boolean DEFAULT_FORMATTED_OUTPUT = true;
+
   private static final Logger LOGGER = LoggerFactory.getLogger (PeppolReportingSupport.class);
+  private static final int MAX_IDLE_MARSHALLERS = Math.max (2, Runtime.getRuntime ().availableProcessors ());
+  private static final JAXBMarshallerPool <TransactionStatisticsReportType> TSR_MARSHALLERS = new JAXBMarshallerPool <> (TransactionStatisticsReport101Marshaller::new,
+                                                                                                                       MAX_IDLE_MARSHALLERS);
+  private static final JAXBMarshallerPool <EndUserStatisticsReportType> EUSR_MARSHALLERS = new JAXBMarshallerPool <> (EndUserStatisticsReport110Marshaller::new,
+                                                                                                                     MAX_IDLE_MARSHALLERS);
+  private static final IXMLWriterSettings XWS_FORMATTED = XMLWriterSettings.DEFAULT_XML_SETTINGS;
+  private static final IXMLWriterSettings XWS_COMPACT = new XMLWriterSettings ().setIndent (EXMLSerializeIndent.NONE);
 
   private final IPeppolReportStorage m_aStorage;
   private Locale m_aDisplayLocale = Locale.ROOT;
   private Consumer <? super String> m_aWarnHdl = LOGGER::warn;
   private BiConsumer <? super String, ? super Exception> m_aErrorHdl = LOGGER::error;
+  private boolean m_bFormattedOutput = DEFAULT_FORMATTED_OUTPUT;
+  private IPeppolReportSendingReportFieldExtractor m_aSendingReportFieldExtractor;
+
+  // Indirection level to resolve the Schematrons only when needed
+  private static final class SchematronHolder
+  {
+    static final ISchematronResource TSR = TransactionStatisticsReportValidator.getSchematronTSR_1 ();
+    static final ISchematronResource EUSR = EndUserStatisticsReportValidator.getSchematronEUSR_1 ();
+  }
 
   /**
    * Constructor
@@ -78,6 +119,39 @@ public final class PeppolReportingSupport
     m_aStorage = aStorage;
   }
 
+  /**
+   * Eagerly load everything that is needed to validate reports: the JAXB contexts, the XML Schemas
+   * and the compiled Schematron XSLTs. Otherwise this happens on the first report, which may take
+   * several seconds. Calling this method multiple times has no negative effect.
+   *
+   * @return {@link ESuccess#FAILURE} if at least one Schematron could not be loaded.
+   * @since 2.2.2
+   */
+  @NonNull
+  public static ESuccess warmUp ()
+  {
+    final long nStart = System.nanoTime ();
+
+    // The dummy objects are invalid, but the serialization triggers all the loading
+    TSR_MARSHALLERS.warmUp (new TransactionStatisticsReportType ());
+    EUSR_MARSHALLERS.warmUp (new EndUserStatisticsReportType ());
+
+    ESuccess ret = ESuccess.SUCCESS;
+    if (!SchematronHolder.TSR.isValidSchematron ())
+    {
+      LOGGER.error ("Failed to load the TSR Schematron");
+      ret = ESuccess.FAILURE;
+    }
+    if (!SchematronHolder.EUSR.isValidSchematron ())
+    {
+      LOGGER.error ("Failed to load the EUSR Schematron");
+      ret = ESuccess.FAILURE;
+    }
+
+    LOGGER.info ("Peppol Reporting warm-up took " + (System.nanoTime () - nStart) / 1_000_000 + " milliseconds");
+    return ret;
+  }
+
   /**
    * Get the configured display locale.
    *
@@ -135,50 +209,128 @@ public final class PeppolReportingSupport
   }
 
   /**
-   * Validate and store a Peppol Transaction Statistics Report.
+   * @return <code>true</code> if the created reports are indented, <code>false</code> if they are
+   *         created in a compact way. Default is {@link #DEFAULT_FORMATTED_OUTPUT}.
+   * @since 2.2.2
+   */
+  public boolean isFormattedOutput ()
+  {
+    return m_bFormattedOutput;
+  }
+
+  /**
+   * Define whether the created reports should be indented or not. Compact reports are smaller to
+   * store, to validate and to send, so this is recommended for large EUSRs. The report content is
+   * the same in both cases. If a human readable form is needed, it is best created on demand when
+   * displaying the report.
    *
-   * @param aTSR
-   *        The TSR to be stored. May not be <code>null</code>.
-   * @param aTSRStringConsumer
-   *        The consumer to be invoked on the serialized report. May not be <code>null</code>.
-   * @return {@link ESuccess#SUCCESS} only if the XML serialization, the Schematron validation and
-   *         the storage of it where successful.
+   * @param bFormattedOutput
+   *        <code>true</code> to indent the reports, <code>false</code> to create compact reports.
+   * @return this for chaining
+   * @since 2.2.2
    */
   @NonNull
-  public ESuccess validateAndStorePeppolTSR10 (@NonNull final TransactionStatisticsReportType aTSR,
-                                               @NonNull final Consumer <String> aTSRStringConsumer)
+  public PeppolReportingSupport setFormattedOutput (final boolean bFormattedOutput)
   {
-    ValueEnforcer.notNull (aTSR, "TSR");
-    ValueEnforcer.notNull (aTSRStringConsumer, "TSRStringConsumer");
+    m_bFormattedOutput = bFormattedOutput;
+    return this;
+  }
 
-    final YearMonth aYearMonth = YearMonth.of (aTSR.getHeader ().getReportPeriod ().getStartDate ().getYear (),
-                                               aTSR.getHeader ().getReportPeriod ().getStartDate ().getMonth ());
-    ESuccess eReportSuccessState = ESuccess.SUCCESS;
-    final LocalDateTime aReportCreationDT = PDTFactory.getCurrentLocalDateTimeMillisOnly ();
+  /**
+   * @return The extractor for the structured fields of sending reports. May be <code>null</code>.
+   * @since 2.2.2
+   */
+  @Nullable
+  public IPeppolReportSendingReportFieldExtractor getSendingReportFieldExtractor ()
+  {
+    return m_aSendingReportFieldExtractor;
+  }
 
-    // Convert to XML
-    final ErrorList aErrorList = new ErrorList ();
-    final String sTSR = new TransactionStatisticsReport101Marshaller ().setCollectErrors (aErrorList)
-                                                                       .setFormattedOutput (true)
-                                                                       .getAsString (aTSR);
-    for (final IError aError : aErrorList)
-      if (aError.isError ())
-        m_aErrorHdl.accept ("TSR XSD error: " + aError.getAsString (m_aDisplayLocale), null);
-      else
-        m_aWarnHdl.accept ("TSR XSD warning: " + aError.getAsString (m_aDisplayLocale));
+  /**
+   * Set the extractor for the structured fields of sending reports. The extracted fields are stored
+   * in separate, indexed columns by the storage backends, so that e.g. failed sendings can be
+   * queried without reading the sending report contents. By default no fields are extracted.
+   *
+   * @param aSendingReportFieldExtractor
+   *        The extractor to use. May be <code>null</code> to not extract any fields.
+   * @return this for chaining
+   * @since 2.2.2
+   */
+  @NonNull
+  public PeppolReportingSupport setSendingReportFieldExtractor (@Nullable final IPeppolReportSendingReportFieldExtractor aSendingReportFieldExtractor)
+  {
+    m_aSendingReportFieldExtractor = aSendingReportFieldExtractor;
+    return this;
+  }
 
-    if (StringHelper.isEmpty (sTSR))
-      return ESuccess.FAILURE;
+  @Nullable
+  private PeppolReportSendingReportFields _extractSendingReportFields (@Nullable final String sSendingReport)
+  {
+    final IPeppolReportSendingReportFieldExtractor aExtractor = m_aSendingReportFieldExtractor;
+    if (aExtractor == null || StringHelper.isEmpty (sSendingReport))
+      return null;
 
-    // Call callback to avoid double serialization
-    aTSRStringConsumer.accept (sTSR);
+    try
+    {
+      return aExtractor.extractFields (sSendingReport);
+    }
+    catch (final RuntimeException ex)
+    {
+      // The sending report itself is more important than the extracted fields
+      m_aWarnHdl.accept ("Failed to extract the fields of the sending report: " + ex.getMessage ());
+      return null;
+    }
+  }
 
-    // Validate if TSR is correct or not
-    LOGGER.info ("Starting TSR " + aYearMonth + " Schematron validation");
+  @Nullable
+  private static Path _serializeToTempFile (@NonNull final Document aReportDoc, @NonNull final IXMLWriterSettings aXWS)
+  {
+    Path aTempFile = null;
     try
     {
-      final SchematronOutputType aSVRL = TransactionStatisticsReportValidator.getSchematronTSR_1 ()
-                                                                             .applySchematronValidationToSVRL (TransformSourceFactory.create (sTSR));
+      aTempFile = Files.createTempFile ("peppol-report-", ".xml");
+      final ESuccess eWritten;
+      try (final OutputStream aOS = new BufferedOutputStream (Files.newOutputStream (aTempFile)))
+      {
+        eWritten = XMLWriter.writeToStream (aReportDoc, aOS, aXWS);
+      }
+      if (eWritten.isSuccess () && Files.size (aTempFile) > 0)
+        return aTempFile;
+    }
+    catch (final IOException ex)
+    {
+      LOGGER.error ("Failed to serialize the report into a temporary file", ex);
+    }
+    _deleteTempFile (aTempFile);
+    return null;
+  }
+
+  private static void _deleteTempFile (@Nullable final Path aTempFile)
+  {
+    if (aTempFile != null)
+      try
+      {
+        Files.deleteIfExists (aTempFile);
+      }
+      catch (final IOException ex)
+      {
+        LOGGER.warn ("Failed to delete the temporary file '" + aTempFile + "'", ex);
+      }
+  }
+
+  @NonNull
+  private ESuccess _validateSchematron (@NonNull @Nonempty final String sReportName,
+                                        @NonNull final YearMonth aYearMonth,
+                                        @NonNull final Document aReportDoc,
+                                        @NonNull final ISchematronResource aSchematron)
+  {
+    ESuccess ret = ESuccess.SUCCESS;
+
+    // Validate if the report is correct or not
+    LOGGER.info ("Starting " + sReportName + " " + aYearMonth + " Schematron validation");
+    try
+    {
+      final SchematronOutputType aSVRL = aSchematron.applySchematronValidationToSVRL (new DOMSource (aReportDoc));
       final ICommonsList <SVRLFailedAssert> aFailedAsserts = SVRLHelper.getAllFailedAssertions (aSVRL);
       int nErrors = 0;
       for (final SVRLFailedAssert aFailedAssert : aFailedAsserts)
@@ -187,39 +339,112 @@ public final class PeppolReportingSupport
         if (aFailedAssert.getFlag ().isError ())
         {
           nErrors++;
-          m_aErrorHdl.accept ("TSR Schematron error: " + sErrText, null);
+          m_aErrorHdl.accept (sReportName + " Schematron error: " + sErrText, null);
         }
         else
         {
-          m_aWarnHdl.accept ("TSR Schematron warning: " + sErrText);
+          m_aWarnHdl.accept (sReportName + " Schematron warning: " + sErrText);
         }
       }
 
       if (nErrors > 0)
       {
         // Overwrite Status
-        eReportSuccessState = ESuccess.FAILURE;
+        ret = ESuccess.FAILURE;
       }
     }
     catch (final Exception ex)
     {
-      LOGGER.error ("Error in TSR " + aYearMonth + " Schematron validation", ex);
-      m_aErrorHdl.accept ("Error in TSR Schematron validation", ex);
+      LOGGER.error ("Error in " + sReportName + " " + aYearMonth + " Schematron validation", ex);
+      m_aErrorHdl.accept ("Error in " + sReportName + " Schematron validation", ex);
 
       // Overwrite Status
-      eReportSuccessState = ESuccess.FAILURE;
+      ret = ESuccess.FAILURE;
     }
+    return ret;
+  }
 
-    // Finally store in storage
-    LOGGER.info ("Now storing TSR " + aYearMonth + " in state " + eReportSuccessState);
-    final PeppolReportData aReportData = new PeppolReportData (EPeppolReportType.TSR_V10,
-                                                               aYearMonth,
-                                                               aReportCreationDT,
-                                                               sTSR,
-                                                               eReportSuccessState.isSuccess ());
-    if (m_aStorage.storePeppolReport (aReportData).isFailure ())
+  @NonNull
+  private <T> ESuccess _validateAndStore (@NonNull final EPeppolReportType eReportType,
+                                         @NonNull @Nonempty final String sReportName,
+                                         @NonNull final YearMonth aYearMonth,
+                                         @NonNull final T aReport,
+                                         @NonNull final JAXBMarshallerPool <T> aMarshallerPool,
+                                         @NonNull final ISchematronResource aSchematron,
+                                         @Nullable final Consumer <String> aReportStringConsumer)
+  {
+    final LocalDateTime aReportCreationDT = PDTFactory.getCurrentLocalDateTimeMillisOnly ();
+
+    // Convert to a DOM only - it is validated in memory without parsing it again
+    final ErrorList aErrorList = new ErrorList ();
+    final Document aReportDoc = aMarshallerPool.getAsDocument (aReport, aErrorList);
+    for (final IError aError : aErrorList)
+      if (aError.isError ())
+        m_aErrorHdl.accept (sReportName + " XSD error: " + aError.getAsString (m_aDisplayLocale), null);
+      else
+        m_aWarnHdl.accept (sReportName + " XSD warning: " + aError.getAsString (m_aDisplayLocale));
+
+    if (aReportDoc == null)
+      return ESuccess.FAILURE;
+
+    final IXMLWriterSettings aXWS = m_bFormattedOutput ? XWS_FORMATTED : XWS_COMPACT;
+    final ESuccess eReportSuccessState;
+    final ESuccess eStored;
+    if (aReportStringConsumer != null)
+    {
+      // Serialize only once to UTF-8 bytes, for the callback and the storage
+      final ByteArrayOutputStream aBAOS = new ByteArrayOutputStream ();
+      if (XMLWriter.writeToStream (aReportDoc, aBAOS, aXWS).isFailure () || aBAOS.size () == 0)
+      {
+        m_aErrorHdl.accept ("Error serializing " + sReportName + " " + aYearMonth, null);
+        return ESuccess.FAILURE;
+      }
+      final byte [] aReportBytes = aBAOS.toByteArray ();
+
+      // Call callback before the Schematron validation, so that it also receives invalid reports
+      aReportStringConsumer.accept (new String (aReportBytes, StandardCharsets.UTF_8));
+
+      eReportSuccessState = _validateSchematron (sReportName, aYearMonth, aReportDoc, aSchematron);
+
+      // Finally store in storage
+      LOGGER.info ("Now storing " + sReportName + " " + aYearMonth + " in state " + eReportSuccessState);
+      eStored = m_aStorage.storePeppolReport (new PeppolReportData (eReportType,
+                                                                    aYearMonth,
+                                                                    aReportCreationDT,
+                                                                    aReportBytes,
+                                                                    eReportSuccessState.isSuccess ()));
+    }
+    else
     {
-      m_aErrorHdl.accept ("Error storing TSR " + aYearMonth, null);
+      // Serialize into a temporary file that is streamed into the storage, so that the serialized
+      // report is never kept in memory
+      final Path aTempFile = _serializeToTempFile (aReportDoc, aXWS);
+      if (aTempFile == null)
+      {
+        m_aErrorHdl.accept ("Error serializing " + sReportName + " " + aYearMonth, null);
+        return ESuccess.FAILURE;
+      }
+
+      try
+      {
+        eReportSuccessState = _validateSchematron (sReportName, aYearMonth, aReportDoc, aSchematron);
+
+        // Finally store in storage
+        LOGGER.info ("Now streaming " + sReportName + " " + aYearMonth + " in state " + eReportSuccessState);
+        eStored = m_aStorage.storePeppolReportStreaming (new PeppolReportStreamingData (eReportType,
+                                                                                        aYearMonth,
+                                                                                        aReportCreationDT,
+                                                                                        IPeppolReportPayloadProvider.ofFile (aTempFile),
+                                                                                        eReportSuccessState.isSuccess ()));
+      }
+      finally
+      {
+        _deleteTempFile (aTempFile);
+      }
+    }
+    if (eStored.isFailure ())
+    {
+      m_aErrorHdl.accept ("Error storing " + sReportName + " " + aYearMonth, null);
       return ESuccess.FAILURE;
     }
 
@@ -227,6 +452,62 @@ public final class PeppolReportingSupport
     return eReportSuccessState;
   }
 
+  /**
+   * Validate and store a Peppol Transaction Statistics Report.
+   *
+   * @param aTSR
+   *        The TSR to be stored. May not be <code>null</code>.
+   * @param aTSRStringConsumer
+   *        The consumer to be invoked on the serialized report. May not be <code>null</code>.
+   * @return {@link ESuccess#SUCCESS} only if the XML serialization, the Schematron validation and
+   *         the storage of it where successful.
+   */
+  @NonNull
+  public ESuccess validateAndStorePeppolTSR10 (@NonNull final TransactionStatisticsReportType aTSR,
+                                               @NonNull final Consumer <String> aTSRStringConsumer)
+  {
+    ValueEnforcer.notNull (aTSR, "TSR");
+    ValueEnforcer.notNull (aTSRStringConsumer, "TSRStringConsumer");
+
+    final YearMonth aYearMonth = YearMonth.of (aTSR.getHeader ().getReportPeriod ().getStartDate ().getYear (),
+                                               aTSR.getHeader ().getReportPeriod ().getStartDate ().getMonth ());
+    return _validateAndStore (EPeppolReportType.TSR_V10,
+                              "TSR",
+                              aYearMonth,
+                              aTSR,
+                              TSR_MARSHALLERS,
+                              SchematronHolder.TSR,
+                              aTSRStringConsumer);
+  }
+
+  /**
+   * Validate and store a Peppol Transaction Statistics Report without creating a String of it. The
+   * report is serialized into a temporary file, that is streamed into
+   * {@link IPeppolReportStorage#storePeppolReportStreaming(PeppolReportStreamingData)} and deleted
+   * afterwards.
+   *
+   * @param aTSR
+   *        The TSR to be stored. May not be <code>null</code>.
+   * @return {@link ESuccess#SUCCESS} only if the XML serialization, the Schematron validation and
+   *         the storage of it where successful.
+   * @since 2.2.2
+   */
+  @NonNull
+  public ESuccess validateAndStorePeppolTSR10 (@NonNull final TransactionStatisticsReportType aTSR)
+  {
+    ValueEnforcer.notNull (aTSR, "TSR");
+
+    final YearMonth aYearMonth = YearMonth.of (aTSR.getHeader ().getReportPeriod ().getStartDate ().getYear (),
+                                               aTSR.getHeader ().getReportPeriod ().getStartDate ().getMonth ());
+    return _validateAndStore (EPeppolReportType.TSR_V10,
+                              "TSR",
+                              aYearMonth,
+                              aTSR,
+                              TSR_MARSHALLERS,
+                              SchematronHolder.TSR,
+                              null);
+  }
+
   /**
    * Validate and store a Peppol End User Statistics Report.
    *
@@ -246,108 +527,48 @@ public final class PeppolReportingSupport
 
     final YearMonth aYearMonth = YearMonth.of (aEUSR.getHeader ().getReportPeriod ().getStartDate ().getYear (),
                                                aEUSR.getHeader ().getReportPeriod ().getStartDate ().getMonth ());
-    ESuccess eReportSuccessState = ESuccess.SUCCESS;
-    final LocalDateTime aReportCreationDT = PDTFactory.getCurrentLocalDateTimeMillisOnly ();
-
-    // Convert to XML
-    final ErrorList aErrorList = new ErrorList ();
-    final String sEUSR = new EndUserStatisticsReport110Marshaller ().setCollectErrors (aErrorList)
-                                                                    .setFormattedOutput (true)
-                                                                    .getAsString (aEUSR);
-    for (final IError aError : aErrorList)
-      if (aError.isError ())
-        m_aErrorHdl.accept ("EUSR XSD error: " + aError.getAsString (m_aDisplayLocale), null);
-      else
-        m_aWarnHdl.accept ("EUSR XSD warning: " + aError.getAsString (m_aDisplayLocale));
-
-    if (StringHelper.isEmpty (sEUSR))
-      return ESuccess.FAILURE;
-
-    // Call callback to avoid double serialization
-    aEUSRStringConsumer.accept (sEUSR);
-
-    // Validate if EUSR is correct or not
-    LOGGER.info ("Starting EUSR " + aYearMonth + " Schematron validation");
-    try
-    {
-      final SchematronOutputType aSVRL = EndUserStatisticsReportValidator.getSchematronEUSR_1 ()
-                                                                         .applySchematronValidationToSVRL (TransformSourceFactory.create (sEUSR));
-      final ICommonsList <SVRLFailedAssert> aFailedAsserts = SVRLHelper.getAllFailedAssertions (aSVRL);
-      int nErrors = 0;
-      for (final SVRLFailedAssert aFailedAssert : aFailedAsserts)
-      {
-        final String sErrText = aFailedAssert.getAsResourceError ("in-memory").getAsString (m_aDisplayLocale);
-        if (aFailedAssert.getFlag ().isError ())
-        {
-          nErrors++;
-          m_aErrorHdl.accept ("EUSR Schematron error: " + sErrText, null);
-        }
-        else
-        {
-          m_aWarnHdl.accept ("EUSR Schematron warning: " + sErrText);
-        }
-      }
-
-      if (nErrors > 0)
-      {
-        // Overwrite Status
-        eReportSuccessState = ESuccess.FAILURE;
-      }
-    }
-    catch (final Exception ex)
-    {
-      LOGGER.error ("Error in EUSR " + aYearMonth + " Schematron validation", ex);
-      m_aErrorHdl.accept ("Error in EUSR Schematron validation", ex);
-
-      // Overwrite Status
-      eReportSuccessState = ESuccess.FAILURE;
-    }
-
-    // Finally store in storage
-    LOGGER.info ("Now storing EUSR " + aYearMonth + " in state " + eReportSuccessState);
-    final PeppolReportData aReportData = new PeppolReportData (EPeppolReportType.EUSR_V11,
-                                                               aYearMonth,
-                                                               aReportCreationDT,
-                                                               sEUSR,
-                                                               eReportSuccessState.isSuccess ());
-    if (m_aStorage.storePeppolReport (aReportData).isFailure ())
-    {
-      m_aErrorHdl.accept ("Error storing EUSR " + aYearMonth, null);
-      return ESuccess.FAILURE;
-    }
-
-    return eReportSuccessState;
+    return _validateAndStore (EPeppolReportType.EUSR_V11,
+                              "EUSR",
+                              aYearMonth,
+                              aEUSR,
+                              EUSR_MARSHALLERS,
+                              SchematronHolder.EUSR,
+                              aEUSRStringConsumer);
   }
 
   /**
-   * Send a Peppol Report to OpenPeppol and store the Sending Report in storage.<br>
-   * Attention: this method does NOT implement the actual AS4 sending. This needs to be done via the
-   * sending callback parameter.
+   * Validate and store a Peppol End User Statistics Report without creating a String of it. The
+   * report is serialized into a temporary file, that is streamed into
+   * {@link IPeppolReportStorage#storePeppolReportStreaming(PeppolReportStreamingData)} and deleted
+   * afterwards.
    *
-   * @param aYearMonth
-   *        The year and month for which the report was created. May not be <code>null</code>.
-   * @param eReportType
-   *        The Peppol Reporting report type. May not be <code>null</code>.
-   * @param sReportPayload
-   *        The Peppol Reporting report in an XML serialized way. May neither be <code>null</code>
-   *        nor empty.
-   * @param aMainPeppolSender
-   *        The callback interface that performs the actual Peppol sending and returns a sending
-   *        report.
-   * @return {@link ESuccess#SUCCESS} only if the Peppol AS4 sending and the storage where
-   *         successful.
+   * @param aEUSR
+   *        The EUSR to be stored. May not be <code>null</code>.
+   * @return {@link ESuccess#SUCCESS} only if the XML serialization, the Schematron validation and
+   *         the storage of it where successful.
+   * @since 2.2.2
    */
   @NonNull
-  public ESuccess sendPeppolReport (@NonNull final YearMonth aYearMonth,
-                                    @NonNull final EPeppolReportType eReportType,
-                                    @NonNull @Nonempty final String sReportPayload,
-                                    @NonNull final IPeppolReportSenderCallback aMainPeppolSender)
+  public ESuccess validateAndStorePeppolEUSR11 (@NonNull final EndUserStatisticsReportType aEUSR)
   {
-    ValueEnforcer.notNull (aYearMonth, "YearMonth");
-    ValueEnforcer.notNull (eReportType, "ReportType");
-    ValueEnforcer.notEmpty (sReportPayload, "ReportPayload");
-    ValueEnforcer.notNull (aMainPeppolSender, "MainPeppolSender");
+    ValueEnforcer.notNull (aEUSR, "EUSR");
 
+    final YearMonth aYearMonth = YearMonth.of (aEUSR.getHeader ().getReportPeriod ().getStartDate ().getYear (),
+                                               aEUSR.getHeader ().getReportPeriod ().getStartDate ().getMonth ());
+    return _validateAndStore (EPeppolReportType.EUSR_V11,
+                              "EUSR",
+                              aYearMonth,
+                              aEUSR,
+                              EUSR_MARSHALLERS,
+                              SchematronHolder.EUSR,
+                              null);
+  }
+
+  @NonNull
+  private ESuccess _sendPeppolReport (@NonNull final YearMonth aYearMonth,
+                                      @NonNull final EPeppolReportType eReportType,
+                                      @NonNull final BiFunction <IDocumentTypeIdentifier, IProcessIdentifier, String> aSendAction)
+  {
     // Determine parameters
     final IDocumentTypeIdentifier aDocTypeID;
     final IProcessIdentifier aProcessID;
@@ -371,7 +592,7 @@ public final class PeppolReportingSupport
     {
       // This is the callback that triggers the external sending and requests back a sending report
       LOGGER.info ("Now sending Peppol Report " + eReportType + " for " + aYearMonth + " via Peppol Network");
-      sSendingReport = aMainPeppolSender.sendPeppolMessage (aDocTypeID, aProcessID, sReportPayload);
+      sSendingReport = aSendAction.apply (aDocTypeID, aProcessID);
     }
     catch (final Exception ex)
     {
@@ -389,7 +610,8 @@ public final class PeppolReportingSupport
     final PeppolReportSendingReportData aSendingReportData = new PeppolReportSendingReportData (eReportType,
                                                                                                 aYearMonth,
                                                                                                 aSendingDT,
-                                                                                                sSendingReport);
+                                                                                                sSendingReport,
+                                                                                                _extractSendingReportFields (sSendingReport));
     if (m_aStorage.storePeppolReportingSendingReport (aSendingReportData).isFailure ())
     {
       m_aErrorHdl.accept ("Error storing sending report of " + eReportType + " for " + aYearMonth, null);
@@ -398,4 +620,81 @@ public final class PeppolReportingSupport
 
     return ESuccess.SUCCESS;
   }
+
+  /**
+   * Send a Peppol Report to OpenPeppol and store the Sending Report in storage.<br>
+   * Attention: this method does NOT implement the actual AS4 sending. This needs to be done via the
+   * sending callback parameter.
+   *
+   * @param aYearMonth
+   *        The year and month for which the report was created. May not be <code>null</code>.
+   * @param eReportType
+   *        The Peppol Reporting report type. May not be <code>null</code>.
+   * @param sReportPayload
+   *        The Peppol Reporting report in an XML serialized way. May neither be <code>null</code>
+   *        nor empty.
+   * @param aMainPeppolSender
+   *        The callback interface that performs the actual Peppol sending and returns a sending
+   *        report.
+   * @return {@link ESuccess#SUCCESS} only if the Peppol AS4 sending and the storage where
+   *         successful.
+   */
+  @NonNull
+  public ESuccess sendPeppolReport (@NonNull final YearMonth aYearMonth,
+                                    @NonNull final EPeppolReportType eReportType,
+                                    @NonNull @Nonempty final String sReportPayload,
+                                    @NonNull final IPeppolReportSenderCallback aMainPeppolSender)
+  {
+    ValueEnforcer.notNull (aYearMonth, "YearMonth");
+    ValueEnforcer.notNull (eReportType, "ReportType");
+    ValueEnforcer.notEmpty (sReportPayload, "ReportPayload");
+    ValueEnforcer.notNull (aMainPeppolSender, "MainPeppolSender");
+
+    return _sendPeppolReport (aYearMonth,
+                              eReportType,
+                              (aDocTypeID, aProcessID) -> aMainPeppolSender.sendPeppolMessage (aDocTypeID,
+                                                                                               aProcessID,
+                                                                                               sReportPayload));
+  }
+
+  /**
+   * Send a Peppol Report to OpenPeppol and store the Sending Report in storage. The UTF-8 encoded
+   * payload is passed to
+   * {@link IPeppolReportSenderCallback#sendPeppolMessage(IDocumentTypeIdentifier, IProcessIdentifier, byte[])}
+   * without converting it to a String.<br>
+   * Attention: this method does NOT implement the actual AS4 sending. This needs to be done via the
+   * sending callback parameter.
+   *
+   * @param aYearMonth
+   *        The year and month for which the report was created. May not be <code>null</code>.
+   * @param eReportType
+   *        The Peppol Reporting report type. May not be <code>null</code>.
+   * @param aReportPayload
+   *        The Peppol Reporting report as UTF-8 encoded XML, e.g. from
+   *        {@link PeppolReportData#getReportXMLBytes()}. May neither be <code>null</code> nor
+   *        empty.
+   * @param aMainPeppolSender
+   *        The callback interface that performs the actual Peppol sending and returns a sending
+   *        report.
+   * @return {@link ESuccess#SUCCESS} only if the Peppol AS4 sending and the storage where
+   *         successful.
+   * @since 2.2.2
+   */
+  @NonNull
+  public ESuccess sendPeppolReport (@NonNull final YearMonth aYearMonth,
+                                    @NonNull final EPeppolReportType eReportType,
+                                    @NonNull @Nonempty final byte [] aReportPayload,
+                                    @NonNull final IPeppolReportSenderCallback aMainPeppolSender)
+  {
+    ValueEnforcer.notNull (aYearMonth, "YearMonth");
+    ValueEnforcer.notNull (eReportType, "ReportType");
+    ValueEnforcer.notEmpty (aReportPayload, "ReportPayload");
+    ValueEnforcer.notNull (aMainPeppolSender, "MainPeppolSender");
+
+    return _sendPeppolReport (aYearMonth,
+                              eReportType,
+                              (aDocTypeID, aProcessID) -> aMainPeppolSender.sendPeppolMessage (aDocTypeID,
+                                                                                               aProcessID,
+                                                                                               aReportPayload));
+  }
 }
@@ -16,8 +16,10 @@
  */
 package com.helger.peppol.reportingsupport.domain;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.YearMonth;
+import java.util.Arrays;
 
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
@@ -29,6 +31,7 @@ import com.helger.base.hashcode.HashCodeGenerator;
 import com.helger.base.tostring.ToStringGenerator;
 import com.helger.datetime.web.PDTWebDateHelper;
 import com.helger.peppol.reportingsupport.EPeppolReportType;
+import com.helger.peppol.reportingsupport.PeppolReportHashHelper;
 import com.helger.xml.microdom.IMicroElement;
 import com.helger.xml.microdom.MicroElement;
 
@@ -43,8 +46,10 @@ public class PeppolReportData
   private final EPeppolReportType m_eReportType;
   private final YearMonth m_aReportPeriod;
   private final LocalDateTime m_aReportCreationDT;
-  private final String m_sReportXML;
+  private final byte [] m_aReportXMLBytes;
   private final boolean m_bReportValid;
+  // Lazily calculated - racing threads calculate the same value
+  private String m_sContentHash;
 
   /**
    * Constructor
@@ -56,7 +61,7 @@ public class PeppolReportData
    * @param aReportCreationDT
    *        The date and time, when the report was created. May not be <code>null</code>.
    * @param sReportXML
-   *        The effective bytes of the report XML. Usually UTF-8 encoded. May neither be
+   *        The report XML. It is UTF-8 encoded once in the constructor. May neither be
    *        <code>null</code> nor empty.
    * @param bReportValid
    *        The indicator, if the report was valid or not.
@@ -66,16 +71,45 @@ public class PeppolReportData
                            @NonNull final LocalDateTime aReportCreationDT,
                            @NonNull @Nonempty final String sReportXML,
                            final boolean bReportValid)
+  {
+    this (eReportType,
+          aReportPeriod,
+          aReportCreationDT,
+          ValueEnforcer.notEmpty (sReportXML, "ReportXML").getBytes (StandardCharsets.UTF_8),
+          bReportValid);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param eReportType
+   *        The report type. May not be <code>null</code>.
+   * @param aReportPeriod
+   *        The year and month for which the report was created. May not be <code>null</code>.
+   * @param aReportCreationDT
+   *        The date and time, when the report was created. May not be <code>null</code>.
+   * @param aReportXMLBytes
+   *        The UTF-8 encoded bytes of the report XML. May neither be <code>null</code> nor empty.
+   *        The array is not copied.
+   * @param bReportValid
+   *        The indicator, if the report was valid or not.
+   * @since 2.2.2
+   */
+  public PeppolReportData (@NonNull final EPeppolReportType eReportType,
+                           @NonNull final YearMonth aReportPeriod,
+                           @NonNull final LocalDateTime aReportCreationDT,
+                           @NonNull @Nonempty final byte [] aReportXMLBytes,
+                           final boolean bReportValid)
   {
     ValueEnforcer.notNull (eReportType, "ReportType");
     ValueEnforcer.notNull (aReportPeriod, "ReportPeriod");
     ValueEnforcer.notNull (aReportCreationDT, "ReportCreationDT");
-    ValueEnforcer.notEmpty (sReportXML, "ReportXMLBytes");
+    ValueEnforcer.notEmpty (aReportXMLBytes, "ReportXMLBytes");
 
     m_eReportType = eReportType;
     m_aReportPeriod = aReportPeriod;
     m_aReportCreationDT = aReportCreationDT;
-    m_sReportXML = sReportXML;
+    m_aReportXMLBytes = aReportXMLBytes;
     m_bReportValid = bReportValid;
   }
 
@@ -113,7 +147,8 @@ public class PeppolReportData
   }
 
   /**
-   * Get the created report XML string
+   * Get the created report XML string. The string is decoded from the UTF-8 bytes on every call,
+   * so prefer {@link #getReportXMLBytes()} if the bytes are needed anyway.
    *
    * @return The created Report XML as string. Never <code>null</code>.
    */
@@ -121,7 +156,42 @@ public class PeppolReportData
   @Nonempty
   public final String getReportXMLString ()
   {
-    return m_sReportXML;
+    return new String (m_aReportXMLBytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Get the created report XML as UTF-8 encoded bytes.
+   *
+   * @return The created Report XML as UTF-8 bytes. Never <code>null</code> nor empty. The
+   *         internal array is returned and must not be modified.
+   * @since 2.2.2
+   */
+  @NonNull
+  @Nonempty
+  public final byte [] getReportXMLBytes ()
+  {
+    return m_aReportXMLBytes;
+  }
+
+  /**
+   * Get the content hash of the report XML. Reports with the same type, period and content hash are
+   * considered duplicates by the storage backends. The hash is calculated only once.
+   *
+   * @return The hex encoded SHA-256 hash of the UTF-8 encoded report XML. Never <code>null</code>.
+   * @see PeppolReportHashHelper
+   * @since 2.2.2
+   */
+  @NonNull
+  @Nonempty
+  public final String getContentHash ()
+  {
+    String ret = m_sContentHash;
+    if (ret == null)
+    {
+      ret = PeppolReportHashHelper.getHash (m_aReportXMLBytes);
+      m_sContentHash = ret;
+    }
+    return ret;
   }
 
   /**
@@ -153,12 +223,12 @@ public class PeppolReportData
     final IMicroElement ret = new MicroElement (sNamespaceURI, sElementName);
     ret.addElementNS (sNamespaceURI, "ReportType").addText (m_eReportType.getID ());
     ret.addElementNS (sNamespaceURI, "ReportYear").addText (m_aReportPeriod.getYear ());
-    ret.addElementNS (sNamespaceURI, "ReportType").addText (m_aReportPeriod.getMonthValue ());
+    ret.addElementNS (sNamespaceURI, "ReportMonth").addText (m_aReportPeriod.getMonthValue ());
     ret.addElementNS (sNamespaceURI, "ReportCreationDT")
        .addText (PDTWebDateHelper.getAsStringXSD (m_aReportCreationDT));
 
     final IMicroElement eReport = ret.addElementNS (sNamespaceURI, "ReportXML");
-    eReport.addText (m_sReportXML);
+    eReport.addText (getReportXMLString ());
     eReport.setAttribute ("valid", m_bReportValid);
     return ret;
   }
@@ -175,7 +245,7 @@ public class PeppolReportData
     return m_eReportType.equals (rhs.m_eReportType) &&
            m_aReportPeriod.equals (rhs.m_aReportPeriod) &&
            m_aReportCreationDT.equals (rhs.m_aReportCreationDT) &&
-           m_sReportXML.equals (rhs.m_sReportXML) &&
+           Arrays.equals (m_aReportXMLBytes, rhs.m_aReportXMLBytes) &&
            m_bReportValid == rhs.m_bReportValid;
   }
 
@@ -185,7 +255,7 @@ public class PeppolReportData
     return new HashCodeGenerator (this).append (m_eReportType)
                                        .append (m_aReportPeriod)
                                        .append (m_aReportCreationDT)
-                                       .append (m_sReportXML)
+                                       .append (m_aReportXMLBytes)
                                        .append (m_bReportValid)
                                        .getHashCode ();
   }
@@ -196,7 +266,7 @@ public class PeppolReportData
     return new ToStringGenerator (this).append ("ReportType", m_eReportType)
                                        .append ("ReportPeriod", m_aReportPeriod)
                                        .append ("ReportCreationDT", m_aReportCreationDT)
-                                       .append ("ReportXML", m_sReportXML)
+                                       .append ("ReportXMLLength", m_aReportXMLBytes.length)
                                        .append ("ReportValid", m_bReportValid)
                                        .getToString ();
   }
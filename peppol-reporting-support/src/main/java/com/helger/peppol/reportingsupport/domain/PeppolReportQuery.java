@@ -0,0 +1,413 @@
+/*
+ * Copyright (C) 2025-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.reportingsupport.domain;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.NotThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.string.StringHelper;
+import com.helger.base.tostring.ToStringGenerator;
+import com.helger.peppol.reportingsupport.EPeppolReportType;
+
+/**
+ * The search criteria to query Peppol Reports and Peppol Reporting Sending Reports from an
+ * {@link com.helger.peppol.reportingsupport.IPeppolReportStorage}. All criteria are optional and
+ * combined with a logical AND. Without any criteria, everything is returned.
+ *
+ * @author Philip Helger
+ * @since 2.2.2
+ */
+@NotThreadSafe
+public class PeppolReportQuery
+{
+  /** Default number of results that are loaded from a backend at once */
+  public static final int DEFAULT_PAGE_SIZE = 100;
+  /** The value for an unlimited number of results */
+  public static final int UNLIMITED_RESULTS = -1;
+
+  private EPeppolReportType m_eReportType;
+  private YearMonth m_aReportPeriodFrom;
+  private YearMonth m_aReportPeriodTo;
+  private Boolean m_aReportValid;
+  private LocalDateTime m_aReportCreationDTFrom;
+  private LocalDateTime m_aReportCreationDTTo;
+  private Boolean m_aSendingSuccess;
+  private String m_sAS4MessageID;
+  private boolean m_bIncludePayload = true;
+  private int m_nOffset = 0;
+  private int m_nMaxResults = UNLIMITED_RESULTS;
+  private int m_nPageSize = DEFAULT_PAGE_SIZE;
+
+  public PeppolReportQuery ()
+  {}
+
+  /**
+   * @return The report type to search for. May be <code>null</code> to search all report types.
+   */
+  @Nullable
+  public final EPeppolReportType getReportType ()
+  {
+    return m_eReportType;
+  }
+
+  /**
+   * @param e
+   *        The report type to search for. May be <code>null</code> to search all report types.
+   * @return this for chaining
+   */
+  @NonNull
+  public final PeppolReportQuery setReportType (@Nullable final EPeppolReportType e)
+  {
+    m_eReportType = e;
+    return this;
+  }
+
+  /**
+   * @return The first report period to search for (inclusive). May be <code>null</code>.
+   */
+  @Nullable
+  public final YearMonth getReportPeriodFrom ()
+  {
+    return m_aReportPeriodFrom;
+  }
+
+  /**
+   * @return The last report period to search for (inclusive). May be <code>null</code>.
+   */
+  @Nullable
+  public final YearMonth getReportPeriodTo ()
+  {
+    return m_aReportPeriodTo;
+  }
+
+  /**
+   * Set the range of report periods to search for.
+   *
+   * @param aFrom
+   *        The first report period (inclusive). May be <code>null</code> for no lower limit.
+   * @param aTo
+   *        The last report period (inclusive). May be <code>null</code> for no upper limit.
+   * @return this for chaining
+   */
+  @NonNull
+  public final PeppolReportQuery setReportPeriod (@Nullable final YearMonth aFrom, @Nullable final YearMonth aTo)
+  {
+    m_aReportPeriodFrom = aFrom;
+    m_aReportPeriodTo = aTo;
+    return this;
+  }
+
+  /**
+   * Search for exactly one report period.
+   *
+   * @param aPeriod
+   *        The report period. May be <code>null</code> for no restriction.
+   * @return this for chaining
+   */
+  @NonNull
+  public final PeppolReportQuery setReportPeriod (@Nullable final YearMonth aPeriod)
+  {
+    return setReportPeriod (aPeriod, aPeriod);
+  }
+
+  /**
+   * @return <code>null</code> to search valid and invalid reports, {@link Boolean#TRUE} to search
+   *         valid reports only and {@link Boolean#FALSE} to search invalid reports only. Ignored for
+   *         sending reports.
+   */
+  @Nullable
+  public final Boolean getReportValid ()
+  {
+    return m_aReportValid;
+  }
+
+  /**
+   * @param aReportValid
+   *        <code>null</code> to search valid and invalid reports, {@link Boolean#TRUE} to search
+   *        valid reports only and {@link Boolean#FALSE} to search invalid reports only. Ignored for
+   *        sending reports.
+   * @return this for chaining
+   */
+  @NonNull
+  public final PeppolReportQuery setReportValid (@Nullable final Boolean aReportValid)
+  {
+    m_aReportValid = aReportValid;
+    return this;
+  }
+
+  /**
+   * @return The earliest creation date and time to search for (inclusive). May be
+   *         <code>null</code>.
+   */
+  @Nullable
+  public final LocalDateTime getReportCreationDTFrom ()
+  {
+    return m_aReportCreationDTFrom;
+  }
+
+  /**
+   * @return The latest creation date and time to search for (exclusive). May be <code>null</code>.
+   */
+  @Nullable
+  public final LocalDateTime getReportCreationDTTo ()
+  {
+    return m_aReportCreationDTTo;
+  }
+
+  /**
+   * Set the range of creation date and times to search for.
+   *
+   * @param aFrom
+   *        The earliest creation date and time (inclusive). May be <code>null</code> for no lower
+   *        limit.
+   * @param aTo
+   *        The latest creation date and time (exclusive). May be <code>null</code> for no upper
+   *        limit.
+   * @return this for chaining
+   */
+  @NonNull
+  public final PeppolReportQuery setReportCreationDT (@Nullable final LocalDateTime aFrom,
+                                                      @Nullable final LocalDateTime aTo)
+  {
+    m_aReportCreationDTFrom = aFrom;
+    m_aReportCreationDTTo = aTo;
+    return this;
+  }
+
+  /**
+   * @return <code>null</code> to search all sending reports, {@link Boolean#TRUE} to search
+   *         successful sendings only and {@link Boolean#FALSE} to search failed sendings only.
+   *         Ignored for reports.
+   * @see PeppolReportSendingReportFields#getSendingSuccess()
+   */
+  @Nullable
+  public final Boolean getSendingSuccess ()
+  {
+    return m_aSendingSuccess;
+  }
+
+  /**
+   * @param aSendingSuccess
+   *        <code>null</code> to search all sending reports, {@link Boolean#TRUE} to search
+   *        successful sendings only and {@link Boolean#FALSE} to search failed sendings only. Sending
+   *        reports without a known sending success are only found with <code>null</code>. Ignored
+   *        for reports.
+   * @return this for chaining
+   */
+  @NonNull
+  public final PeppolReportQuery setSendingSuccess (@Nullable final Boolean aSendingSuccess)
+  {
+    m_aSendingSuccess = aSendingSuccess;
+    return this;
+  }
+
+  /**
+   * @return The AS4 message ID of the sending reports to search for. May be <code>null</code>.
+   *         Ignored for reports.
+   * @see PeppolReportSendingReportFields#getAS4MessageID()
+   */
+  @Nullable
+  public final String getAS4MessageID ()
+  {
+    return m_sAS4MessageID;
+  }
+
+  /**
+   * @param sAS4MessageID
+   *        The AS4 message ID of the sending reports to search for. May be <code>null</code> for no
+   *        restriction. Ignored for reports.
+   * @return this for chaining
+   */
+  @NonNull
+  public final PeppolReportQuery setAS4MessageID (@Nullable final String sAS4MessageID)
+  {
+    m_sAS4MessageID = StringHelper.getNotEmpty (sAS4MessageID, null);
+    return this;
+  }
+
+  /**
+   * @return <code>true</code> if the report payloads should be loaded, <code>false</code> if only
+   *         the metadata is needed. Defaults to <code>true</code>.
+   */
+  public final boolean isIncludePayload ()
+  {
+    return m_bIncludePayload;
+  }
+
+  /**
+   * @param bIncludePayload
+   *        <code>true</code> to load the report payloads, <code>false</code> to load only the
+   *        metadata, which avoids reading the potentially large payload columns or documents.
+   * @return this for chaining
+   */
+  @NonNull
+  public final PeppolReportQuery setIncludePayload (final boolean bIncludePayload)
+  {
+    m_bIncludePayload = bIncludePayload;
+    return this;
+  }
+
+  /**
+   * @return The number of matching results to skip. Always &ge; 0. Defaults to 0.
+   */
+  @Nonnegative
+  public final int getOffset ()
+  {
+    return m_nOffset;
+  }
+
+  /**
+   * @param nOffset
+   *        The number of matching results to skip. Must be &ge; 0.
+   * @return this for chaining
+   */
+  @NonNull
+  public final PeppolReportQuery setOffset (@Nonnegative final int nOffset)
+  {
+    ValueEnforcer.isGE0 (nOffset, "Offset");
+    m_nOffset = nOffset;
+    return this;
+  }
+
+  /**
+   * @return The maximum number of results to return or {@link #UNLIMITED_RESULTS}.
+   */
+  public final int getMaxResults ()
+  {
+    return m_nMaxResults;
+  }
+
+  /**
+   * @return <code>true</code> if the number of results is limited.
+   */
+  public final boolean hasMaxResults ()
+  {
+    return m_nMaxResults != UNLIMITED_RESULTS;
+  }
+
+  /**
+   * @param nMaxResults
+   *        The maximum number of results to return. Must be &gt; 0 or {@link #UNLIMITED_RESULTS}.
+   * @return this for chaining
+   */
+  @NonNull
+  public final PeppolReportQuery setMaxResults (final int nMaxResults)
+  {
+    ValueEnforcer.isTrue (nMaxResults > 0 || nMaxResults == UNLIMITED_RESULTS,
+                          () -> "MaxResults must be > 0 or " + UNLIMITED_RESULTS);
+    m_nMaxResults = nMaxResults;
+    return this;
+  }
+
+  /**
+   * @return The number of results that are loaded from a backend at once. Always &gt; 0. Defaults
+   *         to {@link #DEFAULT_PAGE_SIZE}.
+   */
+  @Nonnegative
+  public final int getPageSize ()
+  {
+    return m_nPageSize;
+  }
+
+  /**
+   * @param nPageSize
+   *        The number of results that are loaded from a backend at once. Must be &gt; 0.
+   * @return this for chaining
+   */
+  @NonNull
+  public final PeppolReportQuery setPageSize (@Nonnegative final int nPageSize)
+  {
+    ValueEnforcer.isGT0 (nPageSize, "PageSize");
+    m_nPageSize = nPageSize;
+    return this;
+  }
+
+  /**
+   * Check if the provided metadata matches all criteria of this query. This is meant for backends
+   * that cannot filter natively.
+   *
+   * @param eReportType
+   *        The report type. May not be <code>null</code>.
+   * @param aReportPeriod
+   *        The report period. May not be <code>null</code>.
+   * @param aReportCreationDT
+   *        The report creation date and time. May not be <code>null</code>.
+   * @param aReportValid
+   *        The report validity. May be <code>null</code> for sending reports.
+   * @return <code>true</code> if all criteria match.
+   */
+  public boolean isMatching (@NonNull final EPeppolReportType eReportType,
+                             @NonNull final YearMonth aReportPeriod,
+                             @NonNull final LocalDateTime aReportCreationDT,
+                             @Nullable final Boolean aReportValid)
+  {
+    if (m_eReportType != null && m_eReportType != eReportType)
+      return false;
+    if (m_aReportPeriodFrom != null && aReportPeriod.isBefore (m_aReportPeriodFrom))
+      return false;
+    if (m_aReportPeriodTo != null && aReportPeriod.isAfter (m_aReportPeriodTo))
+      return false;
+    if (m_aReportValid != null && aReportValid != null && !m_aReportValid.equals (aReportValid))
+      return false;
+    if (m_aReportCreationDTFrom != null && aReportCreationDT.isBefore (m_aReportCreationDTFrom))
+      return false;
+    if (m_aReportCreationDTTo != null && !aReportCreationDT.isBefore (m_aReportCreationDTTo))
+      return false;
+    return true;
+  }
+
+  /**
+   * Check if the provided structured fields of a sending report match the sending report specific
+   * criteria of this query. This is meant for backends that cannot filter natively.
+   *
+   * @param aFields
+   *        The structured fields of the sending report. May be <code>null</code>.
+   * @return <code>true</code> if all sending report specific criteria match.
+   */
+  public boolean isMatchingSendingReport (@Nullable final PeppolReportSendingReportFields aFields)
+  {
+    if (m_aSendingSuccess != null && (aFields == null || !m_aSendingSuccess.equals (aFields.getSendingSuccess ())))
+      return false;
+    if (m_sAS4MessageID != null && (aFields == null || !m_sAS4MessageID.equals (aFields.getAS4MessageID ())))
+      return false;
+    return true;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("ReportType", m_eReportType)
+                                       .append ("ReportPeriodFrom", m_aReportPeriodFrom)
+                                       .append ("ReportPeriodTo", m_aReportPeriodTo)
+                                       .append ("ReportValid", m_aReportValid)
+                                       .append ("ReportCreationDTFrom", m_aReportCreationDTFrom)
+                                       .append ("ReportCreationDTTo", m_aReportCreationDTTo)
+                                       .append ("SendingSuccess", m_aSendingSuccess)
+                                       .append ("AS4MessageID", m_sAS4MessageID)
+                                       .append ("IncludePayload", m_bIncludePayload)
+                                       .append ("Offset", m_nOffset)
+                                       .append ("MaxResults", m_nMaxResults)
+                                       .append ("PageSize", m_nPageSize)
+                                       .getToString ();
+  }
+}
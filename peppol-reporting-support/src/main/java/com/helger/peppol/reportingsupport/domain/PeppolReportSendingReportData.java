@@ -16,6 +16,7 @@
  */
 package com.helger.peppol.reportingsupport.domain;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.YearMonth;
 
@@ -29,8 +30,10 @@ import com.helger.base.equals.EqualsHelper;
 import com.helger.base.hashcode.HashCodeGenerator;
 import com.helger.base.string.StringHelper;
 import com.helger.base.tostring.ToStringGenerator;
+import com.helger.datetime.helper.PDTFactory;
 import com.helger.datetime.web.PDTWebDateHelper;
 import com.helger.peppol.reportingsupport.EPeppolReportType;
+import com.helger.peppol.reportingsupport.PeppolReportHashHelper;
 import com.helger.xml.microdom.IMicroElement;
 import com.helger.xml.microdom.MicroElement;
 
@@ -46,6 +49,9 @@ public class PeppolReportSendingReportData
   private final YearMonth m_aReportPeriod;
   private final LocalDateTime m_aReportCreationDT;
   private final String m_sSendingReportContent;
+  private final PeppolReportSendingReportFields m_aFields;
+  // Lazily calculated - racing threads calculate the same value
+  private String m_sContentHash;
 
   /**
    * Constructor
@@ -63,6 +69,31 @@ public class PeppolReportSendingReportData
                                         @NonNull final YearMonth aReportPeriod,
                                         @NonNull final LocalDateTime aReportCreationDT,
                                         @Nullable final String sSendingReportContent)
+  {
+    this (eReportType, aReportPeriod, aReportCreationDT, sSendingReportContent, null);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param eReportType
+   *        The report type. May not be <code>null</code>.
+   * @param aReportPeriod
+   *        The year and month for which the report was created. May not be <code>null</code>.
+   * @param aReportCreationDT
+   *        The date and time, when the report was created. May not be <code>null</code>.
+   * @param sSendingReportContent
+   *        The effective sending report content in any syntax. May be <code>null</code>.
+   * @param aFields
+   *        The structured fields extracted from the sending report content. May be
+   *        <code>null</code>.
+   * @since 2.2.2
+   */
+  public PeppolReportSendingReportData (@NonNull final EPeppolReportType eReportType,
+                                        @NonNull final YearMonth aReportPeriod,
+                                        @NonNull final LocalDateTime aReportCreationDT,
+                                        @Nullable final String sSendingReportContent,
+                                        @Nullable final PeppolReportSendingReportFields aFields)
   {
     ValueEnforcer.notNull (eReportType, "ReportType");
     ValueEnforcer.notNull (aReportPeriod, "ReportPeriod");
@@ -72,6 +103,8 @@ public class PeppolReportSendingReportData
     m_aReportPeriod = aReportPeriod;
     m_aReportCreationDT = aReportCreationDT;
     m_sSendingReportContent = sSendingReportContent;
+    // Don't keep empty fields, to simplify the checks
+    m_aFields = aFields == null || aFields.isEmpty () ? null : aFields;
   }
 
   /**
@@ -128,6 +161,85 @@ public class PeppolReportSendingReportData
     return m_sSendingReportContent;
   }
 
+  /**
+   * @return <code>true</code> if structured fields of the sending report are present.
+   * @since 2.2.2
+   */
+  public final boolean hasFields ()
+  {
+    return m_aFields != null;
+  }
+
+  /**
+   * Get the structured fields that were extracted from the sending report content. They are not
+   * part of the content hash, as they are derived from the content.
+   *
+   * @return The structured fields. May be <code>null</code>.
+   * @since 2.2.2
+   */
+  @Nullable
+  public final PeppolReportSendingReportFields getFields ()
+  {
+    return m_aFields;
+  }
+
+  /**
+   * Get the content hash of the sending report. Sending reports with the same type, period and
+   * content hash are considered duplicates by the storage backends. The report type, the report
+   * period, the structured fields and the content (if present) are hashed. If the fields contain an
+   * AS4 message ID, it identifies the sending, so that a retried store of the same sending is a
+   * duplicate even if it has a different creation date and time. Otherwise the creation date and
+   * time (with millisecond precision, as stored by all backends) is hashed as well, so that separate
+   * sendings are never considered duplicates, even if they have the same content. The hash is
+   * calculated only once.
+   *
+   * @return The hex encoded SHA-256 hash. Never <code>null</code>.
+   * @see PeppolReportHashHelper
+   * @since 2.2.2
+   */
+  @NonNull
+  @Nonempty
+  public final String getContentHash ()
+  {
+    String ret = m_sContentHash;
+    if (ret == null)
+    {
+      ret = PeppolReportHashHelper.getHash (_getHashSource ().getBytes (StandardCharsets.UTF_8));
+      m_sContentHash = ret;
+    }
+    return ret;
+  }
+
+  @NonNull
+  private String _getHashSource ()
+  {
+    // Type and period are always hashed, so that the hash alone is unique across types and periods
+    final StringBuilder aSB = new StringBuilder ().append (m_eReportType.getID ())
+                                                  .append ('\n')
+                                                  .append (m_aReportPeriod.toString ())
+                                                  .append ('\n');
+    if (m_aFields == null || m_aFields.getAS4MessageID () == null)
+      aSB.append (PDTWebDateHelper.getAsStringXSD (PDTFactory.getWithMillisOnly (m_aReportCreationDT)));
+    if (m_aFields != null)
+    {
+      // One line per field
+      aSB.append ('\n')
+         .append (m_aFields.getSendingSuccess ())
+         .append ('\n')
+         .append (m_aFields.getAS4MessageID ())
+         .append ('\n')
+         .append (m_aFields.getReceiverID ())
+         .append ('\n')
+         .append (m_aFields.getErrorCode ());
+    }
+    if (hasSendingReportContent ())
+    {
+      // The content comes last, so it cannot be mistaken for a field
+      aSB.append ('\n').append (m_sSendingReportContent);
+    }
+    return aSB.toString ();
+  }
+
   /**
    * Get an XML element representation
    *
@@ -147,10 +259,21 @@ public class PeppolReportSendingReportData
     final IMicroElement ret = new MicroElement (sNamespaceURI, sElementName);
     ret.addElementNS (sNamespaceURI, "ReportType").addText (m_eReportType.getID ());
     ret.addElementNS (sNamespaceURI, "ReportYear").addText (m_aReportPeriod.getYear ());
-    ret.addElementNS (sNamespaceURI, "ReportType").addText (m_aReportPeriod.getMonthValue ());
+    ret.addElementNS (sNamespaceURI, "ReportMonth").addText (m_aReportPeriod.getMonthValue ());
     ret.addElementNS (sNamespaceURI, "ReportCreationDT")
        .addText (PDTWebDateHelper.getAsStringXSD (m_aReportCreationDT));
     ret.addElementNS (sNamespaceURI, "SendingReport").addText (m_sSendingReportContent);
+    if (m_aFields != null)
+    {
+      if (m_aFields.getSendingSuccess () != null)
+        ret.addElementNS (sNamespaceURI, "SendingSuccess").addText (m_aFields.getSendingSuccess ().toString ());
+      if (m_aFields.getAS4MessageID () != null)
+        ret.addElementNS (sNamespaceURI, "AS4MessageID").addText (m_aFields.getAS4MessageID ());
+      if (m_aFields.getReceiverID () != null)
+        ret.addElementNS (sNamespaceURI, "ReceiverID").addText (m_aFields.getReceiverID ());
+      if (m_aFields.getErrorCode () != null)
+        ret.addElementNS (sNamespaceURI, "ErrorCode").addText (m_aFields.getErrorCode ());
+    }
     return ret;
   }
 
@@ -166,7 +289,8 @@ public class PeppolReportSendingReportData
     return m_eReportType.equals (rhs.m_eReportType) &&
            m_aReportPeriod.equals (rhs.m_aReportPeriod) &&
            m_aReportCreationDT.equals (rhs.m_aReportCreationDT) &&
-           EqualsHelper.equals (m_sSendingReportContent, rhs.m_sSendingReportContent);
+           EqualsHelper.equals (m_sSendingReportContent, rhs.m_sSendingReportContent) &&
+           EqualsHelper.equals (m_aFields, rhs.m_aFields);
   }
 
   @Override
@@ -176,6 +300,7 @@ public class PeppolReportSendingReportData
                                        .append (m_aReportPeriod)
                                        .append (m_aReportCreationDT)
                                        .append (m_sSendingReportContent)
+                                       .append (m_aFields)
                                        .getHashCode ();
   }
 
@@ -186,6 +311,7 @@ public class PeppolReportSendingReportData
                                        .append ("ReportPeriod", m_aReportPeriod)
                                        .append ("ReportCreationDT", m_aReportCreationDT)
                                        .append ("SendingReportContent", m_sSendingReportContent)
+                                       .appendIfNotNull ("Fields", m_aFields)
                                        .getToString ();
   }
 }
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2025-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.reportingsupport.domain;
+
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.base.equals.EqualsHelper;
+import com.helger.base.hashcode.HashCodeGenerator;
+import com.helger.base.string.StringHelper;
+import com.helger.base.tostring.ToStringGenerator;
+
+/**
+ * Contains the structured fields of a single Peppol Network Report Sending Report. They are
+ * extracted from the sending report content when storing, so that they can be stored in separate,
+ * indexed columns and be queried without reading the sending report content. All fields are
+ * optional.
+ *
+ * @author Philip Helger
+ * @since 2.2.2
+ */
+@Immutable
+public class PeppolReportSendingReportFields
+{
+  /** The maximum length of the AS4 message ID in the SQL backend */
+  public static final int MAX_LEN_AS4_MESSAGE_ID = 255;
+  /** The maximum length of the receiver ID in the SQL backend */
+  public static final int MAX_LEN_RECEIVER_ID = 255;
+  /** The maximum length of the error code in the SQL backend */
+  public static final int MAX_LEN_ERROR_CODE = 64;
+
+  private final Boolean m_aSendingSuccess;
+  private final String m_sAS4MessageID;
+  private final String m_sReceiverID;
+  private final String m_sErrorCode;
+
+  /**
+   * Constructor
+   *
+   * @param aSendingSuccess
+   *        <code>true</code> if the sending was successful, <code>false</code> if not. May be
+   *        <code>null</code> if unknown.
+   * @param sAS4MessageID
+   *        The AS4 message ID of the sent report. May be <code>null</code>.
+   * @param sReceiverID
+   *        The ID of the receiver the report was sent to. May be <code>null</code>.
+   * @param sErrorCode
+   *        The error code in case the sending failed. May be <code>null</code>.
+   */
+  public PeppolReportSendingReportFields (@Nullable final Boolean aSendingSuccess,
+                                          @Nullable final String sAS4MessageID,
+                                          @Nullable final String sReceiverID,
+                                          @Nullable final String sErrorCode)
+  {
+    m_aSendingSuccess = aSendingSuccess;
+    // Empty values are treated like missing values
+    m_sAS4MessageID = StringHelper.getNotEmpty (sAS4MessageID, null);
+    m_sReceiverID = StringHelper.getNotEmpty (sReceiverID, null);
+    m_sErrorCode = StringHelper.getNotEmpty (sErrorCode, null);
+  }
+
+  /**
+   * @return <code>true</code> if the sending was successful, <code>false</code> if not and
+   *         <code>null</code> if unknown.
+   */
+  @Nullable
+  public final Boolean getSendingSuccess ()
+  {
+    return m_aSendingSuccess;
+  }
+
+  /**
+   * @return The AS4 message ID of the sent report. May be <code>null</code>.
+   */
+  @Nullable
+  public final String getAS4MessageID ()
+  {
+    return m_sAS4MessageID;
+  }
+
+  /**
+   * @return The ID of the receiver the report was sent to. May be <code>null</code>.
+   */
+  @Nullable
+  public final String getReceiverID ()
+  {
+    return m_sReceiverID;
+  }
+
+  /**
+   * @return The error code in case the sending failed. May be <code>null</code>.
+   */
+  @Nullable
+  public final String getErrorCode ()
+  {
+    return m_sErrorCode;
+  }
+
+  /**
+   * @return <code>true</code> if none of the fields is present.
+   */
+  public final boolean isEmpty ()
+  {
+    return m_aSendingSuccess == null && m_sAS4MessageID == null && m_sReceiverID == null && m_sErrorCode == null;
+  }
+
+  @Override
+  public boolean equals (final Object o)
+  {
+    if (o == this)
+      return true;
+    if (o == null || !o.getClass ().equals (getClass ()))
+      return false;
+
+    final PeppolReportSendingReportFields rhs = (PeppolReportSendingReportFields) o;
+    return EqualsHelper.equals (m_aSendingSuccess, rhs.m_aSendingSuccess) &&
+           EqualsHelper.equals (m_sAS4MessageID, rhs.m_sAS4MessageID) &&
+           EqualsHelper.equals (m_sReceiverID, rhs.m_sReceiverID) &&
+           EqualsHelper.equals (m_sErrorCode, rhs.m_sErrorCode);
+  }
+
+  @Override
+  public int hashCode ()
+  {
+    return new HashCodeGenerator (this).append (m_aSendingSuccess)
+                                       .append (m_sAS4MessageID)
+                                       .append (m_sReceiverID)
+                                       .append (m_sErrorCode)
+                                       .getHashCode ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).appendIfNotNull ("SendingSuccess", m_aSendingSuccess)
+                                       .appendIfNotNull ("AS4MessageID", m_sAS4MessageID)
+                                       .appendIfNotNull ("ReceiverID", m_sReceiverID)
+                                       .appendIfNotNull ("ErrorCode", m_sErrorCode)
+                                       .getToString ();
+  }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2025-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.reportingsupport.domain;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Arrays;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.hashcode.HashCodeGenerator;
+import com.helger.base.tostring.ToStringGenerator;
+import com.helger.peppol.reportingsupport.EPeppolReportType;
+
+/**
+ * Contains a single Peppol Network Report as read from a storage. Compared to
+ * {@link PeppolReportData} the payload is optional, because a query may only ask for the metadata.
+ * An eventually used compression was already removed from the payload.
+ *
+ * @author Philip Helger
+ * @since 2.2.2
+ */
+@Immutable
+public class PeppolReportStoredData
+{
+  private final EPeppolReportType m_eReportType;
+  private final YearMonth m_aReportPeriod;
+  private final LocalDateTime m_aReportCreationDT;
+  private final byte [] m_aReportXMLBytes;
+  private final boolean m_bReportValid;
+
+  /**
+   * Constructor
+   *
+   * @param eReportType
+   *        The report type. May not be <code>null</code>.
+   * @param aReportPeriod
+   *        The year and month for which the report was created. May not be <code>null</code>.
+   * @param aReportCreationDT
+   *        The date and time, when the report was created. May not be <code>null</code>.
+   * @param aReportXMLBytes
+   *        The UTF-8 encoded bytes of the report XML. May be <code>null</code> if only the metadata
+   *        was read. The array is not copied.
+   * @param bReportValid
+   *        The indicator, if the report was valid or not.
+   */
+  public PeppolReportStoredData (@NonNull final EPeppolReportType eReportType,
+                                 @NonNull final YearMonth aReportPeriod,
+                                 @NonNull final LocalDateTime aReportCreationDT,
+                                 @Nullable final byte [] aReportXMLBytes,
+                                 final boolean bReportValid)
+  {
+    ValueEnforcer.notNull (eReportType, "ReportType");
+    ValueEnforcer.notNull (aReportPeriod, "ReportPeriod");
+    ValueEnforcer.notNull (aReportCreationDT, "ReportCreationDT");
+
+    m_eReportType = eReportType;
+    m_aReportPeriod = aReportPeriod;
+    m_aReportCreationDT = aReportCreationDT;
+    m_aReportXMLBytes = aReportXMLBytes;
+    m_bReportValid = bReportValid;
+  }
+
+  /**
+   * Get the report type
+   *
+   * @return The report type. Never <code>null</code>.
+   */
+  @NonNull
+  public final EPeppolReportType getReportType ()
+  {
+    return m_eReportType;
+  }
+
+  /**
+   * Get the report period
+   *
+   * @return The report period. Never <code>null</code>.
+   */
+  @NonNull
+  public final YearMonth getReportPeriod ()
+  {
+    return m_aReportPeriod;
+  }
+
+  /**
+   * Get the report creation date and time (with millisecond precision)
+   *
+   * @return The report creation date and time. Never <code>null</code>.
+   */
+  @NonNull
+  public final LocalDateTime getReportCreationDT ()
+  {
+    return m_aReportCreationDT;
+  }
+
+  /**
+   * @return <code>true</code> if the report XML was read, <code>false</code> if only the metadata
+   *         was read.
+   */
+  public final boolean hasReportXML ()
+  {
+    return m_aReportXMLBytes != null;
+  }
+
+  /**
+   * Get the report XML as UTF-8 encoded bytes.
+   *
+   * @return The report XML as UTF-8 bytes. May be <code>null</code> if only the metadata was read.
+   *         The internal array is returned and must not be modified.
+   */
+  @Nullable
+  public final byte [] getReportXMLBytes ()
+  {
+    return m_aReportXMLBytes;
+  }
+
+  /**
+   * Get the report XML string. The string is decoded from the UTF-8 bytes on every call.
+   *
+   * @return The report XML as string. May be <code>null</code> if only the metadata was read.
+   */
+  @Nullable
+  public final String getReportXMLString ()
+  {
+    return m_aReportXMLBytes == null ? null : new String (m_aReportXMLBytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Is the report valid according to XSD and Schematron?
+   *
+   * @return <code>true</code> if the report is technically valid, <code>false</code> otherwise.
+   */
+  public final boolean isReportValid ()
+  {
+    return m_bReportValid;
+  }
+
+  /**
+   * @return This object as a {@link PeppolReportData}. Never <code>null</code>.
+   * @throws IllegalStateException
+   *         If only the metadata was read.
+   */
+  @NonNull
+  public PeppolReportData getAsReportData ()
+  {
+    if (m_aReportXMLBytes == null)
+      throw new IllegalStateException ("The report XML was not read");
+    return new PeppolReportData (m_eReportType,
+                                 m_aReportPeriod,
+                                 m_aReportCreationDT,
+                                 m_aReportXMLBytes,
+                                 m_bReportValid);
+  }
+
+  @Override
+  public boolean equals (final Object o)
+  {
+    if (o == this)
+      return true;
+    if (o == null || !o.getClass ().equals (getClass ()))
+      return false;
+
+    final PeppolReportStoredData rhs = (PeppolReportStoredData) o;
+    return m_eReportType.equals (rhs.m_eReportType) &&
+           m_aReportPeriod.equals (rhs.m_aReportPeriod) &&
+           m_aReportCreationDT.equals (rhs.m_aReportCreationDT) &&
+           Arrays.equals (m_aReportXMLBytes, rhs.m_aReportXMLBytes) &&
+           m_bReportValid == rhs.m_bReportValid;
+  }
+
+  @Override
+  public int hashCode ()
+  {
+    return new HashCodeGenerator (this).append (m_eReportType)
+                                       .append (m_aReportPeriod)
+                                       .append (m_aReportCreationDT)
+                                       .append (m_aReportXMLBytes)
+                                       .append (m_bReportValid)
+                                       .getHashCode ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("ReportType", m_eReportType)
+                                       .append ("ReportPeriod", m_aReportPeriod)
+                                       .append ("ReportCreationDT", m_aReportCreationDT)
+                                       .append ("ReportXMLLength",
+                                                m_aReportXMLBytes == null ? -1 : m_aReportXMLBytes.length)
+                                       .append ("ReportValid", m_bReportValid)
+                                       .getToString ();
+  }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2025-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.reportingsupport.domain;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.Nonempty;
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.tostring.ToStringGenerator;
+import com.helger.peppol.reportingsupport.EPeppolReportType;
+import com.helger.peppol.reportingsupport.IPeppolReportPayloadProvider;
+import com.helger.peppol.reportingsupport.PeppolReportHashHelper;
+
+/**
+ * Contains the relevant data for a single Peppol Network Report, where the report XML is provided
+ * as a stream. This is the streaming counterpart of {@link PeppolReportData}.
+ *
+ * @author Philip Helger
+ * @since 2.2.2
+ */
+@Immutable
+public class PeppolReportStreamingData
+{
+  private final EPeppolReportType m_eReportType;
+  private final YearMonth m_aReportPeriod;
+  private final LocalDateTime m_aReportCreationDT;
+  private final IPeppolReportPayloadProvider m_aReportXMLProvider;
+  private final boolean m_bReportValid;
+
+  /**
+   * Constructor
+   *
+   * @param eReportType
+   *        The report type. May not be <code>null</code>.
+   * @param aReportPeriod
+   *        The year and month for which the report was created. May not be <code>null</code>.
+   * @param aReportCreationDT
+   *        The date and time, when the report was created. May not be <code>null</code>.
+   * @param aReportXMLProvider
+   *        The provider for the UTF-8 encoded report XML. May not be <code>null</code>.
+   * @param bReportValid
+   *        The indicator, if the report was valid or not.
+   */
+  public PeppolReportStreamingData (@NonNull final EPeppolReportType eReportType,
+                                    @NonNull final YearMonth aReportPeriod,
+                                    @NonNull final LocalDateTime aReportCreationDT,
+                                    @NonNull final IPeppolReportPayloadProvider aReportXMLProvider,
+                                    final boolean bReportValid)
+  {
+    ValueEnforcer.notNull (eReportType, "ReportType");
+    ValueEnforcer.notNull (aReportPeriod, "ReportPeriod");
+    ValueEnforcer.notNull (aReportCreationDT, "ReportCreationDT");
+    ValueEnforcer.notNull (aReportXMLProvider, "ReportXMLProvider");
+
+    m_eReportType = eReportType;
+    m_aReportPeriod = aReportPeriod;
+    m_aReportCreationDT = aReportCreationDT;
+    m_aReportXMLProvider = aReportXMLProvider;
+    m_bReportValid = bReportValid;
+  }
+
+  /**
+   * Get the report type
+   *
+   * @return The report type. Never <code>null</code>.
+   */
+  @NonNull
+  public final EPeppolReportType getReportType ()
+  {
+    return m_eReportType;
+  }
+
+  /**
+   * Get the report period
+   *
+   * @return The report period. Never <code>null</code>.
+   */
+  @NonNull
+  public final YearMonth getReportPeriod ()
+  {
+    return m_aReportPeriod;
+  }
+
+  /**
+   * Get the report creation date and time (with millisecond precision)
+   *
+   * @return The report creation date and time. Never <code>null</code>.
+   */
+  @NonNull
+  public final LocalDateTime getReportCreationDT ()
+  {
+    return m_aReportCreationDT;
+  }
+
+  /**
+   * Get the provider of the report XML
+   *
+   * @return The provider for the UTF-8 encoded report XML. Never <code>null</code>.
+   */
+  @NonNull
+  public final IPeppolReportPayloadProvider getReportXMLProvider ()
+  {
+    return m_aReportXMLProvider;
+  }
+
+  /**
+   * Is the report valid according to XSD and Schematron?
+   *
+   * @return <code>true</code> if the report is technically valid, <code>false</code> otherwise.
+   */
+  public final boolean isReportValid ()
+  {
+    return m_bReportValid;
+  }
+
+  /**
+   * Read the whole payload into memory and convert it to a {@link PeppolReportData}. This is meant
+   * for storage implementations that don't support streaming.
+   *
+   * @return The non-streaming report data. Never <code>null</code>.
+   * @throws UncheckedIOException
+   *         If the payload cannot be read
+   */
+  @NonNull
+  public PeppolReportData getAsReportData ()
+  {
+    final byte [] aReportXMLBytes;
+    try (final InputStream aIS = m_aReportXMLProvider.openStream ())
+    {
+      aReportXMLBytes = aIS.readAllBytes ();
+    }
+    catch (final IOException ex)
+    {
+      throw new UncheckedIOException ("Failed to read Peppol Report payload", ex);
+    }
+    return new PeppolReportData (m_eReportType, m_aReportPeriod, m_aReportCreationDT, aReportXMLBytes, m_bReportValid);
+  }
+
+  /**
+   * Get the content hash of the report XML. This reads the whole payload once, without keeping it
+   * in memory.
+   *
+   * @return The hex encoded SHA-256 hash of the UTF-8 encoded report XML. Never <code>null</code>.
+   * @throws UncheckedIOException
+   *         If the payload cannot be read
+   * @see PeppolReportData#getContentHash()
+   */
+  @NonNull
+  @Nonempty
+  public String getContentHash ()
+  {
+    try (final InputStream aIS = m_aReportXMLProvider.openStream ())
+    {
+      return PeppolReportHashHelper.getHash (aIS);
+    }
+    catch (final IOException ex)
+    {
+      throw new UncheckedIOException ("Failed to read Peppol Report payload", ex);
+    }
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("ReportType", m_eReportType)
+                                       .append ("ReportPeriod", m_aReportPeriod)
+                                       .append ("ReportCreationDT", m_aReportCreationDT)
+                                       .append ("ReportXMLProvider", m_aReportXMLProvider)
+                                       .append ("ReportValid", m_bReportValid)
+                                       .getToString ();
+  }
+}
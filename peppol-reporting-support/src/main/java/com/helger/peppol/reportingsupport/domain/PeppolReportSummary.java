@@ -0,0 +1,272 @@
+/*
+ * Copyright (C) 2025-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.reportingsupport.domain;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.equals.EqualsHelper;
+import com.helger.base.hashcode.HashCodeGenerator;
+import com.helger.base.tostring.ToStringGenerator;
+import com.helger.peppol.reportingsupport.EPeppolReportType;
+
+/**
+ * Contains the latest report and sending state of a single report type and period, as maintained
+ * by the storage backends when storing.
+ *
+ * @author Philip Helger
+ * @since 2.2.2
+ */
+@Immutable
+public class PeppolReportSummary
+{
+  private final EPeppolReportType m_eReportType;
+  private final YearMonth m_aReportPeriod;
+  private final LocalDateTime m_aLastReportCreationDT;
+  private final LocalDateTime m_aLastValidReportCreationDT;
+  private final LocalDateTime m_aLastSendingReportCreationDT;
+
+  /**
+   * Constructor
+   *
+   * @param eReportType
+   *        The report type. May not be <code>null</code>.
+   * @param aReportPeriod
+   *        The report period. May not be <code>null</code>.
+   * @param aLastReportCreationDT
+   *        The creation date and time of the latest stored report. May be <code>null</code>.
+   * @param aLastValidReportCreationDT
+   *        The creation date and time of the latest stored valid report. May be <code>null</code>.
+   * @param aLastSendingReportCreationDT
+   *        The creation date and time of the latest stored sending report. May be
+   *        <code>null</code>.
+   */
+  public PeppolReportSummary (@NonNull final EPeppolReportType eReportType,
+                              @NonNull final YearMonth aReportPeriod,
+                              @Nullable final LocalDateTime aLastReportCreationDT,
+                              @Nullable final LocalDateTime aLastValidReportCreationDT,
+                              @Nullable final LocalDateTime aLastSendingReportCreationDT)
+  {
+    ValueEnforcer.notNull (eReportType, "ReportType");
+    ValueEnforcer.notNull (aReportPeriod, "ReportPeriod");
+
+    m_eReportType = eReportType;
+    m_aReportPeriod = aReportPeriod;
+    m_aLastReportCreationDT = aLastReportCreationDT;
+    m_aLastValidReportCreationDT = aLastValidReportCreationDT;
+    m_aLastSendingReportCreationDT = aLastSendingReportCreationDT;
+  }
+
+  /**
+   * @return The report type. Never <code>null</code>.
+   */
+  @NonNull
+  public final EPeppolReportType getReportType ()
+  {
+    return m_eReportType;
+  }
+
+  /**
+   * @return The report period. Never <code>null</code>.
+   */
+  @NonNull
+  public final YearMonth getReportPeriod ()
+  {
+    return m_aReportPeriod;
+  }
+
+  /**
+   * @return The creation date and time of the latest stored report. May be <code>null</code>.
+   */
+  @Nullable
+  public final LocalDateTime getLastReportCreationDT ()
+  {
+    return m_aLastReportCreationDT;
+  }
+
+  /**
+   * @return <code>true</code> if at least one report was stored.
+   */
+  public final boolean hasReport ()
+  {
+    return m_aLastReportCreationDT != null;
+  }
+
+  /**
+   * @return <code>true</code> if the latest stored report is valid.
+   */
+  public final boolean isLastReportValid ()
+  {
+    return m_aLastReportCreationDT != null && m_aLastReportCreationDT.equals (m_aLastValidReportCreationDT);
+  }
+
+  /**
+   * @return The creation date and time of the latest stored valid report. May be
+   *         <code>null</code>.
+   */
+  @Nullable
+  public final LocalDateTime getLastValidReportCreationDT ()
+  {
+    return m_aLastValidReportCreationDT;
+  }
+
+  /**
+   * @return <code>true</code> if at least one valid report was stored.
+   */
+  public final boolean hasValidReport ()
+  {
+    return m_aLastValidReportCreationDT != null;
+  }
+
+  /**
+   * @return The creation date and time of the latest stored sending report. May be
+   *         <code>null</code>.
+   */
+  @Nullable
+  public final LocalDateTime getLastSendingReportCreationDT ()
+  {
+    return m_aLastSendingReportCreationDT;
+  }
+
+  /**
+   * @return <code>true</code> if at least one sending report was stored.
+   */
+  public final boolean isSent ()
+  {
+    return m_aLastSendingReportCreationDT != null;
+  }
+
+  /**
+   * @return <code>true</code> if a sending report was stored after the latest valid report was
+   *         created.
+   */
+  public final boolean isLastValidReportSent ()
+  {
+    return m_aLastValidReportCreationDT != null &&
+           m_aLastSendingReportCreationDT != null &&
+           !m_aLastSendingReportCreationDT.isBefore (m_aLastValidReportCreationDT);
+  }
+
+  @Nullable
+  private static LocalDateTime _getLater (@Nullable final LocalDateTime aDT1, @Nullable final LocalDateTime aDT2)
+  {
+    if (aDT1 == null)
+      return aDT2;
+    if (aDT2 == null)
+      return aDT1;
+    return aDT2.isAfter (aDT1) ? aDT2 : aDT1;
+  }
+
+  /**
+   * Get a copy of this summary that additionally considers the provided report.
+   *
+   * @param aReportCreationDT
+   *        The creation date and time of the report. May not be <code>null</code>.
+   * @param bReportValid
+   *        <code>true</code> if the report is valid.
+   * @return A new object and never <code>null</code>.
+   */
+  @NonNull
+  public PeppolReportSummary getWithReport (@NonNull final LocalDateTime aReportCreationDT, final boolean bReportValid)
+  {
+    ValueEnforcer.notNull (aReportCreationDT, "ReportCreationDT");
+    return new PeppolReportSummary (m_eReportType,
+                                    m_aReportPeriod,
+                                    _getLater (m_aLastReportCreationDT, aReportCreationDT),
+                                    bReportValid ? _getLater (m_aLastValidReportCreationDT, aReportCreationDT)
+                                                 : m_aLastValidReportCreationDT,
+                                    m_aLastSendingReportCreationDT);
+  }
+
+  /**
+   * Get a copy of this summary that additionally considers the provided sending report.
+   *
+   * @param aSendingReportCreationDT
+   *        The creation date and time of the sending report. May not be <code>null</code>.
+   * @return A new object and never <code>null</code>.
+   */
+  @NonNull
+  public PeppolReportSummary getWithSendingReport (@NonNull final LocalDateTime aSendingReportCreationDT)
+  {
+    ValueEnforcer.notNull (aSendingReportCreationDT, "SendingReportCreationDT");
+    return new PeppolReportSummary (m_eReportType,
+                                    m_aReportPeriod,
+                                    m_aLastReportCreationDT,
+                                    m_aLastValidReportCreationDT,
+                                    _getLater (m_aLastSendingReportCreationDT, aSendingReportCreationDT));
+  }
+
+  /**
+   * Create an empty summary, to be filled via {@link #getWithReport(LocalDateTime, boolean)} and
+   * {@link #getWithSendingReport(LocalDateTime)}.
+   *
+   * @param eReportType
+   *        The report type. May not be <code>null</code>.
+   * @param aReportPeriod
+   *        The report period. May not be <code>null</code>.
+   * @return A new object and never <code>null</code>.
+   */
+  @NonNull
+  public static PeppolReportSummary createEmpty (@NonNull final EPeppolReportType eReportType,
+                                                 @NonNull final YearMonth aReportPeriod)
+  {
+    return new PeppolReportSummary (eReportType, aReportPeriod, null, null, null);
+  }
+
+  @Override
+  public boolean equals (final Object o)
+  {
+    if (o == this)
+      return true;
+    if (o == null || !o.getClass ().equals (getClass ()))
+      return false;
+
+    final PeppolReportSummary rhs = (PeppolReportSummary) o;
+    return m_eReportType.equals (rhs.m_eReportType) &&
+           m_aReportPeriod.equals (rhs.m_aReportPeriod) &&
+           EqualsHelper.equals (m_aLastReportCreationDT, rhs.m_aLastReportCreationDT) &&
+           EqualsHelper.equals (m_aLastValidReportCreationDT, rhs.m_aLastValidReportCreationDT) &&
+           EqualsHelper.equals (m_aLastSendingReportCreationDT, rhs.m_aLastSendingReportCreationDT);
+  }
+
+  @Override
+  public int hashCode ()
+  {
+    return new HashCodeGenerator (this).append (m_eReportType)
+                                       .append (m_aReportPeriod)
+                                       .append (m_aLastReportCreationDT)
+                                       .append (m_aLastValidReportCreationDT)
+                                       .append (m_aLastSendingReportCreationDT)
+                                       .getHashCode ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("ReportType", m_eReportType)
+                                       .append ("ReportPeriod", m_aReportPeriod)
+                                       .append ("LastReportCreationDT", m_aLastReportCreationDT)
+                                       .append ("LastValidReportCreationDT", m_aLastValidReportCreationDT)
+                                       .append ("LastSendingReportCreationDT", m_aLastSendingReportCreationDT)
+                                       .getToString ();
+  }
+}
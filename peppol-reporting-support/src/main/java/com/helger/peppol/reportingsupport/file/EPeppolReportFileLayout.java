@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2025-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.reportingsupport.file;
+
+/**
+ * Defines how Peppol Reports are laid out on disk by {@link PeppolReportStorageFileXML}. Sending
+ * reports are always stored as a single XML file.
+ *
+ * @author Philip Helger
+ * @since 2.2.2
+ */
+public enum EPeppolReportFileLayout
+{
+  /**
+   * The report XML is embedded as escaped text in a single XML file, together with the metadata
+   */
+  XML,
+  /**
+   * The report XML is written unchanged to its own payload file, next to a small XML metadata file.
+   * This avoids building and escaping a second document and allows to read the payload file as is.
+   */
+  RAW_PAYLOAD
+}
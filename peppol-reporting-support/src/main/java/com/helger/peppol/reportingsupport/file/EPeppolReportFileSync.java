@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2025-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.reportingsupport.file;
+
+/**
+ * Defines which parts of the file system are forced to disk after writing a file with
+ * {@link PeppolReportStorageFileXML}. Each level trades write latency for crash safety.
+ *
+ * @author Philip Helger
+ * @since 2.2.2
+ */
+public enum EPeppolReportFileSync
+{
+  /**
+   * Nothing is forced to disk - the operating system decides when to write the data
+   */
+  NONE,
+  /**
+   * The content of each written file is forced to disk before the file is closed
+   */
+  FILE,
+  /**
+   * Like {@link #FILE} and additionally the containing directory is forced to disk after the file
+   * was created or moved, so that the directory entry survives a crash as well. Not all platforms
+   * support this - on such platforms only the file is forced to disk.
+   */
+  FILE_AND_DIRECTORY;
+
+  /**
+   * @return <code>true</code> if the content of written files should be forced to disk.
+   */
+  public boolean isSyncFile ()
+  {
+    return this != NONE;
+  }
+
+  /**
+   * @return <code>true</code> if the containing directory should be forced to disk.
+   */
+  public boolean isSyncDirectory ()
+  {
+    return this == FILE_AND_DIRECTORY;
+  }
+}
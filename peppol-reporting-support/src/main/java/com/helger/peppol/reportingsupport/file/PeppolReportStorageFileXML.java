@@ -16,28 +16,197 @@
  */
 package com.helger.peppol.reportingsupport.file;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 
 import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import com.helger.annotation.Nonempty;
+import com.helger.annotation.style.ReturnsMutableCopy;
 import com.helger.base.enforce.ValueEnforcer;
 import com.helger.base.state.ESuccess;
+import com.helger.base.string.StringHelper;
+import com.helger.base.string.StringImplode;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+import com.helger.datetime.web.PDTWebDateHelper;
+import com.helger.peppol.reportingsupport.EPeppolReportCompression;
+import com.helger.peppol.reportingsupport.EPeppolReportType;
 import com.helger.peppol.reportingsupport.IPeppolReportStorage;
 import com.helger.peppol.reportingsupport.domain.PeppolReportData;
+import com.helger.peppol.reportingsupport.domain.PeppolReportQuery;
 import com.helger.peppol.reportingsupport.domain.PeppolReportSendingReportData;
+import com.helger.peppol.reportingsupport.domain.PeppolReportSendingReportFields;
+import com.helger.peppol.reportingsupport.domain.PeppolReportStoredData;
+import com.helger.peppol.reportingsupport.domain.PeppolReportStreamingData;
+import com.helger.peppol.reportingsupport.domain.PeppolReportSummary;
 import com.helger.xml.microdom.IMicroDocument;
+import com.helger.xml.microdom.IMicroElement;
 import com.helger.xml.microdom.MicroDocument;
+import com.helger.xml.microdom.serialize.MicroReader;
 import com.helger.xml.microdom.serialize.MicroWriter;
 
 /**
- * Implementation of {@link IPeppolReportStorage} to write the data as XML on disk
+ * Implementation of {@link IPeppolReportStorage} to write the data as XML on disk.<br>
+ * If a compression is set, the report files are compressed as a whole and the file extension of
+ * the {@link EPeppolReportCompression} is appended to the filename.<br>
+ * The latest report and sending state per report type and period is kept in one small XML file per
+ * period in the sub directory {@link #SUMMARY_DIRECTORY_NAME} of the base directory. It is replaced
+ * atomically after each successful store.<br>
+ * Storing is idempotent: after a file was written, a marker file named after the content hash is
+ * created in the sub directory {@link #HASH_DIRECTORY_NAME} of the base directory. It contains the
+ * paths of the written files. If the marker exists and all files it refers to exist, the same
+ * content was stored before and nothing is written. Stores of the same content are serialized
+ * within this instance - concurrent stores of the same content by other processes may both be
+ * written.<br>
+ * The structured fields of sending reports are stored as separate elements in the sending report
+ * files. As there is no index, querying them still reads all sending report files.<br>
+ * Files are written directly by default. With {@link #setAtomicWrite(boolean)} they are written to
+ * a temporary file first that is atomically moved to the final name, so that readers and crashes
+ * never leave a partial file behind. {@link #setSync(EPeppolReportFileSync)} defines what is forced
+ * to disk. With {@link #setAsyncQueueCapacity(int)} the files are written by a single background
+ * thread and the callers don't wait for the disk. A successful store then only means that the file
+ * was queued.<br>
+ * With {@link #setLayout(EPeppolReportFileLayout)} the report payload can be written unchanged to a
+ * separate file next to a small metadata file, instead of being embedded as escaped text. Both
+ * layouts can be read at the same time.
  *
  * @author Philip Helger
  */
-public class PeppolReportStorageFileXML implements IPeppolReportStorage
+public class PeppolReportStorageFileXML implements IPeppolReportStorage, AutoCloseable
 {
+  private static final Logger LOGGER = LoggerFactory.getLogger (PeppolReportStorageFileXML.class);
+  private static final String FILENAME_SUFFIX_REPORT = "peppol-report.xml";
+  private static final String FILENAME_SUFFIX_REPORT_PAYLOAD = "peppol-report-payload.xml";
+  private static final String FILENAME_SUFFIX_REPORT_METADATA = "peppol-report-meta.xml";
+  private static final String FILENAME_SUFFIX_SENDING_REPORT = "sending-report.xml";
+  private static final String FILENAME_SUFFIX_SUMMARY = "summary.xml";
+  private static final String FILENAME_SUMMARY_LOCK = "summary.lock";
+  // Serializes the read-modify-write of the summary files within this JVM - a FileLock cannot be
+  // acquired twice by the same JVM, so this is shared by all instances
+  private static final Lock SUMMARY_LOCK = new ReentrantLock ();
+  private static final String FILENAME_SUFFIX_HASH_REPORT = "peppol-report.hash";
+  private static final String FILENAME_SUFFIX_HASH_SENDING_REPORT = "sending-report.hash";
+
+  /**
+   * The name of the sub directory of the base directory that contains the summaries
+   *
+   * @since 2.2.2
+   */
+  public static final String SUMMARY_DIRECTORY_NAME = "summary";
+  /**
+   * The name of the sub directory of the base directory that contains the content hash marker files
+   *
+   * @since 2.2.2
+   */
+  public static final String HASH_DIRECTORY_NAME = "hash";
+
   private final File m_aBaseDir;
   private final IPeppolReportStorageFilenameProvider m_aFilenameProvider;
+  private EPeppolReportCompression m_eCompression = EPeppolReportCompression.NONE;
+  private boolean m_bAtomicWrite = false;
+  private EPeppolReportFileSync m_eSync = EPeppolReportFileSync.NONE;
+  private EPeppolReportFileLayout m_eLayout = EPeppolReportFileLayout.XML;
+  private int m_nAsyncQueueCapacity = 0;
+  private volatile ExecutorService m_aAsyncExecutor;
+  // The directories that are known to exist, to avoid file system roundtrips on every write
+  private final Set <Path> m_aKnownDirs = ConcurrentHashMap.newKeySet ();
+  // Serializes the stores of the same content hash - striped to limit the memory consumption
+  private final Lock [] m_aHashLocks = new Lock [64];
+
+  /**
+   * Writes the content of a file to the provided stream and closes it.
+   */
+  @FunctionalInterface
+  private interface IFileContentWriter
+  {
+    void writeTo (@NonNull OutputStream aOS) throws IOException;
+  }
+
+  /**
+   * Writes the content of a file to the provided unbuffered file stream and closes it. This allows
+   * to write directly to the {@link FileChannel} of the file.
+   */
+  @FunctionalInterface
+  private interface IFileStreamWriter
+  {
+    void writeTo (@NonNull FileOutputStream aFOS) throws IOException;
+  }
+
+  /**
+   * A file output stream that optionally forces the written content to disk before closing.
+   */
+  private static final class SyncingFileOutputStream extends FileOutputStream
+  {
+    private final boolean m_bSync;
+    private boolean m_bClosed = false;
+
+    SyncingFileOutputStream (@NonNull final File aFile, final boolean bSync) throws FileNotFoundException
+    {
+      super (aFile);
+      m_bSync = bSync;
+    }
+
+    @Override
+    public void close () throws IOException
+    {
+      if (!m_bClosed)
+      {
+        m_bClosed = true;
+        try
+        {
+          if (m_bSync)
+            getChannel ().force (true);
+        }
+        finally
+        {
+          super.close ();
+        }
+      }
+    }
+  }
 
   /**
    * Constructor
@@ -54,31 +223,1126 @@ public class PeppolReportStorageFileXML implements IPeppolReportStorage
     ValueEnforcer.notNull (aFilenameProvider, "FilenameProvider");
     m_aBaseDir = aBaseDir;
     m_aFilenameProvider = aFilenameProvider;
+    for (int i = 0; i < m_aHashLocks.length; ++i)
+      m_aHashLocks[i] = new ReentrantLock ();
+  }
+
+  /**
+   * @return The compression applied to newly stored reports. Never <code>null</code>. Defaults to
+   *         {@link EPeppolReportCompression#NONE}.
+   * @since 2.2.2
+   */
+  @NonNull
+  public final EPeppolReportCompression getCompression ()
+  {
+    return m_eCompression;
+  }
+
+  /**
+   * Set the compression to be applied to newly stored reports. Existing reports are not touched.
+   *
+   * @param eCompression
+   *        The compression to use. May not be <code>null</code>.
+   * @return this for chaining
+   * @since 2.2.2
+   */
+  @NonNull
+  public final PeppolReportStorageFileXML setCompression (@NonNull final EPeppolReportCompression eCompression)
+  {
+    ValueEnforcer.notNull (eCompression, "Compression");
+    m_eCompression = eCompression;
+    return this;
+  }
+
+  /**
+   * @return The layout of newly stored reports. Never <code>null</code>. Defaults to
+   *         {@link EPeppolReportFileLayout#XML}.
+   * @since 2.2.2
+   */
+  @NonNull
+  public final EPeppolReportFileLayout getLayout ()
+  {
+    return m_eLayout;
+  }
+
+  /**
+   * Set the layout of newly stored reports. Existing reports are not touched and are still found by
+   * the queries.
+   *
+   * @param eLayout
+   *        The layout to use. May not be <code>null</code>.
+   * @return this for chaining
+   * @since 2.2.2
+   */
+  @NonNull
+  public final PeppolReportStorageFileXML setLayout (@NonNull final EPeppolReportFileLayout eLayout)
+  {
+    ValueEnforcer.notNull (eLayout, "Layout");
+    m_eLayout = eLayout;
+    return this;
+  }
+
+  /**
+   * @return <code>true</code> if report files are written to a temporary file first that is
+   *         atomically moved to the final name. Defaults to <code>false</code>.
+   * @since 2.2.2
+   */
+  public final boolean isAtomicWrite ()
+  {
+    return m_bAtomicWrite;
+  }
+
+  /**
+   * Define whether report files are written to a temporary file first that is atomically moved to
+   * the final name. This ensures that a report file is either complete or not present at all. The
+   * summary files are always written atomically.
+   *
+   * @param bAtomicWrite
+   *        <code>true</code> to write atomically, <code>false</code> to write directly to the final
+   *        file.
+   * @return this for chaining
+   * @since 2.2.2
+   */
+  @NonNull
+  public final PeppolReportStorageFileXML setAtomicWrite (final boolean bAtomicWrite)
+  {
+    m_bAtomicWrite = bAtomicWrite;
+    return this;
+  }
+
+  /**
+   * @return What is forced to disk after writing a file. Never <code>null</code>. Defaults to
+   *         {@link EPeppolReportFileSync#NONE}.
+   * @since 2.2.2
+   */
+  @NonNull
+  public final EPeppolReportFileSync getSync ()
+  {
+    return m_eSync;
+  }
+
+  /**
+   * Define what is forced to disk after writing a file.
+   *
+   * @param eSync
+   *        The sync policy to use. May not be <code>null</code>.
+   * @return this for chaining
+   * @since 2.2.2
+   */
+  @NonNull
+  public final PeppolReportStorageFileXML setSync (@NonNull final EPeppolReportFileSync eSync)
+  {
+    ValueEnforcer.notNull (eSync, "Sync");
+    m_eSync = eSync;
+    return this;
+  }
+
+  /**
+   * @return The capacity of the queue of the background writer thread. 0 means that files are
+   *         written synchronously, which is the default.
+   * @since 2.2.2
+   */
+  public final int getAsyncQueueCapacity ()
+  {
+    return m_nAsyncQueueCapacity;
+  }
+
+  /**
+   * Define whether files are written by a single background thread. If enabled, the store methods
+   * only queue the file and return {@link ESuccess#SUCCESS} without waiting for the disk, so success
+   * means "queued" and not "written". A failed background write is logged. As the content hash
+   * marker is only created for written files, storing the same content again writes it. Queued files
+   * are lost if the JVM ends abruptly - use synchronous writes together with
+   * {@link #setAtomicWrite(boolean)} and {@link #setSync(EPeppolReportFileSync)} if every successful
+   * store must be persisted. If the queue is full, the file is written in the calling thread, which
+   * slows down the callers until the queue drains. Streaming reports are always written in the
+   * calling thread, because their payload is owned by the caller. The background thread is no daemon
+   * thread, but it ends when it is idle for one second. Changing the capacity waits until all
+   * previously queued files are written.
+   *
+   * @param nAsyncQueueCapacity
+   *        The maximum number of queued files. Must be &ge; 0. Use 0 to write synchronously.
+   * @return this for chaining
+   * @since 2.2.2
+   */
+  @NonNull
+  public final PeppolReportStorageFileXML setAsyncQueueCapacity (final int nAsyncQueueCapacity)
+  {
+    ValueEnforcer.isGE0 (nAsyncQueueCapacity, "AsyncQueueCapacity");
+
+    final ExecutorService aOldExecutor = m_aAsyncExecutor;
+    m_nAsyncQueueCapacity = nAsyncQueueCapacity;
+    if (nAsyncQueueCapacity == 0)
+      m_aAsyncExecutor = null;
+    else
+    {
+      final ThreadPoolExecutor aExecutor = new ThreadPoolExecutor (1,
+                                                                   1,
+                                                                   1L,
+                                                                   TimeUnit.SECONDS,
+                                                                   new ArrayBlockingQueue <> (nAsyncQueueCapacity),
+                                                                   r -> new Thread (r, "peppol-report-file-writer"));
+      // No daemon thread, so that a started write is never cut off - but an idle thread ends
+      aExecutor.allowCoreThreadTimeOut (true);
+      m_aAsyncExecutor = aExecutor;
+    }
+    _shutdownAndWait (aOldExecutor);
+    return this;
+  }
+
+  private static void _shutdownAndWait (@Nullable final ExecutorService aExecutor)
+  {
+    if (aExecutor != null)
+    {
+      aExecutor.shutdown ();
+      try
+      {
+        if (!aExecutor.awaitTermination (1, TimeUnit.MINUTES))
+          LOGGER.warn ("Not all queued Peppol Report files were written within one minute");
+      }
+      catch (final InterruptedException ex)
+      {
+        LOGGER.warn ("Interrupted while waiting for the queued Peppol Report files to be written");
+        Thread.currentThread ().interrupt ();
+      }
+    }
+  }
+
+  /**
+   * Wait until all queued files are written and stop the background writer thread, if one is
+   * active. Afterwards all files are written synchronously.
+   *
+   * @since 2.2.2
+   */
+  public void close ()
+  {
+    final ExecutorService aExecutor = m_aAsyncExecutor;
+    m_aAsyncExecutor = null;
+    m_nAsyncQueueCapacity = 0;
+    _shutdownAndWait (aExecutor);
+  }
+
+  private void _ensureDirectory (@NonNull final Path aDir) throws IOException
+  {
+    if (!m_aKnownDirs.contains (aDir))
+    {
+      Files.createDirectories (aDir);
+      m_aKnownDirs.add (aDir);
+    }
+  }
+
+  private static void _syncDirectory (@NonNull final Path aDir)
+  {
+    try (final FileChannel aChannel = FileChannel.open (aDir, StandardOpenOption.READ))
+    {
+      aChannel.force (true);
+    }
+    catch (final IOException ex)
+    {
+      // Not supported on all platforms, e.g. on Windows
+      LOGGER.debug ("Failed to sync directory '" + aDir + "'", ex);
+    }
+  }
+
+  /**
+   * Write a single file through a buffered stream according to the configured sync policy.
+   *
+   * @param aTarget
+   *        The file to write. May not be <code>null</code>.
+   * @param bAtomic
+   *        <code>true</code> to write to a temporary file first that is atomically moved to the
+   *        target file.
+   * @param aContentWriter
+   *        The writer of the file content. May not be <code>null</code>.
+   * @return {@link ESuccess} and never <code>null</code>.
+   */
+  @NonNull
+  private ESuccess _writeFile (@NonNull final Path aTarget,
+                               final boolean bAtomic,
+                               @NonNull final IFileContentWriter aContentWriter)
+  {
+    return _writeFileUnbuffered (aTarget, bAtomic, aFOS -> aContentWriter.writeTo (new BufferedOutputStream (aFOS)));
+  }
+
+  /**
+   * Write a single file according to the configured sync policy.
+   *
+   * @param aTarget
+   *        The file to write. May not be <code>null</code>.
+   * @param bAtomic
+   *        <code>true</code> to write to a temporary file first that is atomically moved to the
+   *        target file.
+   * @param aFileWriter
+   *        The writer of the file content, that receives the unbuffered file stream. May not be
+   *        <code>null</code>.
+   * @return {@link ESuccess} and never <code>null</code>.
+   */
+  @NonNull
+  private ESuccess _writeFileUnbuffered (@NonNull final Path aTarget,
+                                         final boolean bAtomic,
+                                         @NonNull final IFileStreamWriter aFileWriter)
+  {
+    final EPeppolReportFileSync eSync = m_eSync;
+    final Path aDir = aTarget.getParent ();
+    Path aTempFile = null;
+    try
+    {
+      _ensureDirectory (aDir);
+      if (bAtomic)
+        aTempFile = Files.createTempFile (aDir, "." + aTarget.getFileName ().toString (), ".tmp");
+
+      try (final FileOutputStream aFOS = new SyncingFileOutputStream (bAtomic ? aTempFile.toFile () : aTarget.toFile (),
+                                                                      eSync.isSyncFile ()))
+      {
+        aFileWriter.writeTo (aFOS);
+      }
+
+      if (bAtomic)
+        try
+        {
+          Files.move (aTempFile, aTarget, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (final AtomicMoveNotSupportedException ex)
+        {
+          Files.move (aTempFile, aTarget, StandardCopyOption.REPLACE_EXISTING);
+        }
+      if (eSync.isSyncDirectory ())
+        _syncDirectory (aDir);
+      return ESuccess.SUCCESS;
+    }
+    catch (final IOException ex)
+    {
+      // The directory may have been deleted in the meantime
+      m_aKnownDirs.remove (aDir);
+      LOGGER.error ("Failed to write '" + aTarget + "'", ex);
+      return ESuccess.FAILURE;
+    }
+    finally
+    {
+      if (aTempFile != null)
+        try
+        {
+          Files.deleteIfExists (aTempFile);
+        }
+        catch (final IOException ex)
+        {
+          LOGGER.warn ("Failed to delete temporary file '" + aTempFile + "'", ex);
+        }
+    }
+  }
+
+  @NonNull
+  private static IFileContentWriter _getMicroWriter (@NonNull final IMicroDocument aDoc,
+                                                     @NonNull final EPeppolReportCompression eCompression)
+  {
+    return aOS -> {
+      // The stream is closed by MicroWriter
+      if (MicroWriter.writeToStream (aDoc, eCompression.getCompressingStream (aOS)).isFailure ())
+        throw new IOException ("Failed to serialize the XML document");
+    };
+  }
+
+  @NonNull
+  private Path _getTargetFile (@NonNull final YearMonth aReportPeriod,
+                               @NonNull final EPeppolReportType eReportType,
+                               @NonNull final LocalDateTime aReportCreationDT,
+                               @NonNull @Nonempty final String sFilenameSuffix)
+  {
+    return new File (m_aBaseDir,
+                     m_aFilenameProvider.getFilename (aReportPeriod,
+                                                      eReportType,
+                                                      aReportCreationDT,
+                                                      sFilenameSuffix)).getAbsoluteFile ().toPath ();
+  }
+
+  @NonNull
+  private Path _getSummaryFile (@NonNull final EPeppolReportType eReportType, @NonNull final YearMonth aReportPeriod)
+  {
+    return m_aBaseDir.toPath ()
+                     .resolve (SUMMARY_DIRECTORY_NAME)
+                     .resolve (aReportPeriod.toString () + '-' + eReportType.getID () + '-' + FILENAME_SUFFIX_SUMMARY);
+  }
+
+  @Nullable
+  private static String _getOptionalText (@NonNull final IMicroElement eRoot, @NonNull final String sElementName)
+  {
+    final IMicroElement e = eRoot.getFirstChildElement (sElementName);
+    return e == null ? null : e.getTextContent ().trim ();
+  }
+
+  @Nullable
+  private static LocalDateTime _getOptionalDT (@NonNull final IMicroElement eRoot, @NonNull final String sElementName)
+  {
+    final String sText = _getOptionalText (eRoot, sElementName);
+    return sText == null ? null : PDTWebDateHelper.getLocalDateTimeFromXSD (sText);
+  }
+
+  private static void _appendOptionalDT (@NonNull final IMicroElement eRoot,
+                                         @NonNull final String sElementName,
+                                         @Nullable final LocalDateTime aDT)
+  {
+    if (aDT != null)
+      eRoot.addElement (sElementName).addText (PDTWebDateHelper.getAsStringXSD (aDT));
+  }
+
+  @Nullable
+  private PeppolReportSummary _readSummary (@NonNull final EPeppolReportType eReportType,
+                                            @NonNull final YearMonth aReportPeriod)
+  {
+    final Path aFile = _getSummaryFile (eReportType, aReportPeriod);
+    if (!Files.isRegularFile (aFile))
+      return null;
+
+    final IMicroElement eRoot = _readRootElement (aFile, EPeppolReportCompression.NONE);
+    if (eRoot == null)
+      return null;
+    return new PeppolReportSummary (eReportType,
+                                    aReportPeriod,
+                                    _getOptionalDT (eRoot, "LastReportCreationDT"),
+                                    _getOptionalDT (eRoot, "LastValidReportCreationDT"),
+                                    _getOptionalDT (eRoot, "LastSendingReportCreationDT"));
+  }
+
+  /**
+   * Update the summary file of a single period. Errors are logged but not propagated, as the report
+   * files themselves are already stored. The update is guarded by a file lock in the summary
+   * directory, so that multiple processes can share the same base directory.
+   *
+   * @param eReportType
+   *        The report type. May not be <code>null</code>.
+   * @param aReportPeriod
+   *        The report period. May not be <code>null</code>.
+   * @param aModifier
+   *        The modification to apply on the existing summary. May not be <code>null</code>.
+   */
+  private void _updateSummary (@NonNull final EPeppolReportType eReportType,
+                               @NonNull final YearMonth aReportPeriod,
+                               @NonNull final UnaryOperator <PeppolReportSummary> aModifier)
+  {
+    final Path aFile = _getSummaryFile (eReportType, aReportPeriod);
+    SUMMARY_LOCK.lock ();
+    try
+    {
+      _ensureDirectory (aFile.getParent ());
+      try (final FileChannel aChannel = FileChannel.open (aFile.resolveSibling (FILENAME_SUMMARY_LOCK),
+                                                          StandardOpenOption.CREATE,
+                                                          StandardOpenOption.WRITE);
+           final FileLock aFileLock = aChannel.lock ())
+      {
+        _updateSummaryLocked (aFile, eReportType, aReportPeriod, aModifier);
+      }
+    }
+    catch (final IOException ex)
+    {
+      LOGGER.warn ("Failed to lock the Peppol Report summary '" + aFile + "'", ex);
+    }
+    finally
+    {
+      SUMMARY_LOCK.unlock ();
+    }
+  }
+
+  private void _updateSummaryLocked (@NonNull final Path aFile,
+                                     @NonNull final EPeppolReportType eReportType,
+                                     @NonNull final YearMonth aReportPeriod,
+                                     @NonNull final UnaryOperator <PeppolReportSummary> aModifier)
+  {
+    try
+    {
+      final PeppolReportSummary aOld = _readSummary (eReportType, aReportPeriod);
+      final PeppolReportSummary aNew = aModifier.apply (aOld != null ? aOld : PeppolReportSummary.createEmpty (eReportType,
+                                                                                                               aReportPeriod));
+      if (aNew.equals (aOld))
+        return;
+
+      final IMicroDocument aDoc = new MicroDocument ();
+      final IMicroElement eRoot = aDoc.addElement ("PeppolReportSummary");
+      eRoot.addElement ("ReportType").addText (eReportType.getID ());
+      eRoot.addElement ("ReportYear").addText (aReportPeriod.getYear ());
+      eRoot.addElement ("ReportMonth").addText (aReportPeriod.getMonthValue ());
+      _appendOptionalDT (eRoot, "LastReportCreationDT", aNew.getLastReportCreationDT ());
+      _appendOptionalDT (eRoot, "LastValidReportCreationDT", aNew.getLastValidReportCreationDT ());
+      _appendOptionalDT (eRoot, "LastSendingReportCreationDT", aNew.getLastSendingReportCreationDT ());
+
+      // Always write atomically, so that readers never see a partial summary
+      if (_writeFile (aFile, true, _getMicroWriter (aDoc, EPeppolReportCompression.NONE)).isFailure ())
+        LOGGER.warn ("Failed to update the Peppol Report summary '" + aFile + "'");
+    }
+    catch (final UncheckedIOException ex)
+    {
+      LOGGER.warn ("Failed to update the Peppol Report summary '" + aFile + "'", ex);
+    }
+  }
+
+  @NonNull
+  private Path _getHashFile (@NonNull final EPeppolReportType eReportType,
+                             @NonNull final YearMonth aReportPeriod,
+                             @NonNull @Nonempty final String sContentHash,
+                             @NonNull @Nonempty final String sFilenameSuffix)
+  {
+    return m_aBaseDir.toPath ()
+                     .resolve (HASH_DIRECTORY_NAME)
+                     .resolve (aReportPeriod.toString () + '-' + eReportType.getID ())
+                     .resolve (sContentHash + '-' + sFilenameSuffix);
+  }
+
+  /**
+   * Check if the provided content hash marker file refers to stored content. A marker file whose
+   * files no longer exist (e.g. because of a crash or because they were deleted) is removed.
+   *
+   * @param aHashFile
+   *        The content hash marker file. May not be <code>null</code>.
+   * @return <code>true</code> if the content is stored, <code>false</code> if not.
+   */
+  private boolean _isStored (@NonNull final Path aHashFile)
+  {
+    if (!Files.isRegularFile (aHashFile))
+      return false;
+
+    try
+    {
+      final ICommonsList <String> aLines = new CommonsArrayList <> (Files.readAllLines (aHashFile,
+                                                                                        StandardCharsets.UTF_8));
+      aLines.removeIf (StringHelper::isEmpty);
+      final Path aBasePath = m_aBaseDir.getAbsoluteFile ().toPath ();
+      if (aLines.isNotEmpty () && aLines.stream ().allMatch (x -> Files.isRegularFile (aBasePath.resolve (x))))
+        return true;
+
+      LOGGER.warn ("The content hash marker file '" + aHashFile + "' refers to missing files - storing again");
+      Files.deleteIfExists (aHashFile);
+    }
+    catch (final IOException ex)
+    {
+      LOGGER.warn ("Failed to read content hash marker file '" + aHashFile + "' - storing again", ex);
+    }
+    return false;
+  }
+
+  /**
+   * Write a file, unless the same content was already stored. The marker file is only created
+   * after the files were written successfully, so that a failed or interrupted write never leaves a
+   * marker behind. If a background writer is active and asynchronous writing is allowed, the writing
+   * is queued and this method returns without waiting for it.
+   *
+   * @param aHashFile
+   *        The content hash marker file. May not be <code>null</code>.
+   * @param aWriter
+   *        The writer of the actual files. Returns the written files or <code>null</code> on error.
+   *        May not be <code>null</code>.
+   * @param aSummaryUpdater
+   *        The summary update to perform after a successful write. May not be <code>null</code>.
+   * @param bAllowAsync
+   *        <code>true</code> if the writing may be queued for the background writer.
+   * @return {@link ESuccess} and never <code>null</code>. Already stored and queued content counts
+   *         as success.
+   */
+  @NonNull
+  private ESuccess _storeOnce (@NonNull final Path aHashFile,
+                               @NonNull final Supplier <ICommonsList <Path>> aWriter,
+                               @NonNull final Runnable aSummaryUpdater,
+                               final boolean bAllowAsync)
+  {
+    final Supplier <ESuccess> aTask = () -> {
+      final Lock aLock = m_aHashLocks[(aHashFile.hashCode () & Integer.MAX_VALUE) % m_aHashLocks.length];
+      aLock.lock ();
+      try
+      {
+        if (_isStored (aHashFile))
+        {
+          LOGGER.debug ("Identical content is already stored according to '" + aHashFile + "' - not storing it again");
+          return ESuccess.SUCCESS;
+        }
+
+        final ICommonsList <Path> aWrittenFiles = aWriter.get ();
+        if (aWrittenFiles == null)
+          return ESuccess.FAILURE;
+
+        // The paths are relative to the base directory, so that it can be moved
+        final Path aBasePath = m_aBaseDir.getAbsoluteFile ().toPath ();
+        final String sMarker = StringImplode.imploder ()
+                                            .source (aWrittenFiles, x -> aBasePath.relativize (x).toString ())
+                                            .separator ("\n")
+                                            .build ();
+        if (_writeFile (aHashFile, true, aOS -> aOS.write (sMarker.getBytes (StandardCharsets.UTF_8))).isFailure ())
+        {
+          // The content is stored - only the duplicate detection does not know about it
+          LOGGER.warn ("Failed to create content hash marker file '" + aHashFile + "'");
+        }
+      }
+      finally
+      {
+        aLock.unlock ();
+      }
+      aSummaryUpdater.run ();
+      return ESuccess.SUCCESS;
+    };
+
+    final ExecutorService aExecutor = m_aAsyncExecutor;
+    if (aExecutor != null && bAllowAsync)
+    {
+      try
+      {
+        aExecutor.execute ( () -> {
+          try
+          {
+            if (aTask.get ().isFailure ())
+              LOGGER.error ("Failed to write the queued content of '" + aHashFile + "'");
+          }
+          catch (final RuntimeException ex)
+          {
+            LOGGER.error ("Failed to write the queued content of '" + aHashFile + "'", ex);
+          }
+        });
+        // The caller does not wait for the disk
+        return ESuccess.SUCCESS;
+      }
+      catch (final RejectedExecutionException ex)
+      {
+        // The queue is full or the writer was stopped - write in the calling thread
+        LOGGER.debug ("Writing the content of '" + aHashFile + "' synchronously");
+      }
+    }
+    return aTask.get ();
   }
 
   @NonNull
   public ESuccess storePeppolReport (@NonNull final PeppolReportData aReportData)
   {
+    return _storeOnce (_getHashFile (aReportData.getReportType (),
+                                     aReportData.getReportPeriod (),
+                                     aReportData.getContentHash (),
+                                     FILENAME_SUFFIX_HASH_REPORT),
+                       () -> _writePeppolReport (aReportData),
+                       () -> _updateSummary (aReportData.getReportType (),
+                                             aReportData.getReportPeriod (),
+                                             x -> x.getWithReport (aReportData.getReportCreationDT (),
+                                                                   aReportData.isReportValid ())),
+                       true);
+  }
+
+  /**
+   * Write a report in the {@link EPeppolReportFileLayout#RAW_PAYLOAD} layout. The payload file is
+   * written first, as only the metadata file makes the report visible to queries.
+   *
+   * @param eReportType
+   *        The report type. May not be <code>null</code>.
+   * @param aReportPeriod
+   *        The report period. May not be <code>null</code>.
+   * @param aReportCreationDT
+   *        The report creation date and time. May not be <code>null</code>.
+   * @param bReportValid
+   *        <code>true</code> if the report is valid.
+   * @param eCompression
+   *        The compression applied by the payload writer. May not be <code>null</code>.
+   * @param aPayloadWriter
+   *        The writer of the payload file, that applies the compression. May not be
+   *        <code>null</code>.
+   * @return The written payload and metadata files or <code>null</code> on error.
+   */
+  @Nullable
+  private ICommonsList <Path> _writePeppolReportRaw (@NonNull final EPeppolReportType eReportType,
+                                                     @NonNull final YearMonth aReportPeriod,
+                                                     @NonNull final LocalDateTime aReportCreationDT,
+                                                     final boolean bReportValid,
+                                                     @NonNull final EPeppolReportCompression eCompression,
+                                                     @NonNull final IFileStreamWriter aPayloadWriter)
+  {
+    final Path aPayloadFile = _getTargetFile (aReportPeriod,
+                                              eReportType,
+                                              aReportCreationDT,
+                                              FILENAME_SUFFIX_REPORT_PAYLOAD + eCompression.getFileExtension ());
+    if (_writeFileUnbuffered (aPayloadFile, m_bAtomicWrite, aPayloadWriter).isFailure ())
+      return null;
+
+    final IMicroDocument aDoc = new MicroDocument ();
+    final IMicroElement eRoot = aDoc.addElement ("PeppolReportMetadata");
+    eRoot.addElement ("ReportType").addText (eReportType.getID ());
+    eRoot.addElement ("ReportYear").addText (aReportPeriod.getYear ());
+    eRoot.addElement ("ReportMonth").addText (aReportPeriod.getMonthValue ());
+    eRoot.addElement ("ReportCreationDT").addText (PDTWebDateHelper.getAsStringXSD (aReportCreationDT));
+    eRoot.addElement ("ReportValid").addText (Boolean.toString (bReportValid));
+    eRoot.addElement ("PayloadFilename").addText (aPayloadFile.getFileName ().toString ());
+    eRoot.addElement ("PayloadCompression").addText (eCompression.getID ());
+    final Path aMetadataFile = _getTargetFile (aReportPeriod,
+                                               eReportType,
+                                               aReportCreationDT,
+                                               FILENAME_SUFFIX_REPORT_METADATA);
+    if (_writeFile (aMetadataFile, m_bAtomicWrite, _getMicroWriter (aDoc, EPeppolReportCompression.NONE)).isFailure ())
+    {
+      try
+      {
+        Files.deleteIfExists (aPayloadFile);
+      }
+      catch (final IOException ex)
+      {
+        LOGGER.warn ("Failed to delete orphaned payload file '" + aPayloadFile + "'", ex);
+      }
+      return null;
+    }
+    return new CommonsArrayList <> (aPayloadFile, aMetadataFile);
+  }
+
+  @Nullable
+  private ICommonsList <Path> _writeSingleFile (@NonNull final Path aTarget,
+                                                @NonNull final IFileContentWriter aContentWriter)
+  {
+    return _writeFile (aTarget, m_bAtomicWrite, aContentWriter).isSuccess () ? new CommonsArrayList <> (aTarget)
+                                                                             : null;
+  }
+
+  @Nullable
+  private ICommonsList <Path> _writePeppolReport (@NonNull final PeppolReportData aReportData)
+  {
+    final EPeppolReportCompression eCompression = m_eCompression;
+    if (m_eLayout == EPeppolReportFileLayout.RAW_PAYLOAD)
+    {
+      // The existing bytes are written without building a document
+      final byte [] aReportXMLBytes = aReportData.getReportXMLBytes ();
+      return _writePeppolReportRaw (aReportData.getReportType (),
+                                    aReportData.getReportPeriod (),
+                                    aReportData.getReportCreationDT (),
+                                    aReportData.isReportValid (),
+                                    eCompression,
+                                    aFOS -> {
+                                      if (eCompression.isCompressed ())
+                                      {
+                                        try (final OutputStream aOS = eCompression.getCompressingStream (new BufferedOutputStream (aFOS)))
+                                        {
+                                          aOS.write (aReportXMLBytes);
+                                        }
+                                      }
+                                      else
+                                      {
+                                        // Write the bytes directly to the channel, without copying
+                                        // them into a stream buffer
+                                        try (final FileOutputStream aClosingFOS = aFOS)
+                                        {
+                                          final FileChannel aChannel = aClosingFOS.getChannel ();
+                                          final ByteBuffer aBuffer = ByteBuffer.wrap (aReportXMLBytes);
+                                          while (aBuffer.hasRemaining ())
+                                            aChannel.write (aBuffer);
+                                        }
+                                      }
+                                    });
+    }
+
     final IMicroDocument aDoc = new MicroDocument ();
     aDoc.addChild (aReportData.getAsMicroElement (null, "PeppolReportData"));
-    final File aTarget = new File (m_aBaseDir,
-                                   m_aFilenameProvider.getFilename (aReportData.getReportPeriod (),
-                                                                    aReportData.getReportType (),
-                                                                    aReportData.getReportCreationDT (),
-                                                                    "peppol-report.xml"));
-    return MicroWriter.writeToFile (aDoc, aTarget);
+    final Path aTarget = _getTargetFile (aReportData.getReportPeriod (),
+                                         aReportData.getReportType (),
+                                         aReportData.getReportCreationDT (),
+                                         FILENAME_SUFFIX_REPORT + eCompression.getFileExtension ());
+    return _writeSingleFile (aTarget, _getMicroWriter (aDoc, eCompression));
+  }
+
+  private static void _writeElement (@NonNull final XMLStreamWriter aXSW,
+                                    @NonNull @Nonempty final String sElementName,
+                                    @NonNull final String sText) throws XMLStreamException
+  {
+    aXSW.writeStartElement (sElementName);
+    aXSW.writeCharacters (sText);
+    aXSW.writeEndElement ();
+  }
+
+  /**
+   * {@inheritDoc}<br>
+   * The report XML is streamed into the target file and escaped on the fly. The resulting file has
+   * the same structure as the one created by {@link #storePeppolReport(PeppolReportData)}.
+   */
+  @NonNull
+  public ESuccess storePeppolReportStreaming (@NonNull final PeppolReportStreamingData aReportData)
+  {
+    ValueEnforcer.notNull (aReportData, "ReportData");
+
+    final String sContentHash;
+    try
+    {
+      sContentHash = aReportData.getContentHash ();
+    }
+    catch (final UncheckedIOException ex)
+    {
+      LOGGER.error ("Failed to read Peppol Report payload - not storing Peppol Report", ex);
+      return ESuccess.FAILURE;
+    }
+    return _storeOnce (_getHashFile (aReportData.getReportType (),
+                                     aReportData.getReportPeriod (),
+                                     sContentHash,
+                                     FILENAME_SUFFIX_HASH_REPORT),
+                       () -> _writePeppolReportStreaming (aReportData),
+                       () -> _updateSummary (aReportData.getReportType (),
+                                             aReportData.getReportPeriod (),
+                                             x -> x.getWithReport (aReportData.getReportCreationDT (),
+                                                                   aReportData.isReportValid ())),
+                       false);
+  }
+
+  @Nullable
+  private ICommonsList <Path> _writePeppolReportStreaming (@NonNull final PeppolReportStreamingData aReportData)
+  {
+    final EPeppolReportCompression eCompression = m_eCompression;
+    if (m_eLayout == EPeppolReportFileLayout.RAW_PAYLOAD)
+    {
+      // Copy the payload as is, without escaping
+      return _writePeppolReportRaw (aReportData.getReportType (),
+                                    aReportData.getReportPeriod (),
+                                    aReportData.getReportCreationDT (),
+                                    aReportData.isReportValid (),
+                                    eCompression,
+                                    aFOS -> {
+                                      try (final OutputStream aOS = eCompression.getCompressingStream (new BufferedOutputStream (aFOS));
+                                           final InputStream aIS = aReportData.getReportXMLProvider ().openStream ())
+                                      {
+                                        aIS.transferTo (aOS);
+                                      }
+                                    });
+    }
+
+    final Path aTarget = _getTargetFile (aReportData.getReportPeriod (),
+                                         aReportData.getReportType (),
+                                         aReportData.getReportCreationDT (),
+                                         FILENAME_SUFFIX_REPORT + eCompression.getFileExtension ());
+    return _writeSingleFile (aTarget, aFileOS -> {
+      try (final OutputStream aOS = eCompression.getCompressingStream (aFileOS);
+           final Reader aReader = new InputStreamReader (aReportData.getReportXMLProvider ().openStream (),
+                                                         StandardCharsets.UTF_8))
+      {
+        final XMLStreamWriter aXSW = XMLOutputFactory.newFactory ()
+                                                     .createXMLStreamWriter (aOS, StandardCharsets.UTF_8.name ());
+        try
+        {
+          // Same structure as PeppolReportData.getAsMicroElement
+          aXSW.writeStartDocument (StandardCharsets.UTF_8.name (), "1.0");
+          aXSW.writeStartElement ("PeppolReportData");
+          _writeElement (aXSW, "ReportType", aReportData.getReportType ().getID ());
+          _writeElement (aXSW, "ReportYear", Integer.toString (aReportData.getReportPeriod ().getYear ()));
+          _writeElement (aXSW, "ReportMonth", Integer.toString (aReportData.getReportPeriod ().getMonthValue ()));
+          _writeElement (aXSW, "ReportCreationDT", PDTWebDateHelper.getAsStringXSD (aReportData.getReportCreationDT ()));
+          aXSW.writeStartElement ("ReportXML");
+          aXSW.writeAttribute ("valid", Boolean.toString (aReportData.isReportValid ()));
+          final char [] aBuffer = new char [8192];
+          int nRead;
+          while ((nRead = aReader.read (aBuffer)) >= 0)
+            aXSW.writeCharacters (aBuffer, 0, nRead);
+          aXSW.writeEndElement ();
+          aXSW.writeEndElement ();
+          aXSW.writeEndDocument ();
+          aXSW.flush ();
+        }
+        finally
+        {
+          aXSW.close ();
+        }
+      }
+      catch (final XMLStreamException ex)
+      {
+        throw new IOException ("Failed to serialize the Peppol Report", ex);
+      }
+    });
   }
 
   @NonNull
   public ESuccess storePeppolReportingSendingReport (@NonNull final PeppolReportSendingReportData aSendingReportData)
+  {
+    return _storeOnce (_getHashFile (aSendingReportData.getReportType (),
+                                     aSendingReportData.getReportPeriod (),
+                                     aSendingReportData.getContentHash (),
+                                     FILENAME_SUFFIX_HASH_SENDING_REPORT),
+                       () -> _writePeppolReportingSendingReport (aSendingReportData),
+                       () -> _updateSummary (aSendingReportData.getReportType (),
+                                             aSendingReportData.getReportPeriod (),
+                                             x -> x.getWithSendingReport (aSendingReportData.getReportCreationDT ())),
+                       true);
+  }
+
+  @Nullable
+  private ICommonsList <Path> _writePeppolReportingSendingReport (@NonNull final PeppolReportSendingReportData aSendingReportData)
   {
     final IMicroDocument aDoc = new MicroDocument ();
     aDoc.addChild (aSendingReportData.getAsMicroElement (null, "SendingReportData"));
-    final File aTarget = new File (m_aBaseDir,
-                                   m_aFilenameProvider.getFilename (aSendingReportData.getReportPeriod (),
-                                                                    aSendingReportData.getReportType (),
-                                                                    aSendingReportData.getReportCreationDT (),
-                                                                    "sending-report.xml"));
-    return MicroWriter.writeToFile (aDoc, aTarget);
+    final Path aTarget = _getTargetFile (aSendingReportData.getReportPeriod (),
+                                         aSendingReportData.getReportType (),
+                                         aSendingReportData.getReportCreationDT (),
+                                         FILENAME_SUFFIX_SENDING_REPORT);
+    return _writeSingleFile (aTarget, _getMicroWriter (aDoc, EPeppolReportCompression.NONE));
+  }
+
+  @NonNull
+  @ReturnsMutableCopy
+  private static <T> ICommonsList <ESuccess> _storeParallel (@NonNull final Collection <? extends T> aItems,
+                                                             @NonNull final Function <? super T, ESuccess> aStorer)
+  {
+    // Copy into a list to keep the order of the results in sync with the order of the items
+    return new CommonsArrayList <T> (aItems).parallelStream ().map (x -> {
+      try
+      {
+        return aStorer.apply (x);
+      }
+      catch (final RuntimeException ex)
+      {
+        LOGGER.error ("Failed to store " + x, ex);
+        return ESuccess.FAILURE;
+      }
+    }).collect (Collectors.toCollection (CommonsArrayList::new));
+  }
+
+  /**
+   * {@inheritDoc}<br>
+   * As every report is written to a separate file, the files are written in parallel.
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  public ICommonsList <ESuccess> storePeppolReports (@NonNull final Collection <? extends PeppolReportData> aReportDatas)
+  {
+    ValueEnforcer.noNullValue (aReportDatas, "ReportDatas");
+    return _storeParallel (aReportDatas, this::storePeppolReport);
+  }
+
+  /**
+   * {@inheritDoc}<br>
+   * As every sending report is written to a separate file, the files are written in parallel.
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  public ICommonsList <ESuccess> storePeppolReportingSendingReports (@NonNull final Collection <? extends PeppolReportSendingReportData> aSendingReportDatas)
+  {
+    ValueEnforcer.noNullValue (aSendingReportDatas, "SendingReportDatas");
+    return _storeParallel (aSendingReportDatas, this::storePeppolReportingSendingReport);
+  }
+
+  @Nullable
+  private static EPeppolReportCompression _getCompressionOfFile (@NonNull final Path aFile,
+                                                               @NonNull @Nonempty final String sFilenameSuffix)
+  {
+    final String sFilename = aFile.getFileName ().toString ();
+    for (final EPeppolReportCompression e : EPeppolReportCompression.values ())
+      if (sFilename.endsWith (sFilenameSuffix + e.getFileExtension ()))
+        return e;
+    return null;
+  }
+
+  /**
+   * Get a mapper for files in the XML layout.
+   *
+   * @param sFilenameSuffix
+   *        The filename suffix of the relevant files, without the compression extension. May
+   *        neither be <code>null</code> nor empty.
+   * @param aMapper
+   *        The mapper of the XML root element. May not be <code>null</code>.
+   * @return The file mapper that returns <code>null</code> for all other files.
+   */
+  @NonNull
+  private static <T> Function <Path, T> _getXMLFileMapper (@NonNull @Nonempty final String sFilenameSuffix,
+                                                          @NonNull final Function <IMicroElement, T> aMapper)
+  {
+    return x -> {
+      final EPeppolReportCompression eCompression = _getCompressionOfFile (x, sFilenameSuffix);
+      if (eCompression == null)
+        return null;
+      final IMicroElement eRoot = _readRootElement (x, eCompression);
+      return eRoot == null ? null : aMapper.apply (eRoot);
+    };
+  }
+
+  @NonNull
+  private <T> Stream <T> _query (@NonNull final PeppolReportQuery aQuery,
+                                 @NonNull final Function <Path, T> aFileMapper,
+                                 @NonNull final Predicate <T> aFilter)
+  {
+    final Path aBaseDir = m_aBaseDir.toPath ();
+    if (!Files.isDirectory (aBaseDir))
+      return Stream.empty ();
+
+    final Stream <Path> aFiles;
+    try
+    {
+      aFiles = Files.walk (aBaseDir);
+    }
+    catch (final IOException ex)
+    {
+      throw new UncheckedIOException ("Failed to list files in '" + aBaseDir + "'", ex);
+    }
+
+    // The default filenames start with the period and the creation date time, so sorting the paths
+    // results in a stable order
+    // The file mapper returns null for irrelevant files
+    Stream <T> ret = aFiles.filter (Files::isRegularFile)
+                           .sorted ()
+                           .map (aFileMapper)
+                           .filter (x -> x != null && aFilter.test (x))
+                           .skip (aQuery.getOffset ());
+    if (aQuery.hasMaxResults ())
+      ret = ret.limit (aQuery.getMaxResults ());
+    return ret;
+  }
+
+  @Nullable
+  private static IMicroElement _readRootElement (@NonNull final Path aFile,
+                                                 @NonNull final EPeppolReportCompression eCompression)
+  {
+    try (final InputStream aIS = eCompression.getDecompressingStream (Files.newInputStream (aFile)))
+    {
+      final IMicroDocument aDoc = MicroReader.readMicroXML (aIS);
+      if (aDoc == null || aDoc.getDocumentElement () == null)
+      {
+        LOGGER.warn ("Ignoring file '" + aFile + "' because it is not valid XML");
+        return null;
+      }
+      return aDoc.getDocumentElement ();
+    }
+    catch (final IOException ex)
+    {
+      throw new UncheckedIOException ("Failed to read '" + aFile + "'", ex);
+    }
+  }
+
+  @NonNull
+  private static EPeppolReportType _getReportType (@NonNull final IMicroElement eRoot)
+  {
+    final String sReportType = eRoot.getFirstChildElement ("ReportType").getTextContent ();
+    final EPeppolReportType ret = EPeppolReportType.getFromIDOrNull (sReportType);
+    if (ret == null)
+      throw new IllegalStateException ("Unsupported report type '" + sReportType + "' found");
+    return ret;
+  }
+
+  @NonNull
+  private static YearMonth _getReportPeriod (@NonNull final IMicroElement eRoot)
+  {
+    IMicroElement eMonth = eRoot.getFirstChildElement ("ReportMonth");
+    if (eMonth == null)
+    {
+      // Files written by older versions store the month in a second "ReportType" element
+      eMonth = eRoot.getAllChildElements ("ReportType").get (1);
+    }
+    return YearMonth.of (Integer.parseInt (eRoot.getFirstChildElement ("ReportYear").getTextContent ().trim ()),
+                         Integer.parseInt (eMonth.getTextContent ().trim ()));
+  }
+
+  @NonNull
+  private static LocalDateTime _getReportCreationDT (@NonNull final IMicroElement eRoot)
+  {
+    return PDTWebDateHelper.getLocalDateTimeFromXSD (eRoot.getFirstChildElement ("ReportCreationDT")
+                                                          .getTextContent ()
+                                                          .trim ());
+  }
+
+  @Nullable
+  private static PeppolReportStoredData _readRawReport (@NonNull final Path aMetadataFile, final boolean bIncludePayload)
+  {
+    final IMicroElement eRoot = _readRootElement (aMetadataFile, EPeppolReportCompression.NONE);
+    if (eRoot == null)
+      return null;
+
+    byte [] aPayload = null;
+    if (bIncludePayload)
+    {
+      // The payload file is stored next to the metadata file
+      final Path aPayloadFile = aMetadataFile.resolveSibling (_getOptionalText (eRoot, "PayloadFilename"));
+      final EPeppolReportCompression eCompression = EPeppolReportCompression.getFromIDOrDefault (_getOptionalText (eRoot,
+                                                                                                                    "PayloadCompression"),
+                                                                                                EPeppolReportCompression.NONE);
+      try
+      {
+        aPayload = eCompression.decompress (Files.readAllBytes (aPayloadFile));
+      }
+      catch (final IOException ex)
+      {
+        throw new UncheckedIOException ("Failed to read '" + aPayloadFile + "'", ex);
+      }
+    }
+    return new PeppolReportStoredData (_getReportType (eRoot),
+                                       _getReportPeriod (eRoot),
+                                       _getReportCreationDT (eRoot),
+                                       aPayload,
+                                       Boolean.parseBoolean (_getOptionalText (eRoot, "ReportValid")));
+  }
+
+  public boolean isQuerySupported ()
+  {
+    return true;
+  }
+
+  /**
+   * {@inheritDoc}<br>
+   * All files below the base directory are scanned lazily, so this is only suited for a moderate
+   * number of files. The results are ordered by their path. As every file needs to be parsed to
+   * evaluate the criteria, excluding the payload only saves memory.
+   */
+  @NonNull
+  public Stream <PeppolReportStoredData> queryPeppolReports (@NonNull final PeppolReportQuery aQuery)
+  {
+    ValueEnforcer.notNull (aQuery, "Query");
+
+    final boolean bIncludePayload = aQuery.isIncludePayload ();
+    final Function <IMicroElement, PeppolReportStoredData> aMapper = eRoot -> {
+      final IMicroElement eReportXML = eRoot.getFirstChildElement ("ReportXML");
+      return new PeppolReportStoredData (_getReportType (eRoot),
+                                         _getReportPeriod (eRoot),
+                                         _getReportCreationDT (eRoot),
+                                         bIncludePayload ? eReportXML.getTextContent ().getBytes (StandardCharsets.UTF_8)
+                                                         : null,
+                                         Boolean.parseBoolean (eReportXML.getAttributeValue ("valid")));
+    };
+    final Function <Path, PeppolReportStoredData> aXMLFileMapper = _getXMLFileMapper (FILENAME_SUFFIX_REPORT, aMapper);
+    return _query (aQuery,
+                   x -> x.getFileName ().toString ().endsWith (FILENAME_SUFFIX_REPORT_METADATA) ? _readRawReport (x,
+                                                                                                                  bIncludePayload)
+                                                                                                : aXMLFileMapper.apply (x),
+                   x -> aQuery.isMatching (x.getReportType (),
+                                           x.getReportPeriod (),
+                                           x.getReportCreationDT (),
+                                           Boolean.valueOf (x.isReportValid ())));
+  }
+
+  /**
+   * {@inheritDoc}<br>
+   * All files below the base directory are scanned lazily, so this is only suited for a moderate
+   * number of files. The results are ordered by their path.
+   */
+  @NonNull
+  public Stream <PeppolReportSendingReportData> queryPeppolReportingSendingReports (@NonNull final PeppolReportQuery aQuery)
+  {
+    ValueEnforcer.notNull (aQuery, "Query");
+
+    final boolean bIncludePayload = aQuery.isIncludePayload ();
+    final Function <IMicroElement, PeppolReportSendingReportData> aMapper = eRoot -> {
+      final IMicroElement eSendingReport = eRoot.getFirstChildElement ("SendingReport");
+      final String sContent = eSendingReport == null ? null : eSendingReport.getTextContent ();
+      final String sSendingSuccess = _getOptionalText (eRoot, "SendingSuccess");
+      return new PeppolReportSendingReportData (_getReportType (eRoot),
+                                                _getReportPeriod (eRoot),
+                                                _getReportCreationDT (eRoot),
+                                                bIncludePayload && StringHelper.isNotEmpty (sContent) ? sContent
+                                                                                                      : null,
+                                                new PeppolReportSendingReportFields (sSendingSuccess == null ? null
+                                                                                                             : Boolean.valueOf (sSendingSuccess),
+                                                                                     _getOptionalText (eRoot,
+                                                                                                       "AS4MessageID"),
+                                                                                     _getOptionalText (eRoot, "ReceiverID"),
+                                                                                     _getOptionalText (eRoot, "ErrorCode")));
+    };
+    return _query (aQuery,
+                   _getXMLFileMapper (FILENAME_SUFFIX_SENDING_REPORT, aMapper),
+                   x -> aQuery.isMatching (x.getReportType (), x.getReportPeriod (), x.getReportCreationDT (), null) &&
+                        aQuery.isMatchingSendingReport (x.getFields ()));
+  }
+
+  /**
+   * {@inheritDoc}<br>
+   * The summary is read from the summary file of the period, without scanning the report files.
+   * Only if no summary file exists (e.g. for periods stored with a previous version), the report
+   * files of the period are scanned.
+   */
+  @Nullable
+  public PeppolReportSummary getPeppolReportSummary (@NonNull final EPeppolReportType eReportType,
+                                                     @NonNull final YearMonth aReportPeriod)
+  {
+    ValueEnforcer.notNull (eReportType, "ReportType");
+    ValueEnforcer.notNull (aReportPeriod, "ReportPeriod");
+
+    final PeppolReportSummary ret = _readSummary (eReportType, aReportPeriod);
+    if (ret != null)
+      return ret;
+    return IPeppolReportStorage.super.getPeppolReportSummary (eReportType, aReportPeriod);
   }
 }
@@ -16,25 +16,101 @@
  */
 package com.helger.peppol.reportingsupport.mongodb;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Collection;
 import java.util.Date;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.Binary;
+import org.bson.types.ObjectId;
 import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.helger.annotation.Nonempty;
+import com.helger.annotation.style.ReturnsMutableCopy;
 import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.state.EChange;
 import com.helger.base.state.ESuccess;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
 import com.helger.peppol.reporting.backend.mongodb.MongoClientWrapper;
+import com.helger.peppol.reportingsupport.EPeppolReportCompression;
+import com.helger.peppol.reportingsupport.EPeppolReportType;
 import com.helger.peppol.reportingsupport.IPeppolReportStorage;
 import com.helger.peppol.reportingsupport.domain.PeppolReportData;
+import com.helger.peppol.reportingsupport.domain.PeppolReportQuery;
 import com.helger.peppol.reportingsupport.domain.PeppolReportSendingReportData;
+import com.helger.peppol.reportingsupport.domain.PeppolReportSendingReportFields;
+import com.helger.peppol.reportingsupport.domain.PeppolReportStoredData;
+import com.helger.peppol.reportingsupport.domain.PeppolReportStreamingData;
+import com.helger.peppol.reportingsupport.domain.PeppolReportSummary;
 import com.helger.typeconvert.impl.TypeConverter;
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoException;
+import com.mongodb.MongoWriteException;
+import com.mongodb.WriteConcern;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.gridfs.GridFSBucket;
+import com.mongodb.client.gridfs.GridFSBuckets;
+import com.mongodb.client.gridfs.GridFSUploadStream;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.result.UpdateResult;
 
 /**
- * Implementation of {@link IPeppolReportStorage} for MongoDB backend.
+ * Implementation of {@link IPeppolReportStorage} for MongoDB backend.<br>
+ * If a compression is set, the report payload is stored as compressed binary and the field
+ * {@link #BSON_PAYLOAD_COMPRESSION} contains the ID of the {@link EPeppolReportCompression}. The
+ * field is not present for uncompressed reports.<br>
+ * The collection {@link #getCollectionNamePeppolReportSummaries()} contains one document per report
+ * type and period with the latest report and sending state. It is updated with atomic
+ * <code>$max</code> upserts after each successful store.<br>
+ * Storing is idempotent: each document contains the content hash in the field
+ * {@link #BSON_CONTENT_HASH} and is written with a <code>$setOnInsert</code> upsert, backed by a
+ * partial unique index on report type, period and content hash. Storing the same content twice is
+ * reported as success without creating a second document.<br>
+ * The structured fields of sending reports are stored in separate, indexed fields, so that they can
+ * be queried without reading the sending reports.<br>
+ * All required indexes are created once per instance, either explicitly via
+ * {@link #ensureIndexes()} at application startup or lazily before the first store operation.
+ * Batches are written with unordered bulk writes, using the optional write concern from
+ * {@link #setWriteConcern(WriteConcern)}.<br>
+ * Report payloads that are larger than {@link #getGridFSPayloadThreshold()} bytes (after
+ * compression) are stored in the GridFS bucket {@link #getGridFSBucketNamePeppolReports()} and the
+ * report document only references them via the field {@link #BSON_PAYLOAD_FILE_ID}. This keeps the
+ * report documents small and avoids the MongoDB document size limit.
  */
 public class PeppolReportStorageMongoDB implements IPeppolReportStorage
 {
@@ -42,6 +118,18 @@ public class PeppolReportStorageMongoDB implements IPeppolReportStorage
   public static final String DEFAULT_COLLECTION_NAME_PEPPOL_REPORTS = "peppol-reports";
   /** Default collection name */
   public static final String DEFAULT_COLLECTION_NAME_PEPPOL_REPORTING_SENDING_REPORTS = "peppol-reporting-sending-reports";
+  /**
+   * Default collection name for the report summaries
+   *
+   * @since 2.2.2
+   */
+  public static final String DEFAULT_COLLECTION_NAME_PEPPOL_REPORT_SUMMARIES = "peppol-report-summaries";
+  /**
+   * Default GridFS bucket name for streamed Peppol Reports
+   *
+   * @since 2.2.2
+   */
+  public static final String DEFAULT_GRIDFS_BUCKET_NAME_PEPPOL_REPORTS = "peppol-reports";
 
   /** BSON field report type */
   public static final String BSON_REPORT_TYPE = "reporttype";
@@ -53,14 +141,96 @@ public class PeppolReportStorageMongoDB implements IPeppolReportStorage
   public static final String BSON_CREATION_DT = "creationdt";
   /** BSON field report payload */
   public static final String BSON_PAYLOAD = "payload";
+  /**
+   * BSON field with the GridFS file ID of the report payload
+   *
+   * @since 2.2.2
+   */
+  public static final String BSON_PAYLOAD_FILE_ID = "payloadfileid";
+  /**
+   * BSON field with the ID of the {@link EPeppolReportCompression} of the report payload
+   *
+   * @since 2.2.2
+   */
+  public static final String BSON_PAYLOAD_COMPRESSION = "payloadcompression";
   /** BSON field report validity */
   public static final String BSON_PAYLOAD_VALID = "payloadvalid";
+  /**
+   * BSON field with the content hash used to detect duplicates
+   *
+   * @since 2.2.2
+   */
+  public static final String BSON_CONTENT_HASH = "contenthash";
+  /**
+   * BSON field of sending reports with the sending success. Only present if known.
+   *
+   * @since 2.2.2
+   */
+  public static final String BSON_SENDING_SUCCESS = "sendingsuccess";
+  /**
+   * BSON field of sending reports with the AS4 message ID. Only present if known.
+   *
+   * @since 2.2.2
+   */
+  public static final String BSON_AS4_MESSAGE_ID = "as4messageid";
+  /**
+   * BSON field of sending reports with the receiver ID. Only present if known.
+   *
+   * @since 2.2.2
+   */
+  public static final String BSON_RECEIVER_ID = "receiverid";
+  /**
+   * BSON field of sending reports with the error code. Only present if known.
+   *
+   * @since 2.2.2
+   */
+  public static final String BSON_ERROR_CODE = "errorcode";
+  /**
+   * BSON field of the summary with the creation date and time of the latest report
+   *
+   * @since 2.2.2
+   */
+  public static final String BSON_LAST_CREATION_DT = "lastcreationdt";
+  /**
+   * BSON field of the summary with the creation date and time of the latest valid report
+   *
+   * @since 2.2.2
+   */
+  public static final String BSON_LAST_VALID_CREATION_DT = "lastvalidcreationdt";
+  /**
+   * BSON field of the summary with the creation date and time of the latest sending report
+   *
+   * @since 2.2.2
+   */
+  public static final String BSON_LAST_SENDING_CREATION_DT = "lastsendingcreationdt";
+  /**
+   * Default duration for which a successful writability check of the database is cached
+   *
+   * @since 2.2.2
+   */
+  public static final Duration DEFAULT_WRITABLE_CHECK_CACHE_DURATION = Duration.ofSeconds (30);
+  /**
+   * Default size in bytes above which report payloads are stored in GridFS
+   *
+   * @since 2.2.2
+   */
+  public static final long DEFAULT_GRIDFS_PAYLOAD_THRESHOLD = 1024 * 1024;
 
   private static final Logger LOGGER = LoggerFactory.getLogger (PeppolReportStorageMongoDB.class);
 
   private final Supplier <? extends MongoClientWrapper> m_aMongoClientSupplier;
   private String m_sCollectionNamePeppolReports;
   private String m_sCollectionNamePeppolReportingSendingReports;
+  private String m_sCollectionNamePeppolReportSummaries;
+  private String m_sGridFSBucketNamePeppolReports;
+  private EPeppolReportCompression m_eCompression = EPeppolReportCompression.NONE;
+  private long m_nGridFSPayloadThreshold = DEFAULT_GRIDFS_PAYLOAD_THRESHOLD;
+  private final AtomicBoolean m_aIndexesCreated = new AtomicBoolean (false);
+  private WriteConcern m_aWriteConcern;
+  private Duration m_aWritableCheckCacheDuration = DEFAULT_WRITABLE_CHECK_CACHE_DURATION;
+  private volatile boolean m_bWritableChecked = false;
+  // The System.nanoTime of the last successful writability check
+  private volatile long m_nLastWritableCheckNanos;
 
   /**
    * Constructor
@@ -74,6 +244,8 @@ public class PeppolReportStorageMongoDB implements IPeppolReportStorage
     m_aMongoClientSupplier = aMongoClientSupplier;
     m_sCollectionNamePeppolReports = DEFAULT_COLLECTION_NAME_PEPPOL_REPORTS;
     m_sCollectionNamePeppolReportingSendingReports = DEFAULT_COLLECTION_NAME_PEPPOL_REPORTING_SENDING_REPORTS;
+    m_sCollectionNamePeppolReportSummaries = DEFAULT_COLLECTION_NAME_PEPPOL_REPORT_SUMMARIES;
+    m_sGridFSBucketNamePeppolReports = DEFAULT_GRIDFS_BUCKET_NAME_PEPPOL_REPORTS;
   }
 
   /**
@@ -141,23 +313,597 @@ public class PeppolReportStorageMongoDB implements IPeppolReportStorage
     return this;
   }
 
+  /**
+   * Get the collection name for the Peppol Report summaries
+   *
+   * @return The collection name for the Peppol Report summaries. Neither <code>null</code> nor
+   *         empty.
+   * @since 2.2.2
+   */
+  @NonNull
+  @Nonempty
+  public String getCollectionNamePeppolReportSummaries ()
+  {
+    return m_sCollectionNamePeppolReportSummaries;
+  }
+
+  /**
+   * Change the collection name for the Peppol Report summaries
+   *
+   * @param s
+   *        Collection name to use. May neither be <code>null</code> nor empty.
+   * @return this for chaining
+   * @since 2.2.2
+   */
+  @NonNull
+  public PeppolReportStorageMongoDB setCollectionNamePeppolReportSummaries (@NonNull @Nonempty final String s)
+  {
+    ValueEnforcer.notEmpty (s, "CollectionNamePeppolReportSummaries");
+
+    if (!m_sCollectionNamePeppolReportSummaries.equals (s))
+    {
+      LOGGER.info ("Using MongoDB collection name '" + s + "' to store Peppol Report summaries");
+      m_sCollectionNamePeppolReportSummaries = s;
+    }
+    return this;
+  }
+
+  /**
+   * Get the GridFS bucket name for streamed Peppol Reports
+   *
+   * @return The GridFS bucket name for streamed Peppol Reports. Neither <code>null</code> nor
+   *         empty.
+   * @since 2.2.2
+   */
+  @NonNull
+  @Nonempty
+  public String getGridFSBucketNamePeppolReports ()
+  {
+    return m_sGridFSBucketNamePeppolReports;
+  }
+
+  /**
+   * Change the GridFS bucket name for streamed Peppol Reports
+   *
+   * @param s
+   *        Bucket name to use. May neither be <code>null</code> nor empty.
+   * @return this for chaining
+   * @since 2.2.2
+   */
+  @NonNull
+  public PeppolReportStorageMongoDB setGridFSBucketNamePeppolReports (@NonNull @Nonempty final String s)
+  {
+    ValueEnforcer.notEmpty (s, "GridFSBucketNamePeppolReports");
+
+    if (!m_sGridFSBucketNamePeppolReports.equals (s))
+    {
+      LOGGER.info ("Using MongoDB GridFS bucket name '" + s + "' to store streamed Peppol Reports");
+      m_sGridFSBucketNamePeppolReports = s;
+    }
+    return this;
+  }
+
+  /**
+   * @return The compression applied to newly stored reports. Never <code>null</code>. Defaults to
+   *         {@link EPeppolReportCompression#NONE}.
+   * @since 2.2.2
+   */
+  @NonNull
+  public EPeppolReportCompression getCompression ()
+  {
+    return m_eCompression;
+  }
+
+  /**
+   * Set the compression to be applied to newly stored reports. Existing reports are not touched.
+   *
+   * @param eCompression
+   *        The compression to use. May not be <code>null</code>.
+   * @return this for chaining
+   * @since 2.2.2
+   */
+  @NonNull
+  public PeppolReportStorageMongoDB setCompression (@NonNull final EPeppolReportCompression eCompression)
+  {
+    ValueEnforcer.notNull (eCompression, "Compression");
+    m_eCompression = eCompression;
+    return this;
+  }
+
+  /**
+   * @return The size in bytes of the stored report payload (after compression) above which the
+   *         payload is stored in GridFS instead of the report document. Defaults to
+   *         {@link #DEFAULT_GRIDFS_PAYLOAD_THRESHOLD}.
+   * @since 2.2.2
+   */
+  public long getGridFSPayloadThreshold ()
+  {
+    return m_nGridFSPayloadThreshold;
+  }
+
+  /**
+   * Set the size in bytes of the stored report payload (after compression) above which the payload
+   * is stored in GridFS instead of the report document. Existing reports are not touched. Reports
+   * stored via {@link #storePeppolReportStreaming(PeppolReportStreamingData)} always use GridFS.
+   *
+   * @param nGridFSPayloadThreshold
+   *        The threshold in bytes. Must be &ge; 0. Use {@link Long#MAX_VALUE} to never use GridFS.
+   * @return this for chaining
+   * @since 2.2.2
+   */
+  @NonNull
+  public PeppolReportStorageMongoDB setGridFSPayloadThreshold (final long nGridFSPayloadThreshold)
+  {
+    ValueEnforcer.isGE0 (nGridFSPayloadThreshold, "GridFSPayloadThreshold");
+    m_nGridFSPayloadThreshold = nGridFSPayloadThreshold;
+    return this;
+  }
+
+  /**
+   * @return The write concern used for all write operations. May be <code>null</code> to use the
+   *         write concern of the MongoDB client.
+   * @since 2.2.2
+   */
+  @Nullable
+  public WriteConcern getWriteConcern ()
+  {
+    return m_aWriteConcern;
+  }
+
+  /**
+   * Set the write concern to be used for all write operations, e.g.
+   * {@link WriteConcern#MAJORITY} for durability across a replica set or {@link WriteConcern#W1}
+   * for a higher throughput. The write concern must be acknowledged, as the idempotency of storing
+   * relies on the upsert results.
+   *
+   * @param aWriteConcern
+   *        The write concern to use. May be <code>null</code> to use the write concern of the
+   *        MongoDB client.
+   * @return this for chaining
+   * @since 2.2.2
+   */
+  @NonNull
+  public PeppolReportStorageMongoDB setWriteConcern (@Nullable final WriteConcern aWriteConcern)
+  {
+    if (aWriteConcern != null)
+      ValueEnforcer.isTrue (aWriteConcern.isAcknowledged (), "WriteConcern must be acknowledged");
+    m_aWriteConcern = aWriteConcern;
+    return this;
+  }
+
+  /**
+   * @return The duration for which a successful writability check of the database is cached. Never
+   *         <code>null</code>. Defaults to {@link #DEFAULT_WRITABLE_CHECK_CACHE_DURATION}.
+   * @since 2.2.2
+   */
+  @NonNull
+  public Duration getWritableCheckCacheDuration ()
+  {
+    return m_aWritableCheckCacheDuration;
+  }
+
+  /**
+   * Set the duration for which a successful writability check of the database is cached. A failed
+   * check is never cached, so that the storage recovers as soon as the database is writable again.
+   *
+   * @param aDuration
+   *        The duration to use. May not be <code>null</code> and may not be negative. Use
+   *        {@link Duration#ZERO} to check the writability before every store operation.
+   * @return this for chaining
+   * @since 2.2.2
+   */
+  @NonNull
+  public PeppolReportStorageMongoDB setWritableCheckCacheDuration (@NonNull final Duration aDuration)
+  {
+    ValueEnforcer.notNull (aDuration, "Duration");
+    ValueEnforcer.isFalse (aDuration.isNegative (), "Duration may not be negative");
+    m_aWritableCheckCacheDuration = aDuration;
+    m_bWritableChecked = false;
+    return this;
+  }
+
+  private boolean _isDBWritable (@NonNull final MongoClientWrapper aMongoDBClient)
+  {
+    final long nNow = System.nanoTime ();
+    if (m_bWritableChecked && nNow - m_nLastWritableCheckNanos < m_aWritableCheckCacheDuration.toNanos ())
+      return true;
+
+    // Each check is a roundtrip to the server
+    if (!aMongoDBClient.isDBWritable ())
+    {
+      m_bWritableChecked = false;
+      return false;
+    }
+    m_nLastWritableCheckNanos = nNow;
+    m_bWritableChecked = true;
+    return true;
+  }
+
+  @NonNull
+  private MongoCollection <Document> _getCollection (@NonNull final MongoClientWrapper aMongoDBClient,
+                                                     @NonNull @Nonempty final String sCollectionName)
+  {
+    final MongoCollection <Document> ret = aMongoDBClient.getCollection (sCollectionName);
+    final WriteConcern aWriteConcern = m_aWriteConcern;
+    return aWriteConcern == null ? ret : ret.withWriteConcern (aWriteConcern);
+  }
+
+  @NonNull
+  private GridFSBucket _getGridFSBucket (@NonNull final MongoClientWrapper aMongoDBClient)
+  {
+    final GridFSBucket ret = GridFSBuckets.create (aMongoDBClient.getDatabase (), m_sGridFSBucketNamePeppolReports);
+    final WriteConcern aWriteConcern = m_aWriteConcern;
+    return aWriteConcern == null ? ret : ret.withWriteConcern (aWriteConcern);
+  }
+
   /**
    * Convert the object to BSON
    *
    * @param aReportData
    *        Object to convert. May not be <code>null</code>.
+   * @param eCompression
+   *        The compression to apply to the payload. May not be <code>null</code>.
    * @return The MongoDB document and never <code>null</code>.
    */
   @NonNull
-  static Document toBson (@NonNull final PeppolReportData aReportData)
+  static Document toBson (@NonNull final PeppolReportData aReportData,
+                          @NonNull final EPeppolReportCompression eCompression)
   {
-    return new Document ().append (BSON_REPORT_TYPE, aReportData.getReportType ().getID ())
-                          .append (BSON_YEAR, Integer.valueOf (aReportData.getReportPeriod ().getYear ()))
-                          .append (BSON_MONTH, Integer.valueOf (aReportData.getReportPeriod ().getMonthValue ()))
-                          .append (BSON_CREATION_DT,
-                                   TypeConverter.convert (aReportData.getReportCreationDT (), Date.class))
-                          .append (BSON_PAYLOAD, aReportData.getReportXMLString ())
-                          .append (BSON_PAYLOAD_VALID, Boolean.valueOf (aReportData.isReportValid ()));
+    return _toBson (aReportData, eCompression, _getStoredPayload (aReportData, eCompression));
+  }
+
+  @NonNull
+  private static byte [] _getStoredPayload (@NonNull final PeppolReportData aReportData,
+                                            @NonNull final EPeppolReportCompression eCompression)
+  {
+    return eCompression.isCompressed () ? eCompression.compress (aReportData.getReportXMLBytes ())
+                                        : aReportData.getReportXMLBytes ();
+  }
+
+  @NonNull
+  private static Document _toBson (@NonNull final PeppolReportData aReportData,
+                                   @NonNull final EPeppolReportCompression eCompression,
+                                   @NonNull final byte [] aStoredPayload)
+  {
+    final Document ret = new Document ().append (BSON_REPORT_TYPE, aReportData.getReportType ().getID ())
+                                        .append (BSON_YEAR, Integer.valueOf (aReportData.getReportPeriod ().getYear ()))
+                                        .append (BSON_MONTH,
+                                                 Integer.valueOf (aReportData.getReportPeriod ().getMonthValue ()))
+                                        .append (BSON_CREATION_DT,
+                                                 TypeConverter.convert (aReportData.getReportCreationDT (), Date.class));
+    if (eCompression.isCompressed ())
+    {
+      ret.append (BSON_PAYLOAD, aStoredPayload).append (BSON_PAYLOAD_COMPRESSION, eCompression.getID ());
+    }
+    else
+      ret.append (BSON_PAYLOAD, aReportData.getReportXMLString ());
+    return ret.append (BSON_PAYLOAD_VALID, Boolean.valueOf (aReportData.isReportValid ()))
+              .append (BSON_CONTENT_HASH, aReportData.getContentHash ());
+  }
+
+  /**
+   * Convert the object to BSON, with the payload being stored in GridFS
+   *
+   * @param aReportData
+   *        Object to convert. May not be <code>null</code>.
+   * @param aPayloadFileID
+   *        The GridFS file ID of the already stored payload. May not be <code>null</code>.
+   * @param eCompression
+   *        The compression that was applied to the stored payload. May not be <code>null</code>.
+   * @return The MongoDB document and never <code>null</code>.
+   */
+  @NonNull
+  static Document toBson (@NonNull final PeppolReportData aReportData,
+                          @NonNull final ObjectId aPayloadFileID,
+                          @NonNull final EPeppolReportCompression eCompression)
+  {
+    final Document ret = new Document ().append (BSON_REPORT_TYPE, aReportData.getReportType ().getID ())
+                                        .append (BSON_YEAR, Integer.valueOf (aReportData.getReportPeriod ().getYear ()))
+                                        .append (BSON_MONTH,
+                                                 Integer.valueOf (aReportData.getReportPeriod ().getMonthValue ()))
+                                        .append (BSON_CREATION_DT,
+                                                 TypeConverter.convert (aReportData.getReportCreationDT (), Date.class))
+                                        .append (BSON_PAYLOAD_FILE_ID, aPayloadFileID);
+    if (eCompression.isCompressed ())
+      ret.append (BSON_PAYLOAD_COMPRESSION, eCompression.getID ());
+    return ret.append (BSON_PAYLOAD_VALID, Boolean.valueOf (aReportData.isReportValid ()))
+              .append (BSON_CONTENT_HASH, aReportData.getContentHash ());
+  }
+
+  @NonNull
+  @Nonempty
+  private static String _getGridFSFilename (@NonNull final EPeppolReportType eReportType,
+                                            @NonNull final YearMonth aReportPeriod,
+                                            @NonNull final EPeppolReportCompression eCompression)
+  {
+    return eReportType.getID () + "-" + aReportPeriod + ".xml" + eCompression.getFileExtension ();
+  }
+
+  /**
+   * Check if a report with the provided content hash is already stored.
+   *
+   * @param aCollection
+   *        The report collection. May not be <code>null</code>.
+   * @param eReportType
+   *        The report type. May not be <code>null</code>.
+   * @param aReportPeriod
+   *        The report period. May not be <code>null</code>.
+   * @param sContentHash
+   *        The content hash to check. May neither be <code>null</code> nor empty.
+   * @return <code>true</code> if it is already stored, <code>false</code> if not.
+   */
+  private static boolean _isStored (@NonNull final MongoCollection <Document> aCollection,
+                                    @NonNull final EPeppolReportType eReportType,
+                                    @NonNull final YearMonth aReportPeriod,
+                                    @NonNull @Nonempty final String sContentHash)
+  {
+    return aCollection.find (Filters.and (_getSummaryFilter (eReportType, aReportPeriod),
+                                          Filters.eq (BSON_CONTENT_HASH, sContentHash)))
+                      .projection (Projections.include (BSON_CONTENT_HASH))
+                      .first () != null;
+  }
+
+  /**
+   * Convert the object to BSON. If the stored payload is larger than the GridFS threshold, it is
+   * uploaded to GridFS and only referenced from the document. Before uploading, it is checked that
+   * the report is not already stored, so that duplicates are not uploaded.
+   *
+   * @param aCollection
+   *        The report collection to check for duplicates. May not be <code>null</code>.
+   * @param aBucket
+   *        The GridFS bucket to use for oversized payloads. May not be <code>null</code>.
+   * @param aReportData
+   *        Object to convert. May not be <code>null</code>.
+   * @param eCompression
+   *        The compression to apply to the payload. May not be <code>null</code>.
+   * @return The MongoDB document or <code>null</code> if the payload exceeds the GridFS threshold
+   *         and an identical report is already stored. If the field {@link #BSON_PAYLOAD_FILE_ID}
+   *         is present, the caller is responsible for deleting the GridFS file if the document is
+   *         not stored.
+   */
+  @Nullable
+  private Document _toBsonWithGridFS (@NonNull final MongoCollection <Document> aCollection,
+                                      @NonNull final GridFSBucket aBucket,
+                                      @NonNull final PeppolReportData aReportData,
+                                      @NonNull final EPeppolReportCompression eCompression)
+  {
+    final byte [] aStoredPayload = _getStoredPayload (aReportData, eCompression);
+    if (aStoredPayload.length <= m_nGridFSPayloadThreshold)
+      return _toBson (aReportData, eCompression, aStoredPayload);
+
+    if (_isStored (aCollection,
+                   aReportData.getReportType (),
+                   aReportData.getReportPeriod (),
+                   aReportData.getContentHash ()))
+      return null;
+
+    final ObjectId aPayloadFileID = aBucket.uploadFromStream (_getGridFSFilename (aReportData.getReportType (),
+                                                                                  aReportData.getReportPeriod (),
+                                                                                  eCompression),
+                                                              new ByteArrayInputStream (aStoredPayload));
+    LOGGER.debug ("Stored Peppol Report payload of " + aStoredPayload.length + " bytes in GridFS");
+    return toBson (aReportData, aPayloadFileID, eCompression);
+  }
+
+  /**
+   * Delete the GridFS payloads of all documents that were not inserted.
+   *
+   * @param aBucket
+   *        The GridFS bucket to delete from. May not be <code>null</code>.
+   * @param aBsons
+   *        The documents that were meant to be inserted. May not be <code>null</code>.
+   * @param aInserted
+   *        The insertion state per document. May be <code>null</code> if none was inserted.
+   */
+  private static void _deleteUnusedPayloadFiles (@NonNull final GridFSBucket aBucket,
+                                                 @NonNull final ICommonsList <Document> aBsons,
+                                                 @Nullable final boolean [] aInserted)
+  {
+    for (int i = 0; i < aBsons.size (); ++i)
+      if (aInserted == null || !aInserted[i])
+      {
+        final ObjectId aPayloadFileID = aBsons.get (i).getObjectId (BSON_PAYLOAD_FILE_ID);
+        if (aPayloadFileID != null)
+          aBucket.delete (aPayloadFileID);
+      }
+  }
+
+  @NonNull
+  private static Bson _getSummaryFilter (@NonNull final EPeppolReportType eReportType,
+                                         @NonNull final YearMonth aReportPeriod)
+  {
+    return Filters.and (Filters.eq (BSON_REPORT_TYPE, eReportType.getID ()),
+                        Filters.eq (BSON_YEAR, Integer.valueOf (aReportPeriod.getYear ())),
+                        Filters.eq (BSON_MONTH, Integer.valueOf (aReportPeriod.getMonthValue ())));
+  }
+
+  @NonNull
+  private static UpdateOneModel <Document> _getSummaryUpdate (@NonNull final PeppolReportSummary aSummary)
+  {
+    // $max only ever moves forward in time, independent of the order of concurrent updates
+    final ICommonsList <Bson> aUpdates = new CommonsArrayList <> ();
+    if (aSummary.getLastReportCreationDT () != null)
+      aUpdates.add (Updates.max (BSON_LAST_CREATION_DT,
+                                 TypeConverter.convert (aSummary.getLastReportCreationDT (), Date.class)));
+    if (aSummary.getLastValidReportCreationDT () != null)
+      aUpdates.add (Updates.max (BSON_LAST_VALID_CREATION_DT,
+                                 TypeConverter.convert (aSummary.getLastValidReportCreationDT (), Date.class)));
+    if (aSummary.getLastSendingReportCreationDT () != null)
+      aUpdates.add (Updates.max (BSON_LAST_SENDING_CREATION_DT,
+                                 TypeConverter.convert (aSummary.getLastSendingReportCreationDT (), Date.class)));
+    return new UpdateOneModel <> (_getSummaryFilter (aSummary.getReportType (), aSummary.getReportPeriod ()),
+                                  Updates.combine (aUpdates),
+                                  new UpdateOptions ().upsert (true));
+  }
+
+  /**
+   * Merge the provided summaries into the summary collection. Errors are logged but not propagated,
+   * as the reports themselves are already stored.
+   *
+   * @param aMongoDBClient
+   *        The MongoDB client to use. May not be <code>null</code>.
+   * @param aSummaries
+   *        The summaries of the newly stored data. May not be <code>null</code>.
+   */
+  private void _updateSummaries (@NonNull final MongoClientWrapper aMongoDBClient,
+                                 @NonNull final ICommonsList <PeppolReportSummary> aSummaries)
+  {
+    if (aSummaries.isNotEmpty ())
+      try
+      {
+        _getCollection (aMongoDBClient,
+                        m_sCollectionNamePeppolReportSummaries).bulkWrite (new CommonsArrayList <> (aSummaries,
+                                                                                                    PeppolReportStorageMongoDB::_getSummaryUpdate),
+                                                                           new BulkWriteOptions ().ordered (false));
+      }
+      catch (final MongoException ex)
+      {
+        LOGGER.warn ("Failed to update " + aSummaries.size () + " Peppol Report summaries in MongoDB", ex);
+      }
+  }
+
+  /**
+   * Create the indexes once per instance:
+   * <ul>
+   * <li>The unique indexes on report type, period and content hash. They are partial, so that
+   * documents stored before the content hash was introduced are not affected.</li>
+   * <li>The query indexes on report type, period and creation date time as well as on the creation
+   * date time only, which is the sort order of all queries.</li>
+   * <li>The unique index on report type and period of the summaries, so that concurrent upserts of
+   * the same period never create two summaries.</li>
+   * <li>The indexes on the structured fields of sending reports.</li>
+   * </ul>
+   * Creating an already existing index is a no-op in MongoDB.
+   *
+   * @param aMongoDBClient
+   *        The MongoDB client to use. May not be <code>null</code>.
+   */
+  private void _ensureIndexes (@NonNull final MongoClientWrapper aMongoDBClient)
+  {
+    if (!m_aIndexesCreated.get ())
+    {
+      final IndexOptions aOptions = new IndexOptions ().unique (true)
+                                                       .partialFilterExpression (Filters.exists (BSON_CONTENT_HASH));
+      for (final String sCollectionName : new String [] { m_sCollectionNamePeppolReports,
+                                                          m_sCollectionNamePeppolReportingSendingReports })
+      {
+        final MongoCollection <Document> aCollection = _getCollection (aMongoDBClient, sCollectionName);
+        aCollection.createIndex (Indexes.ascending (BSON_REPORT_TYPE, BSON_YEAR, BSON_MONTH, BSON_CONTENT_HASH),
+                                 aOptions);
+        aCollection.createIndex (Indexes.ascending (BSON_REPORT_TYPE, BSON_YEAR, BSON_MONTH, BSON_CREATION_DT));
+        aCollection.createIndex (Indexes.ascending (BSON_CREATION_DT));
+      }
+
+      _getCollection (aMongoDBClient,
+                      m_sCollectionNamePeppolReportSummaries).createIndex (Indexes.ascending (BSON_REPORT_TYPE,
+                                                                                              BSON_YEAR,
+                                                                                              BSON_MONTH),
+                                                                           new IndexOptions ().unique (true));
+
+      final MongoCollection <Document> aSendingReports = _getCollection (aMongoDBClient,
+                                                                         m_sCollectionNamePeppolReportingSendingReports);
+      aSendingReports.createIndex (Indexes.ascending (BSON_SENDING_SUCCESS, BSON_REPORT_TYPE, BSON_YEAR, BSON_MONTH),
+                                   new IndexOptions ().partialFilterExpression (Filters.exists (BSON_SENDING_SUCCESS)));
+      aSendingReports.createIndex (Indexes.ascending (BSON_AS4_MESSAGE_ID),
+                                   new IndexOptions ().partialFilterExpression (Filters.exists (BSON_AS4_MESSAGE_ID)));
+      m_aIndexesCreated.set (true);
+      LOGGER.info ("Ensured the existence of all Peppol Report MongoDB indexes");
+    }
+  }
+
+  /**
+   * Create all required MongoDB indexes, if they were not yet created by this instance. This is
+   * meant to be called once at application startup, so that the first store operation does not
+   * need to create them and queries are indexed from the beginning.
+   *
+   * @return {@link ESuccess#SUCCESS} if all indexes are present, {@link ESuccess#FAILURE} if the
+   *         database is not available or not writable or if creating an index failed.
+   * @since 2.2.2
+   */
+  @NonNull
+  public ESuccess ensureIndexes ()
+  {
+    final MongoClientWrapper aMongoDBClient = m_aMongoClientSupplier.get ();
+    if (aMongoDBClient == null)
+    {
+      LOGGER.error ("Failed to init MongoDB client - not creating Peppol Report indexes");
+      return ESuccess.FAILURE;
+    }
+    if (!_isDBWritable (aMongoDBClient))
+    {
+      LOGGER.error ("MongoDB is not writable - not creating Peppol Report indexes");
+      return ESuccess.FAILURE;
+    }
+
+    try
+    {
+      _ensureIndexes (aMongoDBClient);
+    }
+    catch (final MongoException ex)
+    {
+      LOGGER.error ("Failed to create the Peppol Report MongoDB indexes", ex);
+      return ESuccess.FAILURE;
+    }
+    return ESuccess.SUCCESS;
+  }
+
+  @NonNull
+  private static Bson _getDuplicateFilter (@NonNull final Document aBson)
+  {
+    return Filters.and (Filters.eq (BSON_REPORT_TYPE, aBson.get (BSON_REPORT_TYPE)),
+                        Filters.eq (BSON_YEAR, aBson.get (BSON_YEAR)),
+                        Filters.eq (BSON_MONTH, aBson.get (BSON_MONTH)),
+                        Filters.eq (BSON_CONTENT_HASH, aBson.get (BSON_CONTENT_HASH)));
+  }
+
+  @NonNull
+  private static UpdateOneModel <Document> _getUpsert (@NonNull final Document aBson)
+  {
+    // Only write the document if no document with the same content hash exists
+    return new UpdateOneModel <> (_getDuplicateFilter (aBson),
+                                  new Document ("$setOnInsert", aBson),
+                                  new UpdateOptions ().upsert (true));
+  }
+
+  private static boolean _isDuplicateKey (@NonNull final ErrorCategory eCategory)
+  {
+    return eCategory == ErrorCategory.DUPLICATE_KEY;
+  }
+
+  /**
+   * Insert the provided document, unless a document with the same content hash is already present.
+   *
+   * @param aCollection
+   *        The collection to write to. May not be <code>null</code>.
+   * @param aBson
+   *        The document to insert. May not be <code>null</code>.
+   * @param sObjectName
+   *        The name of the object for error messages. May neither be <code>null</code> nor empty.
+   * @return {@link EChange#CHANGED} if the document was inserted, {@link EChange#UNCHANGED} if it
+   *         was already present.
+   */
+  @NonNull
+  private static EChange _upsert (@NonNull final MongoCollection <Document> aCollection,
+                                  @NonNull final Document aBson,
+                                  @NonNull @Nonempty final String sObjectName)
+  {
+    final UpdateOneModel <Document> aUpsert = _getUpsert (aBson);
+    try
+    {
+      final UpdateResult aResult = aCollection.updateOne (aUpsert.getFilter (),
+                                                          aUpsert.getUpdate (),
+                                                          aUpsert.getOptions ());
+      if (!aResult.wasAcknowledged ())
+        throw new IllegalStateException ("Failed to insert into " + sObjectName + " MongoDB Collection");
+      return EChange.valueOf (aResult.getUpsertedId () != null);
+    }
+    catch (final MongoWriteException ex)
+    {
+      // A concurrent upsert of the same content won the race
+      if (_isDuplicateKey (ex.getError ().getCategory ()))
+        return EChange.UNCHANGED;
+      throw ex;
+    }
   }
 
   @NonNull
@@ -171,18 +917,155 @@ public class PeppolReportStorageMongoDB implements IPeppolReportStorage
       LOGGER.error ("Failed to init MongoDB client - not storing Peppol Report");
       return ESuccess.FAILURE;
     }
-    if (!aMongoDBClient.isDBWritable ())
+    if (!_isDBWritable (aMongoDBClient))
     {
       LOGGER.error ("MongoDB is not writable - not storing Peppol Report");
       return ESuccess.FAILURE;
     }
 
+    _ensureIndexes (aMongoDBClient);
+
     // Create MongoDB document
-    final Document aBson = toBson (aReportData);
+    final MongoCollection <Document> aCollection = _getCollection (aMongoDBClient, m_sCollectionNamePeppolReports);
+    final GridFSBucket aBucket = _getGridFSBucket (aMongoDBClient);
+    final Document aBson = _toBsonWithGridFS (aCollection, aBucket, aReportData, m_eCompression);
+    if (aBson == null)
+    {
+      LOGGER.debug ("Identical Peppol Report is already stored in MongoDB - not uploading it again");
+      return ESuccess.SUCCESS;
+    }
 
-    // Write to collection
-    if (!aMongoDBClient.getCollection (m_sCollectionNamePeppolReports).insertOne (aBson).wasAcknowledged ())
-      throw new IllegalStateException ("Failed to insert into Peppol Reports MongoDB Collection");
+    // Write to collection. On exceptions a GridFS payload is kept, as the document may have been
+    // stored nonetheless
+    if (_upsert (aCollection, aBson, "Peppol Reports").isUnchanged ())
+    {
+      _deleteUnusedPayloadFiles (aBucket, new CommonsArrayList <> (aBson), null);
+      LOGGER.debug ("Identical Peppol Report is already stored in MongoDB - not storing it again");
+      return ESuccess.SUCCESS;
+    }
+
+    _updateSummaries (aMongoDBClient,
+                      new CommonsArrayList <> (PeppolReportSummary.createEmpty (aReportData.getReportType (),
+                                                                                aReportData.getReportPeriod ())
+                                                                  .getWithReport (aReportData.getReportCreationDT (),
+                                                                                  aReportData.isReportValid ())));
+
+    return ESuccess.SUCCESS;
+  }
+
+  /**
+   * Convert the object to BSON
+   *
+   * @param aReportData
+   *        Object to convert. May not be <code>null</code>.
+   * @param aPayloadFileID
+   *        The GridFS file ID of the already stored payload. May not be <code>null</code>.
+   * @param eCompression
+   *        The compression that was applied to the stored payload. May not be <code>null</code>.
+   * @param sContentHash
+   *        The content hash of the report payload. May neither be <code>null</code> nor empty.
+   * @return The MongoDB document and never <code>null</code>.
+   */
+  @NonNull
+  static Document toBson (@NonNull final PeppolReportStreamingData aReportData,
+                          @NonNull final ObjectId aPayloadFileID,
+                          @NonNull final EPeppolReportCompression eCompression,
+                          @NonNull @Nonempty final String sContentHash)
+  {
+    final Document ret = new Document ().append (BSON_REPORT_TYPE, aReportData.getReportType ().getID ())
+                                        .append (BSON_YEAR, Integer.valueOf (aReportData.getReportPeriod ().getYear ()))
+                                        .append (BSON_MONTH,
+                                                 Integer.valueOf (aReportData.getReportPeriod ().getMonthValue ()))
+                                        .append (BSON_CREATION_DT,
+                                                 TypeConverter.convert (aReportData.getReportCreationDT (), Date.class))
+                                        .append (BSON_PAYLOAD_FILE_ID, aPayloadFileID);
+    if (eCompression.isCompressed ())
+      ret.append (BSON_PAYLOAD_COMPRESSION, eCompression.getID ());
+    return ret.append (BSON_PAYLOAD_VALID, Boolean.valueOf (aReportData.isReportValid ()))
+              .append (BSON_CONTENT_HASH, sContentHash);
+  }
+
+  /**
+   * {@inheritDoc}<br>
+   * The report XML is streamed into the GridFS bucket
+   * {@link #getGridFSBucketNamePeppolReports()} and the report document only references it via
+   * the field {@link #BSON_PAYLOAD_FILE_ID} instead of {@link #BSON_PAYLOAD}.
+   */
+  @NonNull
+  public ESuccess storePeppolReportStreaming (@NonNull final PeppolReportStreamingData aReportData)
+  {
+    ValueEnforcer.notNull (aReportData, "ReportData");
+
+    final MongoClientWrapper aMongoDBClient = m_aMongoClientSupplier.get ();
+    if (aMongoDBClient == null)
+    {
+      LOGGER.error ("Failed to init MongoDB client - not storing Peppol Report");
+      return ESuccess.FAILURE;
+    }
+    if (!_isDBWritable (aMongoDBClient))
+    {
+      LOGGER.error ("MongoDB is not writable - not storing Peppol Report");
+      return ESuccess.FAILURE;
+    }
+
+    _ensureIndexes (aMongoDBClient);
+
+    // Hash first, so that duplicates don't need to be uploaded
+    final String sContentHash;
+    try
+    {
+      sContentHash = aReportData.getContentHash ();
+    }
+    catch (final UncheckedIOException ex)
+    {
+      LOGGER.error ("Failed to read Peppol Report payload - not storing Peppol Report", ex);
+      return ESuccess.FAILURE;
+    }
+    final MongoCollection <Document> aCollection = _getCollection (aMongoDBClient, m_sCollectionNamePeppolReports);
+    if (_isStored (aCollection, aReportData.getReportType (), aReportData.getReportPeriod (), sContentHash))
+    {
+      LOGGER.debug ("Identical Peppol Report is already stored in MongoDB - not storing it again");
+      return ESuccess.SUCCESS;
+    }
+
+    // Stream the payload into GridFS
+    final EPeppolReportCompression eCompression = m_eCompression;
+    final GridFSBucket aBucket = _getGridFSBucket (aMongoDBClient);
+    final String sFilename = _getGridFSFilename (aReportData.getReportType (),
+                                                 aReportData.getReportPeriod (),
+                                                 eCompression);
+    final GridFSUploadStream aUploadStream = aBucket.openUploadStream (sFilename);
+    try (final InputStream aIS = aReportData.getReportXMLProvider ().openStream ();
+         final OutputStream aOS = eCompression.getCompressingStream (aUploadStream))
+    {
+      aIS.transferTo (aOS);
+    }
+    catch (final IOException ex)
+    {
+      aUploadStream.abort ();
+      LOGGER.error ("Failed to read Peppol Report payload - not storing Peppol Report", ex);
+      return ESuccess.FAILURE;
+    }
+    final ObjectId aPayloadFileID = aUploadStream.getObjectId ();
+
+    // Create MongoDB document
+    final Document aBson = toBson (aReportData, aPayloadFileID, eCompression, sContentHash);
+
+    // Write to collection. On exceptions the GridFS payload is kept, as the document may have been
+    // stored nonetheless
+    if (_upsert (aCollection, aBson, "Peppol Reports").isUnchanged ())
+    {
+      // Stored concurrently in the meantime
+      aBucket.delete (aPayloadFileID);
+      LOGGER.debug ("Identical Peppol Report is already stored in MongoDB - not storing it again");
+      return ESuccess.SUCCESS;
+    }
+
+    _updateSummaries (aMongoDBClient,
+                      new CommonsArrayList <> (PeppolReportSummary.createEmpty (aReportData.getReportType (),
+                                                                                aReportData.getReportPeriod ())
+                                                                  .getWithReport (aReportData.getReportCreationDT (),
+                                                                                  aReportData.isReportValid ())));
 
     return ESuccess.SUCCESS;
   }
@@ -208,7 +1091,20 @@ public class PeppolReportStorageMongoDB implements IPeppolReportStorage
                                                                         Date.class));
     if (aSendingReportData.hasSendingReportContent ())
       ret.append (BSON_PAYLOAD, aSendingReportData.getSendingReportContent ());
-    return ret;
+    final PeppolReportSendingReportFields aFields = aSendingReportData.getFields ();
+    if (aFields != null)
+    {
+      // Only add the known fields, to keep the partial indexes small
+      if (aFields.getSendingSuccess () != null)
+        ret.append (BSON_SENDING_SUCCESS, aFields.getSendingSuccess ());
+      if (aFields.getAS4MessageID () != null)
+        ret.append (BSON_AS4_MESSAGE_ID, aFields.getAS4MessageID ());
+      if (aFields.getReceiverID () != null)
+        ret.append (BSON_RECEIVER_ID, aFields.getReceiverID ());
+      if (aFields.getErrorCode () != null)
+        ret.append (BSON_ERROR_CODE, aFields.getErrorCode ());
+    }
+    return ret.append (BSON_CONTENT_HASH, aSendingReportData.getContentHash ());
   }
 
   @NonNull
@@ -222,21 +1118,434 @@ public class PeppolReportStorageMongoDB implements IPeppolReportStorage
       LOGGER.error ("Failed to init MongoDB client - not storing Peppol Reporting Sending Report");
       return ESuccess.FAILURE;
     }
-    if (!aMongoDBClient.isDBWritable ())
+    if (!_isDBWritable (aMongoDBClient))
     {
       LOGGER.error ("MongoDB is not writable - not storing Peppol Reporting Sending Report");
       return ESuccess.FAILURE;
     }
 
+    _ensureIndexes (aMongoDBClient);
+
     // Create MongoDB document
     final Document aBson = toBson (aSendingReportData);
 
     // Write to collection
-    if (!aMongoDBClient.getCollection (m_sCollectionNamePeppolReportingSendingReports)
-                       .insertOne (aBson)
-                       .wasAcknowledged ())
-      throw new IllegalStateException ("Failed to insert into Peppol Reporting Sending Reports MongoDB Collection");
+    if (_upsert (_getCollection (aMongoDBClient, m_sCollectionNamePeppolReportingSendingReports),
+                 aBson,
+                 "Peppol Reporting Sending Reports").isUnchanged ())
+    {
+      LOGGER.debug ("Identical Peppol Reporting Sending Report is already stored in MongoDB - not storing it again");
+      return ESuccess.SUCCESS;
+    }
+
+    _updateSummaries (aMongoDBClient,
+                      new CommonsArrayList <> (PeppolReportSummary.createEmpty (aSendingReportData.getReportType (),
+                                                                                aSendingReportData.getReportPeriod ())
+                                                                  .getWithSendingReport (aSendingReportData.getReportCreationDT ())));
 
     return ESuccess.SUCCESS;
   }
+
+  /**
+   * Insert all provided documents that are not yet present with a single unordered bulk write.
+   *
+   * @param aCollection
+   *        The collection to write to. May not be <code>null</code>.
+   * @param aBsons
+   *        The documents to insert. May not be <code>null</code>.
+   * @param aInserted
+   *        Array with the same size as the documents. Filled with <code>true</code> for all
+   *        documents that were newly inserted.
+   * @param sObjectName
+   *        The name of the objects for error messages. May neither be <code>null</code> nor empty.
+   * @return The success state of each document. Already present documents count as success.
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  private static ICommonsList <ESuccess> _upsertMany (@NonNull final MongoCollection <Document> aCollection,
+                                                      @NonNull final ICommonsList <Document> aBsons,
+                                                      @NonNull final boolean [] aInserted,
+                                                      @NonNull @Nonempty final String sObjectName)
+  {
+    final ICommonsList <ESuccess> ret = new CommonsArrayList <> (aBsons.size ());
+    for (int i = 0; i < aBsons.size (); ++i)
+      ret.add (ESuccess.SUCCESS);
+
+    BulkWriteResult aResult;
+    try
+    {
+      // Unordered, so that a single failing document does not prevent the others from being stored
+      aResult = aCollection.bulkWrite (new CommonsArrayList <> (aBsons, PeppolReportStorageMongoDB::_getUpsert),
+                                       new BulkWriteOptions ().ordered (false));
+      if (!aResult.wasAcknowledged ())
+        throw new IllegalStateException ("Failed to insert into " + sObjectName + " MongoDB Collection");
+    }
+    catch (final MongoBulkWriteException ex)
+    {
+      int nFailures = 0;
+      for (final BulkWriteError aError : ex.getWriteErrors ())
+      {
+        // A duplicate key means a concurrent upsert of the same content won the race
+        if (!_isDuplicateKey (aError.getCategory ()))
+        {
+          ret.set (aError.getIndex (), ESuccess.FAILURE);
+          nFailures++;
+        }
+      }
+      if (nFailures > 0)
+        LOGGER.error ("Failed to insert " +
+                      nFailures +
+                      " of " +
+                      aBsons.size () +
+                      " " +
+                      sObjectName +
+                      " into MongoDB Collection",
+                      ex);
+      aResult = ex.getWriteResult ();
+    }
+
+    for (final BulkWriteUpsert aUpsert : aResult.getUpserts ())
+      aInserted[aUpsert.getIndex ()] = true;
+    return ret;
+  }
+
+  /**
+   * {@inheritDoc}<br>
+   * All reports are inserted with a single unordered <code>bulkWrite</code> operation of
+   * <code>$setOnInsert</code> upserts.
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  public ICommonsList <ESuccess> storePeppolReports (@NonNull final Collection <? extends PeppolReportData> aReportDatas)
+  {
+    ValueEnforcer.noNullValue (aReportDatas, "ReportDatas");
+
+    if (aReportDatas.isEmpty ())
+      return new CommonsArrayList <> ();
+
+    final MongoClientWrapper aMongoDBClient = m_aMongoClientSupplier.get ();
+    if (aMongoDBClient == null)
+    {
+      LOGGER.error ("Failed to init MongoDB client - not storing Peppol Reports");
+      return _getAllFailures (aReportDatas.size ());
+    }
+    if (!_isDBWritable (aMongoDBClient))
+    {
+      LOGGER.error ("MongoDB is not writable - not storing Peppol Reports");
+      return _getAllFailures (aReportDatas.size ());
+    }
+
+    _ensureIndexes (aMongoDBClient);
+
+    // Create MongoDB documents - null for already stored reports with an oversized payload
+    final EPeppolReportCompression eCompression = m_eCompression;
+    final MongoCollection <Document> aCollection = _getCollection (aMongoDBClient, m_sCollectionNamePeppolReports);
+    final GridFSBucket aBucket = _getGridFSBucket (aMongoDBClient);
+    final ICommonsList <Document> aAllBsons = new CommonsArrayList <> (aReportDatas,
+                                                                       x -> _toBsonWithGridFS (aCollection,
+                                                                                               aBucket,
+                                                                                               x,
+                                                                                               eCompression));
+    final ICommonsList <Document> aBsons = new CommonsArrayList <> ();
+    for (final Document aBson : aAllBsons)
+      if (aBson != null)
+        aBsons.add (aBson);
+    if (aBsons.isEmpty ())
+    {
+      LOGGER.debug ("All Peppol Reports are already stored in MongoDB - not storing them again");
+      final ICommonsList <ESuccess> ret = new CommonsArrayList <> (aReportDatas.size ());
+      for (int i = 0; i < aReportDatas.size (); ++i)
+        ret.add (ESuccess.SUCCESS);
+      return ret;
+    }
+
+    // Write to collection. On exceptions the GridFS payloads are kept, as the documents may have been
+    // stored nonetheless
+    final boolean [] aInserted = new boolean [aBsons.size ()];
+    final ICommonsList <ESuccess> aUpsertResults = _upsertMany (aCollection, aBsons, aInserted, "Peppol Reports");
+    // Payloads of duplicates and failures are not referenced
+    _deleteUnusedPayloadFiles (aBucket, aBsons, aInserted);
+
+    // Map back to the order of the provided reports and summarize only the newly stored reports -
+    // $max makes one update per report safe
+    final ICommonsList <ESuccess> ret = new CommonsArrayList <> (aReportDatas.size ());
+    final ICommonsList <PeppolReportSummary> aSummaries = new CommonsArrayList <> ();
+    int nAllIndex = 0;
+    int nIndex = 0;
+    for (final PeppolReportData aReportData : aReportDatas)
+    {
+      if (aAllBsons.get (nAllIndex++) == null)
+        ret.add (ESuccess.SUCCESS);
+      else
+      {
+        ret.add (aUpsertResults.get (nIndex));
+        if (aInserted[nIndex])
+          aSummaries.add (PeppolReportSummary.createEmpty (aReportData.getReportType (),
+                                                           aReportData.getReportPeriod ())
+                                             .getWithReport (aReportData.getReportCreationDT (),
+                                                             aReportData.isReportValid ()));
+        nIndex++;
+      }
+    }
+    _updateSummaries (aMongoDBClient, aSummaries);
+    return ret;
+  }
+
+  /**
+   * {@inheritDoc}<br>
+   * All sending reports are inserted with a single unordered <code>bulkWrite</code> operation of
+   * <code>$setOnInsert</code> upserts.
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  public ICommonsList <ESuccess> storePeppolReportingSendingReports (@NonNull final Collection <? extends PeppolReportSendingReportData> aSendingReportDatas)
+  {
+    ValueEnforcer.noNullValue (aSendingReportDatas, "SendingReportDatas");
+
+    if (aSendingReportDatas.isEmpty ())
+      return new CommonsArrayList <> ();
+
+    final MongoClientWrapper aMongoDBClient = m_aMongoClientSupplier.get ();
+    if (aMongoDBClient == null)
+    {
+      LOGGER.error ("Failed to init MongoDB client - not storing Peppol Reporting Sending Reports");
+      return _getAllFailures (aSendingReportDatas.size ());
+    }
+    if (!_isDBWritable (aMongoDBClient))
+    {
+      LOGGER.error ("MongoDB is not writable - not storing Peppol Reporting Sending Reports");
+      return _getAllFailures (aSendingReportDatas.size ());
+    }
+
+    _ensureIndexes (aMongoDBClient);
+
+    // Create MongoDB documents
+    final ICommonsList <Document> aBsons = new CommonsArrayList <> (aSendingReportDatas, x -> toBson (x));
+
+    // Write to collection
+    final boolean [] aInserted = new boolean [aBsons.size ()];
+    final ICommonsList <ESuccess> ret = _upsertMany (_getCollection (aMongoDBClient,
+                                                                     m_sCollectionNamePeppolReportingSendingReports),
+                                                     aBsons,
+                                                     aInserted,
+                                                     "Peppol Reporting Sending Reports");
+
+    // Summarize only the newly stored sending reports - $max makes one update per sending report safe
+    final ICommonsList <PeppolReportSummary> aSummaries = new CommonsArrayList <> ();
+    int nIndex = 0;
+    for (final PeppolReportSendingReportData aSendingReportData : aSendingReportDatas)
+      if (aInserted[nIndex++])
+        aSummaries.add (PeppolReportSummary.createEmpty (aSendingReportData.getReportType (),
+                                                         aSendingReportData.getReportPeriod ())
+                                           .getWithSendingReport (aSendingReportData.getReportCreationDT ()));
+    _updateSummaries (aMongoDBClient, aSummaries);
+    return ret;
+  }
+
+  @NonNull
+  @ReturnsMutableCopy
+  private static ICommonsList <ESuccess> _getAllFailures (final int nCount)
+  {
+    final ICommonsList <ESuccess> ret = new CommonsArrayList <> (nCount);
+    for (int i = 0; i < nCount; ++i)
+      ret.add (ESuccess.FAILURE);
+    return ret;
+  }
+
+  @NonNull
+  private static Bson _getFilter (@NonNull final PeppolReportQuery aQuery,
+                                  final boolean bWithValidity,
+                                  final boolean bWithSendingReportFields)
+  {
+    final ICommonsList <Bson> aFilters = new CommonsArrayList <> ();
+    if (aQuery.getReportType () != null)
+      aFilters.add (Filters.eq (BSON_REPORT_TYPE, aQuery.getReportType ().getID ()));
+    final YearMonth aPeriodFrom = aQuery.getReportPeriodFrom ();
+    if (aPeriodFrom != null)
+    {
+      final Integer aYear = Integer.valueOf (aPeriodFrom.getYear ());
+      aFilters.add (Filters.or (Filters.gt (BSON_YEAR, aYear),
+                                Filters.and (Filters.eq (BSON_YEAR, aYear),
+                                             Filters.gte (BSON_MONTH, Integer.valueOf (aPeriodFrom.getMonthValue ())))));
+    }
+    final YearMonth aPeriodTo = aQuery.getReportPeriodTo ();
+    if (aPeriodTo != null)
+    {
+      final Integer aYear = Integer.valueOf (aPeriodTo.getYear ());
+      aFilters.add (Filters.or (Filters.lt (BSON_YEAR, aYear),
+                                Filters.and (Filters.eq (BSON_YEAR, aYear),
+                                             Filters.lte (BSON_MONTH, Integer.valueOf (aPeriodTo.getMonthValue ())))));
+    }
+    if (bWithValidity && aQuery.getReportValid () != null)
+      aFilters.add (Filters.eq (BSON_PAYLOAD_VALID, aQuery.getReportValid ()));
+    if (aQuery.getReportCreationDTFrom () != null)
+      aFilters.add (Filters.gte (BSON_CREATION_DT,
+                                 TypeConverter.convert (aQuery.getReportCreationDTFrom (), Date.class)));
+    if (aQuery.getReportCreationDTTo () != null)
+      aFilters.add (Filters.lt (BSON_CREATION_DT, TypeConverter.convert (aQuery.getReportCreationDTTo (), Date.class)));
+    if (bWithSendingReportFields && aQuery.getSendingSuccess () != null)
+      aFilters.add (Filters.eq (BSON_SENDING_SUCCESS, aQuery.getSendingSuccess ()));
+    if (bWithSendingReportFields && aQuery.getAS4MessageID () != null)
+      aFilters.add (Filters.eq (BSON_AS4_MESSAGE_ID, aQuery.getAS4MessageID ()));
+    return aFilters.isEmpty () ? new Document () : Filters.and (aFilters);
+  }
+
+  @NonNull
+  private static <T> Stream <T> _query (@NonNull final MongoCollection <Document> aCollection,
+                                        @NonNull final PeppolReportQuery aQuery,
+                                        @NonNull final Bson aFilter,
+                                        @NonNull final Function <Document, T> aMapper)
+  {
+    final FindIterable <Document> aFind = aCollection.find (aFilter)
+                                                     .sort (Sorts.ascending (BSON_CREATION_DT))
+                                                     .skip (aQuery.getOffset ())
+                                                     .batchSize (aQuery.getPageSize ());
+    if (aQuery.hasMaxResults ())
+      aFind.limit (aQuery.getMaxResults ());
+    if (!aQuery.isIncludePayload ())
+      aFind.projection (Projections.exclude (BSON_PAYLOAD));
+
+    // The cursor loads one batch after the other
+    final MongoCursor <Document> aCursor = aFind.iterator ();
+    return StreamSupport.stream (Spliterators.spliteratorUnknownSize (aCursor,
+                                                                      Spliterator.ORDERED | Spliterator.NONNULL),
+                                 false)
+                        .onClose (aCursor::close)
+                        .map (aMapper);
+  }
+
+  @NonNull
+  private static EPeppolReportType _getReportType (@NonNull final Document aDoc)
+  {
+    final String sReportType = aDoc.getString (BSON_REPORT_TYPE);
+    final EPeppolReportType ret = EPeppolReportType.getFromIDOrNull (sReportType);
+    if (ret == null)
+      throw new IllegalStateException ("Unsupported report type '" + sReportType + "' found");
+    return ret;
+  }
+
+  @Nullable
+  private static byte [] _getPayloadBytes (@NonNull final Document aDoc, @NonNull final GridFSBucket aBucket)
+  {
+    final byte [] aRawBytes;
+    final ObjectId aPayloadFileID = aDoc.getObjectId (BSON_PAYLOAD_FILE_ID);
+    if (aPayloadFileID != null)
+    {
+      final ByteArrayOutputStream aBAOS = new ByteArrayOutputStream ();
+      aBucket.downloadToStream (aPayloadFileID, aBAOS);
+      aRawBytes = aBAOS.toByteArray ();
+    }
+    else
+    {
+      final Object aPayload = aDoc.get (BSON_PAYLOAD);
+      if (aPayload instanceof Binary)
+        aRawBytes = ((Binary) aPayload).getData ();
+      else
+        if (aPayload instanceof byte [])
+          aRawBytes = (byte []) aPayload;
+        else
+          if (aPayload instanceof String)
+            aRawBytes = ((String) aPayload).getBytes (StandardCharsets.UTF_8);
+          else
+            return null;
+    }
+
+    // A missing field means the payload was stored without compression
+    final EPeppolReportCompression eCompression = EPeppolReportCompression.getFromIDOrDefault (aDoc.getString (BSON_PAYLOAD_COMPRESSION),
+                                                                                              EPeppolReportCompression.NONE);
+    return eCompression.decompress (aRawBytes);
+  }
+
+  public boolean isQuerySupported ()
+  {
+    return true;
+  }
+
+  /**
+   * {@inheritDoc}<br>
+   * The results are ordered by creation date and time and are read with a MongoDB cursor. Payloads
+   * stored in GridFS are read from there and compressed payloads are decompressed transparently.
+   */
+  @NonNull
+  public Stream <PeppolReportStoredData> queryPeppolReports (@NonNull final PeppolReportQuery aQuery)
+  {
+    ValueEnforcer.notNull (aQuery, "Query");
+
+    final MongoClientWrapper aMongoDBClient = m_aMongoClientSupplier.get ();
+    if (aMongoDBClient == null)
+      throw new IllegalStateException ("Failed to init MongoDB client - cannot query Peppol Reports");
+
+    final boolean bIncludePayload = aQuery.isIncludePayload ();
+    final GridFSBucket aBucket = _getGridFSBucket (aMongoDBClient);
+    return _query (aMongoDBClient.getCollection (m_sCollectionNamePeppolReports),
+                   aQuery,
+                   _getFilter (aQuery, true, false),
+                   aDoc -> new PeppolReportStoredData (_getReportType (aDoc),
+                                                       YearMonth.of (aDoc.getInteger (BSON_YEAR).intValue (),
+                                                                     aDoc.getInteger (BSON_MONTH).intValue ()),
+                                                       TypeConverter.convert (aDoc.getDate (BSON_CREATION_DT),
+                                                                              LocalDateTime.class),
+                                                       bIncludePayload ? _getPayloadBytes (aDoc, aBucket) : null,
+                                                       aDoc.getBoolean (BSON_PAYLOAD_VALID, false)));
+  }
+
+  /**
+   * {@inheritDoc}<br>
+   * The results are ordered by creation date and time and are read with a MongoDB cursor.
+   */
+  @NonNull
+  public Stream <PeppolReportSendingReportData> queryPeppolReportingSendingReports (@NonNull final PeppolReportQuery aQuery)
+  {
+    ValueEnforcer.notNull (aQuery, "Query");
+
+    final MongoClientWrapper aMongoDBClient = m_aMongoClientSupplier.get ();
+    if (aMongoDBClient == null)
+      throw new IllegalStateException ("Failed to init MongoDB client - cannot query Peppol Reporting Sending Reports");
+
+    final boolean bIncludePayload = aQuery.isIncludePayload ();
+    return _query (aMongoDBClient.getCollection (m_sCollectionNamePeppolReportingSendingReports),
+                   aQuery,
+                   _getFilter (aQuery, false, true),
+                   aDoc -> new PeppolReportSendingReportData (_getReportType (aDoc),
+                                                              YearMonth.of (aDoc.getInteger (BSON_YEAR).intValue (),
+                                                                            aDoc.getInteger (BSON_MONTH).intValue ()),
+                                                              TypeConverter.convert (aDoc.getDate (BSON_CREATION_DT),
+                                                                                     LocalDateTime.class),
+                                                              bIncludePayload ? aDoc.getString (BSON_PAYLOAD) : null,
+                                                              new PeppolReportSendingReportFields (aDoc.getBoolean (BSON_SENDING_SUCCESS),
+                                                                                                   aDoc.getString (BSON_AS4_MESSAGE_ID),
+                                                                                                   aDoc.getString (BSON_RECEIVER_ID),
+                                                                                                   aDoc.getString (BSON_ERROR_CODE))));
+  }
+
+  /**
+   * {@inheritDoc}<br>
+   * The summary is read from the collection {@link #getCollectionNamePeppolReportSummaries()}
+   * without touching the report collections. Only if no summary exists (e.g. for periods stored with
+   * a previous version), the report collections are queried.
+   */
+  @Nullable
+  public PeppolReportSummary getPeppolReportSummary (@NonNull final EPeppolReportType eReportType,
+                                                     @NonNull final YearMonth aReportPeriod)
+  {
+    ValueEnforcer.notNull (eReportType, "ReportType");
+    ValueEnforcer.notNull (aReportPeriod, "ReportPeriod");
+
+    final MongoClientWrapper aMongoDBClient = m_aMongoClientSupplier.get ();
+    if (aMongoDBClient == null)
+      throw new IllegalStateException ("Failed to init MongoDB client - cannot read Peppol Report summary");
+
+    final Document aDoc = aMongoDBClient.getCollection (m_sCollectionNamePeppolReportSummaries)
+                                        .find (_getSummaryFilter (eReportType, aReportPeriod))
+                                        .first ();
+    if (aDoc == null)
+      return IPeppolReportStorage.super.getPeppolReportSummary (eReportType, aReportPeriod);
+    return new PeppolReportSummary (eReportType,
+                                    aReportPeriod,
+                                    TypeConverter.convert (aDoc.getDate (BSON_LAST_CREATION_DT), LocalDateTime.class),
+                                    TypeConverter.convert (aDoc.getDate (BSON_LAST_VALID_CREATION_DT),
+                                                           LocalDateTime.class),
+                                    TypeConverter.convert (aDoc.getDate (BSON_LAST_SENDING_CREATION_DT),
+                                                           LocalDateTime.class));
+  }
 }
@@ -0,0 +1,1383 @@
+/*
+ * Copyright (C) 2025-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.reportingsupport.segmentlog;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.annotation.style.ReturnsMutableCopy;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.state.ESuccess;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+import com.helger.peppol.reportingsupport.EPeppolReportCompression;
+import com.helger.peppol.reportingsupport.EPeppolReportType;
+import com.helger.peppol.reportingsupport.IPeppolReportStorage;
+import com.helger.peppol.reportingsupport.domain.PeppolReportData;
+import com.helger.peppol.reportingsupport.domain.PeppolReportQuery;
+import com.helger.peppol.reportingsupport.domain.PeppolReportSendingReportData;
+import com.helger.peppol.reportingsupport.domain.PeppolReportSendingReportFields;
+import com.helger.peppol.reportingsupport.domain.PeppolReportStoredData;
+import com.helger.peppol.reportingsupport.domain.PeppolReportSummary;
+import com.helger.peppol.reportingsupport.file.EPeppolReportFileSync;
+
+/**
+ * Implementation of {@link IPeppolReportStorage} that appends all reports and sending reports as
+ * records to rolling segment files in a single directory, instead of writing one file per
+ * report.<br>
+ * Each record starts with a fixed header containing a magic number, the length and a CRC-32C
+ * checksum of the record body, followed by the metadata and the payload. A new segment is started
+ * when appending the next record would exceed {@link #setMaxSegmentSize(long)}. Only the last
+ * segment is appended to, so all other segments are never modified again and can be archived as a
+ * whole.<br>
+ * Next to each segment a compact index file contains the offset, the length and the metadata of
+ * every record. The indices of all segments are loaded into memory on first usage, grouped by
+ * period, so that queries and summaries never scan the segments. Only the payloads of the matching
+ * records are read, via memory mapped segments. If an index file is missing or does not match its
+ * segment (e.g. after a crash), it is rebuilt by scanning the segment and verifying the checksums.
+ * Corrupt data in the middle of a segment is skipped up to the next valid record and logged, but
+ * never removed. Only an incomplete record at the end of the last segment is truncated.<br>
+ * Storing is idempotent: a record with the same report type, period and content hash as an
+ * existing record of the same kind is not appended again.<br>
+ * {@link #setSync(EPeppolReportFileSync)} defines what is forced to disk. A batch is forced only
+ * once after all records were appended. The index files are never forced, as they can be
+ * rebuilt.<br>
+ * All writes are serialized. Only one instance may use a directory at a time, which is enforced by a
+ * file lock on a lock file in the directory. {@link #close()} closes the last segment and releases
+ * the lock. Both are acquired again on the next usage.
+ *
+ * @author Philip Helger
+ * @since 2.2.2
+ */
+public class PeppolReportStorageSegmentLog implements IPeppolReportStorage, AutoCloseable
+{
+  /** The default maximum size of a single segment file in bytes */
+  public static final long DEFAULT_MAX_SEGMENT_SIZE = 64L * 1024 * 1024;
+  /** The upper limit of the maximum segment size, so that every segment can be memory mapped */
+  public static final long MAX_SEGMENT_SIZE_LIMIT = 1024L * 1024 * 1024;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger (PeppolReportStorageSegmentLog.class);
+  private static final String SEGMENT_FILENAME_PREFIX = "segment-";
+  private static final String SEGMENT_FILENAME_SUFFIX = ".log";
+  private static final String INDEX_FILENAME_SUFFIX = ".idx";
+  private static final String LOCK_FILENAME = "segment.lock";
+  private static final Pattern SEGMENT_FILENAME_PATTERN = Pattern.compile ("segment-([0-9]{20})\\.log");
+  // "PRS1" in ASCII
+  private static final int RECORD_MAGIC = 0x50525331;
+  // Magic, body length and CRC
+  private static final int RECORD_HEADER_SIZE = 12;
+  private static final byte RECORD_VERSION = 1;
+  private static final byte KIND_REPORT = 1;
+  private static final byte KIND_SENDING_REPORT = 2;
+
+  private final File m_aBaseDir;
+  private EPeppolReportCompression m_eCompression = EPeppolReportCompression.NONE;
+  private EPeppolReportFileSync m_eSync = EPeppolReportFileSync.NONE;
+  private long m_nMaxSegmentSize = DEFAULT_MAX_SEGMENT_SIZE;
+
+  // Writes and loading the indices use the write lock, index lookups the read lock
+  private final ReadWriteLock m_aRWLock = new ReentrantReadWriteLock ();
+  private volatile boolean m_bOpen = false;
+  private final ICommonsList <Segment> m_aSegments = new CommonsArrayList <> ();
+  private final NavigableMap <YearMonth, ICommonsList <IndexEntry>> m_aReportIndex = new TreeMap <> ();
+  private final NavigableMap <YearMonth, ICommonsList <IndexEntry>> m_aSendingReportIndex = new TreeMap <> ();
+  private final Set <String> m_aContentKeys = new HashSet <> ();
+  private final Map <EPeppolReportType, Map <YearMonth, PeppolReportSummary>> m_aSummaries = new EnumMap <> (EPeppolReportType.class);
+  private FileChannel m_aLogChannel;
+  private FileChannel m_aIndexChannel;
+  private FileChannel m_aLockChannel;
+  private FileLock m_aDirLock;
+
+  /**
+   * A single segment file and its index file.
+   */
+  private static final class Segment
+  {
+    private final long m_nSequence;
+    private final Path m_aLogFile;
+    private final Path m_aIndexFile;
+    // The read-only mapping of the segment, replaced when the segment grew
+    private MappedByteBuffer m_aMapped;
+
+    Segment (@NonNull final Path aBaseDir, final long nSequence)
+    {
+      final String sBaseName = SEGMENT_FILENAME_PREFIX + String.format ("%020d", Long.valueOf (nSequence));
+      m_nSequence = nSequence;
+      m_aLogFile = aBaseDir.resolve (sBaseName + SEGMENT_FILENAME_SUFFIX);
+      m_aIndexFile = aBaseDir.resolve (sBaseName + INDEX_FILENAME_SUFFIX);
+    }
+
+    /**
+     * @param nRequiredSize
+     *        The number of bytes that must be contained in the mapping.
+     * @return A new buffer on the mapping of the segment, with an independent position. Never
+     *         <code>null</code>.
+     * @throws IOException
+     *         If mapping fails or the segment is too short
+     */
+    @NonNull
+    synchronized ByteBuffer getMapped (final long nRequiredSize) throws IOException
+    {
+      if (m_aMapped == null || m_aMapped.capacity () < nRequiredSize)
+      {
+        try (final FileChannel aChannel = FileChannel.open (m_aLogFile, StandardOpenOption.READ))
+        {
+          final long nSize = aChannel.size ();
+          if (nSize < nRequiredSize)
+            throw new IOException ("Segment '" + m_aLogFile + "' has only " + nSize + " bytes instead of " + nRequiredSize);
+          if (nSize > Integer.MAX_VALUE)
+            throw new IOException ("Segment '" + m_aLogFile + "' is too large to be mapped");
+          m_aMapped = aChannel.map (FileChannel.MapMode.READ_ONLY, 0, nSize);
+        }
+      }
+      return m_aMapped.duplicate ();
+    }
+
+    synchronized void resetMapping ()
+    {
+      m_aMapped = null;
+    }
+  }
+
+  /**
+   * The metadata of a single record, as contained in the segment and in the index.
+   */
+  private static final class RecordMetadata
+  {
+    private final byte m_nKind;
+    private final EPeppolReportType m_eReportType;
+    private final YearMonth m_aReportPeriod;
+    private final LocalDateTime m_aReportCreationDT;
+    private final boolean m_bReportValid;
+    private final EPeppolReportCompression m_eCompression;
+    private final String m_sContentHash;
+    private final PeppolReportSendingReportFields m_aFields;
+
+    RecordMetadata (final byte nKind,
+                    @NonNull final EPeppolReportType eReportType,
+                    @NonNull final YearMonth aReportPeriod,
+                    @NonNull final LocalDateTime aReportCreationDT,
+                    final boolean bReportValid,
+                    @NonNull final EPeppolReportCompression eCompression,
+                    @NonNull final String sContentHash,
+                    @Nullable final PeppolReportSendingReportFields aFields)
+    {
+      m_nKind = nKind;
+      m_eReportType = eReportType;
+      m_aReportPeriod = aReportPeriod;
+      m_aReportCreationDT = aReportCreationDT;
+      m_bReportValid = bReportValid;
+      m_eCompression = eCompression;
+      m_sContentHash = sContentHash;
+      m_aFields = aFields;
+    }
+
+    boolean isReport ()
+    {
+      return m_nKind == KIND_REPORT;
+    }
+
+    @NonNull
+    String getContentKey ()
+    {
+      return m_nKind + ":" + m_eReportType.getID () + ":" + m_aReportPeriod + ":" + m_sContentHash;
+    }
+
+    void writeTo (@NonNull final DataOutputStream aDOS) throws IOException
+    {
+      aDOS.writeByte (RECORD_VERSION);
+      aDOS.writeByte (m_nKind);
+      _writeString (aDOS, m_eReportType.getID ());
+      aDOS.writeInt (m_aReportPeriod.getYear ());
+      aDOS.writeByte (m_aReportPeriod.getMonthValue ());
+      aDOS.writeLong (m_aReportCreationDT.toEpochSecond (ZoneOffset.UTC));
+      aDOS.writeInt (m_aReportCreationDT.getNano ());
+      aDOS.writeBoolean (m_bReportValid);
+      _writeString (aDOS, m_eCompression.getID ());
+      _writeString (aDOS, m_sContentHash);
+      if (m_nKind == KIND_SENDING_REPORT)
+      {
+        aDOS.writeBoolean (m_aFields != null);
+        if (m_aFields != null)
+        {
+          final Boolean aSendingSuccess = m_aFields.getSendingSuccess ();
+          aDOS.writeByte (aSendingSuccess == null ? -1 : aSendingSuccess.booleanValue () ? 1 : 0);
+          _writeString (aDOS, m_aFields.getAS4MessageID ());
+          _writeString (aDOS, m_aFields.getReceiverID ());
+          _writeString (aDOS, m_aFields.getErrorCode ());
+        }
+      }
+    }
+
+    /**
+     * Read the metadata at the current position of the buffer. Afterwards the position is right
+     * after the metadata.
+     *
+     * @param aBuffer
+     *        The buffer to read from. May not be <code>null</code>.
+     * @return The read metadata and never <code>null</code>.
+     * @throws IOException
+     *         In case the metadata is invalid
+     */
+    @NonNull
+    static RecordMetadata readFrom (@NonNull final ByteBuffer aBuffer) throws IOException
+    {
+      final byte nVersion = aBuffer.get ();
+      if (nVersion != RECORD_VERSION)
+        throw new IOException ("Unsupported record version " + nVersion);
+      final byte nKind = aBuffer.get ();
+      if (nKind != KIND_REPORT && nKind != KIND_SENDING_REPORT)
+        throw new IOException ("Unsupported record kind " + nKind);
+      final String sReportType = _readString (aBuffer);
+      final EPeppolReportType eReportType = EPeppolReportType.getFromIDOrNull (sReportType);
+      if (eReportType == null)
+        throw new IOException ("Unsupported report type '" + sReportType + "'");
+      final int nYear = aBuffer.getInt ();
+      final int nMonth = aBuffer.get ();
+      final long nEpochSecond = aBuffer.getLong ();
+      final int nNano = aBuffer.getInt ();
+      final boolean bReportValid = aBuffer.get () != 0;
+      final String sCompression = _readString (aBuffer);
+      final EPeppolReportCompression eCompression = EPeppolReportCompression.getFromIDOrNull (sCompression);
+      if (eCompression == null)
+        throw new IOException ("Unsupported compression '" + sCompression + "'");
+      final String sContentHash = _readString (aBuffer);
+      if (sContentHash == null)
+        throw new IOException ("The content hash is missing");
+      PeppolReportSendingReportFields aFields = null;
+      if (nKind == KIND_SENDING_REPORT && aBuffer.get () != 0)
+      {
+        final byte nSendingSuccess = aBuffer.get ();
+        aFields = new PeppolReportSendingReportFields (nSendingSuccess < 0 ? null : Boolean.valueOf (nSendingSuccess != 0),
+                                                       _readString (aBuffer),
+                                                       _readString (aBuffer),
+                                                       _readString (aBuffer));
+      }
+      return new RecordMetadata (nKind,
+                                 eReportType,
+                                 YearMonth.of (nYear, nMonth),
+                                 LocalDateTime.ofEpochSecond (nEpochSecond, nNano, ZoneOffset.UTC),
+                                 bReportValid,
+                                 eCompression,
+                                 sContentHash,
+                                 aFields);
+    }
+  }
+
+  /**
+   * The location and metadata of a single record.
+   */
+  private static final class IndexEntry
+  {
+    private final Segment m_aSegment;
+    private final long m_nOffset;
+    private final int m_nLength;
+    private final RecordMetadata m_aMetadata;
+
+    IndexEntry (@NonNull final Segment aSegment,
+                final long nOffset,
+                final int nLength,
+                @NonNull final RecordMetadata aMetadata)
+    {
+      m_aSegment = aSegment;
+      m_nOffset = nOffset;
+      m_nLength = nLength;
+      m_aMetadata = aMetadata;
+    }
+
+    long getEnd ()
+    {
+      return m_nOffset + m_nLength;
+    }
+
+    void writeTo (@NonNull final DataOutputStream aDOS) throws IOException
+    {
+      aDOS.writeLong (m_nOffset);
+      aDOS.writeInt (m_nLength);
+      m_aMetadata.writeTo (aDOS);
+    }
+  }
+
+  /**
+   * Constructor
+   *
+   * @param aBaseDir
+   *        The directory that contains all segment and index files. It is created on demand. May
+   *        not be <code>null</code>.
+   */
+  public PeppolReportStorageSegmentLog (@NonNull final File aBaseDir)
+  {
+    ValueEnforcer.notNull (aBaseDir, "BaseDir");
+    m_aBaseDir = aBaseDir;
+  }
+
+  /**
+   * @return The base directory as provided in the constructor. Never <code>null</code>.
+   */
+  @NonNull
+  public final File getBaseDir ()
+  {
+    return m_aBaseDir;
+  }
+
+  /**
+   * @return The compression applied to the payload of newly stored reports. Never
+   *         <code>null</code>. Defaults to {@link EPeppolReportCompression#NONE}.
+   */
+  @NonNull
+  public final EPeppolReportCompression getCompression ()
+  {
+    return m_eCompression;
+  }
+
+  /**
+   * Set the compression to be applied to the payload of newly stored reports. Existing records are
+   * not touched, as the compression is part of each record.
+   *
+   * @param eCompression
+   *        The compression to use. May not be <code>null</code>.
+   * @return this for chaining
+   */
+  @NonNull
+  public final PeppolReportStorageSegmentLog setCompression (@NonNull final EPeppolReportCompression eCompression)
+  {
+    ValueEnforcer.notNull (eCompression, "Compression");
+    m_eCompression = eCompression;
+    return this;
+  }
+
+  /**
+   * @return What is forced to disk after appending records. Never <code>null</code>. Defaults to
+   *         {@link EPeppolReportFileSync#NONE}.
+   */
+  @NonNull
+  public final EPeppolReportFileSync getSync ()
+  {
+    return m_eSync;
+  }
+
+  /**
+   * Define what is forced to disk after appending records. With
+   * {@link EPeppolReportFileSync#FILE_AND_DIRECTORY} the directory is additionally forced after a
+   * new segment was created.
+   *
+   * @param eSync
+   *        The sync policy to use. May not be <code>null</code>.
+   * @return this for chaining
+   */
+  @NonNull
+  public final PeppolReportStorageSegmentLog setSync (@NonNull final EPeppolReportFileSync eSync)
+  {
+    ValueEnforcer.notNull (eSync, "Sync");
+    m_eSync = eSync;
+    return this;
+  }
+
+  /**
+   * @return The maximum size of a single segment file in bytes. Defaults to
+   *         {@link #DEFAULT_MAX_SEGMENT_SIZE}.
+   */
+  public final long getMaxSegmentSize ()
+  {
+    return m_nMaxSegmentSize;
+  }
+
+  /**
+   * Set the maximum size of a single segment file. A record that is larger than this size is
+   * written to a segment of its own. Changes only apply to the next record appended.
+   *
+   * @param nMaxSegmentSize
+   *        The maximum size in bytes. Must be &gt; 0 and &le; {@link #MAX_SEGMENT_SIZE_LIMIT}.
+   * @return this for chaining
+   */
+  @NonNull
+  public final PeppolReportStorageSegmentLog setMaxSegmentSize (final long nMaxSegmentSize)
+  {
+    ValueEnforcer.isBetweenInclusive (nMaxSegmentSize, "MaxSegmentSize", 1, MAX_SEGMENT_SIZE_LIMIT);
+    m_nMaxSegmentSize = nMaxSegmentSize;
+    return this;
+  }
+
+  private static void _writeString (@NonNull final DataOutputStream aDOS, @Nullable final String s) throws IOException
+  {
+    if (s == null)
+      aDOS.writeShort (-1);
+    else
+    {
+      final byte [] aBytes = s.getBytes (StandardCharsets.UTF_8);
+      if (aBytes.length > Short.MAX_VALUE)
+        throw new IOException ("The string value is too long (" + aBytes.length + " bytes)");
+      aDOS.writeShort (aBytes.length);
+      aDOS.write (aBytes);
+    }
+  }
+
+  @Nullable
+  private static String _readString (@NonNull final ByteBuffer aBuffer)
+  {
+    final short nLength = aBuffer.getShort ();
+    if (nLength < 0)
+      return null;
+    final byte [] aBytes = new byte [nLength];
+    aBuffer.get (aBytes);
+    return new String (aBytes, StandardCharsets.UTF_8);
+  }
+
+  private static int _getCRC (@NonNull final ByteBuffer aBody)
+  {
+    final CRC32C aCRC = new CRC32C ();
+    // Don't modify the position of the source buffer
+    aCRC.update (aBody.duplicate ());
+    return (int) aCRC.getValue ();
+  }
+
+  private static void _syncDirectory (@NonNull final Path aDir)
+  {
+    try (final FileChannel aChannel = FileChannel.open (aDir, StandardOpenOption.READ))
+    {
+      aChannel.force (true);
+    }
+    catch (final IOException ex)
+    {
+      // Not supported on all platforms, e.g. on Windows
+      LOGGER.debug ("Failed to sync directory '" + aDir + "'", ex);
+    }
+  }
+
+  private static void _writeFully (@NonNull final FileChannel aChannel, @NonNull final ByteBuffer aBuffer) throws IOException
+  {
+    while (aBuffer.hasRemaining ())
+      aChannel.write (aBuffer);
+  }
+
+  /**
+   * Create the complete binary record, including the header.
+   *
+   * @param aMetadata
+   *        The record metadata. May not be <code>null</code>.
+   * @param aUncompressedPayload
+   *        The payload to store. It is compressed according to the metadata. May be
+   *        <code>null</code>.
+   * @return The record bytes and never <code>null</code>.
+   * @throws IOException
+   *         In case the metadata cannot be serialized
+   * @throws UncheckedIOException
+   *         In case compression fails
+   */
+  @NonNull
+  private static byte [] _createRecord (@NonNull final RecordMetadata aMetadata,
+                                        @Nullable final byte [] aUncompressedPayload) throws IOException
+  {
+    final byte [] aPayload = aUncompressedPayload == null ? null : aMetadata.m_eCompression.compress (aUncompressedPayload);
+    final ByteArrayOutputStream aBAOS = new ByteArrayOutputStream ((aPayload == null ? 0 : aPayload.length) + 256);
+    try (final DataOutputStream aDOS = new DataOutputStream (aBAOS))
+    {
+      // Length and CRC are filled in afterwards
+      aDOS.writeInt (RECORD_MAGIC);
+      aDOS.writeInt (0);
+      aDOS.writeInt (0);
+      aMetadata.writeTo (aDOS);
+      if (aPayload == null)
+        aDOS.writeInt (-1);
+      else
+      {
+        aDOS.writeInt (aPayload.length);
+        aDOS.write (aPayload);
+      }
+    }
+    final byte [] ret = aBAOS.toByteArray ();
+    final int nBodyLength = ret.length - RECORD_HEADER_SIZE;
+    final ByteBuffer aBuffer = ByteBuffer.wrap (ret);
+    aBuffer.putInt (4, nBodyLength);
+    aBuffer.putInt (8, _getCRC (ByteBuffer.wrap (ret, RECORD_HEADER_SIZE, nBodyLength)));
+    return ret;
+  }
+
+  /**
+   * Get the body of the record at the provided offset after verifying header and checksum.
+   *
+   * @param aMapped
+   *        The mapped segment. May not be <code>null</code>.
+   * @param nOffset
+   *        The offset of the record within the segment.
+   * @return <code>null</code> if there is no complete and valid record at the offset. Otherwise the
+   *         buffer positioned at the start of the body and limited to the end of the body.
+   */
+  @Nullable
+  private static ByteBuffer _getRecordBody (@NonNull final ByteBuffer aMapped, final int nOffset)
+  {
+    if (nOffset < 0 || aMapped.limit () - nOffset < RECORD_HEADER_SIZE)
+      return null;
+    if (aMapped.getInt (nOffset) != RECORD_MAGIC)
+      return null;
+    final int nBodyLength = aMapped.getInt (nOffset + 4);
+    if (nBodyLength < 0 || nBodyLength > aMapped.limit () - nOffset - RECORD_HEADER_SIZE)
+      return null;
+    final ByteBuffer ret = aMapped.slice (nOffset + RECORD_HEADER_SIZE, nBodyLength);
+    if (_getCRC (ret) != aMapped.getInt (nOffset + 8))
+      return null;
+    return ret;
+  }
+
+  /**
+   * Find the next valid record after corrupt data.
+   *
+   * @param aMapped
+   *        The mapped segment. May not be <code>null</code>.
+   * @param nStartOffset
+   *        The first offset to check.
+   * @return The offset of the next record with a valid header and checksum or -1 if there is none.
+   */
+  private static int _findNextRecord (@NonNull final ByteBuffer aMapped, final int nStartOffset)
+  {
+    for (int nOffset = nStartOffset; nOffset <= aMapped.limit () - RECORD_HEADER_SIZE; ++nOffset)
+      if (aMapped.getInt (nOffset) == RECORD_MAGIC && _getRecordBody (aMapped, nOffset) != null)
+        return nOffset;
+    return -1;
+  }
+
+  /**
+   * Rebuild the index of a segment by scanning all records from the start. A corrupt record that is
+   * followed by a valid record is skipped, so that a single damaged record does not hide all
+   * subsequent records. Scanning stops at corrupt or incomplete data at the end of the segment.
+   *
+   * @param aSegment
+   *        The segment to scan. May not be <code>null</code>.
+   * @param nSize
+   *        The current size of the segment.
+   * @return The entries of all valid records. Never <code>null</code>.
+   * @throws IOException
+   *         If the segment cannot be mapped
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  private static ICommonsList <IndexEntry> _scanSegment (@NonNull final Segment aSegment, final long nSize) throws IOException
+  {
+    final ICommonsList <IndexEntry> ret = new CommonsArrayList <> ();
+    if (nSize == 0)
+      return ret;
+
+    final ByteBuffer aMapped = aSegment.getMapped (nSize);
+    int nOffset = 0;
+    while (nOffset < nSize)
+    {
+      final ByteBuffer aBody = _getRecordBody (aMapped, nOffset);
+      RecordMetadata aMetadata = null;
+      if (aBody != null)
+      {
+        try
+        {
+          aMetadata = RecordMetadata.readFrom (aBody);
+        }
+        catch (final IOException | RuntimeException ex)
+        {
+          LOGGER.warn ("Failed to read the record at offset " + nOffset + " of '" + aSegment.m_aLogFile + "'", ex);
+        }
+      }
+
+      if (aMetadata != null)
+      {
+        final int nLength = RECORD_HEADER_SIZE + aBody.limit ();
+        ret.add (new IndexEntry (aSegment, nOffset, nLength, aMetadata));
+        nOffset += nLength;
+      }
+      else
+      {
+        final int nNextOffset = _findNextRecord (aMapped, nOffset + 1);
+        if (nNextOffset < 0)
+        {
+          // Incomplete or corrupt data at the end - handled by the caller
+          break;
+        }
+        LOGGER.error ("Skipping " +
+                      (nNextOffset - nOffset) +
+                      " bytes of corrupt data at offset " +
+                      nOffset +
+                      " of segment '" +
+                      aSegment.m_aLogFile +
+                      "'");
+        nOffset = nNextOffset;
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * Read the index file of a segment.
+   *
+   * @param aSegment
+   *        The segment to read the index of. May not be <code>null</code>.
+   * @param nSize
+   *        The current size of the segment.
+   * @return <code>null</code> if the index file does not exist, is corrupt or does not cover the
+   *         complete segment.
+   */
+  @Nullable
+  @ReturnsMutableCopy
+  private static ICommonsList <IndexEntry> _readIndexFile (@NonNull final Segment aSegment, final long nSize)
+  {
+    if (!Files.isRegularFile (aSegment.m_aIndexFile))
+      return null;
+
+    try
+    {
+      final ByteBuffer aBuffer = ByteBuffer.wrap (Files.readAllBytes (aSegment.m_aIndexFile));
+      final ICommonsList <IndexEntry> ret = new CommonsArrayList <> ();
+      long nExpectedOffset = 0;
+      while (aBuffer.hasRemaining ())
+      {
+        final long nOffset = aBuffer.getLong ();
+        final int nLength = aBuffer.getInt ();
+        if (nOffset != nExpectedOffset)
+          return null;
+        if (nLength < 0)
+        {
+          // Corrupt data that was skipped when the index was rebuilt
+          nExpectedOffset = nOffset - nLength;
+          continue;
+        }
+        if (nLength <= RECORD_HEADER_SIZE)
+          return null;
+        ret.add (new IndexEntry (aSegment, nOffset, nLength, RecordMetadata.readFrom (aBuffer)));
+        nExpectedOffset = nOffset + nLength;
+      }
+      // Records without index entries are present e.g. after a crash
+      return nExpectedOffset == nSize ? ret : null;
+    }
+    catch (final IOException | RuntimeException ex)
+    {
+      LOGGER.warn ("Failed to read the index file '" + aSegment.m_aIndexFile + "'", ex);
+      return null;
+    }
+  }
+
+  private static void _writeIndexFile (@NonNull final Segment aSegment,
+                                       @NonNull final ICommonsList <IndexEntry> aEntries) throws IOException
+  {
+    try (final DataOutputStream aDOS = new DataOutputStream (new BufferedOutputStream (Files.newOutputStream (aSegment.m_aIndexFile))))
+    {
+      long nExpectedOffset = 0;
+      for (final IndexEntry aEntry : aEntries)
+      {
+        if (aEntry.m_nOffset > nExpectedOffset)
+        {
+          // Skipped corrupt data is stored with a negative length, so that the index stays complete
+          aDOS.writeLong (nExpectedOffset);
+          aDOS.writeInt ((int) (nExpectedOffset - aEntry.m_nOffset));
+        }
+        aEntry.writeTo (aDOS);
+        nExpectedOffset = aEntry.getEnd ();
+      }
+    }
+  }
+
+  @NonNull
+  private Segment _getLastSegment ()
+  {
+    return m_aSegments.get (m_aSegments.size () - 1);
+  }
+
+  private void _addToIndex (@NonNull final IndexEntry aEntry)
+  {
+    final RecordMetadata aMetadata = aEntry.m_aMetadata;
+    final boolean bReport = aMetadata.isReport ();
+    (bReport ? m_aReportIndex : m_aSendingReportIndex).computeIfAbsent (aMetadata.m_aReportPeriod,
+                                                                         k -> new CommonsArrayList <> ())
+                                                        .add (aEntry);
+    m_aContentKeys.add (aMetadata.getContentKey ());
+    m_aSummaries.computeIfAbsent (aMetadata.m_eReportType, k -> new HashMap <> ())
+                .compute (aMetadata.m_aReportPeriod, (k, v) -> {
+                  final PeppolReportSummary aSummary = v != null ? v
+                                                                 : PeppolReportSummary.createEmpty (aMetadata.m_eReportType,
+                                                                                                    aMetadata.m_aReportPeriod);
+                  return bReport ? aSummary.getWithReport (aMetadata.m_aReportCreationDT, aMetadata.m_bReportValid)
+                                 : aSummary.getWithSendingReport (aMetadata.m_aReportCreationDT);
+                });
+  }
+
+  /**
+   * Open the last segment for appending.
+   *
+   * @param aSegment
+   *        The segment to open. May not be <code>null</code>.
+   * @throws IOException
+   *         If opening fails
+   */
+  private void _openForAppend (@NonNull final Segment aSegment) throws IOException
+  {
+    final boolean bCreated = !Files.exists (aSegment.m_aLogFile);
+    m_aLogChannel = FileChannel.open (aSegment.m_aLogFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    m_aLogChannel.position (m_aLogChannel.size ());
+    m_aIndexChannel = FileChannel.open (aSegment.m_aIndexFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    m_aIndexChannel.position (m_aIndexChannel.size ());
+    if (bCreated && m_eSync.isSyncDirectory ())
+      _syncDirectory (m_aBaseDir.toPath ());
+    m_bOpen = true;
+  }
+
+  private void _closeForAppend () throws IOException
+  {
+    final FileChannel aLogChannel = m_aLogChannel;
+    final FileChannel aIndexChannel = m_aIndexChannel;
+    m_aLogChannel = null;
+    m_aIndexChannel = null;
+    m_bOpen = false;
+    try
+    {
+      if (aLogChannel != null)
+      {
+        if (m_eSync.isSyncFile ())
+          aLogChannel.force (false);
+        aLogChannel.close ();
+      }
+    }
+    finally
+    {
+      if (aIndexChannel != null)
+        aIndexChannel.close ();
+    }
+  }
+
+  /**
+   * Acquire the lock on the directory, if this was not done before. The lock is held until
+   * {@link #close()} is called.
+   *
+   * @param aBaseDir
+   *        The existing base directory. May not be <code>null</code>.
+   * @throws IOException
+   *         If the lock file cannot be opened or another instance holds the lock
+   */
+  private void _lockDirectory (@NonNull final Path aBaseDir) throws IOException
+  {
+    if (m_aDirLock != null)
+      return;
+
+    final Path aLockFile = aBaseDir.resolve (LOCK_FILENAME);
+    final FileChannel aChannel = FileChannel.open (aLockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    FileLock aLock = null;
+    try
+    {
+      aLock = aChannel.tryLock ();
+    }
+    catch (final OverlappingFileLockException ex)
+    {
+      // Another instance in this JVM holds the lock
+    }
+    finally
+    {
+      if (aLock == null)
+        aChannel.close ();
+    }
+    if (aLock == null)
+      throw new IOException ("The Peppol Report segments in '" +
+                             aBaseDir +
+                             "' are already used by another instance - lock file '" +
+                             aLockFile +
+                             "' is locked");
+    m_aLockChannel = aChannel;
+    m_aDirLock = aLock;
+  }
+
+  private void _unlockDirectory () throws IOException
+  {
+    final FileChannel aLockChannel = m_aLockChannel;
+    final FileLock aDirLock = m_aDirLock;
+    m_aLockChannel = null;
+    m_aDirLock = null;
+    try
+    {
+      if (aDirLock != null)
+        aDirLock.release ();
+    }
+    finally
+    {
+      // Closing the channel also releases the lock
+      if (aLockChannel != null)
+        aLockChannel.close ();
+    }
+  }
+
+  /**
+   * Lock the directory, load the indices of all segments and open the last segment for appending,
+   * if this was not done before. Must be called with the write lock held.
+   *
+   * @throws IOException
+   *         If the directory cannot be read or the last segment cannot be opened
+   */
+  private void _ensureOpen () throws IOException
+  {
+    if (m_bOpen)
+      return;
+
+    final Path aBaseDir = m_aBaseDir.toPath ();
+    Files.createDirectories (aBaseDir);
+    _lockDirectory (aBaseDir);
+
+    final ICommonsList <Long> aSequences;
+    try (final Stream <Path> aFiles = Files.list (aBaseDir))
+    {
+      aSequences = new CommonsArrayList <> (aFiles.map (x -> SEGMENT_FILENAME_PATTERN.matcher (x.getFileName ()
+                                                                                               .toString ()))
+                                                  .filter (Matcher::matches)
+                                                  .map (x -> Long.valueOf (x.group (1)))
+                                                  .sorted ()
+                                                  .collect (Collectors.toList ()));
+    }
+
+    m_aSegments.clear ();
+    m_aReportIndex.clear ();
+    m_aSendingReportIndex.clear ();
+    m_aContentKeys.clear ();
+    m_aSummaries.clear ();
+
+    for (int i = 0; i < aSequences.size (); ++i)
+    {
+      final Segment aSegment = new Segment (aBaseDir, aSequences.get (i).longValue ());
+      final long nSize = Files.size (aSegment.m_aLogFile);
+      ICommonsList <IndexEntry> aEntries = _readIndexFile (aSegment, nSize);
+      if (aEntries == null)
+      {
+        LOGGER.info ("Rebuilding the index of segment '" + aSegment.m_aLogFile + "'");
+        aEntries = _scanSegment (aSegment, nSize);
+        final long nValidSize = aEntries.isEmpty () ? 0 : aEntries.get (aEntries.size () - 1).getEnd ();
+        if (nValidSize < nSize)
+        {
+          if (i == aSequences.size () - 1)
+          {
+            // Most likely a partially written record after a crash
+            LOGGER.warn ("Truncating " +
+                         (nSize - nValidSize) +
+                         " bytes of incomplete data at the end of segment '" +
+                         aSegment.m_aLogFile +
+                         "'");
+            try (final FileChannel aChannel = FileChannel.open (aSegment.m_aLogFile, StandardOpenOption.WRITE))
+            {
+              aChannel.truncate (nValidSize);
+            }
+            aSegment.resetMapping ();
+          }
+          else
+            LOGGER.warn ("Ignoring " +
+                         (nSize - nValidSize) +
+                         " bytes of invalid data at the end of segment '" +
+                         aSegment.m_aLogFile +
+                         "'");
+        }
+        _writeIndexFile (aSegment, aEntries);
+      }
+
+      m_aSegments.add (aSegment);
+      for (final IndexEntry aEntry : aEntries)
+        _addToIndex (aEntry);
+    }
+
+    if (m_aSegments.isEmpty ())
+      m_aSegments.add (new Segment (aBaseDir, 1));
+    _openForAppend (_getLastSegment ());
+  }
+
+  private void _ensureOpenForReading ()
+  {
+    if (!m_bOpen)
+    {
+      m_aRWLock.writeLock ().lock ();
+      try
+      {
+        _ensureOpen ();
+      }
+      catch (final IOException ex)
+      {
+        throw new UncheckedIOException ("Failed to open the Peppol Report segments in '" + m_aBaseDir + "'", ex);
+      }
+      finally
+      {
+        m_aRWLock.writeLock ().unlock ();
+      }
+    }
+  }
+
+  /**
+   * Append a single record to the last segment, starting a new segment if required. Must be called
+   * with the write lock held.
+   *
+   * @param aMetadata
+   *        The metadata of the record. May not be <code>null</code>.
+   * @param aRecord
+   *        The complete record bytes. May not be <code>null</code>.
+   * @return The index entry of the appended record. Never <code>null</code>.
+   * @throws IOException
+   *         If appending fails
+   */
+  @NonNull
+  private IndexEntry _appendRecord (@NonNull final RecordMetadata aMetadata, @NonNull final byte [] aRecord) throws IOException
+  {
+    _ensureOpen ();
+
+    Segment aSegment = _getLastSegment ();
+    long nOffset = m_aLogChannel.size ();
+    if (nOffset > 0 && nOffset + aRecord.length > m_nMaxSegmentSize)
+    {
+      // Roll over to a new segment
+      _closeForAppend ();
+      aSegment = new Segment (m_aBaseDir.toPath (), aSegment.m_nSequence + 1);
+      m_aSegments.add (aSegment);
+      _openForAppend (aSegment);
+      LOGGER.info ("Started new Peppol Report segment '" + aSegment.m_aLogFile + "'");
+      nOffset = 0;
+    }
+
+    try
+    {
+      _writeFully (m_aLogChannel, ByteBuffer.wrap (aRecord));
+    }
+    catch (final IOException ex)
+    {
+      // Remove the partial record, so that the next record is appended at the right offset
+      try
+      {
+        m_aLogChannel.truncate (nOffset);
+        m_aLogChannel.position (nOffset);
+      }
+      catch (final IOException ex2)
+      {
+        LOGGER.error ("Failed to remove a partial record from '" + aSegment.m_aLogFile + "'", ex2);
+        _closeForAppend ();
+      }
+      throw ex;
+    }
+
+    final IndexEntry ret = new IndexEntry (aSegment, nOffset, aRecord.length, aMetadata);
+    try
+    {
+      final ByteArrayOutputStream aBAOS = new ByteArrayOutputStream (256);
+      try (final DataOutputStream aDOS = new DataOutputStream (aBAOS))
+      {
+        ret.writeTo (aDOS);
+      }
+      _writeFully (m_aIndexChannel, ByteBuffer.wrap (aBAOS.toByteArray ()));
+    }
+    catch (final IOException ex)
+    {
+      // The record itself is stored
+      LOGGER.warn ("Failed to append to the index file '" + aSegment.m_aIndexFile + "' - it is rebuilt when opened", ex);
+    }
+    return ret;
+  }
+
+  /**
+   * Append all provided records. The records are created before the write lock is acquired. If a
+   * sync is configured, the last segment is forced once after all records were appended.
+   *
+   * @param aMetadatas
+   *        The metadata of all records. May not be <code>null</code>.
+   * @param aPayloads
+   *        The uncompressed payloads of all records in the same order. May not be
+   *        <code>null</code>.
+   * @return One {@link ESuccess} per record. Never <code>null</code>.
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  private ICommonsList <ESuccess> _appendAll (@NonNull final ICommonsList <RecordMetadata> aMetadatas,
+                                              @NonNull final ICommonsList <byte []> aPayloads)
+  {
+    final int nCount = aMetadatas.size ();
+    final ICommonsList <byte []> aRecords = new CommonsArrayList <> (nCount);
+    for (int i = 0; i < nCount; ++i)
+    {
+      byte [] aRecord = null;
+      try
+      {
+        aRecord = _createRecord (aMetadatas.get (i), aPayloads.get (i));
+      }
+      catch (final IOException | UncheckedIOException ex)
+      {
+        LOGGER.error ("Failed to create the Peppol Report record", ex);
+      }
+      aRecords.add (aRecord);
+    }
+
+    final ICommonsList <ESuccess> ret = new CommonsArrayList <> (nCount);
+    final ICommonsList <Integer> aAppended = new CommonsArrayList <> ();
+    m_aRWLock.writeLock ().lock ();
+    try
+    {
+      for (int i = 0; i < nCount; ++i)
+      {
+        final RecordMetadata aMetadata = aMetadatas.get (i);
+        final byte [] aRecord = aRecords.get (i);
+        if (aRecord == null)
+        {
+          ret.add (ESuccess.FAILURE);
+          continue;
+        }
+
+        try
+        {
+          _ensureOpen ();
+          if (m_aContentKeys.contains (aMetadata.getContentKey ()))
+          {
+            LOGGER.info ("The Peppol Report record with content hash '" +
+                         aMetadata.m_sContentHash +
+                         "' was already stored");
+            ret.add (ESuccess.SUCCESS);
+            continue;
+          }
+
+          _addToIndex (_appendRecord (aMetadata, aRecord));
+          aAppended.add (Integer.valueOf (i));
+          ret.add (ESuccess.SUCCESS);
+        }
+        catch (final IOException ex)
+        {
+          LOGGER.error ("Failed to append the Peppol Report record to '" + m_aBaseDir + "'", ex);
+          ret.add (ESuccess.FAILURE);
+        }
+      }
+
+      if (aAppended.isNotEmpty () && m_eSync.isSyncFile () && m_aLogChannel != null)
+      {
+        try
+        {
+          m_aLogChannel.force (false);
+        }
+        catch (final IOException ex)
+        {
+          LOGGER.error ("Failed to force the Peppol Report segment '" + _getLastSegment ().m_aLogFile + "' to disk",
+                        ex);
+          for (final Integer aIndex : aAppended)
+            ret.set (aIndex.intValue (), ESuccess.FAILURE);
+        }
+      }
+    }
+    finally
+    {
+      m_aRWLock.writeLock ().unlock ();
+    }
+    return ret;
+  }
+
+  /**
+   * Close the last segment and release the lock on the directory. Both are acquired again on the
+   * next usage, which also reloads all indices.
+   */
+  public void close ()
+  {
+    m_aRWLock.writeLock ().lock ();
+    try
+    {
+      try
+      {
+        _closeForAppend ();
+      }
+      catch (final IOException ex)
+      {
+        LOGGER.error ("Failed to close the Peppol Report segment in '" + m_aBaseDir + "'", ex);
+      }
+
+      try
+      {
+        _unlockDirectory ();
+      }
+      catch (final IOException ex)
+      {
+        LOGGER.error ("Failed to release the lock on the Peppol Report segments in '" + m_aBaseDir + "'", ex);
+      }
+    }
+    finally
+    {
+      m_aRWLock.writeLock ().unlock ();
+    }
+  }
+
+  @NonNull
+  public ESuccess storePeppolReport (@NonNull final PeppolReportData aReportData)
+  {
+    ValueEnforcer.notNull (aReportData, "ReportData");
+    return storePeppolReports (new CommonsArrayList <> (aReportData)).get (0);
+  }
+
+  /**
+   * {@inheritDoc}<br>
+   * All reports are appended while holding the lock once, and are forced to disk together.
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  public ICommonsList <ESuccess> storePeppolReports (@NonNull final Collection <? extends PeppolReportData> aReportDatas)
+  {
+    ValueEnforcer.notNull (aReportDatas, "ReportDatas");
+
+    final EPeppolReportCompression eCompression = m_eCompression;
+    final ICommonsList <RecordMetadata> aMetadatas = new CommonsArrayList <> (aReportDatas.size ());
+    final ICommonsList <byte []> aPayloads = new CommonsArrayList <> (aReportDatas.size ());
+    for (final PeppolReportData aReportData : aReportDatas)
+    {
+      aMetadatas.add (new RecordMetadata (KIND_REPORT,
+                                          aReportData.getReportType (),
+                                          aReportData.getReportPeriod (),
+                                          aReportData.getReportCreationDT (),
+                                          aReportData.isReportValid (),
+                                          eCompression,
+                                          aReportData.getContentHash (),
+                                          null));
+      aPayloads.add (aReportData.getReportXMLBytes ());
+    }
+    return _appendAll (aMetadatas, aPayloads);
+  }
+
+  @NonNull
+  public ESuccess storePeppolReportingSendingReport (@NonNull final PeppolReportSendingReportData aSendingReportData)
+  {
+    ValueEnforcer.notNull (aSendingReportData, "SendingReportData");
+    return storePeppolReportingSendingReports (new CommonsArrayList <> (aSendingReportData)).get (0);
+  }
+
+  /**
+   * {@inheritDoc}<br>
+   * All sending reports are appended while holding the lock once, and are forced to disk together.
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  public ICommonsList <ESuccess> storePeppolReportingSendingReports (@NonNull final Collection <? extends PeppolReportSendingReportData> aSendingReportDatas)
+  {
+    ValueEnforcer.notNull (aSendingReportDatas, "SendingReportDatas");
+
+    final ICommonsList <RecordMetadata> aMetadatas = new CommonsArrayList <> (aSendingReportDatas.size ());
+    final ICommonsList <byte []> aPayloads = new CommonsArrayList <> (aSendingReportDatas.size ());
+    for (final PeppolReportSendingReportData aSendingReportData : aSendingReportDatas)
+    {
+      aMetadatas.add (new RecordMetadata (KIND_SENDING_REPORT,
+                                          aSendingReportData.getReportType (),
+                                          aSendingReportData.getReportPeriod (),
+                                          aSendingReportData.getReportCreationDT (),
+                                          false,
+                                          EPeppolReportCompression.NONE,
+                                          aSendingReportData.getContentHash (),
+                                          aSendingReportData.getFields ()));
+      aPayloads.add (aSendingReportData.hasSendingReportContent () ? aSendingReportData.getSendingReportContent ()
+                                                                                       .getBytes (StandardCharsets.UTF_8)
+                                                                   : null);
+    }
+    return _appendAll (aMetadatas, aPayloads);
+  }
+
+  /**
+   * Read the payload of a single record from the mapped segment.
+   *
+   * @param aEntry
+   *        The index entry of the record. May not be <code>null</code>.
+   * @return The stored payload, without decompression. May be <code>null</code>.
+   * @throws UncheckedIOException
+   *         If the record cannot be read or is corrupt
+   */
+  @Nullable
+  private static byte [] _readPayload (@NonNull final IndexEntry aEntry)
+  {
+    try
+    {
+      final ByteBuffer aBody = _getRecordBody (aEntry.m_aSegment.getMapped (aEntry.getEnd ()), (int) aEntry.m_nOffset);
+      if (aBody == null || RECORD_HEADER_SIZE + aBody.limit () != aEntry.m_nLength)
+        throw new IOException ("The record is corrupt");
+
+      // Skip the metadata
+      RecordMetadata.readFrom (aBody);
+      final int nPayloadLength = aBody.getInt ();
+      if (nPayloadLength < 0)
+        return null;
+      final byte [] ret = new byte [nPayloadLength];
+      aBody.get (ret);
+      return ret;
+    }
+    catch (final IOException ex)
+    {
+      throw new UncheckedIOException ("Failed to read the Peppol Report record at offset " +
+                                      aEntry.m_nOffset +
+                                      " of '" +
+                                      aEntry.m_aSegment.m_aLogFile +
+                                      "'",
+                                      ex);
+    }
+  }
+
+  /**
+   * Find all matching index entries. Only the periods of the query are considered. The results are
+   * ordered by creation date time and then by storage order.
+   *
+   * @param aIndex
+   *        The index to search. May not be <code>null</code>.
+   * @param aQuery
+   *        The query with paging information. May not be <code>null</code>.
+   * @param aFilter
+   *        The filter to apply on the metadata. May not be <code>null</code>.
+   * @return The stream of matching entries. Never <code>null</code>.
+   */
+  @NonNull
+  private Stream <IndexEntry> _query (@NonNull final NavigableMap <YearMonth, ICommonsList <IndexEntry>> aIndex,
+                                      @NonNull final PeppolReportQuery aQuery,
+                                      @NonNull final Predicate <RecordMetadata> aFilter)
+  {
+    _ensureOpenForReading ();
+
+    final ICommonsList <IndexEntry> aMatches = new CommonsArrayList <> ();
+    m_aRWLock.readLock ().lock ();
+    try
+    {
+      NavigableMap <YearMonth, ICommonsList <IndexEntry>> aPeriods = aIndex;
+      if (aQuery.getReportPeriodFrom () != null)
+        aPeriods = aPeriods.tailMap (aQuery.getReportPeriodFrom (), true);
+      if (aQuery.getReportPeriodTo () != null)
+        aPeriods = aPeriods.headMap (aQuery.getReportPeriodTo (), true);
+      for (final ICommonsList <IndexEntry> aEntries : aPeriods.values ())
+        for (final IndexEntry aEntry : aEntries)
+          if (aFilter.test (aEntry.m_aMetadata))
+            aMatches.add (aEntry);
+    }
+    finally
+    {
+      m_aRWLock.readLock ().unlock ();
+    }
+
+    // The sort is stable
+    aMatches.sort (Comparator.comparing (x -> x.m_aMetadata.m_aReportCreationDT));
+    Stream <IndexEntry> ret = aMatches.stream ().skip (aQuery.getOffset ());
+    if (aQuery.hasMaxResults ())
+      ret = ret.limit (aQuery.getMaxResults ());
+    return ret;
+  }
+
+  public boolean isQuerySupported ()
+  {
+    return true;
+  }
+
+  /**
+   * {@inheritDoc}<br>
+   * The criteria are evaluated on the in-memory index. Only the payloads of the returned reports
+   * are read from the segments. The results are ordered by creation date time.
+   */
+  @NonNull
+  public Stream <PeppolReportStoredData> queryPeppolReports (@NonNull final PeppolReportQuery aQuery)
+  {
+    ValueEnforcer.notNull (aQuery, "Query");
+
+    final boolean bIncludePayload = aQuery.isIncludePayload ();
+    final Function <IndexEntry, PeppolReportStoredData> aMapper = x -> {
+      final RecordMetadata aMetadata = x.m_aMetadata;
+      final byte [] aPayload = bIncludePayload ? _readPayload (x) : null;
+      return new PeppolReportStoredData (aMetadata.m_eReportType,
+                                         aMetadata.m_aReportPeriod,
+                                         aMetadata.m_aReportCreationDT,
+                                         aPayload == null ? null : aMetadata.m_eCompression.decompress (aPayload),
+                                         aMetadata.m_bReportValid);
+    };
+    return _query (m_aReportIndex,
+                   aQuery,
+                   x -> aQuery.isMatching (x.m_eReportType,
+                                           x.m_aReportPeriod,
+                                           x.m_aReportCreationDT,
+                                           Boolean.valueOf (x.m_bReportValid))).map (aMapper);
+  }
+
+  /**
+   * {@inheritDoc}<br>
+   * The criteria, including the structured fields, are evaluated on the in-memory index. Only the
+   * content of the returned sending reports is read from the segments. The results are ordered by
+   * creation date time.
+   */
+  @NonNull
+  public Stream <PeppolReportSendingReportData> queryPeppolReportingSendingReports (@NonNull final PeppolReportQuery aQuery)
+  {
+    ValueEnforcer.notNull (aQuery, "Query");
+
+    final boolean bIncludePayload = aQuery.isIncludePayload ();
+    final Function <IndexEntry, PeppolReportSendingReportData> aMapper = x -> {
+      final RecordMetadata aMetadata = x.m_aMetadata;
+      final byte [] aPayload = bIncludePayload ? _readPayload (x) : null;
+      return new PeppolReportSendingReportData (aMetadata.m_eReportType,
+                                                aMetadata.m_aReportPeriod,
+                                                aMetadata.m_aReportCreationDT,
+                                                aPayload == null ? null : new String (aPayload, StandardCharsets.UTF_8),
+                                                aMetadata.m_aFields);
+    };
+    return _query (m_aSendingReportIndex,
+                   aQuery,
+                   x -> aQuery.isMatching (x.m_eReportType, x.m_aReportPeriod, x.m_aReportCreationDT, null) &&
+                        aQuery.isMatchingSendingReport (x.m_aFields)).map (aMapper);
+  }
+
+  /**
+   * {@inheritDoc}<br>
+   * The summary is maintained in memory while storing and loading the indices.
+   */
+  @Nullable
+  public PeppolReportSummary getPeppolReportSummary (@NonNull final EPeppolReportType eReportType,
+                                                     @NonNull final YearMonth aReportPeriod)
+  {
+    ValueEnforcer.notNull (eReportType, "ReportType");
+    ValueEnforcer.notNull (aReportPeriod, "ReportPeriod");
+
+    _ensureOpenForReading ();
+    m_aRWLock.readLock ().lock ();
+    try
+    {
+      final Map <YearMonth, PeppolReportSummary> aPerPeriod = m_aSummaries.get (eReportType);
+      return aPerPeriod == null ? null : aPerPeriod.get (aReportPeriod);
+    }
+    finally
+    {
+      m_aRWLock.readLock ().unlock ();
+    }
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2025-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.reportingsupport.sql;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.base.enforce.ValueEnforcer;
+
+/**
+ * A lazy {@link Spliterator} that loads the elements page by page with offset based paging. The
+ * next page is only loaded, when all elements of the current page were consumed.
+ *
+ * @author Philip Helger
+ * @param <T>
+ *        The element type
+ * @since 2.2.2
+ */
+final class PagedSpliterator <T> extends Spliterators.AbstractSpliterator <T>
+{
+  /**
+   * Callback to load a single page.
+   *
+   * @param <T>
+   *        The element type
+   */
+  @FunctionalInterface
+  interface IPageLoader <T>
+  {
+    /**
+     * Load a single page.
+     *
+     * @param nOffset
+     *        The number of elements to skip. Always &ge; 0.
+     * @param nCount
+     *        The maximum number of elements to load. Always &gt; 0.
+     * @return The loaded elements. Never <code>null</code>. If less than <code>nCount</code>
+     *         elements are returned, this is considered the last page.
+     */
+    @NonNull
+    List <T> loadPage (@Nonnegative int nOffset, @Nonnegative int nCount);
+  }
+
+  private final IPageLoader <T> m_aPageLoader;
+  private final int m_nPageSize;
+  private int m_nNextOffset;
+  // A negative value means unlimited
+  private int m_nRemaining;
+  private Iterator <T> m_aCurrentPage = Collections.emptyIterator ();
+  private boolean m_bLastPage = false;
+
+  PagedSpliterator (@NonNull final IPageLoader <T> aPageLoader,
+                    @Nonnegative final int nOffset,
+                    final int nMaxResults,
+                    @Nonnegative final int nPageSize)
+  {
+    super (Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+    ValueEnforcer.notNull (aPageLoader, "PageLoader");
+    ValueEnforcer.isGE0 (nOffset, "Offset");
+    ValueEnforcer.isGT0 (nPageSize, "PageSize");
+    m_aPageLoader = aPageLoader;
+    m_nPageSize = nPageSize;
+    m_nNextOffset = nOffset;
+    m_nRemaining = nMaxResults;
+  }
+
+  public boolean tryAdvance (@NonNull final Consumer <? super T> aAction)
+  {
+    if (m_nRemaining == 0)
+      return false;
+
+    if (!m_aCurrentPage.hasNext ())
+    {
+      if (m_bLastPage)
+        return false;
+
+      final int nCount = m_nRemaining < 0 ? m_nPageSize : Math.min (m_nPageSize, m_nRemaining);
+      final List <T> aPage = m_aPageLoader.loadPage (m_nNextOffset, nCount);
+      m_nNextOffset += aPage.size ();
+      m_bLastPage = aPage.size () < nCount;
+      m_aCurrentPage = aPage.iterator ();
+      if (!m_aCurrentPage.hasNext ())
+        return false;
+    }
+
+    aAction.accept (m_aCurrentPage.next ());
+    if (m_nRemaining > 0)
+      m_nRemaining--;
+    return true;
+  }
+}
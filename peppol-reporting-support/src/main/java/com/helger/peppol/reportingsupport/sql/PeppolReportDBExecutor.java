@@ -22,6 +22,7 @@ import org.jspecify.annotations.NonNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.helger.annotation.concurrent.Immutable;
 import com.helger.base.enforce.ValueEnforcer;
 import com.helger.db.api.config.IJdbcConfiguration;
 import com.helger.db.jdbc.IHasDataSource;
@@ -46,28 +47,74 @@ public final class PeppolReportDBExecutor extends DBExecutor
    */
   public PeppolReportDBExecutor (@NonNull final IHasDataSource aDataSourceProvider,
                                  @NonNull final IJdbcConfiguration aJdbcConfig)
+  {
+    this (aDataSourceProvider, new Settings (aJdbcConfig));
+  }
+
+  /**
+   * Specific DB executor that uses already resolved configuration properties. This avoids
+   * re-reading the configuration for every new executor.
+   *
+   * @param aDataSourceProvider
+   *        The SQL DataSource provider. May not be <code>null</code>.
+   * @param aSettings
+   *        The resolved settings. May not be <code>null</code>.
+   * @since 2.2.2
+   */
+  PeppolReportDBExecutor (@NonNull final IHasDataSource aDataSourceProvider, @NonNull final Settings aSettings)
   {
     super (aDataSourceProvider);
-    ValueEnforcer.notNull (aJdbcConfig, "JDBCConfig");
+    ValueEnforcer.notNull (aSettings, "Settings");
 
     // This is ONLY for debugging
-    setDebugConnections (aJdbcConfig.isJdbcDebugConnections ());
-    setDebugTransactions (aJdbcConfig.isJdbcDebugTransactions ());
-    setDebugSQLStatements (aJdbcConfig.isJdbcDebugSQL ());
+    setDebugConnections (aSettings.m_bDebugConnections);
+    setDebugTransactions (aSettings.m_bDebugTransactions);
+    setDebugSQLStatements (aSettings.m_bDebugSQL);
+
+    if (aSettings.m_aExecutionWarnDuration != null)
+      setExecutionWarnDuration (aSettings.m_aExecutionWarnDuration);
+  }
 
-    if (aJdbcConfig.isJdbcExecutionTimeWarningEnabled ())
+  /**
+   * The executor settings resolved once from an {@link IJdbcConfiguration}.
+   *
+   * @author Philip Helger
+   * @since 2.2.2
+   */
+  @Immutable
+  static final class Settings
+  {
+    private final boolean m_bDebugConnections;
+    private final boolean m_bDebugTransactions;
+    private final boolean m_bDebugSQL;
+    // null means: use the default
+    private final Duration m_aExecutionWarnDuration;
+
+    Settings (@NonNull final IJdbcConfiguration aJdbcConfig)
     {
-      final Duration aDurationWarn = aJdbcConfig.getJdbcExecutionTimeWarning ();
-      if (aDurationWarn.compareTo (Duration.ZERO) > 0)
-        setExecutionWarnDuration (aDurationWarn);
+      ValueEnforcer.notNull (aJdbcConfig, "JDBCConfig");
+
+      m_bDebugConnections = aJdbcConfig.isJdbcDebugConnections ();
+      m_bDebugTransactions = aJdbcConfig.isJdbcDebugTransactions ();
+      m_bDebugSQL = aJdbcConfig.isJdbcDebugSQL ();
+
+      if (aJdbcConfig.isJdbcExecutionTimeWarningEnabled ())
+      {
+        final Duration aDurationWarn = aJdbcConfig.getJdbcExecutionTimeWarning ();
+        if (aDurationWarn.compareTo (Duration.ZERO) > 0)
+          m_aExecutionWarnDuration = aDurationWarn;
+        else
+        {
+          if (LOGGER.isDebugEnabled ())
+            LOGGER.debug ("Ignoring JDBC Execution Time Warning Milliseconds because it is invalid.");
+          m_aExecutionWarnDuration = null;
+        }
+      }
       else
-        if (LOGGER.isDebugEnabled ())
-          LOGGER.debug ("Ignoring JDBC Execution Time Warning Milliseconds because it is invalid.");
-    }
-    else
-    {
-      // Zero means none
-      setExecutionWarnDuration (Duration.ZERO);
+      {
+        // Zero means none
+        m_aExecutionWarnDuration = Duration.ZERO;
+      }
     }
   }
 }
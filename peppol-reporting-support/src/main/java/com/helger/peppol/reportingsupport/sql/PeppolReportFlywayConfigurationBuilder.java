@@ -35,6 +35,20 @@ public class PeppolReportFlywayConfigurationBuilder extends FlywayConfigurationB
    */
   public static final String FLYWAY_CONFIG_PREFIX = "peppol.report.flyway.";
 
+  /**
+   * The configuration key to enable the optional partitioning migrations.
+   *
+   * @since 2.2.2
+   */
+  public static final String CONFIG_PARTITIONING_ENABLED = FLYWAY_CONFIG_PREFIX + "partitioning.enabled";
+
+  /**
+   * The default Flyway history table name.
+   *
+   * @since 2.2.2
+   */
+  public static final String DEFAULT_HISTORY_TABLE = "flyway_schema_history";
+
   /**
    * Constructor
    *
@@ -72,4 +72,31 @@ final class PeppolReportFlywayMigrator
                                      (JavaMigration []) null,
                                      (Callback []) null);
   }
+
+  /**
+   * Run the optional partitioning migrations. They are located in a separate location, so the
+   * provided Flyway configuration must use a separate history table.
+   *
+   * @param eDBType
+   *        Actual database type. May not be <code>null</code>.
+   * @param aJdbcConfig
+   *        The general JDBC configuration. May not be <code>null</code>.
+   * @param aFlywayConfig
+   *        The Flyway configuration for the partitioning migrations. May not be <code>null</code>.
+   * @since 2.2.2
+   */
+  void runFlywayPartitioning (@NonNull final EDatabaseSystemType eDBType,
+                              @NonNull final IJdbcConfiguration aJdbcConfig,
+                              @NonNull final FlywayConfiguration aFlywayConfig)
+  {
+    ValueEnforcer.notNull (eDBType, "DBType");
+    ValueEnforcer.notNull (aJdbcConfig, "JdbcConfig");
+    ValueEnforcer.notNull (aFlywayConfig, "FlywayConfig");
+
+    FlywayMigrationRunner.runFlyway (aJdbcConfig,
+                                     aFlywayConfig,
+                                     "db/peppol-report-partitioning-" + eDBType.getID (),
+                                     (JavaMigration []) null,
+                                     (Callback []) null);
+  }
 }
@@ -17,6 +17,7 @@
 package com.helger.peppol.reportingsupport.sql;
 
 import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
 
 import com.helger.annotation.concurrent.Immutable;
 import com.helger.config.IConfig;
@@ -35,6 +36,55 @@ public class PeppolReportJdbcConfiguration extends JdbcConfigurationConfig
    */
   public static final String CONFIG_PREFIX = "peppol.report.jdbc.";
 
+  /**
+   * Minimum number of idle connections in the pool
+   *
+   * @since 2.2.2
+   */
+  public static final String CONFIG_POOLING_MIN_IDLE = CONFIG_PREFIX + "pooling.min-idle";
+  /**
+   * Maximum number of idle connections in the pool
+   *
+   * @since 2.2.2
+   */
+  public static final String CONFIG_POOLING_MAX_IDLE = CONFIG_PREFIX + "pooling.max-idle";
+  /**
+   * Maximum number of open connections in the pool
+   *
+   * @since 2.2.2
+   */
+  public static final String CONFIG_POOLING_MAX_TOTAL = CONFIG_PREFIX + "pooling.max-total";
+  /**
+   * Enable or disable the prepared statement cache of the pool
+   *
+   * @since 2.2.2
+   */
+  public static final String CONFIG_POOLING_STATEMENT_CACHE_ENABLED = CONFIG_PREFIX +
+                                                                      "pooling.statement-cache.enabled";
+  /**
+   * Maximum number of cached prepared statements per connection
+   *
+   * @since 2.2.2
+   */
+  public static final String CONFIG_POOLING_STATEMENT_CACHE_MAX = CONFIG_PREFIX + "pooling.statement-cache.max";
+  /**
+   * SQL query to validate connections of the pool
+   *
+   * @since 2.2.2
+   */
+  public static final String CONFIG_POOLING_VALIDATION_QUERY = CONFIG_PREFIX + "pooling.validation-query";
+  /**
+   * Validate idle connections of the pool
+   *
+   * @since 2.2.2
+   */
+  public static final String CONFIG_POOLING_TEST_WHILE_IDLE = CONFIG_PREFIX + "pooling.test-while-idle";
+
+  /** Value for integer values that are not configured */
+  public static final int NOT_CONFIGURED = -1;
+
+  private final IConfig m_aConfig;
+
   /**
    * Constructor
    *
@@ -44,5 +94,82 @@ public class PeppolReportJdbcConfiguration extends JdbcConfigurationConfig
   public PeppolReportJdbcConfiguration (@NonNull final IConfig aConfig)
   {
     super (aConfig, CONFIG_PREFIX);
+    m_aConfig = aConfig;
+  }
+
+  @Nullable
+  private Boolean _getAsBooleanObj (@NonNull final String sKey)
+  {
+    final String sValue = m_aConfig.getAsString (sKey);
+    return sValue == null ? null : Boolean.valueOf (sValue.trim ());
+  }
+
+  /**
+   * @return The minimum number of idle connections in the pool or {@link #NOT_CONFIGURED}.
+   * @since 2.2.2
+   */
+  public int getJdbcPoolingMinIdle ()
+  {
+    return m_aConfig.getAsInt (CONFIG_POOLING_MIN_IDLE, NOT_CONFIGURED);
+  }
+
+  /**
+   * @return The maximum number of idle connections in the pool or {@link #NOT_CONFIGURED}.
+   * @since 2.2.2
+   */
+  public int getJdbcPoolingMaxIdle ()
+  {
+    return m_aConfig.getAsInt (CONFIG_POOLING_MAX_IDLE, NOT_CONFIGURED);
+  }
+
+  /**
+   * @return The maximum number of open connections in the pool or {@link #NOT_CONFIGURED}.
+   * @since 2.2.2
+   */
+  public int getJdbcPoolingMaxTotal ()
+  {
+    return m_aConfig.getAsInt (CONFIG_POOLING_MAX_TOTAL, NOT_CONFIGURED);
+  }
+
+  /**
+   * @return {@link Boolean#TRUE} to enable the prepared statement cache, {@link Boolean#FALSE} to
+   *         disable it or <code>null</code> if not configured.
+   * @since 2.2.2
+   */
+  @Nullable
+  public Boolean getJdbcPoolingStatementCacheEnabled ()
+  {
+    return _getAsBooleanObj (CONFIG_POOLING_STATEMENT_CACHE_ENABLED);
+  }
+
+  /**
+   * @return The maximum number of cached prepared statements per connection or
+   *         {@link #NOT_CONFIGURED}.
+   * @since 2.2.2
+   */
+  public int getJdbcPoolingStatementCacheMax ()
+  {
+    return m_aConfig.getAsInt (CONFIG_POOLING_STATEMENT_CACHE_MAX, NOT_CONFIGURED);
+  }
+
+  /**
+   * @return The SQL query to validate pooled connections or <code>null</code> if not configured.
+   * @since 2.2.2
+   */
+  @Nullable
+  public String getJdbcPoolingValidationQuery ()
+  {
+    return m_aConfig.getAsString (CONFIG_POOLING_VALIDATION_QUERY);
+  }
+
+  /**
+   * @return {@link Boolean#TRUE} to validate idle connections, {@link Boolean#FALSE} to not
+   *         validate them or <code>null</code> if not configured.
+   * @since 2.2.2
+   */
+  @Nullable
+  public Boolean getJdbcPoolingTestWhileIdle ()
+  {
+    return _getAsBooleanObj (CONFIG_POOLING_TEST_WHILE_IDLE);
   }
 }
@@ -20,15 +20,18 @@ import java.io.IOException;
 import java.util.EnumSet;
 import java.util.function.Supplier;
 
+import javax.sql.DataSource;
+
+import org.apache.commons.dbcp2.BasicDataSource;
 import org.jspecify.annotations.NonNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.helger.base.concurrent.SimpleReadWriteLock;
+import com.helger.base.string.StringHelper;
 import com.helger.base.string.StringImplode;
 import com.helger.config.IConfig;
 import com.helger.db.api.EDatabaseSystemType;
-import com.helger.db.api.config.IJdbcConfiguration;
 import com.helger.db.api.helper.DBSystemHelper;
 import com.helger.db.flyway.FlywayConfiguration;
 import com.helger.db.jdbc.DataSourceProviderFromJdbcConfiguration;
@@ -48,10 +51,14 @@ public class PeppolReportSQLHandler implements Supplier <PeppolReportDBExecutor>
                                                                                     EDatabaseSystemType.SQLSERVER,
                                                                                     EDatabaseSystemType.DB2,
                                                                                     EDatabaseSystemType.ORACLE);
+  private static final EnumSet <EDatabaseSystemType> PARTITIONING_DB_TYPES = EnumSet.of (EDatabaseSystemType.MYSQL,
+                                                                                         EDatabaseSystemType.POSTGRESQL,
+                                                                                         EDatabaseSystemType.DB2,
+                                                                                         EDatabaseSystemType.ORACLE);
 
   private final SimpleReadWriteLock m_aRWLock = new SimpleReadWriteLock ();
-  private final IJdbcConfiguration m_aJdbcConfig;
   private final DataSourceProviderFromJdbcConfiguration m_aDSP;
+  private final PeppolReportDBExecutor.Settings m_aDBExecutorSettings;
   private final String m_sTableNamePrefix;
 
   /**
@@ -63,7 +70,7 @@ public class PeppolReportSQLHandler implements Supplier <PeppolReportDBExecutor>
   public PeppolReportSQLHandler (@NonNull final IConfig aConfig)
   {
     // Init JDBC configuration
-    final IJdbcConfiguration aJdbcConfig = new PeppolReportJdbcConfiguration (aConfig);
+    final PeppolReportJdbcConfiguration aJdbcConfig = new PeppolReportJdbcConfiguration (aConfig);
 
     // Resolve database type
     final EDatabaseSystemType eDBType = aJdbcConfig.getJdbcDatabaseSystemType ();
@@ -84,20 +91,82 @@ public class PeppolReportSQLHandler implements Supplier <PeppolReportDBExecutor>
 
     // Run Flyway
     if (aFlywayConfig.isFlywayEnabled ())
+    {
       PeppolReportFlywayMigrator.Singleton.INSTANCE.runFlyway (eDBType, aJdbcConfig, aFlywayConfig);
+
+      if (aConfig.getAsBoolean (PeppolReportFlywayConfigurationBuilder.CONFIG_PARTITIONING_ENABLED, false))
+      {
+        if (PARTITIONING_DB_TYPES.contains (eDBType))
+        {
+          // Separate history table, because the migrations are in a separate location
+          final String sHistoryTable = StringHelper.getNotEmpty (aBuilder.historyTable (),
+                                                                 PeppolReportFlywayConfigurationBuilder.DEFAULT_HISTORY_TABLE);
+          aBuilder.historyTable (sHistoryTable + "_partitioning");
+          // The separate history table is always baselined on an existing schema. The configured
+          // baseline version only applies to the main migrations and would otherwise cause the
+          // partitioning migrations to be skipped.
+          aBuilder.baselineVersion (0);
+          PeppolReportFlywayMigrator.Singleton.INSTANCE.runFlywayPartitioning (eDBType,
+                                                                              aJdbcConfig,
+                                                                              aBuilder.build ());
+        }
+        else
+          LOGGER.warn ("Peppol Reporting table partitioning is not supported for database type '" +
+                       eDBType.getID () +
+                       "' - ignoring configuration key '" +
+                       PeppolReportFlywayConfigurationBuilder.CONFIG_PARTITIONING_ENABLED +
+                       "'");
+      }
+    }
     else
       LOGGER.warn ("Peppol Reporting Flyway Migration is disabled according to the configuration key '" +
                    aBuilder.getConfigKeyEnabled () +
                    "'");
 
     // Remember stuff
-    m_aJdbcConfig = aJdbcConfig;
     m_aDSP = new DataSourceProviderFromJdbcConfiguration (aJdbcConfig);
     if (m_aDSP == null)
       throw new IllegalStateException ("Failed to create Peppol Report SQL DB DataSource provider");
+    _applyPoolingSettings (m_aDSP.getDataSource (), aJdbcConfig);
+    // Resolve once instead of for every executor
+    m_aDBExecutorSettings = new PeppolReportDBExecutor.Settings (aJdbcConfig);
     m_sTableNamePrefix = DBSystemHelper.getTableNamePrefix (eDBType, aJdbcConfig.getJdbcSchema ());
   }
 
+  private static void _applyPoolingSettings (@NonNull final DataSource aDataSource,
+                                             @NonNull final PeppolReportJdbcConfiguration aJdbcConfig)
+  {
+    if (!(aDataSource instanceof BasicDataSource))
+    {
+      LOGGER.warn ("The Peppol Report SQL DB DataSource is no pooling DataSource - ignoring all pooling settings");
+      return;
+    }
+
+    // Only apply what is explicitly configured - the pool is created lazily, so this is still in time
+    final BasicDataSource aBDS = (BasicDataSource) aDataSource;
+    final int nMinIdle = aJdbcConfig.getJdbcPoolingMinIdle ();
+    if (nMinIdle != PeppolReportJdbcConfiguration.NOT_CONFIGURED)
+      aBDS.setMinIdle (nMinIdle);
+    final int nMaxIdle = aJdbcConfig.getJdbcPoolingMaxIdle ();
+    if (nMaxIdle != PeppolReportJdbcConfiguration.NOT_CONFIGURED)
+      aBDS.setMaxIdle (nMaxIdle);
+    final int nMaxTotal = aJdbcConfig.getJdbcPoolingMaxTotal ();
+    if (nMaxTotal != PeppolReportJdbcConfiguration.NOT_CONFIGURED)
+      aBDS.setMaxTotal (nMaxTotal);
+    final Boolean aStatementCacheEnabled = aJdbcConfig.getJdbcPoolingStatementCacheEnabled ();
+    if (aStatementCacheEnabled != null)
+      aBDS.setPoolPreparedStatements (aStatementCacheEnabled.booleanValue ());
+    final int nStatementCacheMax = aJdbcConfig.getJdbcPoolingStatementCacheMax ();
+    if (nStatementCacheMax != PeppolReportJdbcConfiguration.NOT_CONFIGURED)
+      aBDS.setMaxOpenPreparedStatements (nStatementCacheMax);
+    final String sValidationQuery = aJdbcConfig.getJdbcPoolingValidationQuery ();
+    if (sValidationQuery != null)
+      aBDS.setValidationQuery (sValidationQuery);
+    final Boolean aTestWhileIdle = aJdbcConfig.getJdbcPoolingTestWhileIdle ();
+    if (aTestWhileIdle != null)
+      aBDS.setTestWhileIdle (aTestWhileIdle.booleanValue ());
+  }
+
   /**
    * Check if the handler is correctly initialized
    *
@@ -129,10 +198,15 @@ public class PeppolReportSQLHandler implements Supplier <PeppolReportDBExecutor>
       LOGGER.warn ("The Peppol Report SQL DB backend cannot be shutdown, because it was never properly initialized");
   }
 
+  /**
+   * Get a new DB executor. A new object is returned for every call, because a DB executor keeps the
+   * connection of a running transaction and must therefore not be shared between threads. The
+   * configuration is only resolved once per handler, so this is cheap.
+   */
   @NonNull
   public PeppolReportDBExecutor get ()
   {
-    return new PeppolReportDBExecutor (m_aDSP, m_aJdbcConfig);
+    return new PeppolReportDBExecutor (m_aDSP, m_aDBExecutorSettings);
   }
 
   /**
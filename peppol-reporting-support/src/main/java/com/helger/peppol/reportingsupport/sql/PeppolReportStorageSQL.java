@@ -16,32 +16,100 @@
  */
 package com.helger.peppol.reportingsupport.sql;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.style.ReturnsMutableCopy;
 import com.helger.base.enforce.ValueEnforcer;
 import com.helger.base.state.ESuccess;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.CommonsHashSet;
+import com.helger.collection.commons.CommonsLinkedHashMap;
+import com.helger.collection.commons.ICommonsList;
+import com.helger.collection.commons.ICommonsOrderedMap;
+import com.helger.collection.commons.ICommonsSet;
 import com.helger.datetime.helper.PDTFactory;
 import com.helger.db.api.helper.DBValueHelper;
 import com.helger.db.jdbc.callback.ConstantPreparedStatementDataProvider;
 import com.helger.db.jdbc.executor.DBExecutor;
+import com.helger.peppol.reportingsupport.EPeppolReportCompression;
 import com.helger.peppol.reportingsupport.EPeppolReportType;
 import com.helger.peppol.reportingsupport.IPeppolReportStorage;
 import com.helger.peppol.reportingsupport.domain.PeppolReportData;
+import com.helger.peppol.reportingsupport.domain.PeppolReportQuery;
 import com.helger.peppol.reportingsupport.domain.PeppolReportSendingReportData;
+import com.helger.peppol.reportingsupport.domain.PeppolReportSendingReportFields;
+import com.helger.peppol.reportingsupport.domain.PeppolReportStoredData;
+import com.helger.peppol.reportingsupport.domain.PeppolReportStreamingData;
+import com.helger.peppol.reportingsupport.domain.PeppolReportSummary;
 
 /**
- * Implementation of {@link IPeppolReportStorage} for SQL backend.
+ * Implementation of {@link IPeppolReportStorage} for SQL backend.<br>
+ * If a compression is set, the report column contains the Base64 encoded compressed report and the
+ * column <code>repcompression</code> contains the ID of the {@link EPeppolReportCompression}. It is
+ * <code>NULL</code> for uncompressed reports.<br>
+ * Storing is idempotent: the column <code>rephash</code> contains the content hash and an entry with
+ * the same report type, period and content hash is never stored twice. Storing such a duplicate
+ * returns {@link ESuccess#SUCCESS} without writing anything.<br>
+ * The structured fields of sending reports are stored in the separate, indexed columns
+ * <code>sendsuccess</code>, <code>as4msgid</code>, <code>receiverid</code> and
+ * <code>errorcode</code>, so that they can be queried without reading the sending reports.<br>
+ * The table <code>peppol_report_summary</code> contains the latest report and sending state per
+ * report type and period. It is updated in the same transaction as the store, so that it never
+ * deviates from the stored reports. If the transaction fails, e.g. because a concurrent store
+ * created the same summary entry in between, it is retried once. Batches update the summary once
+ * per period within the batch transaction.
  */
 public class PeppolReportStorageSQL implements IPeppolReportStorage
 {
   private static final Logger LOGGER = LoggerFactory.getLogger (PeppolReportStorageSQL.class);
+  /** The maximum number of rows to send to the database in one JDBC batch */
+  private static final int MAX_BATCH_SIZE = 500;
+  /**
+   * The paging needs a total order. The content hash is unique per period and report type - only
+   * entries stored before v2.2.2 have no hash and are therefore only distinguished by their
+   * creation date and time.
+   */
+  private static final String ORDER_BY_CLAUSE = " ORDER BY repcreatedt, reptype, repyear, repmonth, rephash";
 
   private final Supplier <? extends PeppolReportDBExecutor> m_aDBExecutorSupplier;
   private final String m_sTableNamePrefix;
+  // The SQL statements only depend on the table name prefix
+  private final String m_sInsertReportSQL;
+  private final String m_sInsertSendingReportSQL;
+  private final String m_sExistsReportSQL;
+  private final String m_sExistsSendingReportSQL;
+  private final String m_sInsertSummarySQL;
+  private EPeppolReportCompression m_eCompression = EPeppolReportCompression.NONE;
+  // Determined from the database product on first use
+  private volatile String m_sPagingClause;
 
   /**
    * Constructor
@@ -59,6 +127,339 @@ public class PeppolReportStorageSQL implements IPeppolReportStorage
 
     m_aDBExecutorSupplier = aDBExecutorSupplier;
     m_sTableNamePrefix = sTableNamePrefix;
+    m_sInsertReportSQL = "INSERT INTO " +
+                         sTableNamePrefix +
+                         "peppol_report (reptype, repyear, repmonth, repcreatedt, report, repvalid, repcompression, rephash)" +
+                         " VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    m_sInsertSendingReportSQL = "INSERT INTO " +
+                                sTableNamePrefix +
+                                "peppol_sending_report (reptype, repyear, repmonth, repcreatedt, sendingreport, rephash, sendsuccess, as4msgid, receiverid, errorcode)" +
+                                " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    m_sExistsReportSQL = "SELECT 1 FROM " +
+                         sTableNamePrefix +
+                         "peppol_report WHERE reptype=? AND repyear=? AND repmonth=? AND rephash=?";
+    m_sExistsSendingReportSQL = "SELECT 1 FROM " +
+                                sTableNamePrefix +
+                                "peppol_sending_report WHERE reptype=? AND repyear=? AND repmonth=? AND rephash=?";
+    m_sInsertSummarySQL = "INSERT INTO " +
+                          sTableNamePrefix +
+                          "peppol_report_summary (reptype, repyear, repmonth, lastrepcreatedt, lastvalidrepcreatedt, lastsendcreatedt)" +
+                          " VALUES (?, ?, ?, ?, ?, ?)";
+  }
+
+  /**
+   * @return The compression applied to newly stored reports. Never <code>null</code>. Defaults to
+   *         {@link EPeppolReportCompression#NONE}.
+   * @since 2.2.2
+   */
+  @NonNull
+  public final EPeppolReportCompression getCompression ()
+  {
+    return m_eCompression;
+  }
+
+  /**
+   * Set the compression to be applied to newly stored reports. Existing reports are not touched.
+   *
+   * @param eCompression
+   *        The compression to use. May not be <code>null</code>.
+   * @return this for chaining
+   * @since 2.2.2
+   */
+  @NonNull
+  public final PeppolReportStorageSQL setCompression (@NonNull final EPeppolReportCompression eCompression)
+  {
+    ValueEnforcer.notNull (eCompression, "Compression");
+    m_eCompression = eCompression;
+    return this;
+  }
+
+  /**
+   * A reader that provides the Base64 encoded compressed content of a stream. The source is read
+   * and compressed chunk by chunk while the reader is consumed, so that neither the uncompressed nor
+   * the compressed payload is kept in memory as a whole.
+   */
+  private static final class CompressedBase64Reader extends Reader
+  {
+    private final InputStream m_aSource;
+    private final ByteArrayOutputStream m_aEncoded = new ByteArrayOutputStream ();
+    private final OutputStream m_aCompressor;
+    private final byte [] m_aChunk = new byte [8192];
+    private byte [] m_aPending = new byte [0];
+    private int m_nPendingPos = 0;
+    private boolean m_bEOF = false;
+
+    CompressedBase64Reader (@NonNull final EPeppolReportCompression eCompression,
+                            @NonNull final InputStream aSource) throws IOException
+    {
+      m_aSource = aSource;
+      m_aCompressor = eCompression.getCompressingStream (Base64.getEncoder ().wrap (m_aEncoded));
+    }
+
+    @Override
+    public int read (final char [] aBuf, final int nOfs, final int nLen) throws IOException
+    {
+      if (nLen == 0)
+        return 0;
+
+      while (m_nPendingPos >= m_aPending.length)
+      {
+        if (m_bEOF)
+          return -1;
+
+        final int nRead = m_aSource.read (m_aChunk);
+        if (nRead < 0)
+        {
+          // Flushes the remaining compressed data and the Base64 padding
+          m_aCompressor.close ();
+          m_bEOF = true;
+        }
+        else
+          m_aCompressor.write (m_aChunk, 0, nRead);
+        m_aPending = m_aEncoded.toByteArray ();
+        m_aEncoded.reset ();
+        m_nPendingPos = 0;
+      }
+
+      final int nCount = Math.min (nLen, m_aPending.length - m_nPendingPos);
+      for (int i = 0; i < nCount; ++i)
+      {
+        // Base64 is ASCII only
+        aBuf[nOfs + i] = (char) m_aPending[m_nPendingPos + i];
+      }
+      m_nPendingPos += nCount;
+      return nCount;
+    }
+
+    @Override
+    public void close () throws IOException
+    {
+      try
+      {
+        // Releases the resources of the compressor, if the reader was not consumed completely
+        if (!m_bEOF)
+          m_aCompressor.close ();
+      }
+      finally
+      {
+        m_aSource.close ();
+      }
+    }
+  }
+
+  @NonNull
+  private static String _getDBReportType (@NonNull final EPeppolReportType eReportType)
+  {
+    return DBValueHelper.getTrimmedToLength (eReportType.getID (), EPeppolReportType.MAX_LEN_ID);
+  }
+
+  /**
+   * Check if an entry with the provided content hash is already stored.
+   *
+   * @param aExecutor
+   *        The DB executor to use. May not be <code>null</code>.
+   * @param sExistsSQL
+   *        The SQL to check for existence. May not be <code>null</code>.
+   * @param eReportType
+   *        The report type. May not be <code>null</code>.
+   * @param aReportPeriod
+   *        The report period. May not be <code>null</code>.
+   * @param sContentHash
+   *        The content hash. May not be <code>null</code>.
+   * @return <code>true</code> if such an entry is already stored.
+   */
+  private static boolean _isStored (@NonNull final DBExecutor aExecutor,
+                                    @NonNull final String sExistsSQL,
+                                    @NonNull final EPeppolReportType eReportType,
+                                    @NonNull final YearMonth aReportPeriod,
+                                    @NonNull final String sContentHash)
+  {
+    final boolean [] ret = new boolean [1];
+    final ESuccess eSuccess = aExecutor.withExistingOrNewConnection (aConnection -> {
+      try (final PreparedStatement aPS = aConnection.prepareStatement (sExistsSQL))
+      {
+        aPS.setString (1, _getDBReportType (eReportType));
+        aPS.setInt (2, aReportPeriod.getYear ());
+        aPS.setInt (3, aReportPeriod.getMonthValue ());
+        aPS.setString (4, sContentHash);
+        try (final ResultSet aRS = aPS.executeQuery ())
+        {
+          ret[0] = aRS.next ();
+        }
+      }
+    }, null);
+    if (eSuccess.isFailure ())
+      throw new IllegalStateException ("Failed to check for an existing entry in the SQL DB");
+    return ret[0];
+  }
+
+  @NonNull
+  private static String _getDuplicateKey (@NonNull final String sDBReportType,
+                                          final int nYear,
+                                          final int nMonth,
+                                          @NonNull final String sContentHash)
+  {
+    return sDBReportType + ':' + nYear + ':' + nMonth + ':' + sContentHash;
+  }
+
+  /**
+   * Get the keys of all stored entries that have one of the provided content hashes.
+   *
+   * @param aExecutor
+   *        The DB executor to use. May not be <code>null</code>.
+   * @param sTableName
+   *        The table name without prefix. May not be <code>null</code>.
+   * @param aContentHashes
+   *        The content hashes to check. May not be <code>null</code>.
+   * @return A mutable set with the keys as created by
+   *         {@link #_getDuplicateKey(String, int, int, String)}. Never <code>null</code>.
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  private ICommonsSet <String> _getStoredDuplicateKeys (@NonNull final DBExecutor aExecutor,
+                                                        @NonNull final String sTableName,
+                                                        @NonNull final List <String> aContentHashes)
+  {
+    final ICommonsSet <String> ret = new CommonsHashSet <> ();
+    final ESuccess eSuccess = aExecutor.withExistingOrNewConnection (aConnection -> {
+      // Chunk the IN list, as some databases limit the number of parameters
+      for (int nStart = 0; nStart < aContentHashes.size (); nStart += MAX_BATCH_SIZE)
+      {
+        final List <String> aChunk = aContentHashes.subList (nStart,
+                                                             Math.min (nStart + MAX_BATCH_SIZE,
+                                                                       aContentHashes.size ()));
+        final String sSQL = "SELECT reptype, repyear, repmonth, rephash FROM " +
+                            m_sTableNamePrefix +
+                            sTableName +
+                            " WHERE rephash IN (?" +
+                            ", ?".repeat (aChunk.size () - 1) +
+                            ")";
+        try (final PreparedStatement aPS = aConnection.prepareStatement (sSQL))
+        {
+          int nIndex = 1;
+          for (final String sContentHash : aChunk)
+            aPS.setString (nIndex++, sContentHash);
+          try (final ResultSet aRS = aPS.executeQuery ())
+          {
+            while (aRS.next ())
+              ret.add (_getDuplicateKey (aRS.getString ("reptype"),
+                                         aRS.getInt ("repyear"),
+                                         aRS.getInt ("repmonth"),
+                                         aRS.getString ("rephash")));
+          }
+        }
+      }
+    }, null);
+    if (eSuccess.isFailure ())
+      throw new IllegalStateException ("Failed to check for existing entries in the SQL DB");
+    return ret;
+  }
+
+  @Nullable
+  private static Object _getSummaryTimestamp (@Nullable final LocalDateTime aDT)
+  {
+    return aDT == null ? null : DBValueHelper.toTimestamp (PDTFactory.getWithMillisOnly (aDT));
+  }
+
+  private static void _addSummaryColumn (@NonNull final StringBuilder aSB,
+                                         @NonNull final List <Object> aParams,
+                                         @NonNull final String sColumnName,
+                                         @Nullable final LocalDateTime aDT)
+  {
+    if (aDT != null)
+    {
+      if (aSB.length () > 0)
+        aSB.append (", ");
+      // Only ever move forward in time, independent of the order of concurrent updates
+      aSB.append (sColumnName)
+         .append ("=CASE WHEN ")
+         .append (sColumnName)
+         .append (" IS NULL OR ")
+         .append (sColumnName)
+         .append ("<? THEN ? ELSE ")
+         .append (sColumnName)
+         .append (" END");
+      final Object aTimestamp = _getSummaryTimestamp (aDT);
+      aParams.add (aTimestamp);
+      aParams.add (aTimestamp);
+    }
+  }
+
+  /**
+   * Merge the provided summary into the summary table. Must be called within the transaction that
+   * stores the reports, so that the summary is rolled back together with them.
+   *
+   * @param aExecutor
+   *        The DB executor to use. May not be <code>null</code>.
+   * @param aSummary
+   *        The summary of the newly stored data. May not be <code>null</code>.
+   */
+  private void _updateSummary (@NonNull final DBExecutor aExecutor, @NonNull final PeppolReportSummary aSummary)
+  {
+    final String sReportType = _getDBReportType (aSummary.getReportType ());
+    final Integer aYear = Integer.valueOf (aSummary.getReportPeriod ().getYear ());
+    final Integer aMonth = Integer.valueOf (aSummary.getReportPeriod ().getMonthValue ());
+
+    final StringBuilder aSB = new StringBuilder ();
+    final ICommonsList <Object> aUpdateParams = new CommonsArrayList <> ();
+    _addSummaryColumn (aSB, aUpdateParams, "lastrepcreatedt", aSummary.getLastReportCreationDT ());
+    _addSummaryColumn (aSB, aUpdateParams, "lastvalidrepcreatedt", aSummary.getLastValidReportCreationDT ());
+    _addSummaryColumn (aSB, aUpdateParams, "lastsendcreatedt", aSummary.getLastSendingReportCreationDT ());
+    if (aSB.length () == 0)
+      return;
+    aUpdateParams.add (sReportType);
+    aUpdateParams.add (aYear);
+    aUpdateParams.add (aMonth);
+    final String sUpdateSQL = "UPDATE " +
+                              m_sTableNamePrefix +
+                              "peppol_report_summary SET " +
+                              aSB.toString () +
+                              " WHERE reptype=? AND repyear=? AND repmonth=?";
+
+    final long nUpdated = aExecutor.insertOrUpdateOrDelete (sUpdateSQL,
+                                                            new ConstantPreparedStatementDataProvider (aUpdateParams.toArray ()));
+    if (nUpdated < 0)
+      throw new IllegalStateException ("Failed to update SQL DB summary entry (" + nUpdated + ")");
+    if (nUpdated == 0)
+    {
+      // A concurrent insert of the same period fails the transaction, which is retried by the caller
+      final long nCreated = aExecutor.insertOrUpdateOrDelete (m_sInsertSummarySQL,
+                                                              new ConstantPreparedStatementDataProvider (sReportType,
+                                                                                                         aYear,
+                                                                                                         aMonth,
+                                                                                                         _getSummaryTimestamp (aSummary.getLastReportCreationDT ()),
+                                                                                                         _getSummaryTimestamp (aSummary.getLastValidReportCreationDT ()),
+                                                                                                         _getSummaryTimestamp (aSummary.getLastSendingReportCreationDT ())));
+      if (nCreated != 1)
+        throw new IllegalStateException ("Failed to create new SQL DB summary entry (" + nCreated + ")");
+    }
+  }
+
+  /**
+   * Store a single report and update the summary in one transaction. The transaction is retried
+   * once, in case a concurrent store created the same summary entry in between.
+   *
+   * @param aExecutor
+   *        The DB executor to use. May not be <code>null</code>.
+   * @param aStoreAction
+   *        The action storing the report. Must throw an unchecked exception on error. May not be
+   *        <code>null</code>.
+   * @param aSummary
+   *        The summary of the newly stored report. May not be <code>null</code>.
+   * @return {@link ESuccess}
+   */
+  @NonNull
+  private ESuccess _storeWithSummary (@NonNull final DBExecutor aExecutor,
+                                      @NonNull final Runnable aStoreAction,
+                                      @NonNull final PeppolReportSummary aSummary)
+  {
+    ESuccess eSuccess = ESuccess.FAILURE;
+    for (int nTry = 0; nTry < 2 && eSuccess.isFailure (); ++nTry)
+      eSuccess = aExecutor.performInTransaction ( () -> {
+        aStoreAction.run ();
+        _updateSummary (aExecutor, aSummary);
+      });
+    return eSuccess;
   }
 
   @NonNull
@@ -69,13 +470,31 @@ public class PeppolReportStorageSQL implements IPeppolReportStorage
     if (LOGGER.isDebugEnabled ())
       LOGGER.debug ("Trying to store Peppol Report in SQL DB");
 
+    final String sContentHash = aReportData.getContentHash ();
     final DBExecutor aExecutor = m_aDBExecutorSupplier.get ();
-    final ESuccess eSuccess = aExecutor.performInTransaction ( () -> {
+    if (_isStored (aExecutor,
+                   m_sExistsReportSQL,
+                   aReportData.getReportType (),
+                   aReportData.getReportPeriod (),
+                   sContentHash))
+    {
+      if (LOGGER.isDebugEnabled ())
+        LOGGER.debug ("Peppol Report is already stored in SQL DB");
+      return ESuccess.SUCCESS;
+    }
+
+    final EPeppolReportCompression eCompression = m_eCompression;
+    final String sReport = eCompression.isCompressed () ? Base64.getEncoder ()
+                                                                .encodeToString (eCompression.compress (aReportData.getReportXMLBytes ()))
+                                                        : aReportData.getReportXMLString ();
+
+    final PeppolReportSummary aSummary = PeppolReportSummary.createEmpty (aReportData.getReportType (),
+                                                                          aReportData.getReportPeriod ())
+                                                            .getWithReport (aReportData.getReportCreationDT (),
+                                                                            aReportData.isReportValid ());
+    final ESuccess eSuccess = _storeWithSummary (aExecutor, () -> {
       // Create new
-      final long nCreated = aExecutor.insertOrUpdateOrDelete ("INSERT INTO " +
-                                                              m_sTableNamePrefix +
-                                                              "peppol_report (reptype, repyear, repmonth, repcreatedt, report, repvalid)" +
-                                                              " VALUES (?, ?, ?, ?, ?, ?)",
+      final long nCreated = aExecutor.insertOrUpdateOrDelete (m_sInsertReportSQL,
                                                               new ConstantPreparedStatementDataProvider (DBValueHelper.getTrimmedToLength (aReportData.getReportType ()
                                                                                                                                                       .getID (),
                                                                                                                                            EPeppolReportType.MAX_LEN_ID),
@@ -84,13 +503,25 @@ public class PeppolReportStorageSQL implements IPeppolReportStorage
                                                                                                          Integer.valueOf (aReportData.getReportPeriod ()
                                                                                                                                      .getMonthValue ()),
                                                                                                          DBValueHelper.toTimestamp (PDTFactory.getWithMillisOnly (aReportData.getReportCreationDT ())),
-                                                                                                         aReportData.getReportXMLString (),
-                                                                                                         Boolean.valueOf (aReportData.isReportValid ())));
+                                                                                                         sReport,
+                                                                                                         Boolean.valueOf (aReportData.isReportValid ()),
+                                                                                                         eCompression.isCompressed () ? eCompression.getID ()
+                                                                                                                                      : null,
+                                                                                                         sContentHash));
       if (nCreated != 1)
         throw new IllegalStateException ("Failed to create new SQL DB entry (" + nCreated + ")");
-    });
+    }, aSummary);
     if (eSuccess.isFailure ())
+    {
+      // A concurrent store of the same report may have been faster
+      if (_isStored (aExecutor,
+                     m_sExistsReportSQL,
+                     aReportData.getReportType (),
+                     aReportData.getReportPeriod (),
+                     sContentHash))
+        return ESuccess.SUCCESS;
       throw new IllegalStateException ("Failed to insert Peppol Report into SQL DB");
+    }
 
     if (LOGGER.isDebugEnabled ())
       LOGGER.debug ("Successfully stored Peppol Report in SQL DB");
@@ -98,6 +529,89 @@ public class PeppolReportStorageSQL implements IPeppolReportStorage
     return ESuccess.SUCCESS;
   }
 
+  /**
+   * {@inheritDoc}<br>
+   * The report XML is passed to the JDBC driver as a character stream, so that it does not need to
+   * be materialized as a String. The payload is read twice: once to calculate the content hash and
+   * once to store it.
+   */
+  @NonNull
+  public ESuccess storePeppolReportStreaming (@NonNull final PeppolReportStreamingData aReportData)
+  {
+    ValueEnforcer.notNull (aReportData, "ReportData");
+
+    if (LOGGER.isDebugEnabled ())
+      LOGGER.debug ("Trying to stream Peppol Report into SQL DB");
+
+    final String sContentHash = aReportData.getContentHash ();
+    final DBExecutor aExecutor = m_aDBExecutorSupplier.get ();
+    if (_isStored (aExecutor,
+                   m_sExistsReportSQL,
+                   aReportData.getReportType (),
+                   aReportData.getReportPeriod (),
+                   sContentHash))
+    {
+      if (LOGGER.isDebugEnabled ())
+        LOGGER.debug ("Peppol Report is already stored in SQL DB");
+      return ESuccess.SUCCESS;
+    }
+
+    // The payload is streamed into the statement - compressed reports are compressed on the fly
+    final EPeppolReportCompression eCompression = m_eCompression;
+    final PeppolReportSummary aSummary = PeppolReportSummary.createEmpty (aReportData.getReportType (),
+                                                                          aReportData.getReportPeriod ())
+                                                            .getWithReport (aReportData.getReportCreationDT (),
+                                                                            aReportData.isReportValid ());
+    final ESuccess eSuccess = _storeWithSummary (aExecutor, () -> {
+      // Uses the connection of the transaction
+      final ESuccess eInserted = aExecutor.withExistingOrNewConnection (aConnection -> {
+        try (final PreparedStatement aPS = aConnection.prepareStatement (m_sInsertReportSQL);
+             final InputStream aIS = aReportData.getReportXMLProvider ().openStream ();
+             final Reader aReader = eCompression.isCompressed () ? new CompressedBase64Reader (eCompression, aIS)
+                                                                 : new InputStreamReader (aIS, StandardCharsets.UTF_8))
+        {
+          aPS.setString (1,
+                         DBValueHelper.getTrimmedToLength (aReportData.getReportType ().getID (),
+                                                           EPeppolReportType.MAX_LEN_ID));
+          aPS.setInt (2, aReportData.getReportPeriod ().getYear ());
+          aPS.setInt (3, aReportData.getReportPeriod ().getMonthValue ());
+          aPS.setTimestamp (4,
+                            DBValueHelper.toTimestamp (PDTFactory.getWithMillisOnly (aReportData.getReportCreationDT ())));
+          aPS.setCharacterStream (5, aReader);
+          aPS.setBoolean (6, aReportData.isReportValid ());
+          aPS.setString (7, eCompression.isCompressed () ? eCompression.getID () : null);
+          aPS.setString (8, sContentHash);
+
+          final int nCreated = aPS.executeUpdate ();
+          if (nCreated != 1)
+            throw new SQLException ("Failed to create new SQL DB entry (" + nCreated + ")");
+        }
+        catch (final IOException ex)
+        {
+          throw new SQLException ("Failed to read the Peppol Report payload", ex);
+        }
+      }, null);
+      if (eInserted.isFailure ())
+        throw new IllegalStateException ("Failed to stream Peppol Report into SQL DB");
+    }, aSummary);
+    if (eSuccess.isFailure ())
+    {
+      // A concurrent store of the same report may have been faster
+      if (_isStored (aExecutor,
+                     m_sExistsReportSQL,
+                     aReportData.getReportType (),
+                     aReportData.getReportPeriod (),
+                     sContentHash))
+        return ESuccess.SUCCESS;
+      throw new IllegalStateException ("Failed to insert Peppol Report into SQL DB");
+    }
+
+    if (LOGGER.isDebugEnabled ())
+      LOGGER.debug ("Successfully streamed Peppol Report into SQL DB");
+
+    return ESuccess.SUCCESS;
+  }
+
   @NonNull
   public ESuccess storePeppolReportingSendingReport (@NonNull final PeppolReportSendingReportData aSendingReportData)
   {
@@ -106,13 +620,26 @@ public class PeppolReportStorageSQL implements IPeppolReportStorage
     if (LOGGER.isDebugEnabled ())
       LOGGER.debug ("Trying to store Peppol Report Sending Report in SQL DB");
 
+    final String sContentHash = aSendingReportData.getContentHash ();
     final DBExecutor aExecutor = m_aDBExecutorSupplier.get ();
-    final ESuccess eSuccess = aExecutor.performInTransaction ( () -> {
+    if (_isStored (aExecutor,
+                   m_sExistsSendingReportSQL,
+                   aSendingReportData.getReportType (),
+                   aSendingReportData.getReportPeriod (),
+                   sContentHash))
+    {
+      if (LOGGER.isDebugEnabled ())
+        LOGGER.debug ("Peppol Report Sending Report is already stored in SQL DB");
+      return ESuccess.SUCCESS;
+    }
+
+    final PeppolReportSendingReportFields aFields = aSendingReportData.getFields ();
+    final PeppolReportSummary aSummary = PeppolReportSummary.createEmpty (aSendingReportData.getReportType (),
+                                                                          aSendingReportData.getReportPeriod ())
+                                                            .getWithSendingReport (aSendingReportData.getReportCreationDT ());
+    final ESuccess eSuccess = _storeWithSummary (aExecutor, () -> {
       // Create new
-      final long nCreated = aExecutor.insertOrUpdateOrDelete ("INSERT INTO " +
-                                                              m_sTableNamePrefix +
-                                                              "peppol_sending_report (reptype, repyear, repmonth, repcreatedt, sendingreport)" +
-                                                              " VALUES (?, ?, ?, ?, ?)",
+      final long nCreated = aExecutor.insertOrUpdateOrDelete (m_sInsertSendingReportSQL,
                                                               new ConstantPreparedStatementDataProvider (DBValueHelper.getTrimmedToLength (aSendingReportData.getReportType ()
                                                                                                                                                              .getID (),
                                                                                                                                            EPeppolReportType.MAX_LEN_ID),
@@ -121,16 +648,632 @@ public class PeppolReportStorageSQL implements IPeppolReportStorage
                                                                                                          Integer.valueOf (aSendingReportData.getReportPeriod ()
                                                                                                                                             .getMonthValue ()),
                                                                                                          DBValueHelper.toTimestamp (PDTFactory.getWithMillisOnly (aSendingReportData.getReportCreationDT ())),
-                                                                                                         aSendingReportData.getSendingReportContent ()));
+                                                                                                         aSendingReportData.getSendingReportContent (),
+                                                                                                         sContentHash,
+                                                                                                         aFields == null ? null
+                                                                                                                         : aFields.getSendingSuccess (),
+                                                                                                         aFields == null ? null
+                                                                                                                         : DBValueHelper.getTrimmedToLength (aFields.getAS4MessageID (),
+                                                                                                                                                             PeppolReportSendingReportFields.MAX_LEN_AS4_MESSAGE_ID),
+                                                                                                         aFields == null ? null
+                                                                                                                         : DBValueHelper.getTrimmedToLength (aFields.getReceiverID (),
+                                                                                                                                                             PeppolReportSendingReportFields.MAX_LEN_RECEIVER_ID),
+                                                                                                         aFields == null ? null
+                                                                                                                         : DBValueHelper.getTrimmedToLength (aFields.getErrorCode (),
+                                                                                                                                                             PeppolReportSendingReportFields.MAX_LEN_ERROR_CODE)));
       if (nCreated != 1)
         throw new IllegalStateException ("Failed to create new SQL DB entry (" + nCreated + ")");
-    });
+    }, aSummary);
     if (eSuccess.isFailure ())
+    {
+      // A concurrent store of the same sending report may have been faster
+      if (_isStored (aExecutor,
+                     m_sExistsSendingReportSQL,
+                     aSendingReportData.getReportType (),
+                     aSendingReportData.getReportPeriod (),
+                     sContentHash))
+        return ESuccess.SUCCESS;
       throw new IllegalStateException ("Failed to insert Peppol Report Sending Report into SQL DB");
+    }
 
     if (LOGGER.isDebugEnabled ())
       LOGGER.debug ("Successfully stored Peppol Report Sending Report in SQL DB");
 
     return ESuccess.SUCCESS;
   }
+
+  private static void _setSendingReportFields (@NonNull final PreparedStatement aPS,
+                                               final int nStartIndex,
+                                               @Nullable final PeppolReportSendingReportFields aFields) throws SQLException
+  {
+    if (aFields == null || aFields.getSendingSuccess () == null)
+      aPS.setNull (nStartIndex, Types.BOOLEAN);
+    else
+      aPS.setBoolean (nStartIndex, aFields.getSendingSuccess ().booleanValue ());
+    aPS.setString (nStartIndex + 1,
+                   aFields == null ? null
+                                   : DBValueHelper.getTrimmedToLength (aFields.getAS4MessageID (),
+                                                                       PeppolReportSendingReportFields.MAX_LEN_AS4_MESSAGE_ID));
+    aPS.setString (nStartIndex + 2,
+                   aFields == null ? null
+                                   : DBValueHelper.getTrimmedToLength (aFields.getReceiverID (),
+                                                                       PeppolReportSendingReportFields.MAX_LEN_RECEIVER_ID));
+    aPS.setString (nStartIndex + 3,
+                   aFields == null ? null
+                                   : DBValueHelper.getTrimmedToLength (aFields.getErrorCode (),
+                                                                       PeppolReportSendingReportFields.MAX_LEN_ERROR_CODE));
+  }
+
+  private static void _checkBatchResult (@NonNull final int [] aUpdateCounts) throws SQLException
+  {
+    for (final int nCount : aUpdateCounts)
+      if (nCount != 1 && nCount != Statement.SUCCESS_NO_INFO)
+        throw new SQLException ("Failed to create new SQL DB entry in batch (" + nCount + ")");
+  }
+
+  /**
+   * {@inheritDoc}<br>
+   * Already stored reports and duplicates within the provided reports are determined upfront with
+   * as few queries as possible and are skipped. All other reports are inserted with JDBC batches in
+   * a single transaction. If that fails, the transaction is rolled back and each report is inserted
+   * on its own, to determine the result per report.
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  public ICommonsList <ESuccess> storePeppolReports (@NonNull final Collection <? extends PeppolReportData> aReportDatas)
+  {
+    ValueEnforcer.noNullValue (aReportDatas, "ReportDatas");
+
+    if (aReportDatas.isEmpty ())
+      return new CommonsArrayList <> ();
+
+    if (LOGGER.isDebugEnabled ())
+      LOGGER.debug ("Trying to batch store " + aReportDatas.size () + " Peppol Reports in SQL DB");
+
+    final DBExecutor aExecutor = m_aDBExecutorSupplier.get ();
+
+    // Skip all duplicates
+    final ICommonsList <String> aContentHashes = new CommonsArrayList <> (aReportDatas,
+                                                                          PeppolReportData::getContentHash);
+    final ICommonsSet <String> aDuplicateKeys = _getStoredDuplicateKeys (aExecutor, "peppol_report", aContentHashes);
+    final ICommonsList <PeppolReportData> aToInsert = new CommonsArrayList <> ();
+    final ICommonsList <String> aToInsertHashes = new CommonsArrayList <> ();
+    int nIndex = 0;
+    for (final PeppolReportData aReportData : aReportDatas)
+    {
+      final String sContentHash = aContentHashes.get (nIndex++);
+      if (aDuplicateKeys.add (_getDuplicateKey (_getDBReportType (aReportData.getReportType ()),
+                                                aReportData.getReportPeriod ().getYear (),
+                                                aReportData.getReportPeriod ().getMonthValue (),
+                                                sContentHash)))
+      {
+        aToInsert.add (aReportData);
+        aToInsertHashes.add (sContentHash);
+      }
+    }
+
+    final ICommonsList <ESuccess> ret = new CommonsArrayList <> (aReportDatas.size ());
+    if (aToInsert.isEmpty ())
+    {
+      if (LOGGER.isDebugEnabled ())
+        LOGGER.debug ("All " + aReportDatas.size () + " Peppol Reports are already stored in SQL DB");
+      for (int i = 0; i < aReportDatas.size (); ++i)
+        ret.add (ESuccess.SUCCESS);
+      return ret;
+    }
+
+    // One summary update per period and not per report
+    final ICommonsOrderedMap <Map.Entry <EPeppolReportType, YearMonth>, PeppolReportSummary> aSummaries = new CommonsLinkedHashMap <> ();
+    for (final PeppolReportData aReportData : aToInsert)
+    {
+      final Map.Entry <EPeppolReportType, YearMonth> aKey = Map.entry (aReportData.getReportType (),
+                                                                       aReportData.getReportPeriod ());
+      final PeppolReportSummary aSummary = aSummaries.computeIfAbsent (aKey,
+                                                                       k -> PeppolReportSummary.createEmpty (k.getKey (),
+                                                                                                             k.getValue ()));
+      aSummaries.put (aKey, aSummary.getWithReport (aReportData.getReportCreationDT (), aReportData.isReportValid ()));
+    }
+    final EPeppolReportCompression eCompression = m_eCompression;
+    final ESuccess eSuccess = aExecutor.performInTransaction ( () -> {
+      // Uses the connection of the transaction
+      final ESuccess eInserted = aExecutor.withExistingOrNewConnection (aConnection -> {
+        try (final PreparedStatement aPS = aConnection.prepareStatement (m_sInsertReportSQL))
+        {
+          int nInBatch = 0;
+          for (int i = 0; i < aToInsert.size (); ++i)
+          {
+            final PeppolReportData aReportData = aToInsert.get (i);
+            aPS.setString (1,
+                           DBValueHelper.getTrimmedToLength (aReportData.getReportType ().getID (),
+                                                             EPeppolReportType.MAX_LEN_ID));
+            aPS.setInt (2, aReportData.getReportPeriod ().getYear ());
+            aPS.setInt (3, aReportData.getReportPeriod ().getMonthValue ());
+            aPS.setTimestamp (4,
+                              DBValueHelper.toTimestamp (PDTFactory.getWithMillisOnly (aReportData.getReportCreationDT ())));
+            aPS.setString (5,
+                           eCompression.isCompressed () ? Base64.getEncoder ()
+                                                                .encodeToString (eCompression.compress (aReportData.getReportXMLBytes ()))
+                                                        : aReportData.getReportXMLString ());
+            aPS.setBoolean (6, aReportData.isReportValid ());
+            aPS.setString (7, eCompression.isCompressed () ? eCompression.getID () : null);
+            aPS.setString (8, aToInsertHashes.get (i));
+            aPS.addBatch ();
+
+            if (++nInBatch == MAX_BATCH_SIZE)
+            {
+              _checkBatchResult (aPS.executeBatch ());
+              nInBatch = 0;
+            }
+          }
+          if (nInBatch > 0)
+            _checkBatchResult (aPS.executeBatch ());
+        }
+      }, null);
+      if (eInserted.isFailure ())
+        throw new IllegalStateException ("Failed to batch insert Peppol Reports into SQL DB");
+      for (final PeppolReportSummary aSummary : aSummaries.values ())
+        _updateSummary (aExecutor, aSummary);
+    });
+
+    if (eSuccess.isSuccess ())
+    {
+      for (int i = 0; i < aReportDatas.size (); ++i)
+        ret.add (ESuccess.SUCCESS);
+
+      if (LOGGER.isDebugEnabled ())
+        LOGGER.debug ("Successfully batch stored " +
+                      aToInsert.size () +
+                      " of " +
+                      aReportDatas.size () +
+                      " Peppol Reports in SQL DB - the others were duplicates");
+    }
+    else
+    {
+      LOGGER.warn ("Failed to batch store " +
+                   aReportDatas.size () +
+                   " Peppol Reports in SQL DB - storing them one by one");
+      for (final PeppolReportData aReportData : aReportDatas)
+      {
+        ESuccess eItemSuccess;
+        try
+        {
+          eItemSuccess = storePeppolReport (aReportData);
+        }
+        catch (final RuntimeException ex)
+        {
+          LOGGER.error ("Failed to store Peppol Report " + aReportData, ex);
+          eItemSuccess = ESuccess.FAILURE;
+        }
+        ret.add (eItemSuccess);
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * {@inheritDoc}<br>
+   * Already stored sending reports and duplicates within the provided sending reports are
+   * determined upfront with as few queries as possible and are skipped. All other sending reports
+   * are inserted with JDBC batches in a single transaction. If that fails, the transaction is rolled
+   * back and each sending report is inserted on its own, to determine the result per sending report.
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  public ICommonsList <ESuccess> storePeppolReportingSendingReports (@NonNull final Collection <? extends PeppolReportSendingReportData> aSendingReportDatas)
+  {
+    ValueEnforcer.noNullValue (aSendingReportDatas, "SendingReportDatas");
+
+    if (aSendingReportDatas.isEmpty ())
+      return new CommonsArrayList <> ();
+
+    if (LOGGER.isDebugEnabled ())
+      LOGGER.debug ("Trying to batch store " +
+                    aSendingReportDatas.size () +
+                    " Peppol Report Sending Reports in SQL DB");
+
+    final DBExecutor aExecutor = m_aDBExecutorSupplier.get ();
+
+    // Skip all duplicates
+    final ICommonsList <String> aContentHashes = new CommonsArrayList <> (aSendingReportDatas,
+                                                                          PeppolReportSendingReportData::getContentHash);
+    final ICommonsSet <String> aDuplicateKeys = _getStoredDuplicateKeys (aExecutor,
+                                                                         "peppol_sending_report",
+                                                                         aContentHashes);
+    final ICommonsList <PeppolReportSendingReportData> aToInsert = new CommonsArrayList <> ();
+    final ICommonsList <String> aToInsertHashes = new CommonsArrayList <> ();
+    int nIndex = 0;
+    for (final PeppolReportSendingReportData aSendingReportData : aSendingReportDatas)
+    {
+      final String sContentHash = aContentHashes.get (nIndex++);
+      if (aDuplicateKeys.add (_getDuplicateKey (_getDBReportType (aSendingReportData.getReportType ()),
+                                                aSendingReportData.getReportPeriod ().getYear (),
+                                                aSendingReportData.getReportPeriod ().getMonthValue (),
+                                                sContentHash)))
+      {
+        aToInsert.add (aSendingReportData);
+        aToInsertHashes.add (sContentHash);
+      }
+    }
+
+    final ICommonsList <ESuccess> ret = new CommonsArrayList <> (aSendingReportDatas.size ());
+    if (aToInsert.isEmpty ())
+    {
+      if (LOGGER.isDebugEnabled ())
+        LOGGER.debug ("All " +
+                      aSendingReportDatas.size () +
+                      " Peppol Report Sending Reports are already stored in SQL DB");
+      for (int i = 0; i < aSendingReportDatas.size (); ++i)
+        ret.add (ESuccess.SUCCESS);
+      return ret;
+    }
+
+    // One summary update per period and not per sending report
+    final ICommonsOrderedMap <Map.Entry <EPeppolReportType, YearMonth>, PeppolReportSummary> aSummaries = new CommonsLinkedHashMap <> ();
+    for (final PeppolReportSendingReportData aSendingReportData : aToInsert)
+    {
+      final Map.Entry <EPeppolReportType, YearMonth> aKey = Map.entry (aSendingReportData.getReportType (),
+                                                                       aSendingReportData.getReportPeriod ());
+      final PeppolReportSummary aSummary = aSummaries.computeIfAbsent (aKey,
+                                                                       k -> PeppolReportSummary.createEmpty (k.getKey (),
+                                                                                                             k.getValue ()));
+      aSummaries.put (aKey, aSummary.getWithSendingReport (aSendingReportData.getReportCreationDT ()));
+    }
+    final ESuccess eSuccess = aExecutor.performInTransaction ( () -> {
+      // Uses the connection of the transaction
+      final ESuccess eInserted = aExecutor.withExistingOrNewConnection (aConnection -> {
+        try (final PreparedStatement aPS = aConnection.prepareStatement (m_sInsertSendingReportSQL))
+        {
+          int nInBatch = 0;
+          for (int i = 0; i < aToInsert.size (); ++i)
+          {
+            final PeppolReportSendingReportData aSendingReportData = aToInsert.get (i);
+            aPS.setString (1,
+                           DBValueHelper.getTrimmedToLength (aSendingReportData.getReportType ().getID (),
+                                                             EPeppolReportType.MAX_LEN_ID));
+            aPS.setInt (2, aSendingReportData.getReportPeriod ().getYear ());
+            aPS.setInt (3, aSendingReportData.getReportPeriod ().getMonthValue ());
+            aPS.setTimestamp (4,
+                              DBValueHelper.toTimestamp (PDTFactory.getWithMillisOnly (aSendingReportData.getReportCreationDT ())));
+            aPS.setString (5, aSendingReportData.getSendingReportContent ());
+            aPS.setString (6, aToInsertHashes.get (i));
+            _setSendingReportFields (aPS, 7, aSendingReportData.getFields ());
+            aPS.addBatch ();
+
+            if (++nInBatch == MAX_BATCH_SIZE)
+            {
+              _checkBatchResult (aPS.executeBatch ());
+              nInBatch = 0;
+            }
+          }
+          if (nInBatch > 0)
+            _checkBatchResult (aPS.executeBatch ());
+        }
+      }, null);
+      if (eInserted.isFailure ())
+        throw new IllegalStateException ("Failed to batch insert Peppol Report Sending Reports into SQL DB");
+      for (final PeppolReportSummary aSummary : aSummaries.values ())
+        _updateSummary (aExecutor, aSummary);
+    });
+
+    if (eSuccess.isSuccess ())
+    {
+      for (int i = 0; i < aSendingReportDatas.size (); ++i)
+        ret.add (ESuccess.SUCCESS);
+
+      if (LOGGER.isDebugEnabled ())
+        LOGGER.debug ("Successfully batch stored " +
+                      aToInsert.size () +
+                      " of " +
+                      aSendingReportDatas.size () +
+                      " Peppol Report Sending Reports in SQL DB - the others were duplicates");
+    }
+    else
+    {
+      LOGGER.warn ("Failed to batch store " +
+                   aSendingReportDatas.size () +
+                   " Peppol Report Sending Reports in SQL DB - storing them one by one");
+      for (final PeppolReportSendingReportData aSendingReportData : aSendingReportDatas)
+      {
+        ESuccess eItemSuccess;
+        try
+        {
+          eItemSuccess = storePeppolReportingSendingReport (aSendingReportData);
+        }
+        catch (final RuntimeException ex)
+        {
+          LOGGER.error ("Failed to store Peppol Report Sending Report " + aSendingReportData, ex);
+          eItemSuccess = ESuccess.FAILURE;
+        }
+        ret.add (eItemSuccess);
+      }
+    }
+    return ret;
+  }
+
+  @NonNull
+  private static String _getWhereClause (@NonNull final PeppolReportQuery aQuery,
+                                         final boolean bWithValidity,
+                                         final boolean bWithSendingReportFields,
+                                         @NonNull final List <Object> aParams)
+  {
+    final StringBuilder aSB = new StringBuilder ();
+    if (aQuery.getReportType () != null)
+    {
+      aSB.append (" AND reptype=?");
+      aParams.add (aQuery.getReportType ().getID ());
+    }
+    final YearMonth aPeriodFrom = aQuery.getReportPeriodFrom ();
+    if (aPeriodFrom != null)
+    {
+      aSB.append (" AND (repyear>? OR (repyear=? AND repmonth>=?))");
+      aParams.add (Integer.valueOf (aPeriodFrom.getYear ()));
+      aParams.add (Integer.valueOf (aPeriodFrom.getYear ()));
+      aParams.add (Integer.valueOf (aPeriodFrom.getMonthValue ()));
+    }
+    final YearMonth aPeriodTo = aQuery.getReportPeriodTo ();
+    if (aPeriodTo != null)
+    {
+      aSB.append (" AND (repyear<? OR (repyear=? AND repmonth<=?))");
+      aParams.add (Integer.valueOf (aPeriodTo.getYear ()));
+      aParams.add (Integer.valueOf (aPeriodTo.getYear ()));
+      aParams.add (Integer.valueOf (aPeriodTo.getMonthValue ()));
+    }
+    if (bWithValidity && aQuery.getReportValid () != null)
+    {
+      aSB.append (" AND repvalid=?");
+      aParams.add (aQuery.getReportValid ());
+    }
+    if (aQuery.getReportCreationDTFrom () != null)
+    {
+      aSB.append (" AND repcreatedt>=?");
+      aParams.add (DBValueHelper.toTimestamp (PDTFactory.getWithMillisOnly (aQuery.getReportCreationDTFrom ())));
+    }
+    if (aQuery.getReportCreationDTTo () != null)
+    {
+      aSB.append (" AND repcreatedt<?");
+      aParams.add (DBValueHelper.toTimestamp (PDTFactory.getWithMillisOnly (aQuery.getReportCreationDTTo ())));
+    }
+    if (bWithSendingReportFields && aQuery.getSendingSuccess () != null)
+    {
+      aSB.append (" AND sendsuccess=?");
+      aParams.add (aQuery.getSendingSuccess ());
+    }
+    if (bWithSendingReportFields && aQuery.getAS4MessageID () != null)
+    {
+      aSB.append (" AND as4msgid=?");
+      aParams.add (aQuery.getAS4MessageID ());
+    }
+    // Cut the leading " AND"
+    return aSB.length () == 0 ? "" : " WHERE" + aSB.substring (4);
+  }
+
+  @NonNull
+  private String _getPagingClause (@NonNull final Connection aConnection) throws SQLException
+  {
+    String ret = m_sPagingClause;
+    if (ret == null)
+    {
+      // The database product doesn't change, so the metadata is only queried once
+      final String sProductName = aConnection.getMetaData ().getDatabaseProductName ();
+      if (sProductName != null && (sProductName.contains ("MySQL") || sProductName.contains ("MariaDB")))
+        ret = " LIMIT ? OFFSET ?";
+      else
+      {
+        // SQL:2008 syntax for PostgreSQL, SQL Server, DB2 and Oracle
+        ret = " OFFSET ? ROWS FETCH NEXT ? ROWS ONLY";
+      }
+      m_sPagingClause = ret;
+    }
+    return ret;
+  }
+
+  @FunctionalInterface
+  private interface IRowMapper <T>
+  {
+    @NonNull
+    T map (@NonNull ResultSet aRS) throws SQLException;
+  }
+
+  @NonNull
+  private <T> List <T> _loadPage (@NonNull final String sSelectAndWhere,
+                                  @NonNull final List <Object> aParams,
+                                  @Nonnegative final int nOffset,
+                                  @Nonnegative final int nCount,
+                                  @NonNull final IRowMapper <T> aRowMapper)
+  {
+    final ICommonsList <T> ret = new CommonsArrayList <> (nCount);
+    final DBExecutor aExecutor = m_aDBExecutorSupplier.get ();
+    final ESuccess eSuccess = aExecutor.withExistingOrNewConnection (aConnection -> {
+      final String sPagingClause = _getPagingClause (aConnection);
+      try (final PreparedStatement aPS = aConnection.prepareStatement (sSelectAndWhere + sPagingClause))
+      {
+        int nIndex = 1;
+        for (final Object aParam : aParams)
+          aPS.setObject (nIndex++, aParam);
+        if (sPagingClause.startsWith (" LIMIT"))
+        {
+          aPS.setInt (nIndex++, nCount);
+          aPS.setInt (nIndex, nOffset);
+        }
+        else
+        {
+          aPS.setInt (nIndex++, nOffset);
+          aPS.setInt (nIndex, nCount);
+        }
+        aPS.setFetchSize (nCount);
+        try (final ResultSet aRS = aPS.executeQuery ())
+        {
+          while (aRS.next ())
+            ret.add (aRowMapper.map (aRS));
+        }
+      }
+    }, null);
+    if (eSuccess.isFailure ())
+      throw new IllegalStateException ("Failed to query the SQL DB");
+    return ret;
+  }
+
+  @NonNull
+  private static EPeppolReportType _getReportType (@NonNull final ResultSet aRS) throws SQLException
+  {
+    final String sReportType = aRS.getString ("reptype");
+    final EPeppolReportType ret = EPeppolReportType.getFromIDOrNull (sReportType);
+    if (ret == null)
+      throw new SQLException ("Unsupported report type '" + sReportType + "' found");
+    return ret;
+  }
+
+  @NonNull
+  private static PeppolReportSendingReportFields _getSendingReportFields (@NonNull final ResultSet aRS) throws SQLException
+  {
+    final boolean bSendingSuccess = aRS.getBoolean ("sendsuccess");
+    final Boolean aSendingSuccess = aRS.wasNull () ? null : Boolean.valueOf (bSendingSuccess);
+    return new PeppolReportSendingReportFields (aSendingSuccess,
+                                                aRS.getString ("as4msgid"),
+                                                aRS.getString ("receiverid"),
+                                                aRS.getString ("errorcode"));
+  }
+
+  @Nullable
+  private static byte [] _getReportBytes (@Nullable final String sReport, @Nullable final String sCompression)
+  {
+    if (sReport == null)
+      return null;
+    // NULL means the report was stored without compression
+    final EPeppolReportCompression eCompression = EPeppolReportCompression.getFromIDOrDefault (sCompression,
+                                                                                              EPeppolReportCompression.NONE);
+    if (eCompression.isCompressed ())
+      return eCompression.decompress (Base64.getMimeDecoder ().decode (sReport));
+    return sReport.getBytes (StandardCharsets.UTF_8);
+  }
+
+  public boolean isQuerySupported ()
+  {
+    return true;
+  }
+
+  /**
+   * {@inheritDoc}<br>
+   * The results are ordered by creation date and time and are loaded page by page with one SQL
+   * query per page. Compressed reports are decompressed transparently.
+   */
+  @NonNull
+  public Stream <PeppolReportStoredData> queryPeppolReports (@NonNull final PeppolReportQuery aQuery)
+  {
+    ValueEnforcer.notNull (aQuery, "Query");
+
+    final boolean bIncludePayload = aQuery.isIncludePayload ();
+    final ICommonsList <Object> aParams = new CommonsArrayList <> ();
+    final String sSelectAndWhere = "SELECT reptype, repyear, repmonth, repcreatedt, repvalid" +
+                                   (bIncludePayload ? ", report, repcompression" : "") +
+                                   " FROM " +
+                                   m_sTableNamePrefix +
+                                   "peppol_report" +
+                                   _getWhereClause (aQuery, true, false, aParams) +
+                                   ORDER_BY_CLAUSE;
+    final IRowMapper <PeppolReportStoredData> aRowMapper = aRS -> new PeppolReportStoredData (_getReportType (aRS),
+                                                                                              YearMonth.of (aRS.getInt ("repyear"),
+                                                                                                            aRS.getInt ("repmonth")),
+                                                                                              aRS.getTimestamp ("repcreatedt")
+                                                                                                 .toLocalDateTime (),
+                                                                                              bIncludePayload ? _getReportBytes (aRS.getString ("report"),
+                                                                                                                                 aRS.getString ("repcompression"))
+                                                                                                              : null,
+                                                                                              aRS.getBoolean ("repvalid"));
+    final PagedSpliterator.IPageLoader <PeppolReportStoredData> aPageLoader = (nOffset, nCount) -> _loadPage (sSelectAndWhere,
+                                                                                                              aParams,
+                                                                                                              nOffset,
+                                                                                                              nCount,
+                                                                                                              aRowMapper);
+    return StreamSupport.stream (new PagedSpliterator <> (aPageLoader,
+                                                          aQuery.getOffset (),
+                                                          aQuery.getMaxResults (),
+                                                          aQuery.getPageSize ()),
+                                 false);
+  }
+
+  /**
+   * {@inheritDoc}<br>
+   * The results are ordered by creation date and time and are loaded page by page with one SQL
+   * query per page.
+   */
+  @NonNull
+  public Stream <PeppolReportSendingReportData> queryPeppolReportingSendingReports (@NonNull final PeppolReportQuery aQuery)
+  {
+    ValueEnforcer.notNull (aQuery, "Query");
+
+    final boolean bIncludePayload = aQuery.isIncludePayload ();
+    final ICommonsList <Object> aParams = new CommonsArrayList <> ();
+    final String sSelectAndWhere = "SELECT reptype, repyear, repmonth, repcreatedt, sendsuccess, as4msgid, receiverid, errorcode" +
+                                   (bIncludePayload ? ", sendingreport" : "") +
+                                   " FROM " +
+                                   m_sTableNamePrefix +
+                                   "peppol_sending_report" +
+                                   _getWhereClause (aQuery, false, true, aParams) +
+                                   ORDER_BY_CLAUSE;
+    final IRowMapper <PeppolReportSendingReportData> aRowMapper = aRS -> new PeppolReportSendingReportData (_getReportType (aRS),
+                                                                                                            YearMonth.of (aRS.getInt ("repyear"),
+                                                                                                                          aRS.getInt ("repmonth")),
+                                                                                                            aRS.getTimestamp ("repcreatedt")
+                                                                                                               .toLocalDateTime (),
+                                                                                                            bIncludePayload ? aRS.getString ("sendingreport")
+                                                                                                                            : null,
+                                                                                                            _getSendingReportFields (aRS));
+    final PagedSpliterator.IPageLoader <PeppolReportSendingReportData> aPageLoader = (nOffset, nCount) -> _loadPage (sSelectAndWhere,
+                                                                                                                     aParams,
+                                                                                                                     nOffset,
+                                                                                                                     nCount,
+                                                                                                                     aRowMapper);
+    return StreamSupport.stream (new PagedSpliterator <> (aPageLoader,
+                                                          aQuery.getOffset (),
+                                                          aQuery.getMaxResults (),
+                                                          aQuery.getPageSize ()),
+                                 false);
+  }
+
+  @Nullable
+  private static LocalDateTime _getLocalDateTime (@NonNull final ResultSet aRS, @NonNull final String sColumnName) throws SQLException
+  {
+    final Timestamp aTS = aRS.getTimestamp (sColumnName);
+    return aTS == null ? null : aTS.toLocalDateTime ();
+  }
+
+  /**
+   * {@inheritDoc}<br>
+   * The summary is read from the table <code>peppol_report_summary</code> with a single primary key
+   * lookup, without touching the report tables.
+   */
+  @Nullable
+  public PeppolReportSummary getPeppolReportSummary (@NonNull final EPeppolReportType eReportType,
+                                                     @NonNull final YearMonth aReportPeriod)
+  {
+    ValueEnforcer.notNull (eReportType, "ReportType");
+    ValueEnforcer.notNull (aReportPeriod, "ReportPeriod");
+
+    final String sSQL = "SELECT lastrepcreatedt, lastvalidrepcreatedt, lastsendcreatedt FROM " +
+                        m_sTableNamePrefix +
+                        "peppol_report_summary WHERE reptype=? AND repyear=? AND repmonth=?";
+    final PeppolReportSummary [] ret = new PeppolReportSummary [1];
+    final DBExecutor aExecutor = m_aDBExecutorSupplier.get ();
+    final ESuccess eSuccess = aExecutor.withExistingOrNewConnection (aConnection -> {
+      try (final PreparedStatement aPS = aConnection.prepareStatement (sSQL))
+      {
+        aPS.setString (1, DBValueHelper.getTrimmedToLength (eReportType.getID (), EPeppolReportType.MAX_LEN_ID));
+        aPS.setInt (2, aReportPeriod.getYear ());
+        aPS.setInt (3, aReportPeriod.getMonthValue ());
+        try (final ResultSet aRS = aPS.executeQuery ())
+        {
+          if (aRS.next ())
+            ret[0] = new PeppolReportSummary (eReportType,
+                                              aReportPeriod,
+                                              _getLocalDateTime (aRS, "lastrepcreatedt"),
+                                              _getLocalDateTime (aRS, "lastvalidrepcreatedt"),
+                                              _getLocalDateTime (aRS, "lastsendcreatedt"));
+        }
+      }
+    }, null);
+    if (eSuccess.isFailure ())
+      throw new IllegalStateException ("Failed to query the SQL DB summary");
+    return ret[0];
+  }
 }
@@ -0,0 +1,36 @@
+--
+-- Copyright (C) 2025-2026 Philip Helger
+-- philip[at]helger[dot]com
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+--         http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+-- The hex encoded SHA-256 hash of the content, to make storing idempotent
+-- NULL for all entries stored before - they are excluded from the unique index
+-- DB2 only excludes index keys where all columns are NULL, so a unique index over
+-- (reptype, repyear, repmonth, rephash) would be violated by the legacy entries.
+-- Instead the index is built on a generated column that combines all four columns and that is
+-- NULL if the hash is NULL. This is the same duplicate check as on all other databases.
+ALTER TABLE peppol_report ADD COLUMN rephash varchar(64) DEFAULT NULL;
+SET INTEGRITY FOR peppol_report OFF;
+ALTER TABLE peppol_report ADD COLUMN rephashkey varchar(100)
+  GENERATED ALWAYS AS (reptype || ':' || VARCHAR(repyear) || ':' || VARCHAR(repmonth) || ':' || rephash);
+SET INTEGRITY FOR peppol_report IMMEDIATE CHECKED FORCE GENERATED;
+CREATE UNIQUE INDEX peppol_report_hash_idx ON peppol_report (rephashkey) EXCLUDE NULL KEYS;
+
+ALTER TABLE peppol_sending_report ADD COLUMN rephash varchar(64) DEFAULT NULL;
+SET INTEGRITY FOR peppol_sending_report OFF;
+ALTER TABLE peppol_sending_report ADD COLUMN rephashkey varchar(100)
+  GENERATED ALWAYS AS (reptype || ':' || VARCHAR(repyear) || ':' || VARCHAR(repmonth) || ':' || rephash);
+SET INTEGRITY FOR peppol_sending_report IMMEDIATE CHECKED FORCE GENERATED;
+CREATE UNIQUE INDEX peppol_sending_report_hash_idx ON peppol_sending_report (rephashkey) EXCLUDE NULL KEYS;
@@ -0,0 +1,25 @@
+--
+-- Copyright (C) 2025-2026 Philip Helger
+-- philip[at]helger[dot]com
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+--         http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+-- The structured fields extracted from the sending report content
+-- NULL for all entries stored before and if the field could not be extracted
+ALTER TABLE `peppol_sending_report` ADD COLUMN `sendsuccess` boolean DEFAULT NULL;
+ALTER TABLE `peppol_sending_report` ADD COLUMN `as4msgid` varchar(255) DEFAULT NULL;
+ALTER TABLE `peppol_sending_report` ADD COLUMN `receiverid` varchar(255) DEFAULT NULL;
+ALTER TABLE `peppol_sending_report` ADD COLUMN `errorcode` varchar(64) DEFAULT NULL;
+CREATE INDEX peppol_sending_report_succ_idx ON `peppol_sending_report` (sendsuccess, reptype, repyear, repmonth);
+CREATE INDEX peppol_sending_report_msg_idx ON `peppol_sending_report` (as4msgid);
@@ -0,0 +1,29 @@
+--
+-- Copyright (C) 2025-2026 Philip Helger
+-- philip[at]helger[dot]com
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+--         http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+-- Partitions both tables by the report year (DB2 for LUW)
+-- DB2 cannot partition an existing table in place, so ADMIN_MOVE_TABLE copies the data online
+-- The last range catches all later years until new partitions are attached
+-- The existing indices are recreated by ADMIN_MOVE_TABLE with their original names
+
+CALL SYSPROC.ADMIN_MOVE_TABLE (CURRENT SCHEMA, 'PEPPOL_REPORT', '', '', '', '', '',
+  'PARTITION BY RANGE (repyear) (STARTING MINVALUE ENDING 2023, STARTING 2024 ENDING 2030 EVERY 1, STARTING 2031 ENDING MAXVALUE)',
+  '', '', 'MOVE');
+
+CALL SYSPROC.ADMIN_MOVE_TABLE (CURRENT SCHEMA, 'PEPPOL_SENDING_REPORT', '', '', '', '', '',
+  'PARTITION BY RANGE (repyear) (STARTING MINVALUE ENDING 2023, STARTING 2024 ENDING 2030 EVERY 1, STARTING 2031 ENDING MAXVALUE)',
+  '', '', 'MOVE');
@@ -0,0 +1,44 @@
+--
+-- Copyright (C) 2025-2026 Philip Helger
+-- philip[at]helger[dot]com
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+--         http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+-- Partitions both tables by the report year
+-- The partition p_future catches all later years until it is reorganized, e.g. with
+-- ALTER TABLE peppol_report REORGANIZE PARTITION p_future INTO (PARTITION p2031 VALUES LESS THAN (2032), PARTITION p_future VALUES LESS THAN MAXVALUE)
+
+ALTER TABLE `peppol_report` PARTITION BY RANGE (`repyear`) (
+  PARTITION p_before_2024 VALUES LESS THAN (2024),
+  PARTITION p2024 VALUES LESS THAN (2025),
+  PARTITION p2025 VALUES LESS THAN (2026),
+  PARTITION p2026 VALUES LESS THAN (2027),
+  PARTITION p2027 VALUES LESS THAN (2028),
+  PARTITION p2028 VALUES LESS THAN (2029),
+  PARTITION p2029 VALUES LESS THAN (2030),
+  PARTITION p2030 VALUES LESS THAN (2031),
+  PARTITION p_future VALUES LESS THAN MAXVALUE
+);
+
+ALTER TABLE `peppol_sending_report` PARTITION BY RANGE (`repyear`) (
+  PARTITION p_before_2024 VALUES LESS THAN (2024),
+  PARTITION p2024 VALUES LESS THAN (2025),
+  PARTITION p2025 VALUES LESS THAN (2026),
+  PARTITION p2026 VALUES LESS THAN (2027),
+  PARTITION p2027 VALUES LESS THAN (2028),
+  PARTITION p2028 VALUES LESS THAN (2029),
+  PARTITION p2029 VALUES LESS THAN (2030),
+  PARTITION p2030 VALUES LESS THAN (2031),
+  PARTITION p_future VALUES LESS THAN MAXVALUE
+);
@@ -0,0 +1,31 @@
+--
+-- Copyright (C) 2025-2026 Philip Helger
+-- philip[at]helger[dot]com
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+--         http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+-- Partitions both tables by the report year (Oracle 12.2 or later with the Partitioning option)
+-- Interval partitioning automatically creates a new partition for every new year
+
+ALTER TABLE peppol_report MODIFY
+  PARTITION BY RANGE (repyear) INTERVAL (1)
+  (PARTITION p_before_2024 VALUES LESS THAN (2024))
+  ONLINE
+  UPDATE INDEXES (peppol_report_idx LOCAL);
+
+ALTER TABLE peppol_sending_report MODIFY
+  PARTITION BY RANGE (repyear) INTERVAL (1)
+  (PARTITION p_before_2024 VALUES LESS THAN (2024))
+  ONLINE
+  UPDATE INDEXES (peppol_sending_report_idx LOCAL);
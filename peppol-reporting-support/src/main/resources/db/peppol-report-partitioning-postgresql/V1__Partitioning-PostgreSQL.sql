@@ -0,0 +1,70 @@
+--
+-- Copyright (C) 2025-2026 Philip Helger
+-- philip[at]helger[dot]com
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+--         http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+-- Partitions both tables by the report year (PostgreSQL 11 or later)
+-- PostgreSQL cannot partition an existing table, so the data is copied into a new partitioned table
+-- The old indices are renamed first, so that the indices of the new table can use the original names
+
+ALTER TABLE peppol_report RENAME TO peppol_report_unpartitioned;
+ALTER INDEX peppol_report_idx RENAME TO peppol_report_unpartitioned_idx;
+ALTER INDEX peppol_report_hash_idx RENAME TO peppol_report_unpartitioned_hash_idx;
+
+-- Takes over all columns, defaults and constraints - the indices are created explicitly
+CREATE TABLE peppol_report (LIKE peppol_report_unpartitioned INCLUDING DEFAULTS INCLUDING CONSTRAINTS) PARTITION BY RANGE (repyear);
+CREATE INDEX peppol_report_idx ON peppol_report (reptype, repyear, repmonth);
+CREATE UNIQUE INDEX peppol_report_hash_idx ON peppol_report (reptype, repyear, repmonth, rephash);
+
+CREATE TABLE peppol_report_before_2024 PARTITION OF peppol_report FOR VALUES FROM (MINVALUE) TO (2024);
+CREATE TABLE peppol_report_2024 PARTITION OF peppol_report FOR VALUES FROM (2024) TO (2025);
+CREATE TABLE peppol_report_2025 PARTITION OF peppol_report FOR VALUES FROM (2025) TO (2026);
+CREATE TABLE peppol_report_2026 PARTITION OF peppol_report FOR VALUES FROM (2026) TO (2027);
+CREATE TABLE peppol_report_2027 PARTITION OF peppol_report FOR VALUES FROM (2027) TO (2028);
+CREATE TABLE peppol_report_2028 PARTITION OF peppol_report FOR VALUES FROM (2028) TO (2029);
+CREATE TABLE peppol_report_2029 PARTITION OF peppol_report FOR VALUES FROM (2029) TO (2030);
+CREATE TABLE peppol_report_2030 PARTITION OF peppol_report FOR VALUES FROM (2030) TO (2031);
+-- Catches all later years until dedicated partitions are created
+-- To add a year: detach the default partition, create the new partition, move the matching rows and re-attach the default partition
+CREATE TABLE peppol_report_default PARTITION OF peppol_report DEFAULT;
+
+INSERT INTO peppol_report SELECT * FROM peppol_report_unpartitioned;
+DROP TABLE peppol_report_unpartitioned;
+
+ALTER TABLE peppol_sending_report RENAME TO peppol_sending_report_unpartitioned;
+ALTER INDEX peppol_sending_report_idx RENAME TO peppol_sending_report_unpartitioned_idx;
+ALTER INDEX peppol_sending_report_hash_idx RENAME TO peppol_sending_report_unpartitioned_hash_idx;
+ALTER INDEX peppol_sending_report_succ_idx RENAME TO peppol_sending_report_unpartitioned_succ_idx;
+ALTER INDEX peppol_sending_report_msg_idx RENAME TO peppol_sending_report_unpartitioned_msg_idx;
+
+CREATE TABLE peppol_sending_report (LIKE peppol_sending_report_unpartitioned INCLUDING DEFAULTS INCLUDING CONSTRAINTS) PARTITION BY RANGE (repyear);
+CREATE INDEX peppol_sending_report_idx ON peppol_sending_report (reptype, repyear, repmonth);
+CREATE UNIQUE INDEX peppol_sending_report_hash_idx ON peppol_sending_report (reptype, repyear, repmonth, rephash);
+CREATE INDEX peppol_sending_report_succ_idx ON peppol_sending_report (sendsuccess, reptype, repyear, repmonth);
+CREATE INDEX peppol_sending_report_msg_idx ON peppol_sending_report (as4msgid);
+
+CREATE TABLE peppol_sending_report_before_2024 PARTITION OF peppol_sending_report FOR VALUES FROM (MINVALUE) TO (2024);
+CREATE TABLE peppol_sending_report_2024 PARTITION OF peppol_sending_report FOR VALUES FROM (2024) TO (2025);
+CREATE TABLE peppol_sending_report_2025 PARTITION OF peppol_sending_report FOR VALUES FROM (2025) TO (2026);
+CREATE TABLE peppol_sending_report_2026 PARTITION OF peppol_sending_report FOR VALUES FROM (2026) TO (2027);
+CREATE TABLE peppol_sending_report_2027 PARTITION OF peppol_sending_report FOR VALUES FROM (2027) TO (2028);
+CREATE TABLE peppol_sending_report_2028 PARTITION OF peppol_sending_report FOR VALUES FROM (2028) TO (2029);
+CREATE TABLE peppol_sending_report_2029 PARTITION OF peppol_sending_report FOR VALUES FROM (2029) TO (2030);
+CREATE TABLE peppol_sending_report_2030 PARTITION OF peppol_sending_report FOR VALUES FROM (2030) TO (2031);
+-- Catches all later years until dedicated partitions are created
+CREATE TABLE peppol_sending_report_default PARTITION OF peppol_sending_report DEFAULT;
+
+INSERT INTO peppol_sending_report SELECT * FROM peppol_sending_report_unpartitioned;
+DROP TABLE peppol_sending_report_unpartitioned;
@@ -0,0 +1,24 @@
+--
+-- Copyright (C) 2025-2026 Philip Helger
+-- philip[at]helger[dot]com
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+--         http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+-- The hex encoded SHA-256 hash of the content, to make storing idempotent
+-- NULL for all entries stored before - they are not checked for duplicates
+ALTER TABLE peppol_report ADD COLUMN rephash varchar(64) DEFAULT NULL;
+CREATE UNIQUE INDEX peppol_report_hash_idx ON peppol_report (reptype, repyear, repmonth, rephash);
+
+ALTER TABLE peppol_sending_report ADD COLUMN rephash varchar(64) DEFAULT NULL;
+CREATE UNIQUE INDEX peppol_sending_report_hash_idx ON peppol_sending_report (reptype, repyear, repmonth, rephash);
@@ -0,0 +1,49 @@
+--
+-- Copyright (C) 2025-2026 Philip Helger
+-- philip[at]helger[dot]com
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+--         http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+-- Contains the latest report and sending state per report type and period
+-- NULL means that no such report was stored yet
+CREATE TABLE peppol_report_summary (
+  reptype              varchar(12)  NOT NULL,
+  repyear              smallint     NOT NULL,
+  repmonth             smallint     NOT NULL,
+  lastrepcreatedt      datetime2(3) DEFAULT NULL,
+  lastvalidrepcreatedt datetime2(3) DEFAULT NULL,
+  lastsendcreatedt     datetime2(3) DEFAULT NULL,
+  PRIMARY KEY (reptype, repyear, repmonth)
+);
+
+-- Initialize from the existing data
+INSERT INTO peppol_report_summary (reptype, repyear, repmonth, lastrepcreatedt, lastvalidrepcreatedt)
+  SELECT reptype, repyear, repmonth, MAX(repcreatedt), MAX(CASE WHEN repvalid = 1 THEN repcreatedt END)
+  FROM peppol_report
+  GROUP BY reptype, repyear, repmonth;
+
+UPDATE peppol_report_summary
+  SET lastsendcreatedt = (SELECT MAX(r.repcreatedt)
+                          FROM peppol_sending_report r
+                          WHERE r.reptype = peppol_report_summary.reptype
+                            AND r.repyear = peppol_report_summary.repyear
+                            AND r.repmonth = peppol_report_summary.repmonth);
+
+INSERT INTO peppol_report_summary (reptype, repyear, repmonth, lastsendcreatedt)
+  SELECT r.reptype, r.repyear, r.repmonth, MAX(r.repcreatedt)
+  FROM peppol_sending_report r
+  WHERE NOT EXISTS (SELECT 1
+                    FROM peppol_report_summary s
+                    WHERE s.reptype = r.reptype AND s.repyear = r.repyear AND s.repmonth = r.repmonth)
+  GROUP BY r.reptype, r.repyear, r.repmonth;
@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2025-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.reportingsupport;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import com.helger.base.string.StringHelper;
+
+/**
+ * Test class for class {@link EPeppolReportCompression}
+ *
+ * @author Philip Helger
+ */
+public final class EPeppolReportCompressionTest
+{
+  @Test
+  public void testBasic ()
+  {
+    final String sReport = "<Report>" + StringHelper.getRepeated ("<Item>abc</Item>", 1000) + "</Report>";
+    final byte [] aPayload = sReport.getBytes (StandardCharsets.UTF_8);
+    for (final EPeppolReportCompression e : EPeppolReportCompression.values ())
+    {
+      assertTrue (StringHelper.isNotEmpty (e.getID ()));
+      assertTrue (e.getID ().length () <= EPeppolReportCompression.MAX_LEN_ID);
+      assertSame (e, EPeppolReportCompression.getFromIDOrNull (e.getID ()));
+
+      final byte [] aCompressed = e.compress (aPayload);
+      if (e.isCompressed ())
+        assertTrue (aCompressed.length < aPayload.length);
+      assertArrayEquals (aPayload, e.decompress (aCompressed));
+    }
+    assertSame (EPeppolReportCompression.NONE,
+                EPeppolReportCompression.getFromIDOrDefault (null, EPeppolReportCompression.NONE));
+  }
+}
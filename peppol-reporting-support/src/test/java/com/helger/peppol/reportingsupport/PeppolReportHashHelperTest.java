@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2025-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.reportingsupport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+import org.junit.Test;
+
+import com.helger.peppol.reportingsupport.domain.PeppolReportData;
+import com.helger.peppol.reportingsupport.domain.PeppolReportSendingReportData;
+import com.helger.peppol.reportingsupport.domain.PeppolReportSendingReportFields;
+import com.helger.peppol.reportingsupport.domain.PeppolReportStreamingData;
+
+/**
+ * Test class for class {@link PeppolReportHashHelper}
+ *
+ * @author Philip Helger
+ */
+public final class PeppolReportHashHelperTest
+{
+  @Test
+  public void testBasic () throws IOException
+  {
+    final byte [] aBytes = "abc".getBytes (StandardCharsets.UTF_8);
+    final String sExpected = "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad";
+    assertEquals (sExpected, PeppolReportHashHelper.getHash (aBytes));
+    assertEquals (sExpected, PeppolReportHashHelper.getHash (new ByteArrayInputStream (aBytes)));
+    assertEquals (PeppolReportHashHelper.HASH_LENGTH, sExpected.length ());
+  }
+
+  @Test
+  public void testReportData ()
+  {
+    final YearMonth aPeriod = YearMonth.of (2025, 1);
+    final LocalDateTime aNow = LocalDateTime.of (2025, 2, 1, 10, 0);
+    final String sReport = "<Report>\u00e4</Report>";
+    final PeppolReportData aData = new PeppolReportData (EPeppolReportType.TSR_V10, aPeriod, aNow, sReport, true);
+
+    // Same content means same hash, independent of the way it is provided
+    assertEquals (aData.getContentHash (),
+                  new PeppolReportData (EPeppolReportType.TSR_V10,
+                                        aPeriod,
+                                        aNow.plusSeconds (1),
+                                        sReport.getBytes (StandardCharsets.UTF_8),
+                                        true).getContentHash ());
+    assertEquals (aData.getContentHash (),
+                  new PeppolReportStreamingData (EPeppolReportType.TSR_V10,
+                                                 aPeriod,
+                                                 aNow,
+                                                 IPeppolReportPayloadProvider.ofBytes (sReport.getBytes (StandardCharsets.UTF_8)),
+                                                 true).getContentHash ());
+    assertNotEquals (aData.getContentHash (),
+                     new PeppolReportData (EPeppolReportType.TSR_V10, aPeriod, aNow, "<Report />", true).getContentHash ());
+  }
+
+  @Test
+  public void testSendingReportDataWithoutContent ()
+  {
+    final YearMonth aPeriod = YearMonth.of (2025, 1);
+    final LocalDateTime aNow = LocalDateTime.of (2025, 2, 1, 10, 0, 0, 123_456_789);
+    final PeppolReportSendingReportFields aFields = new PeppolReportSendingReportFields (Boolean.TRUE,
+                                                                                         "msg-1",
+                                                                                         "9915:test",
+                                                                                         null);
+    final PeppolReportSendingReportData aData = new PeppolReportSendingReportData (EPeppolReportType.TSR_V10,
+                                                                                   aPeriod,
+                                                                                   aNow,
+                                                                                   null,
+                                                                                   aFields);
+
+    // A retry of the same sending is a duplicate
+    assertEquals (aData.getContentHash (),
+                  new PeppolReportSendingReportData (EPeppolReportType.TSR_V10,
+                                                     aPeriod,
+                                                     aNow.plusSeconds (5),
+                                                     null,
+                                                     aFields).getContentHash ());
+    assertNotEquals (aData.getContentHash (),
+                     new PeppolReportSendingReportData (EPeppolReportType.TSR_V10,
+                                                        aPeriod,
+                                                        aNow,
+                                                        null,
+                                                        new PeppolReportSendingReportFields (Boolean.TRUE,
+                                                                                             "msg-2",
+                                                                                             "9915:test",
+                                                                                             null)).getContentHash ());
+
+    // Without AS4 message ID, the creation date time is used with the stored precision
+    final PeppolReportSendingReportData aDataNoFields = new PeppolReportSendingReportData (EPeppolReportType.TSR_V10,
+                                                                                           aPeriod,
+                                                                                           aNow,
+                                                                                           null);
+    assertEquals (aDataNoFields.getContentHash (),
+                  new PeppolReportSendingReportData (EPeppolReportType.TSR_V10,
+                                                     aPeriod,
+                                                     aNow.withNano (123_000_000),
+                                                     null).getContentHash ());
+    assertNotEquals (aDataNoFields.getContentHash (),
+                     new PeppolReportSendingReportData (EPeppolReportType.TSR_V10,
+                                                        aPeriod,
+                                                        aNow.plusSeconds (1),
+                                                        null).getContentHash ());
+  }
+
+  @Test
+  public void testSendingReportDataWithContent ()
+  {
+    final YearMonth aPeriod = YearMonth.of (2025, 1);
+    final LocalDateTime aNow = LocalDateTime.of (2025, 2, 1, 10, 0);
+    final String sContent = "<SendingReport />";
+    final PeppolReportSendingReportData aData = new PeppolReportSendingReportData (EPeppolReportType.TSR_V10,
+                                                                                   aPeriod,
+                                                                                   aNow,
+                                                                                   sContent);
+
+    // Storing the same sending again is a duplicate
+    assertEquals (aData.getContentHash (),
+                  new PeppolReportSendingReportData (EPeppolReportType.TSR_V10, aPeriod, aNow, sContent).getContentHash ());
+    // The same content in another type or period is not
+    assertNotEquals (aData.getContentHash (),
+                     new PeppolReportSendingReportData (EPeppolReportType.EUSR_V11, aPeriod, aNow, sContent).getContentHash ());
+    assertNotEquals (aData.getContentHash (),
+                     new PeppolReportSendingReportData (EPeppolReportType.TSR_V10,
+                                                        aPeriod.plusMonths (1),
+                                                        aNow,
+                                                        sContent).getContentHash ());
+    // A separate sending with the same content is not
+    assertNotEquals (aData.getContentHash (),
+                     new PeppolReportSendingReportData (EPeppolReportType.TSR_V10,
+                                                        aPeriod,
+                                                        aNow.plusSeconds (1),
+                                                        sContent).getContentHash ());
+    assertNotEquals (new PeppolReportSendingReportData (EPeppolReportType.TSR_V10,
+                                                        aPeriod,
+                                                        aNow,
+                                                        sContent,
+                                                        new PeppolReportSendingReportFields (Boolean.TRUE,
+                                                                                             "msg-1",
+                                                                                             null,
+                                                                                             null)).getContentHash (),
+                     new PeppolReportSendingReportData (EPeppolReportType.TSR_V10,
+                                                        aPeriod,
+                                                        aNow,
+                                                        sContent,
+                                                        new PeppolReportSendingReportFields (Boolean.TRUE,
+                                                                                             "msg-2",
+                                                                                             null,
+                                                                                             null)).getContentHash ());
+  }
+}
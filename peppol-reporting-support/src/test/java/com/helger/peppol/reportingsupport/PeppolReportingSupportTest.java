@@ -16,15 +16,19 @@
  */
 package com.helger.peppol.reportingsupport;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.time.OffsetDateTime;
+import java.time.YearMonth;
 
 import org.jspecify.annotations.NonNull;
 import org.junit.Test;
 
 import com.helger.base.state.ESuccess;
 import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
 import com.helger.datetime.helper.PDTFactory;
 import com.helger.peppol.reporting.api.PeppolReportingItem;
 import com.helger.peppol.reporting.eusr.EndUserStatisticsReport;
@@ -33,6 +37,7 @@ import com.helger.peppol.reporting.jaxb.tsr.v101.TransactionStatisticsReportType
 import com.helger.peppol.reporting.tsr.TransactionStatisticsReport;
 import com.helger.peppol.reportingsupport.domain.PeppolReportData;
 import com.helger.peppol.reportingsupport.domain.PeppolReportSendingReportData;
+import com.helger.peppol.reportingsupport.domain.PeppolReportSendingReportFields;
 import com.helger.peppolid.peppol.doctype.EPredefinedDocumentTypeIdentifier;
 import com.helger.peppolid.peppol.process.EPredefinedProcessIdentifier;
 
@@ -45,6 +50,14 @@ public final class PeppolReportingSupportTest
 {
   private static final String MY_SPID = "PDE000001";
 
+  @Test
+  public void testWarmUp ()
+  {
+    assertTrue (PeppolReportingSupport.warmUp ().isSuccess ());
+    // Second time is a no-op
+    assertTrue (PeppolReportingSupport.warmUp ().isSuccess ());
+  }
+
   @Test
   public void testEUSR ()
   {
@@ -99,5 +112,77 @@ public final class PeppolReportingSupportTest
     // EUSR
     eSuccess = aPRS.validateAndStorePeppolEUSR11 (aEUSR, x -> {});
     assertTrue (eSuccess.isSuccess ());
+
+    // Streaming variants
+    eSuccess = aPRS.validateAndStorePeppolTSR10 (aTSR);
+    assertTrue (eSuccess.isSuccess ());
+    eSuccess = aPRS.validateAndStorePeppolEUSR11 (aEUSR);
+    assertTrue (eSuccess.isSuccess ());
+
+    // Compact output
+    final StringBuilder aSB = new StringBuilder ();
+    aPRS.setFormattedOutput (false);
+    eSuccess = aPRS.validateAndStorePeppolEUSR11 (aEUSR, aSB::append);
+    assertTrue (eSuccess.isSuccess ());
+    assertFalse (aSB.toString ().contains ("\n  <"));
+  }
+
+  @Test
+  public void testSendingReportFieldExtractor ()
+  {
+    // Handler that remembers the sending reports
+    final ICommonsList <PeppolReportSendingReportData> aSendingReports = new CommonsArrayList <> ();
+    final IPeppolReportStorage aStorage = new IPeppolReportStorage ()
+    {
+      @NonNull
+      public ESuccess storePeppolReport (@NonNull final PeppolReportData aReportData)
+      {
+        return ESuccess.SUCCESS;
+      }
+
+      @NonNull
+      public ESuccess storePeppolReportingSendingReport (@NonNull final PeppolReportSendingReportData aSendingReportData)
+      {
+        aSendingReports.add (aSendingReportData);
+        return ESuccess.SUCCESS;
+      }
+    };
+    final PeppolReportingSupport aPRS = new PeppolReportingSupport (aStorage);
+    final YearMonth aPeriod = YearMonth.now ().minusMonths (1);
+
+    // No extractor by default
+    ESuccess eSuccess = aPRS.sendPeppolReport (aPeriod,
+                                               EPeppolReportType.EUSR_V11,
+                                               "<EUSR />",
+                                               (aDocTypeID, aProcessID, sPayload) -> "failed:abc");
+    assertTrue (eSuccess.isSuccess ());
+    assertEquals (1, aSendingReports.size ());
+    assertFalse (aSendingReports.getLastOrNull ().hasFields ());
+
+    // Custom extractor
+    aPRS.setSendingReportFieldExtractor (x -> new PeppolReportSendingReportFields (Boolean.valueOf (x.startsWith ("ok:")),
+                                                                                   x.substring (x.indexOf (':') + 1),
+                                                                                   null,
+                                                                                   null));
+    eSuccess = aPRS.sendPeppolReport (aPeriod,
+                                      EPeppolReportType.EUSR_V11,
+                                      "<EUSR />",
+                                      (aDocTypeID, aProcessID, sPayload) -> "failed:abc");
+    assertTrue (eSuccess.isSuccess ());
+    assertEquals (2, aSendingReports.size ());
+    assertEquals (new PeppolReportSendingReportFields (Boolean.FALSE, "abc", null, null),
+                  aSendingReports.getLastOrNull ().getFields ());
+
+    // An exception in the extractor does not prevent storing the sending report
+    aPRS.setSendingReportFieldExtractor (x -> {
+      throw new IllegalStateException ("Unexpected content");
+    });
+    eSuccess = aPRS.sendPeppolReport (aPeriod,
+                                      EPeppolReportType.EUSR_V11,
+                                      "<EUSR />",
+                                      (aDocTypeID, aProcessID, sPayload) -> "failed:abc");
+    assertTrue (eSuccess.isSuccess ());
+    assertEquals (3, aSendingReports.size ());
+    assertFalse (aSendingReports.getLastOrNull ().hasFields ());
   }
 }
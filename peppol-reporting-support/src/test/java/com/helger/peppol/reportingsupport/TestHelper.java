@@ -16,18 +16,32 @@
  */
 package com.helger.peppol.reportingsupport;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.YearMonth;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.jspecify.annotations.NonNull;
 
 import com.helger.base.state.ESuccess;
 import com.helger.base.string.StringHelper;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
 import com.helger.datetime.helper.PDTFactory;
 import com.helger.peppol.reportingsupport.domain.PeppolReportData;
+import com.helger.peppol.reportingsupport.domain.PeppolReportQuery;
 import com.helger.peppol.reportingsupport.domain.PeppolReportSendingReportData;
+import com.helger.peppol.reportingsupport.domain.PeppolReportSendingReportFields;
+import com.helger.peppol.reportingsupport.domain.PeppolReportStoredData;
+import com.helger.peppol.reportingsupport.domain.PeppolReportStreamingData;
+import com.helger.peppol.reportingsupport.domain.PeppolReportSummary;
 
 public final class TestHelper
 {
@@ -36,25 +50,38 @@ public final class TestHelper
 
   public static void runCases (@NonNull final IPeppolReportStorage aStorage)
   {
+    assertTrue (aStorage.isQuerySupported ());
+
     for (final EPeppolReportType e : EPeppolReportType.values ())
     {
       final LocalDateTime aNow = PDTFactory.getCurrentLocalDateTime ();
       final YearMonth aPeriod = YearMonth.now ().minusMonths (1);
+      // Storing is idempotent, so make the content unique per run
+      final String sRunID = e.getID () + '-' + aNow;
 
       // Test with valid report
-      ESuccess eSuccess = aStorage.storePeppolReport (new PeppolReportData (e, aPeriod, aNow, "<DummyReport />", true));
+      final String sDummyReport = "<DummyReport id=\"" + sRunID + "\" />";
+      ESuccess eSuccess = aStorage.storePeppolReport (new PeppolReportData (e, aPeriod, aNow, sDummyReport, true));
+      assertTrue (eSuccess.isSuccess ());
+
+      // Storing the same report again succeeds without storing it twice
+      eSuccess = aStorage.storePeppolReport (new PeppolReportData (e, aPeriod, aNow, sDummyReport, true));
       assertTrue (eSuccess.isSuccess ());
 
       // Test with invalid report
       eSuccess = aStorage.storePeppolReport (new PeppolReportData (e,
                                                                    aPeriod,
                                                                    aNow.plusSeconds (1),
-                                                                   "<InvalidReport />",
+                                                                   "<InvalidReport id=\"" + sRunID + "\" />",
                                                                    false));
       assertTrue (eSuccess.isSuccess ());
 
       // Test with a larger report payload (> 64KB to exceed MySQL "text" limits if misconfigured)
-      final String sLargeReport = "<LargeReport>" + StringHelper.getRepeated ('X', 100_000) + "</LargeReport>";
+      final String sLargeReport = "<LargeReport id=\"" +
+                                  sRunID +
+                                  "\">" +
+                                  StringHelper.getRepeated ('X', 100_000) +
+                                  "</LargeReport>";
       eSuccess = aStorage.storePeppolReport (new PeppolReportData (e,
                                                                    aPeriod,
                                                                    aNow.plusSeconds (2),
@@ -67,15 +94,67 @@ public final class TestHelper
       eSuccess = aStorage.storePeppolReport (new PeppolReportData (e,
                                                                    aOldPeriod,
                                                                    aNow.plusSeconds (3),
-                                                                   "<OldReport />",
+                                                                   "<OldReport id=\"" + sRunID + "\" />",
+                                                                   true));
+      assertTrue (eSuccess.isSuccess ());
+
+      // Test with a report provided as UTF-8 bytes
+      final String sByteReport = "<ByteReport id=\"" + sRunID + "\">\u00e4\u00f6\u00fc</ByteReport>";
+      eSuccess = aStorage.storePeppolReport (new PeppolReportData (e,
+                                                                   aPeriod,
+                                                                   aNow.plusSeconds (4),
+                                                                   sByteReport.getBytes (StandardCharsets.UTF_8),
                                                                    true));
       assertTrue (eSuccess.isSuccess ());
 
+      // Test with a streamed report
+      final String sStreamedReport = sLargeReport.replace ("LargeReport", "StreamedReport");
+      eSuccess = aStorage.storePeppolReportStreaming (new PeppolReportStreamingData (e,
+                                                                                     aPeriod,
+                                                                                     aNow.plusSeconds (5),
+                                                                                     IPeppolReportPayloadProvider.ofBytes (sStreamedReport.getBytes (StandardCharsets.UTF_8)),
+                                                                                     true));
+      assertTrue (eSuccess.isSuccess ());
+
+      // Test with a batch of reports, containing an already stored report
+      ICommonsList <ESuccess> aResults = aStorage.storePeppolReports (new CommonsArrayList <> (new PeppolReportData (e,
+                                                                                                                    aPeriod,
+                                                                                                                    aNow.plusSeconds (6),
+                                                                                                                    "<BatchReport1 id=\"" +
+                                                                                                                                          sRunID +
+                                                                                                                                          "\" />",
+                                                                                                                    true),
+                                                                                              new PeppolReportData (e,
+                                                                                                                    aPeriod,
+                                                                                                                    aNow.plusSeconds (7),
+                                                                                                                    "<BatchReport2 id=\"" +
+                                                                                                                                          sRunID +
+                                                                                                                                          "\" />",
+                                                                                                                    false),
+                                                                                              new PeppolReportData (e,
+                                                                                                                    aPeriod,
+                                                                                                                    aNow,
+                                                                                                                    sDummyReport,
+                                                                                                                    true)));
+      assertEquals (3, aResults.size ());
+      assertTrue (aResults.containsOnly (ESuccess::isSuccess));
+
+      // Test with an empty batch
+      assertTrue (aStorage.storePeppolReports (new CommonsArrayList <> ()).isEmpty ());
+
       // Test with non-null sending report
+      final String sDummySendingReport = "<DummySendingReport id=\"" + sRunID + "\" />";
+      eSuccess = aStorage.storePeppolReportingSendingReport (new PeppolReportSendingReportData (e,
+                                                                                                aPeriod,
+                                                                                                aNow,
+                                                                                                sDummySendingReport));
+      assertTrue (eSuccess.isSuccess ());
+
+      // Storing the same sending report again succeeds without storing it twice
       eSuccess = aStorage.storePeppolReportingSendingReport (new PeppolReportSendingReportData (e,
                                                                                                 aPeriod,
                                                                                                 aNow,
-                                                                                                "<DummySendingReport />"));
+                                                                                                sDummySendingReport));
       assertTrue (eSuccess.isSuccess ());
 
       // Test with null sending report
@@ -84,6 +163,115 @@ public final class TestHelper
                                                                                                 aNow.plusSeconds (1),
                                                                                                 null));
       assertTrue (eSuccess.isSuccess ());
+
+      // Test with a batch of sending reports
+      aResults = aStorage.storePeppolReportingSendingReports (new CommonsArrayList <> (new PeppolReportSendingReportData (e,
+                                                                                                                          aPeriod,
+                                                                                                                          aNow.plusSeconds (2),
+                                                                                                                          "<BatchSendingReport id=\"" +
+                                                                                                                                                      sRunID +
+                                                                                                                                                      "\" />"),
+                                                                                      new PeppolReportSendingReportData (e,
+                                                                                                                          aPeriod,
+                                                                                                                          aNow.plusSeconds (3),
+                                                                                                                          null)));
+      assertEquals (2, aResults.size ());
+      assertTrue (aResults.containsOnly (ESuccess::isSuccess));
+
+      // Test with a sending report with structured fields
+      final String sAS4MessageID = "msg-" + sRunID;
+      final PeppolReportSendingReportFields aFields = new PeppolReportSendingReportFields (Boolean.FALSE,
+                                                                                           sAS4MessageID,
+                                                                                           "9925:be0123456789",
+                                                                                           "EBMS:0301");
+      eSuccess = aStorage.storePeppolReportingSendingReport (new PeppolReportSendingReportData (e,
+                                                                                                aPeriod,
+                                                                                                aNow.plusSeconds (3),
+                                                                                                "<FailedSendingReport id=\"" +
+                                                                                                                      sRunID +
+                                                                                                                      "\" />",
+                                                                                                aFields));
+      assertTrue (eSuccess.isSuccess ());
+
+      // Query everything stored above - other test runs may have added more
+      final PeppolReportQuery aQuery = new PeppolReportQuery ().setReportType (e)
+                                                               .setReportCreationDT (PDTFactory.getWithMillisOnly (aNow),
+                                                                                     aNow.plusSeconds (8))
+                                                               .setPageSize (3);
+      try (final Stream <PeppolReportStoredData> aStream = aStorage.queryPeppolReports (aQuery))
+      {
+        final List <PeppolReportStoredData> aReports = aStream.collect (Collectors.toList ());
+        assertTrue (aReports.size () >= 8);
+        assertTrue (aReports.stream ().allMatch (x -> x.getReportType () == e && x.hasReportXML ()));
+        assertTrue (aReports.stream ().anyMatch (x -> sByteReport.equals (x.getReportXMLString ())));
+        assertTrue (aReports.stream ().anyMatch (x -> sLargeReport.equals (x.getReportXMLString ())));
+        assertTrue (aReports.stream ().anyMatch (x -> sStreamedReport.equals (x.getReportXMLString ())));
+        // Stored three times but present only once
+        assertEquals (1, aReports.stream ().filter (x -> sDummyReport.equals (x.getReportXMLString ())).count ());
+      }
+
+      // Query only the metadata of the valid reports of the current period
+      aQuery.setReportPeriod (aPeriod).setReportValid (Boolean.TRUE).setIncludePayload (false);
+      try (final Stream <PeppolReportStoredData> aStream = aStorage.queryPeppolReports (aQuery))
+      {
+        final List <PeppolReportStoredData> aReports = aStream.collect (Collectors.toList ());
+        assertTrue (aReports.size () >= 5);
+        assertTrue (aReports.stream ()
+                            .allMatch (x -> x.isReportValid () && aPeriod.equals (x.getReportPeriod ()) && !x.hasReportXML ()));
+      }
+
+      // Paging
+      aQuery.setOffset (1).setMaxResults (2);
+      try (final Stream <PeppolReportStoredData> aStream = aStorage.queryPeppolReports (aQuery))
+      {
+        assertEquals (2, aStream.count ());
+      }
+
+      // Query the sending reports
+      try (final Stream <PeppolReportSendingReportData> aStream = aStorage.queryPeppolReportingSendingReports (new PeppolReportQuery ().setReportType (e)
+                                                                                                                                       .setReportCreationDT (PDTFactory.getWithMillisOnly (aNow),
+                                                                                                                                                             aNow.plusSeconds (4))))
+      {
+        final List <PeppolReportSendingReportData> aSendingReports = aStream.collect (Collectors.toList ());
+        assertTrue (aSendingReports.size () >= 4);
+        // Stored twice but present only once
+        assertEquals (1,
+                      aSendingReports.stream ()
+                                     .filter (x -> sDummySendingReport.equals (x.getSendingReportContent ()))
+                                     .count ());
+        assertFalse (aSendingReports.stream ().anyMatch (x -> x.getReportType () != e));
+      }
+
+      // Query the sending reports by the structured fields
+      try (final Stream <PeppolReportSendingReportData> aStream = aStorage.queryPeppolReportingSendingReports (new PeppolReportQuery ().setAS4MessageID (sAS4MessageID)
+                                                                                                                                       .setIncludePayload (false)))
+      {
+        final List <PeppolReportSendingReportData> aSendingReports = aStream.collect (Collectors.toList ());
+        assertEquals (1, aSendingReports.size ());
+        assertEquals (aFields, aSendingReports.get (0).getFields ());
+      }
+      try (final Stream <PeppolReportSendingReportData> aStream = aStorage.queryPeppolReportingSendingReports (new PeppolReportQuery ().setReportType (e)
+                                                                                                                                       .setReportCreationDT (PDTFactory.getWithMillisOnly (aNow),
+                                                                                                                                                             aNow.plusSeconds (4))
+                                                                                                                                       .setSendingSuccess (Boolean.FALSE)))
+      {
+        final List <PeppolReportSendingReportData> aSendingReports = aStream.collect (Collectors.toList ());
+        assertEquals (1, aSendingReports.size ());
+        assertEquals (Boolean.FALSE, aSendingReports.get (0).getFields ().getSendingSuccess ());
+      }
+
+      // The summary contains at least the data stored above - other test runs may have added more
+      final PeppolReportSummary aSummary = aStorage.getPeppolReportSummary (e, aPeriod);
+      assertNotNull (aSummary);
+      assertTrue (aSummary.hasReport ());
+      assertFalse (aSummary.getLastReportCreationDT ().isBefore (PDTFactory.getWithMillisOnly (aNow.plusSeconds (7))));
+      assertTrue (aSummary.hasValidReport ());
+      assertFalse (aSummary.getLastValidReportCreationDT ()
+                           .isBefore (PDTFactory.getWithMillisOnly (aNow.plusSeconds (6))));
+      assertTrue (aSummary.isSent ());
+      assertFalse (aSummary.getLastSendingReportCreationDT ()
+                           .isBefore (PDTFactory.getWithMillisOnly (aNow.plusSeconds (3))));
+      assertNotNull (aStorage.getPeppolReportSummary (e, aOldPeriod));
     }
   }
 }
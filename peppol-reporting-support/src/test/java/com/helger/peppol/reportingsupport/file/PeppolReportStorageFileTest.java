@@ -16,11 +16,29 @@
  */
 package com.helger.peppol.reportingsupport.file;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import org.jspecify.annotations.NonNull;
 import org.junit.Test;
 
+import com.helger.datetime.helper.PDTFactory;
+import com.helger.peppol.reportingsupport.EPeppolReportCompression;
+import com.helger.peppol.reportingsupport.EPeppolReportType;
 import com.helger.peppol.reportingsupport.TestHelper;
+import com.helger.peppol.reportingsupport.domain.PeppolReportQuery;
+import com.helger.peppol.reportingsupport.domain.PeppolReportSendingReportData;
+import com.helger.peppol.reportingsupport.domain.PeppolReportSendingReportFields;
 
 /**
  * Test class for class {@link PeppolReportStorageFileXML}.
@@ -36,4 +54,113 @@ public final class PeppolReportStorageFileTest
                                                                                 IPeppolReportStorageFilenameProvider.DEFAULT);
     TestHelper.runCases (aStorage);
   }
+
+  @Test
+  public void testCompressed ()
+  {
+    final PeppolReportStorageFileXML aStorage = new PeppolReportStorageFileXML (new File ("generated/"),
+                                                                                IPeppolReportStorageFilenameProvider.DEFAULT).setCompression (EPeppolReportCompression.GZIP);
+    TestHelper.runCases (aStorage);
+  }
+
+  @Test
+  public void testRawPayload ()
+  {
+    final PeppolReportStorageFileXML aStorage = new PeppolReportStorageFileXML (new File ("generated/"),
+                                                                                IPeppolReportStorageFilenameProvider.DEFAULT).setLayout (EPeppolReportFileLayout.RAW_PAYLOAD);
+    TestHelper.runCases (aStorage);
+  }
+
+  @Test
+  public void testRawPayloadCompressed ()
+  {
+    final PeppolReportStorageFileXML aStorage = new PeppolReportStorageFileXML (new File ("generated/"),
+                                                                                IPeppolReportStorageFilenameProvider.DEFAULT).setLayout (EPeppolReportFileLayout.RAW_PAYLOAD)
+                                                                                                                             .setCompression (EPeppolReportCompression.GZIP);
+    TestHelper.runCases (aStorage);
+  }
+
+  @Test
+  public void testAtomicAndSynced ()
+  {
+    final PeppolReportStorageFileXML aStorage = new PeppolReportStorageFileXML (new File ("generated/"),
+                                                                                IPeppolReportStorageFilenameProvider.DEFAULT).setAtomicWrite (true)
+                                                                                                                             .setSync (EPeppolReportFileSync.FILE_AND_DIRECTORY);
+    TestHelper.runCases (aStorage);
+  }
+
+  @Test
+  public void testAsync ()
+  {
+    final String sAS4MessageID = "async-" + System.nanoTime ();
+    try (final PeppolReportStorageFileXML aStorage = new PeppolReportStorageFileXML (new File ("generated/"),
+                                                                                     IPeppolReportStorageFilenameProvider.DEFAULT).setAsyncQueueCapacity (2))
+    {
+      final LocalDateTime aNow = PDTFactory.getCurrentLocalDateTime ();
+      // More files than the queue can hold
+      for (int i = 0; i < 5; ++i)
+        assertTrue (aStorage.storePeppolReportingSendingReport (new PeppolReportSendingReportData (EPeppolReportType.EUSR_V11,
+                                                                                                   YearMonth.now (),
+                                                                                                   aNow.plusSeconds (i),
+                                                                                                   "<AsyncSendingReport id='" +
+                                                                                                                         sAS4MessageID +
+                                                                                                                         "-" +
+                                                                                                                         i +
+                                                                                                                         "' />",
+                                                                                                   new PeppolReportSendingReportFields (Boolean.TRUE,
+                                                                                                                                        sAS4MessageID,
+                                                                                                                                        null,
+                                                                                                                                        null)))
+                             .isSuccess ());
+
+      // Waits until all queued files are written
+      aStorage.close ();
+
+      try (final Stream <PeppolReportSendingReportData> aStream = aStorage.queryPeppolReportingSendingReports (new PeppolReportQuery ().setAS4MessageID (sAS4MessageID)))
+      {
+        assertEquals (5, aStream.count ());
+      }
+    }
+  }
+
+  private static long _countSendingReports (@NonNull final PeppolReportStorageFileXML aStorage)
+  {
+    try (final Stream <PeppolReportSendingReportData> aStream = aStorage.queryPeppolReportingSendingReports (new PeppolReportQuery ()))
+    {
+      return aStream.count ();
+    }
+  }
+
+  @Test
+  public void testStoreAgainAfterFileWasDeleted () throws IOException
+  {
+    final File aBaseDir = new File ("generated/hash-" + System.nanoTime ());
+    final PeppolReportStorageFileXML aStorage = new PeppolReportStorageFileXML (aBaseDir,
+                                                                                IPeppolReportStorageFilenameProvider.DEFAULT);
+    final PeppolReportSendingReportData aData = new PeppolReportSendingReportData (EPeppolReportType.EUSR_V11,
+                                                                                   YearMonth.now (),
+                                                                                   PDTFactory.getCurrentLocalDateTime (),
+                                                                                   "<SendingReport />");
+    assertTrue (aStorage.storePeppolReportingSendingReport (aData).isSuccess ());
+    assertTrue (aStorage.storePeppolReportingSendingReport (aData).isSuccess ());
+    assertEquals (1, _countSendingReports (aStorage));
+
+    // Remove the stored file but keep the content hash marker
+    final Path aBasePath = aBaseDir.toPath ();
+    final List <Path> aFiles;
+    try (final Stream <Path> aStream = Files.walk (aBasePath))
+    {
+      aFiles = aStream.filter (Files::isRegularFile)
+                      .filter (x -> !x.startsWith (aBasePath.resolve (PeppolReportStorageFileXML.HASH_DIRECTORY_NAME)) &&
+                                    !x.startsWith (aBasePath.resolve (PeppolReportStorageFileXML.SUMMARY_DIRECTORY_NAME)))
+                      .collect (Collectors.toList ());
+    }
+    assertEquals (1, aFiles.size ());
+    Files.delete (aFiles.get (0));
+    assertEquals (0, _countSendingReports (aStorage));
+
+    // The stale marker must not prevent storing it again
+    assertTrue (aStorage.storePeppolReportingSendingReport (aData).isSuccess ());
+    assertEquals (1, _countSendingReports (aStorage));
+  }
 }
@@ -16,6 +16,10 @@
  */
 package com.helger.peppol.reportingsupport.mongodb;
 
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+
 import org.junit.Test;
 
 import com.helger.base.concurrent.ThreadHelper;
@@ -24,6 +28,7 @@ import com.helger.config.IConfig;
 import com.helger.config.source.resource.properties.ConfigurationSourceProperties;
 import com.helger.io.resource.ClassPathResource;
 import com.helger.peppol.reportingsupport.TestHelper;
+import com.mongodb.WriteConcern;
 
 /**
  * Test class for class {@link PeppolReportStorageMongoDB}.
@@ -47,4 +52,26 @@ public final class PeppolReportStorageMongoDBTest
       TestHelper.runCases (aStorage);
     }
   }
+
+  @Test
+  public void testCustomSettings ()
+  {
+    // Use Test specific configuration
+    final IConfig aConfig = new Config (new ConfigurationSourceProperties (new ClassPathResource ("application-mongodb.properties")));
+
+    try (final PeppolReportMongoDBHandler aHdl = PeppolReportMongoDBHandler.createPeppolReportingConfigured (aConfig))
+    {
+      // Required in some cases
+      ThreadHelper.sleep (100);
+
+      // Store all report payloads in GridFS
+      final PeppolReportStorageMongoDB aStorage = new PeppolReportStorageMongoDB (aHdl).setWriteConcern (WriteConcern.W1)
+                                                                                       .setWritableCheckCacheDuration (Duration.ZERO)
+                                                                                       .setGridFSPayloadThreshold (0);
+      assertTrue (aStorage.ensureIndexes ().isSuccess ());
+      // Creating them again is a no-op
+      assertTrue (aStorage.ensureIndexes ().isSuccess ());
+      TestHelper.runCases (aStorage);
+    }
+  }
 }
@@ -0,0 +1,216 @@
+/*
+ * Copyright (C) 2025-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.reportingsupport.segmentlog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.stream.Stream;
+
+import org.jspecify.annotations.NonNull;
+import org.junit.Test;
+
+import com.helger.datetime.helper.PDTFactory;
+import com.helger.peppol.reportingsupport.EPeppolReportCompression;
+import com.helger.peppol.reportingsupport.EPeppolReportType;
+import com.helger.peppol.reportingsupport.TestHelper;
+import com.helger.peppol.reportingsupport.domain.PeppolReportData;
+import com.helger.peppol.reportingsupport.domain.PeppolReportQuery;
+import com.helger.peppol.reportingsupport.domain.PeppolReportStoredData;
+import com.helger.peppol.reportingsupport.file.EPeppolReportFileSync;
+
+/**
+ * Test class for class {@link PeppolReportStorageSegmentLog}.
+ *
+ * @author Philip Helger
+ */
+public final class PeppolReportStorageSegmentLogTest
+{
+  private static final File BASE_DIR = new File ("generated/segmentlog");
+
+  @Test
+  public void testBasic ()
+  {
+    try (final PeppolReportStorageSegmentLog aStorage = new PeppolReportStorageSegmentLog (BASE_DIR))
+    {
+      TestHelper.runCases (aStorage);
+    }
+  }
+
+  @Test
+  public void testCompressedAndSynced ()
+  {
+    try (final PeppolReportStorageSegmentLog aStorage = new PeppolReportStorageSegmentLog (BASE_DIR).setCompression (EPeppolReportCompression.GZIP)
+                                                                                                    .setSync (EPeppolReportFileSync.FILE_AND_DIRECTORY))
+    {
+      TestHelper.runCases (aStorage);
+    }
+  }
+
+  @Test
+  public void testSmallSegments ()
+  {
+    // Every large report ends up in a segment of its own
+    try (final PeppolReportStorageSegmentLog aStorage = new PeppolReportStorageSegmentLog (BASE_DIR).setMaxSegmentSize (4096))
+    {
+      TestHelper.runCases (aStorage);
+    }
+  }
+
+  @Test
+  public void testReopen () throws IOException
+  {
+    final LocalDateTime aNow = PDTFactory.getCurrentLocalDateTime ();
+    final String sReport = "<ReopenReport id=\"" + aNow + "\" />";
+    final PeppolReportQuery aQuery = new PeppolReportQuery ().setReportType (EPeppolReportType.EUSR_V11)
+                                                             .setReportPeriod (YearMonth.now ())
+                                                             .setReportCreationDT (aNow, aNow.plusSeconds (1));
+
+    try (final PeppolReportStorageSegmentLog aStorage = new PeppolReportStorageSegmentLog (BASE_DIR))
+    {
+      assertTrue (aStorage.storePeppolReport (new PeppolReportData (EPeppolReportType.EUSR_V11,
+                                                                    YearMonth.now (),
+                                                                    aNow,
+                                                                    sReport,
+                                                                    true)).isSuccess ());
+    }
+
+    // Simulate a crash while appending to the last segment
+    final Path aLastSegment;
+    try (final Stream <Path> aFiles = Files.list (BASE_DIR.toPath ()))
+    {
+      aLastSegment = aFiles.filter (x -> x.getFileName ().toString ().endsWith (".log")).sorted ().reduce ((a, b) -> b).get ();
+    }
+    final long nSize = Files.size (aLastSegment);
+    Files.write (aLastSegment, new byte [] { 'P', 'R', 'S' }, StandardOpenOption.APPEND);
+
+    // All indices are reloaded and the incomplete data is removed
+    try (final PeppolReportStorageSegmentLog aStorage = new PeppolReportStorageSegmentLog (BASE_DIR))
+    {
+      try (final Stream <PeppolReportStoredData> aStream = aStorage.queryPeppolReports (aQuery))
+      {
+        assertEquals (1, aStream.filter (x -> sReport.equals (x.getReportXMLString ())).count ());
+      }
+      assertNotNull (aStorage.getPeppolReportSummary (EPeppolReportType.EUSR_V11, YearMonth.now ()));
+      assertEquals (nSize, Files.size (aLastSegment));
+
+      // Still idempotent after reopening
+      assertTrue (aStorage.storePeppolReport (new PeppolReportData (EPeppolReportType.EUSR_V11,
+                                                                    YearMonth.now (),
+                                                                    aNow,
+                                                                    sReport,
+                                                                    true)).isSuccess ());
+      assertEquals (nSize, Files.size (aLastSegment));
+    }
+  }
+
+  private static long _countReports (@NonNull final PeppolReportStorageSegmentLog aStorage,
+                                     @NonNull final PeppolReportQuery aQuery,
+                                     @NonNull final String sReport)
+  {
+    try (final Stream <PeppolReportStoredData> aStream = aStorage.queryPeppolReports (aQuery))
+    {
+      return aStream.filter (x -> sReport.equals (x.getReportXMLString ())).count ();
+    }
+  }
+
+  @Test
+  public void testCorruptRecordInTheMiddle () throws IOException
+  {
+    final File aBaseDir = new File ("generated/segmentlog-corrupt/" + System.currentTimeMillis ());
+    final LocalDateTime aNow = PDTFactory.getCurrentLocalDateTime ();
+    final String [] aReports = { "<CorruptReport id=\"1\" />", "<CorruptReport id=\"2\" />", "<CorruptReport id=\"3\" />" };
+    final PeppolReportQuery aQuery = new PeppolReportQuery ().setReportType (EPeppolReportType.EUSR_V11)
+                                                             .setReportPeriod (YearMonth.now ())
+                                                             .setReportCreationDT (aNow, aNow.plusSeconds (1));
+    final Path aSegment = aBaseDir.toPath ().resolve ("segment-00000000000000000001.log");
+
+    long nOffset = 0;
+    try (final PeppolReportStorageSegmentLog aStorage = new PeppolReportStorageSegmentLog (aBaseDir))
+    {
+      for (int i = 0; i < aReports.length; ++i)
+      {
+        if (i == 1)
+          nOffset = Files.size (aSegment);
+        assertTrue (aStorage.storePeppolReport (new PeppolReportData (EPeppolReportType.EUSR_V11,
+                                                                      YearMonth.now (),
+                                                                      aNow,
+                                                                      aReports[i],
+                                                                      true)).isSuccess ());
+      }
+    }
+
+    // Damage the body of the second record and remove the index, so that it is rebuilt
+    final long nSize = Files.size (aSegment);
+    final byte [] aBytes = Files.readAllBytes (aSegment);
+    aBytes[(int) nOffset + 20] ^= 0xff;
+    Files.write (aSegment, aBytes);
+    Files.delete (aBaseDir.toPath ().resolve ("segment-00000000000000000001.idx"));
+
+    try (final PeppolReportStorageSegmentLog aStorage = new PeppolReportStorageSegmentLog (aBaseDir))
+    {
+      // Only the corrupt record is skipped and nothing is truncated
+      assertEquals (1, _countReports (aStorage, aQuery, aReports[0]));
+      assertEquals (0, _countReports (aStorage, aQuery, aReports[1]));
+      assertEquals (1, _countReports (aStorage, aQuery, aReports[2]));
+      assertEquals (nSize, Files.size (aSegment));
+
+      // The lost record can be stored again
+      assertTrue (aStorage.storePeppolReport (new PeppolReportData (EPeppolReportType.EUSR_V11,
+                                                                    YearMonth.now (),
+                                                                    aNow,
+                                                                    aReports[1],
+                                                                    true)).isSuccess ());
+    }
+
+    // The rebuilt index including the skipped data is used
+    try (final PeppolReportStorageSegmentLog aStorage = new PeppolReportStorageSegmentLog (aBaseDir))
+    {
+      for (final String sReport : aReports)
+        assertEquals (1, _countReports (aStorage, aQuery, sReport));
+    }
+  }
+
+  @Test
+  public void testSingleInstance ()
+  {
+    final File aBaseDir = new File ("generated/segmentlog-lock");
+    final PeppolReportData aReport = new PeppolReportData (EPeppolReportType.EUSR_V11,
+                                                           YearMonth.now (),
+                                                           PDTFactory.getCurrentLocalDateTime (),
+                                                           "<LockReport />",
+                                                           true);
+    try (final PeppolReportStorageSegmentLog aStorage1 = new PeppolReportStorageSegmentLog (aBaseDir);
+         final PeppolReportStorageSegmentLog aStorage2 = new PeppolReportStorageSegmentLog (aBaseDir))
+    {
+      assertTrue (aStorage1.storePeppolReport (aReport).isSuccess ());
+      // The directory is locked by the first instance
+      assertTrue (aStorage2.storePeppolReport (aReport).isFailure ());
+
+      aStorage1.close ();
+      assertTrue (aStorage2.storePeppolReport (aReport).isSuccess ());
+    }
+  }
+}
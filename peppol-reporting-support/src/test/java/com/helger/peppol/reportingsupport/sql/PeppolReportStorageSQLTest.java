@@ -16,6 +16,15 @@
  */
 package com.helger.peppol.reportingsupport.sql;
 
+import static org.junit.Assert.assertEquals;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
 import org.jspecify.annotations.NonNull;
 import org.junit.Test;
 
@@ -53,6 +62,89 @@ public final class PeppolReportStorageSQLTest
     _runTests (new Config (new ConfigurationSourceProperties (new ClassPathResource ("application-postgresql.properties"))));
   }
 
+  @NonNull
+  private static Connection _getConnection (@NonNull final IConfig aConfig) throws SQLException
+  {
+    final PeppolReportJdbcConfiguration aJdbcConfig = new PeppolReportJdbcConfiguration (aConfig);
+    return DriverManager.getConnection (aJdbcConfig.getJdbcUrl (),
+                                        aJdbcConfig.getJdbcUser (),
+                                        aJdbcConfig.getJdbcPassword ());
+  }
+
+  private static long _getLong (@NonNull final Connection aConn,
+                                @NonNull final String sSQL,
+                                @NonNull final String... aParams) throws SQLException
+  {
+    try (final PreparedStatement aPS = aConn.prepareStatement (sSQL))
+    {
+      for (int i = 0; i < aParams.length; ++i)
+        aPS.setString (i + 1, aParams[i]);
+      try (final ResultSet aRS = aPS.executeQuery ())
+      {
+        aRS.next ();
+        return aRS.getLong (1);
+      }
+    }
+  }
+
+  @Test
+  public void testPostgreSQLPartitioning () throws SQLException
+  {
+    final String sSchema = "peppol_partitioning";
+    final IConfig aConfigUnpartitioned = new Config (new ConfigurationSourceProperties (new ClassPathResource ("application-postgresql-unpartitioned.properties")));
+    final IConfig aConfigPartitioned = new Config (new ConfigurationSourceProperties (new ClassPathResource ("application-postgresql-partitioned.properties")));
+
+    // Start with an empty schema, so that the partitioning migrations run again
+    try (final Connection aConn = _getConnection (aConfigUnpartitioned); final Statement aStmt = aConn.createStatement ())
+    {
+      aStmt.execute ("DROP SCHEMA IF EXISTS " + sSchema + " CASCADE");
+    }
+
+    // Create and populate the regular tables
+    _runTests (aConfigUnpartitioned);
+
+    final long nReports;
+    final long nSendingReports;
+    try (final Connection aConn = _getConnection (aConfigUnpartitioned))
+    {
+      nReports = _getLong (aConn, "SELECT COUNT(*) FROM " + sSchema + ".peppol_report");
+      nSendingReports = _getLong (aConn, "SELECT COUNT(*) FROM " + sSchema + ".peppol_sending_report");
+    }
+
+    // Partition the populated tables and use them
+    try (final PeppolReportSQLHandler aHdl = new PeppolReportSQLHandler (aConfigPartitioned))
+    {
+      try (final Connection aConn = _getConnection (aConfigPartitioned))
+      {
+        for (final String sTable : new String [] { "peppol_report", "peppol_sending_report" })
+          assertEquals (sTable,
+                        1,
+                        _getLong (aConn,
+                                  "SELECT COUNT(*) FROM pg_partitioned_table pt" +
+                                         " JOIN pg_class c ON c.oid = pt.partrelid" +
+                                         " JOIN pg_namespace n ON n.oid = c.relnamespace" +
+                                         " WHERE n.nspname = ? AND c.relname = ?",
+                                  sSchema,
+                                  sTable));
+
+        // All indices must be present with their original names
+        assertEquals (6,
+                      _getLong (aConn,
+                                "SELECT COUNT(*) FROM pg_indexes WHERE schemaname = ? AND indexname IN (" +
+                                       "'peppol_report_idx', 'peppol_report_hash_idx'," +
+                                       " 'peppol_sending_report_idx', 'peppol_sending_report_hash_idx'," +
+                                       " 'peppol_sending_report_succ_idx', 'peppol_sending_report_msg_idx')",
+                                sSchema));
+
+        // No data must be lost
+        assertEquals (nReports, _getLong (aConn, "SELECT COUNT(*) FROM " + sSchema + ".peppol_report"));
+        assertEquals (nSendingReports, _getLong (aConn, "SELECT COUNT(*) FROM " + sSchema + ".peppol_sending_report"));
+      }
+
+      TestHelper.runCases (new PeppolReportStorageSQL (aHdl, aHdl.getTableNamePrefix ()));
+    }
+  }
+
   @Test
   public void testSQLServer ()
   {